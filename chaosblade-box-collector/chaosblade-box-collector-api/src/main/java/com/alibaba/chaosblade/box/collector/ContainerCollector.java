@@ -17,10 +17,21 @@
 package com.alibaba.chaosblade.box.collector;
 
 import com.alibaba.chaosblade.box.collector.model.Container;
+import com.alibaba.chaosblade.box.collector.model.Query;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author yefei
  */
 public interface ContainerCollector extends Collector<Container> {
 
+    /**
+     * containers of all pods in a single paginated list
+     *
+     * @param query
+     * @return
+     */
+    CompletableFuture<List<Container>> collectAll(Query query);
 }
@@ -17,10 +17,22 @@
 package com.alibaba.chaosblade.box.collector;
 
 import com.alibaba.chaosblade.box.collector.model.Pod;
+import com.alibaba.chaosblade.box.collector.model.Query;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author yefei
  */
 public interface PodCollector extends Collector<Pod> {
 
+    /**
+     * all pods of the cluster (of query node if present) with their containers,
+     * in a single paginated list
+     *
+     * @param query
+     * @return
+     */
+    CompletableFuture<List<Pod>> collectAll(Query query);
 }
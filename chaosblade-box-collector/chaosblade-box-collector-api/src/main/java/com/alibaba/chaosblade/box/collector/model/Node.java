@@ -26,6 +26,11 @@ import lombok.Data;
 @Builder
 public class Node {
 
+    /**
+     * uid of the kubernetes object, null if the collector does not know it
+     */
+    private String uid;
+
     private String name;
 
     private String ip;
@@ -19,6 +19,8 @@ package com.alibaba.chaosblade.box.collector.model;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+
 /**
  * @author yefei
  */
@@ -26,6 +28,11 @@ import lombok.Data;
 @Builder
 public class Pod {
 
+    /**
+     * uid of the kubernetes object, null if the collector does not know it
+     */
+    private String uid;
+
     private String kind;
 
     private String node;
@@ -35,4 +42,9 @@ public class Pod {
     private String name;
 
     private String ip;
+
+    /**
+     * null if the collector does not list containers with pods
+     */
+    private List<Container> containers;
 }
@@ -22,15 +22,17 @@ import com.alibaba.chaosblade.box.collector.CollectorType;
 import com.alibaba.chaosblade.box.collector.ContainerCollector;
 import com.alibaba.chaosblade.box.collector.model.Container;
 import com.alibaba.chaosblade.box.collector.model.Query;
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
+import io.kubernetes.client.informer.cache.Indexer;
 import io.kubernetes.client.openapi.ApiCallback;
-import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1Pod;
 import io.kubernetes.client.openapi.models.V1PodList;
-import io.kubernetes.client.util.Config;
-import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -42,19 +44,24 @@ import java.util.stream.Collectors;
  */
 @Component
 @CollectorStrategy(CollectorType.KUBE_API)
-public class KubeApiContainerCollector implements ContainerCollector, InitializingBean {
+public class KubeApiContainerCollector implements ContainerCollector {
 
-    private ApiClient client;
+    @Autowired
+    private KubeApiClient kubeApiClient;
 
-    @Override
-    public void afterPropertiesSet() throws Exception {
-        client = Config.defaultClient();
-    }
+    @Autowired
+    private KubeApiInformers informers;
 
     @Override
     public CompletableFuture<List<Container>> collect(Query query) {
+        Indexer<V1Pod> indexer = informers.podIndexer();
+        if (indexer != null) {
+            return CompletableFuture.completedFuture(
+                    toContainers(indexer.byIndex(KubeApiInformers.POD_NAME_INDEX, query.getPodName()), query));
+        }
+
         CompletableFuture<List<Container>> future = new CompletableFuture<>();
-        CoreV1Api api = new CoreV1Api(client);
+        CoreV1Api api = kubeApiClient.coreV1Api();
         try {
             api.listPodForAllNamespacesAsync(null, null, String.format("metadata.name=%s", query.getPodName()), null,
                     null, null, null, null, null,
@@ -66,19 +73,7 @@ public class KubeApiContainerCollector implements ContainerCollector, Initializi
 
                         @Override
                         public void onSuccess(V1PodList result, int statusCode, Map<String, List<String>> responseHeaders) {
-                            List<Container> containers = result.getItems().stream()
-                                    .filter(v1Pod -> Objects.equals(v1Pod.getMetadata().getName(), query.getPodName())
-                                            && CollUtil.isNotEmpty(v1Pod.getStatus().getContainerStatuses()))
-                                    .flatMap(v1Pod ->
-                                            v1Pod.getStatus().getContainerStatuses().stream()
-                                                    .map(v1ContainerStatus ->
-                                                            Container.builder().pod(v1Pod.getMetadata().getName())
-                                                                    .name(v1ContainerStatus.getName())
-                                                                    .containerId(v1ContainerStatus.getContainerID())
-                                                                    .build()
-                                                    )
-                                    ).collect(Collectors.toList());
-                            future.complete(containers);
+                            future.complete(toContainers(result.getItems(), query));
                         }
 
                         @Override
@@ -96,4 +91,40 @@ public class KubeApiContainerCollector implements ContainerCollector, Initializi
         }
         return future;
     }
+
+    @Override
+    public CompletableFuture<List<Container>> collectAll(Query query) {
+        Indexer<V1Pod> indexer = informers.podIndexer();
+        if (indexer != null) {
+            return CompletableFuture.completedFuture(indexer.list().stream()
+                    .flatMap(v1Pod -> toContainers(v1Pod).stream())
+                    .collect(Collectors.toList()));
+        }
+        return KubeApiPodCollector.listPods(kubeApiClient.coreV1Api(), null)
+                .thenApply(v1Pods -> v1Pods.stream()
+                        .flatMap(v1Pod -> toContainers(v1Pod).stream())
+                        .collect(Collectors.toList()));
+    }
+
+    private static List<Container> toContainers(List<V1Pod> v1Pods, Query query) {
+        return v1Pods.stream()
+                .filter(v1Pod -> Objects.equals(v1Pod.getMetadata().getName(), query.getPodName()))
+                .flatMap(v1Pod -> toContainers(v1Pod).stream())
+                .collect(Collectors.toList());
+    }
+
+    static List<Container> toContainers(V1Pod v1Pod) {
+        if (v1Pod.getStatus() == null || CollUtil.isEmpty(v1Pod.getStatus().getContainerStatuses())) {
+            return Collections.emptyList();
+        }
+        return v1Pod.getStatus().getContainerStatuses().stream()
+                .map(v1ContainerStatus ->
+                        Container.builder().pod(v1Pod.getMetadata().getName())
+                                .namespace(v1Pod.getMetadata().getNamespace())
+                                .name(v1ContainerStatus.getName())
+                                .image(v1ContainerStatus.getImage())
+                                .containerId(v1ContainerStatus.getContainerID())
+                                .build()
+                ).collect(Collectors.toList());
+    }
 }
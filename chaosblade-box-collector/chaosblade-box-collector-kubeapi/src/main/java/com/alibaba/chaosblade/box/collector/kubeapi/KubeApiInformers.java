@@ -0,0 +1,149 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.collector.kubeapi;
+
+import com.alibaba.chaosblade.box.collector.CollectorListener;
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.informer.ResourceEventHandler;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import io.kubernetes.client.informer.SharedInformerFactory;
+import io.kubernetes.client.informer.cache.Indexer;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1Node;
+import io.kubernetes.client.openapi.models.V1NodeList;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodList;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Node and pod informers shared by the kube api collectors, a single
+ * list + resourceVersion watch per resource keeps the local cache.
+ * Informers are created lazily, only when a collector is watched.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class KubeApiInformers implements InitializingBean, DisposableBean {
+
+    public static final String NODE_NAME_INDEX = "nodeName";
+
+    public static final String POD_NAME_INDEX = "podName";
+
+    @Autowired
+    private KubeApiClient kubeApiClient;
+
+    private SharedInformerFactory factory;
+
+    private CoreV1Api api;
+
+    private SharedIndexInformer<V1Node> nodeInformer;
+
+    private volatile SharedIndexInformer<V1Pod> podInformer;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        // watch connections are long-lived
+        ApiClient client = kubeApiClient.watchClient();
+        api = new CoreV1Api(client);
+        factory = new SharedInformerFactory(client);
+    }
+
+    @Override
+    public void destroy() {
+        factory.stopAllRegisteredInformers();
+    }
+
+    public synchronized SharedIndexInformer<V1Node> nodeInformer() {
+        if (nodeInformer == null) {
+            nodeInformer = factory.sharedIndexInformerFor(params -> api.listNodeCall(null, null, null,
+                    null, null, null, params.resourceVersion, params.timeoutSeconds, params.watch, null),
+                    V1Node.class, V1NodeList.class);
+        }
+        return nodeInformer;
+    }
+
+    public synchronized SharedIndexInformer<V1Pod> podInformer() {
+        if (podInformer == null) {
+            podInformer = factory.sharedIndexInformerFor(params -> api.listPodForAllNamespacesCall(null, null,
+                    null, null, null, null, params.resourceVersion, params.timeoutSeconds, params.watch, null),
+                    V1Pod.class, V1PodList.class);
+
+            Map<String, Function<V1Pod, List<String>>> indexers = new HashMap<>();
+            indexers.put(NODE_NAME_INDEX, v1Pod -> v1Pod.getSpec() == null || v1Pod.getSpec().getNodeName() == null
+                    ? Collections.emptyList() : Collections.singletonList(v1Pod.getSpec().getNodeName()));
+            indexers.put(POD_NAME_INDEX, v1Pod -> Collections.singletonList(v1Pod.getMetadata().getName()));
+            podInformer.addIndexers(indexers);
+        }
+        return podInformer;
+    }
+
+    /**
+     * synced pod cache, null if pods are not watched
+     */
+    public Indexer<V1Pod> podIndexer() {
+        SharedIndexInformer<V1Pod> informer = podInformer;
+        return informer != null && informer.hasSynced() ? informer.getIndexer() : null;
+    }
+
+    public synchronized void start() {
+        factory.startAllRegisteredInformers();
+    }
+
+    /**
+     * adapt informer events, updates which do not change the converted model are dropped
+     */
+    public static <ApiType extends KubernetesObject, T> ResourceEventHandler<ApiType> handler(
+            Function<ApiType, T> converter, CollectorListener<T> listener) {
+        return new ResourceEventHandler<ApiType>() {
+            @Override
+            public void onAdd(ApiType obj) {
+                notify(() -> listener.onUpdate(converter.apply(obj)));
+            }
+
+            @Override
+            public void onUpdate(ApiType oldObj, ApiType newObj) {
+                T t = converter.apply(newObj);
+                if (!Objects.equals(converter.apply(oldObj), t)) {
+                    notify(() -> listener.onUpdate(t));
+                }
+            }
+
+            @Override
+            public void onDelete(ApiType obj, boolean deletedFinalStateUnknown) {
+                notify(() -> listener.onDelete(converter.apply(obj)));
+            }
+
+            private void notify(Runnable runnable) {
+                try {
+                    runnable.run();
+                } catch (Exception e) {
+                    log.error("handle informer event fail!", e);
+                }
+            }
+        };
+    }
+}
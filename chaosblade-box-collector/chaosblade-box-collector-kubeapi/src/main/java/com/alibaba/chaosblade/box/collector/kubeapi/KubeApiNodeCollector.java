@@ -16,18 +16,21 @@
 
 package com.alibaba.chaosblade.box.collector.kubeapi;
 
+import com.alibaba.chaosblade.box.collector.CollectorListener;
 import com.alibaba.chaosblade.box.collector.CollectorStrategy;
 import com.alibaba.chaosblade.box.collector.CollectorType;
 import com.alibaba.chaosblade.box.collector.NodeCollector;
+import com.alibaba.chaosblade.box.collector.WatchableCollector;
 import com.alibaba.chaosblade.box.collector.model.Node;
 import com.alibaba.chaosblade.box.collector.model.Query;
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
+import io.kubernetes.client.informer.SharedIndexInformer;
 import io.kubernetes.client.openapi.ApiCallback;
-import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1Node;
 import io.kubernetes.client.openapi.models.V1NodeList;
-import io.kubernetes.client.util.Config;
-import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -40,19 +43,34 @@ import java.util.stream.Collectors;
  */
 @Component
 @CollectorStrategy(CollectorType.KUBE_API)
-public class KubeApiNodeCollector implements NodeCollector, InitializingBean {
+public class KubeApiNodeCollector implements NodeCollector, WatchableCollector<Node> {
 
-    private ApiClient client;
+    @Autowired
+    private KubeApiClient kubeApiClient;
+
+    @Autowired
+    private KubeApiInformers informers;
+
+    private volatile SharedIndexInformer<V1Node> informer;
 
     @Override
-    public void afterPropertiesSet() throws Exception {
-        client = Config.defaultClient();
+    public void watch(CollectorListener<Node> listener) {
+        SharedIndexInformer<V1Node> nodeInformer = informers.nodeInformer();
+        nodeInformer.addEventHandler(KubeApiInformers.handler(KubeApiNodeCollector::toNode, listener));
+        informers.start();
+        informer = nodeInformer;
     }
 
     @Override
     public CompletableFuture<List<Node>> collect(Query query) {
+        if (informer != null && informer.hasSynced()) {
+            return CompletableFuture.completedFuture(informer.getIndexer().list().stream()
+                    .map(KubeApiNodeCollector::toNode)
+                    .collect(Collectors.toList()));
+        }
+
         CompletableFuture<List<Node>> future = new CompletableFuture<>();
-        CoreV1Api api = new CoreV1Api(client);
+        CoreV1Api api = kubeApiClient.coreV1Api();
         try {
             api.listNodeAsync(null,
                     null, null,
@@ -66,11 +84,9 @@ public class KubeApiNodeCollector implements NodeCollector, InitializingBean {
 
                         @Override
                         public void onSuccess(V1NodeList result, int statusCode, Map<String, List<String>> responseHeaders) {
-                            List<Node> nodes = result.getItems().stream().map(v1Node ->
-                                    Node.builder().name(v1Node.getMetadata().getName())
-                                            .ip(v1Node.getStatus().getAddresses().get(0).getAddress())
-                                            .build()
-                            ).collect(Collectors.toList());
+                            List<Node> nodes = result.getItems().stream()
+                                    .map(KubeApiNodeCollector::toNode)
+                                    .collect(Collectors.toList());
                             future.complete(nodes);
                         }
 
@@ -90,4 +106,11 @@ public class KubeApiNodeCollector implements NodeCollector, InitializingBean {
         }
         return future;
     }
+
+    static Node toNode(V1Node v1Node) {
+        return Node.builder().name(v1Node.getMetadata().getName())
+                .uid(v1Node.getMetadata().getUid())
+                .ip(v1Node.getStatus().getAddresses().get(0).getAddress())
+                .build();
+    }
 }
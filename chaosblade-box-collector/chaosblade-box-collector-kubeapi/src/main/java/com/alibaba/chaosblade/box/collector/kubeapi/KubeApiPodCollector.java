@@ -16,20 +16,25 @@
 
 package com.alibaba.chaosblade.box.collector.kubeapi;
 
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.chaosblade.box.collector.CollectorListener;
 import com.alibaba.chaosblade.box.collector.CollectorStrategy;
 import com.alibaba.chaosblade.box.collector.CollectorType;
 import com.alibaba.chaosblade.box.collector.PodCollector;
+import com.alibaba.chaosblade.box.collector.WatchableCollector;
 import com.alibaba.chaosblade.box.collector.model.Pod;
 import com.alibaba.chaosblade.box.collector.model.Query;
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
+import io.kubernetes.client.informer.SharedIndexInformer;
 import io.kubernetes.client.openapi.ApiCallback;
-import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1Pod;
 import io.kubernetes.client.openapi.models.V1PodList;
-import io.kubernetes.client.util.Config;
-import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -41,22 +46,74 @@ import java.util.stream.Collectors;
  */
 @Component
 @CollectorStrategy(CollectorType.KUBE_API)
-public class KubeApiPodCollector implements PodCollector, InitializingBean {
+public class KubeApiPodCollector implements PodCollector, WatchableCollector<Pod> {
 
-    private ApiClient client;
+    private static final int PAGE_LIMIT = 500;
+
+    @Autowired
+    private KubeApiClient kubeApiClient;
+
+    @Autowired
+    private KubeApiInformers informers;
+
+    private volatile SharedIndexInformer<V1Pod> informer;
 
     @Override
-    public void afterPropertiesSet() throws Exception {
-        client = Config.defaultClient();
+    public void watch(CollectorListener<Pod> listener) {
+        SharedIndexInformer<V1Pod> podInformer = informers.podInformer();
+        podInformer.addEventHandler(KubeApiInformers.handler(KubeApiPodCollector::toPod, listener));
+        informers.start();
+        informer = podInformer;
     }
 
     @Override
     public CompletableFuture<List<Pod>> collect(Query query) {
-        CompletableFuture<List<Pod>> future = new CompletableFuture<>();
-        CoreV1Api api = new CoreV1Api(client);
+        if (informer != null && informer.hasSynced()) {
+            return CompletableFuture.completedFuture(informer.getIndexer()
+                    .byIndex(KubeApiInformers.NODE_NAME_INDEX, query.getNodeName()).stream()
+                    .map(KubeApiPodCollector::toPod)
+                    .collect(Collectors.toList()));
+        }
+        return listPods(kubeApiClient.coreV1Api(), nodeSelector(query.getNodeName()))
+                .thenApply(v1Pods -> v1Pods.stream()
+                        .filter(v1Pod -> Objects.equals(v1Pod.getSpec().getNodeName(), query.getNodeName()))
+                        .map(KubeApiPodCollector::toPod)
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public CompletableFuture<List<Pod>> collectAll(Query query) {
+        if (informer != null && informer.hasSynced()) {
+            List<V1Pod> v1Pods = query.getNodeName() == null ? informer.getIndexer().list()
+                    : informer.getIndexer().byIndex(KubeApiInformers.NODE_NAME_INDEX, query.getNodeName());
+            return CompletableFuture.completedFuture(v1Pods.stream()
+                    .map(KubeApiPodCollector::toPod)
+                    .collect(Collectors.toList()));
+        }
+        return listPods(kubeApiClient.coreV1Api(), nodeSelector(query.getNodeName()))
+                .thenApply(v1Pods -> v1Pods.stream()
+                        .map(KubeApiPodCollector::toPod)
+                        .collect(Collectors.toList()));
+    }
+
+    private static String nodeSelector(String nodeName) {
+        return nodeName == null ? null : String.format("spec.nodeName=%s", nodeName);
+    }
+
+    /**
+     * list pods of all namespaces page by page, limit / continue
+     */
+    static CompletableFuture<List<V1Pod>> listPods(CoreV1Api api, String fieldSelector) {
+        CompletableFuture<List<V1Pod>> future = new CompletableFuture<>();
+        listPods(api, fieldSelector, null, new ArrayList<>(), future);
+        return future;
+    }
+
+    private static void listPods(CoreV1Api api, String fieldSelector, String _continue, List<V1Pod> v1Pods,
+                                 CompletableFuture<List<V1Pod>> future) {
         try {
-            api.listPodForAllNamespacesAsync(null, null, null, null,
-                    null, null, null, null, null,
+            api.listPodForAllNamespacesAsync(null, _continue, fieldSelector, null,
+                    PAGE_LIMIT, null, null, null, null,
                     new ApiCallback<V1PodList>() {
                         @Override
                         public void onFailure(ApiException e, int statusCode, Map<String, List<String>> responseHeaders) {
@@ -65,16 +122,13 @@ public class KubeApiPodCollector implements PodCollector, InitializingBean {
 
                         @Override
                         public void onSuccess(V1PodList result, int statusCode, Map<String, List<String>> responseHeaders) {
-                            List<Pod> pods = result.getItems().stream()
-                                    .filter(v1Pod -> Objects.equals(v1Pod.getSpec().getNodeName(), query.getNodeName()))
-                                    .map(v1Pod ->
-                                            Pod.builder()
-                                                    .name(v1Pod.getMetadata().getName())
-                                                    .namespace(v1Pod.getMetadata().getNamespace())
-                                                    .ip(v1Pod.getStatus().getPodIP())
-                                                    .build()
-                                    ).collect(Collectors.toList());
-                            future.complete(pods);
+                            v1Pods.addAll(result.getItems());
+                            String next = result.getMetadata() == null ? null : result.getMetadata().getContinue();
+                            if (StrUtil.isEmpty(next)) {
+                                future.complete(v1Pods);
+                            } else {
+                                listPods(api, fieldSelector, next, v1Pods, future);
+                            }
                         }
 
                         @Override
@@ -90,6 +144,16 @@ public class KubeApiPodCollector implements PodCollector, InitializingBean {
         } catch (ApiException e) {
             future.completeExceptionally(e);
         }
-        return future;
+    }
+
+    static Pod toPod(V1Pod v1Pod) {
+        return Pod.builder()
+                .uid(v1Pod.getMetadata().getUid())
+                .name(v1Pod.getMetadata().getName())
+                .namespace(v1Pod.getMetadata().getNamespace())
+                .node(v1Pod.getSpec() == null ? null : v1Pod.getSpec().getNodeName())
+                .ip(v1Pod.getStatus() == null ? null : v1Pod.getStatus().getPodIP())
+                .containers(KubeApiContainerCollector.toContainers(v1Pod))
+                .build();
     }
 }
@@ -2,6 +2,7 @@ package com.alibaba.chaosblade.box.collector.kubeapi;
 
 import com.alibaba.chaosblade.box.collector.model.Node;
 import com.alibaba.chaosblade.box.collector.model.Query;
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
 import com.alibaba.testable.core.annotation.MockDiagnose;
 import com.alibaba.testable.core.annotation.MockMethod;
 import com.alibaba.testable.core.model.LogLevel;
@@ -17,6 +18,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -35,6 +37,7 @@ public class KubeApiNodeCollectorTest {
 
     @Configuration
     @ComponentScan("com.alibaba.chaosblade.box.collector.kubeapi")
+    @Import(KubeApiClient.class)
     public static class Config {
     }
 
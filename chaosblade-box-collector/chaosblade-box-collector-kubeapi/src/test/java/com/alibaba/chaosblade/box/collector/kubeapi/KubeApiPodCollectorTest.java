@@ -2,6 +2,7 @@ package com.alibaba.chaosblade.box.collector.kubeapi;
 
 import com.alibaba.chaosblade.box.collector.model.Pod;
 import com.alibaba.chaosblade.box.collector.model.Query;
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
 import com.alibaba.testable.core.annotation.MockDiagnose;
 import com.alibaba.testable.core.annotation.MockMethod;
 import com.alibaba.testable.core.model.LogLevel;
@@ -17,6 +18,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -34,6 +36,7 @@ public class KubeApiPodCollectorTest {
 
     @Configuration
     @ComponentScan("com.alibaba.chaosblade.box.collector.kubeapi")
+    @Import(KubeApiClient.class)
     public static class Config {
     }
 
@@ -82,4 +85,11 @@ public class KubeApiPodCollectorTest {
         Assert.assertEquals("tomcat-xyz", pods.get(0).getName());
     }
 
+    @Test
+    public void testCollectAll() throws Exception {
+        List<Pod> pods = podCollector.collectAll(Query.builder().build()).get();
+        Assert.assertEquals(pods.size(), 1);
+        Assert.assertEquals("node-master", pods.get(0).getNode());
+        Assert.assertNotNull(pods.get(0).getContainers());
+    }
 }
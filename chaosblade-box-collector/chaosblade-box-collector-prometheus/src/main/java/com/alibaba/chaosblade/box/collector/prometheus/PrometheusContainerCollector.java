@@ -43,6 +43,11 @@ public class PrometheusContainerCollector extends AbstractCollector<Container> i
         return collect(String.format("kube_pod_container_info{pod='%s'}", query.getPodName()));
     }
 
+    @Override
+    public CompletableFuture<List<Container>> collectAll(Query query) {
+        return collect("kube_pod_container_info");
+    }
+
     @Override
     List<Container> pack(byte[] bytes) {
 
@@ -43,6 +43,14 @@ public class PrometheusPodCollector extends AbstractCollector<Pod> implements Po
         return collect(String.format("kube_pod_info{node='%s'}", query.getNodeName()));
     }
 
+    @Override
+    public CompletableFuture<List<Pod>> collectAll(Query query) {
+        if (query.getNodeName() != null) {
+            return collect(query);
+        }
+        return collect("kube_pod_info");
+    }
+
     @Override
     List<Pod> pack(byte[] bytes) {
 
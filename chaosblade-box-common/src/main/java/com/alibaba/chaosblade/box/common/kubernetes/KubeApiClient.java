@@ -0,0 +1,369 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.common.kubernetes;
+
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.apis.CustomObjectsApi;
+import io.kubernetes.client.openapi.apis.RbacAuthorizationV1Api;
+import io.kubernetes.client.util.Config;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kubernetes api client shared by the kube api invokers and collectors.
+ *
+ * <p>All clients share one dispatcher and one connection pool. Async calls are
+ * bounded by maxRequests and maxRequestsPerHost, the apiserver being a single host.
+ * HTTP/2 is negotiated on TLS connections unless disabled. Requests except watches
+ * are limited to qps with bursts of burst requests, 0 is unlimited: async calls wait
+ * for their permit before the dispatcher runs them, synchronous ones on the calling
+ * thread. Latency is recorded per verb and logged every statsInterval ms.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class KubeApiClient implements InitializingBean, DisposableBean {
+
+    @Value("${chaos.kubeapi.maxRequests:256}")
+    private int maxRequests;
+
+    @Value("${chaos.kubeapi.maxRequestsPerHost:128}")
+    private int maxRequestsPerHost;
+
+    @Value("${chaos.kubeapi.maxIdle:16}")
+    private int maxIdle;
+
+    @Value("${chaos.kubeapi.keepAlive:300000}")
+    private long keepAlive;
+
+    @Value("${chaos.kubeapi.http2:true}")
+    private boolean http2;
+
+    @Value("${chaos.kubeapi.qps:100}")
+    private double qps;
+
+    @Value("${chaos.kubeapi.burst:200}")
+    private int burst;
+
+    @Value("${chaos.kubeapi.statsInterval:60000}")
+    private long statsInterval;
+
+    private ApiClient client;
+
+    private ApiClient watchClient;
+
+    private CoreV1Api coreV1Api;
+
+    private CustomObjectsApi customObjectsApi;
+
+    private RbacAuthorizationV1Api rbacAuthorizationV1Api;
+
+    private TokenBucket tokenBucket;
+
+    /**
+     * set while a dispatcher thread runs an async call that already took its permit
+     */
+    private static final ThreadLocal<Boolean> PERMITTED = ThreadLocal.withInitial(() -> false);
+
+    private final Map<String, LatencyStats> latencyStats = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("Kube-api-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        ThreadPoolExecutor callExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r);
+            thread.setName("Kube-api-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Dispatcher dispatcher;
+        if (qps > 0) {
+            tokenBucket = new TokenBucket(qps, burst);
+            dispatcher = new Dispatcher(new RateLimitedExecutor(callExecutor, scheduledExecutorService, tokenBucket));
+        } else {
+            dispatcher = new Dispatcher(callExecutor);
+        }
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        client = Config.defaultClient();
+        OkHttpClient httpClient = client.getHttpClient().newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdle, keepAlive, TimeUnit.MILLISECONDS))
+                .protocols(http2 ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : Collections.singletonList(Protocol.HTTP_1_1))
+                .addInterceptor(this::intercept)
+                .build();
+        client.setHttpClient(httpClient);
+
+        // watches stay open until their server side timeout, same dispatcher and pool
+        watchClient = Config.defaultClient();
+        watchClient.setHttpClient(httpClient.newBuilder()
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .build());
+
+        coreV1Api = new CoreV1Api(client);
+        customObjectsApi = new CustomObjectsApi(client);
+        rbacAuthorizationV1Api = new RbacAuthorizationV1Api(client);
+
+        scheduledExecutorService.scheduleWithFixedDelay(this::logStats, statsInterval, statsInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduledExecutorService.shutdown();
+        OkHttpClient httpClient = client.getHttpClient();
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+
+    public ApiClient client() {
+        return client;
+    }
+
+    /**
+     * client without read timeout, for watches and informers
+     */
+    public ApiClient watchClient() {
+        return watchClient;
+    }
+
+    public CoreV1Api coreV1Api() {
+        return coreV1Api;
+    }
+
+    public CustomObjectsApi customObjectsApi() {
+        return customObjectsApi;
+    }
+
+    public RbacAuthorizationV1Api rbacAuthorizationV1Api() {
+        return rbacAuthorizationV1Api;
+    }
+
+    /**
+     * verb -> latency since start
+     */
+    public Map<String, LatencyStats> getLatencyStats() {
+        return Collections.unmodifiableMap(latencyStats);
+    }
+
+    private Response intercept(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        boolean watch = "true".equals(request.url().queryParameter("watch"));
+        // async calls took their permit before the dispatcher ran them, see RateLimitedExecutor
+        if (!watch && tokenBucket != null && !PERMITTED.get()) {
+            try {
+                tokenBucket.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting for kube api rate limit");
+            }
+        }
+
+        LatencyStats stats = latencyStats.computeIfAbsent(watch ? "WATCH" : request.method(),
+                verb -> new LatencyStats());
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(request);
+            // a watch returns once its headers arrive
+            stats.record(System.nanoTime() - start, response.isSuccessful());
+            return response;
+        } catch (IOException e) {
+            stats.record(System.nanoTime() - start, false);
+            throw e;
+        }
+    }
+
+    private void logStats() {
+        latencyStats.forEach((verb, stats) -> log.info(
+                "kube api {}, count: {}, errors: {}, avg: {} ms, max: {} ms",
+                verb, stats.getCount(), stats.getErrors(), stats.getAvgMillis(), stats.getMaxMillis()));
+    }
+
+    public static class LatencyStats {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos, boolean success) {
+            count.increment();
+            if (!success) {
+                errors.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public double getAvgMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+    }
+
+    /**
+     * permits refill at qps per second up to burst
+     */
+    private static class TokenBucket {
+
+        private final double nanosPerPermit;
+
+        private final double maxPermits;
+
+        private double permits;
+
+        private long refillTime = System.nanoTime();
+
+        private TokenBucket(double qps, int burst) {
+            this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / qps;
+            this.maxPermits = Math.max(1, burst);
+            this.permits = maxPermits;
+        }
+
+        /**
+         * a permit is reserved even when not yet available
+         *
+         * @return nanos until the reserved permit is available
+         */
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            permits = Math.min(maxPermits, permits + (now - refillTime) / nanosPerPermit);
+            refillTime = now;
+            permits -= 1;
+            return permits >= 0 ? 0 : (long) (-permits * nanosPerPermit);
+        }
+
+        private void acquire() throws InterruptedException {
+            long wait = reserve();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+
+    /**
+     * Executor of the dispatcher: an async call waits for its permit on the scheduler
+     * before it is handed to a dispatcher thread, no thread sleeps for it.
+     */
+    private static class RateLimitedExecutor extends AbstractExecutorService {
+
+        private final ExecutorService executor;
+
+        private final ScheduledExecutorService scheduler;
+
+        private final TokenBucket tokenBucket;
+
+        private RateLimitedExecutor(ExecutorService executor, ScheduledExecutorService scheduler,
+                                    TokenBucket tokenBucket) {
+            this.executor = executor;
+            this.scheduler = scheduler;
+            this.tokenBucket = tokenBucket;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("kube api client is shut down");
+            }
+            Runnable permitted = () -> {
+                PERMITTED.set(true);
+                try {
+                    command.run();
+                } finally {
+                    PERMITTED.set(false);
+                }
+            };
+            long wait = tokenBucket.reserve();
+            if (wait == 0) {
+                executor.execute(permitted);
+                return;
+            }
+            scheduler.schedule(() -> {
+                try {
+                    executor.execute(permitted);
+                } catch (RejectedExecutionException e) {
+                    // shut down while waiting, the call still completes its callback
+                    permitted.run();
+                }
+            }, wait, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return executor.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return executor.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return executor.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return executor.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -18,12 +18,21 @@ package com.alibaba.chaosblade.box.dao.mapper;
 
 import com.alibaba.chaosblade.box.dao.model.MetricTaskDO;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+
 /**
  * @author yefei
  */
 @Repository
 public interface MetricTaskMapper extends BaseMapper<MetricTaskDO> {
 
+    void selectByTaskId(@Param("taskId") Long taskId,
+                        @Param("categoryCodes") Collection<String> categoryCodes,
+                        @Param("startTime") String startTime,
+                        @Param("endTime") String endTime,
+                        ResultHandler<MetricTaskDO> resultHandler);
 }
@@ -22,9 +22,11 @@ import com.alibaba.chaosblade.box.dao.QueryWrapperBuilder;
 import com.alibaba.chaosblade.box.dao.mapper.DeviceNodeMapper;
 import com.alibaba.chaosblade.box.dao.model.DeviceNodeDO;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,7 +34,7 @@ import java.util.Optional;
  * @author yefei
  */
 @Repository
-public class DeviceNodeRepository implements IRepository<Long, DeviceNodeDO> {
+public class DeviceNodeRepository extends ServiceImpl<DeviceNodeMapper, DeviceNodeDO> implements IRepository<Long, DeviceNodeDO> {
 
     @Autowired
     private DeviceNodeMapper deviceNodeMapper;
@@ -85,4 +87,12 @@ public class DeviceNodeRepository implements IRepository<Long, DeviceNodeDO> {
         }
         return deviceNodeMapper.selectList(queryWrapper);
     }
+
+    public void insertBatch(Collection<DeviceNodeDO> collection) {
+        saveBatch(collection);
+    }
+
+    public void updateBatch(Collection<DeviceNodeDO> collection) {
+        updateBatchById(collection);
+    }
 }
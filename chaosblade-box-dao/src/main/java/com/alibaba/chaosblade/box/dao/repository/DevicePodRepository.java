@@ -22,9 +22,11 @@ import com.alibaba.chaosblade.box.dao.QueryWrapperBuilder;
 import com.alibaba.chaosblade.box.dao.model.DevicePodDO;
 import com.alibaba.chaosblade.box.dao.mapper.DevicePodMapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,7 +34,7 @@ import java.util.Optional;
  * @author yefei
  */
 @Repository
-public class DevicePodRepository implements IRepository<Long, DevicePodDO> {
+public class DevicePodRepository extends ServiceImpl<DevicePodMapper, DevicePodDO> implements IRepository<Long, DevicePodDO> {
 
     @Autowired
     private DevicePodMapper devicePodMapper;
@@ -112,4 +114,12 @@ public class DevicePodRepository implements IRepository<Long, DevicePodDO> {
         devicePodDO.setId(id);
         return devicePodMapper.updateById(devicePodDO) == 1;
     }
+
+    public void insertBatch(Collection<DevicePodDO> collection) {
+        saveBatch(collection);
+    }
+
+    public void updateBatch(Collection<DevicePodDO> collection) {
+        updateBatchById(collection);
+    }
 }
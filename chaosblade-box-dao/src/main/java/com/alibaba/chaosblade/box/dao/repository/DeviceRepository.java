@@ -16,6 +16,7 @@
 
 package com.alibaba.chaosblade.box.dao.repository;
 
+import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.chaosblade.box.common.enums.DeviceStatus;
 import com.alibaba.chaosblade.box.common.enums.DeviceType;
@@ -23,6 +24,7 @@ import com.alibaba.chaosblade.box.dao.QueryWrapperBuilder;
 import com.alibaba.chaosblade.box.dao.mapper.DeviceMapper;
 import com.alibaba.chaosblade.box.dao.model.DeviceDO;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -35,7 +37,7 @@ import java.util.Optional;
  * @author yefei
  */
 @Repository
-public class DeviceRepository implements IRepository<Long, DeviceDO> {
+public class DeviceRepository extends ServiceImpl<DeviceMapper, DeviceDO> implements IRepository<Long, DeviceDO> {
 
     @Autowired
     private DeviceMapper deviceMapper;
@@ -100,6 +102,21 @@ public class DeviceRepository implements IRepository<Long, DeviceDO> {
         return deviceMapper.updateById(deviceDO) == 1;
     }
 
+    /**
+     * update ... where id in (...)
+     * @param ids
+     * @param deviceDO
+     * @return
+     */
+    public int updateByIds(Collection<Long> ids, DeviceDO deviceDO) {
+        if (CollUtil.isEmpty(ids)) {
+            return 0;
+        }
+        QueryWrapper<DeviceDO> queryWrapper = QueryWrapperBuilder.build();
+        queryWrapper.lambda().in(DeviceDO::getId, ids);
+        return deviceMapper.update(deviceDO, queryWrapper);
+    }
+
     public List<DeviceDO> selectBatchIds(Collection<? extends Serializable> idList) {
         return deviceMapper.selectBatchIds(idList);
     }
@@ -116,4 +133,12 @@ public class DeviceRepository implements IRepository<Long, DeviceDO> {
         queryWrapper.lambda().eq(DeviceDO::getStatus, DeviceStatus.ONLINE.getStatus());
         return deviceMapper.selectCount(queryWrapper);
     }
+
+    public void insertBatch(Collection<DeviceDO> collection) {
+        saveBatch(collection);
+    }
+
+    public void updateBatch(Collection<DeviceDO> collection) {
+        updateBatchById(collection);
+    }
 }
@@ -20,9 +20,11 @@ import com.alibaba.chaosblade.box.dao.QueryWrapperBuilder;
 import com.alibaba.chaosblade.box.dao.mapper.ExperimentActivityTaskRecordMapper;
 import com.alibaba.chaosblade.box.dao.model.ExperimentActivityTaskRecordDO;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,7 +32,8 @@ import java.util.Optional;
  * @author yefei
  */
 @Repository
-public class ExperimentActivityTaskRecordRepository implements IRepository<Long, ExperimentActivityTaskRecordDO> {
+public class ExperimentActivityTaskRecordRepository extends ServiceImpl<ExperimentActivityTaskRecordMapper, ExperimentActivityTaskRecordDO>
+        implements IRepository<Long, ExperimentActivityTaskRecordDO> {
 
     @Autowired
     private ExperimentActivityTaskRecordMapper experimentActivityTaskRecordMapper;
@@ -64,4 +67,12 @@ public class ExperimentActivityTaskRecordRepository implements IRepository<Long,
         queryWrapper.lambda().eq(ExperimentActivityTaskRecordDO::getExperimentTaskId, experimentTaskId);
         return experimentActivityTaskRecordMapper.selectList(queryWrapper);
     }
+
+    public void insertBatch(Collection<ExperimentActivityTaskRecordDO> collection) {
+        saveBatch(collection);
+    }
+
+    public void updateBatch(Collection<ExperimentActivityTaskRecordDO> collection) {
+        updateBatchById(collection);
+    }
 }
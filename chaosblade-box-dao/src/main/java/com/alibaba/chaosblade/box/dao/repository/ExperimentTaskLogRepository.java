@@ -20,9 +20,11 @@ import com.alibaba.chaosblade.box.dao.QueryWrapperBuilder;
 import com.alibaba.chaosblade.box.dao.mapper.ExperimentTaskLogMapper;
 import com.alibaba.chaosblade.box.dao.model.ExperimentTaskLogDO;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,7 +32,8 @@ import java.util.Optional;
  * @author yefei
  */
 @Repository
-public class ExperimentTaskLogRepository implements IRepository<Long, ExperimentTaskLogDO> {
+public class ExperimentTaskLogRepository extends ServiceImpl<ExperimentTaskLogMapper, ExperimentTaskLogDO>
+        implements IRepository<Long, ExperimentTaskLogDO> {
 
     @Autowired
     private ExperimentTaskLogMapper experimentTaskLogMapper;
@@ -57,4 +60,27 @@ public class ExperimentTaskLogRepository implements IRepository<Long, Experiment
         queryWrapper.lambda().eq(ExperimentTaskLogDO::getTaskId, taskId);
         return experimentTaskLogMapper.selectList(queryWrapper);
     }
+
+    /**
+     * rows of a task after the cursor, in id order, served by the task_id index
+     *
+     * @param taskId
+     * @param afterId exclusive, null from the beginning
+     * @param limit
+     * @return
+     */
+    public List<ExperimentTaskLogDO> selectByTaskId(Long taskId, Long afterId, int limit) {
+        QueryWrapper<ExperimentTaskLogDO> queryWrapper = QueryWrapperBuilder.build();
+        queryWrapper.lambda().eq(ExperimentTaskLogDO::getTaskId, taskId);
+        if (afterId != null) {
+            queryWrapper.lambda().gt(ExperimentTaskLogDO::getId, afterId);
+        }
+        queryWrapper.lambda().orderByAsc(ExperimentTaskLogDO::getId);
+        queryWrapper.last("limit " + limit);
+        return experimentTaskLogMapper.selectList(queryWrapper);
+    }
+
+    public void insertBatch(Collection<ExperimentTaskLogDO> collection) {
+        saveBatch(collection);
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.chaosblade.box.dao.repository;
+
+import com.alibaba.chaosblade.box.dao.QueryWrapperBuilder;
+import com.alibaba.chaosblade.box.dao.mapper.MetricBlockMapper;
+import com.alibaba.chaosblade.box.dao.model.MetricBlockDO;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author yefei
+ */
+@Repository
+public class MetricBlockRepository extends ServiceImpl<MetricBlockMapper, MetricBlockDO> implements IRepository<Long, MetricBlockDO> {
+
+    @Autowired
+    private MetricBlockMapper metricBlockMapper;
+
+    @Override
+    public Optional<MetricBlockDO> selectById(Long aLong) {
+        return Optional.ofNullable(metricBlockMapper.selectById(aLong));
+    }
+
+    @Override
+    public Long insert(MetricBlockDO metricBlockDO) {
+        metricBlockMapper.insert(metricBlockDO);
+        return metricBlockDO.getId();
+    }
+
+    @Override
+    public boolean updateByPrimaryKey(Long id, MetricBlockDO metricBlockDO) {
+        metricBlockDO.setId(id);
+        return metricBlockMapper.updateById(metricBlockDO) == 1;
+    }
+
+    /**
+     * blocks of a task overlapping [startTime, endTime], ordered by series and time
+     *
+     * @param taskId
+     * @param startTime nullable
+     * @param endTime   nullable
+     * @return
+     */
+    public List<MetricBlockDO> selectByTaskId(Long taskId, Date startTime, Date endTime) {
+        QueryWrapper<MetricBlockDO> queryWrapper = QueryWrapperBuilder.build();
+        queryWrapper.lambda().eq(MetricBlockDO::getTaskId, taskId);
+        if (startTime != null) {
+            queryWrapper.lambda().ge(MetricBlockDO::getEndTime, startTime);
+        }
+        if (endTime != null) {
+            queryWrapper.lambda().le(MetricBlockDO::getStartTime, endTime);
+        }
+        queryWrapper.lambda().orderByAsc(MetricBlockDO::getSeriesId, MetricBlockDO::getStartTime);
+        return metricBlockMapper.selectList(queryWrapper);
+    }
+
+    public void insertBatch(Collection<MetricBlockDO> collection) {
+        saveBatch(collection);
+    }
+
+    public void updateBatch(Collection<MetricBlockDO> collection) {
+        updateBatchById(collection);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.chaosblade.box.dao.repository;
+
+import com.alibaba.chaosblade.box.dao.QueryWrapperBuilder;
+import com.alibaba.chaosblade.box.dao.mapper.MetricSeriesMapper;
+import com.alibaba.chaosblade.box.dao.model.MetricSeriesDO;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author yefei
+ */
+@Repository
+public class MetricSeriesRepository extends ServiceImpl<MetricSeriesMapper, MetricSeriesDO> implements IRepository<Long, MetricSeriesDO> {
+
+    @Autowired
+    private MetricSeriesMapper metricSeriesMapper;
+
+    @Override
+    public Optional<MetricSeriesDO> selectById(Long aLong) {
+        return Optional.ofNullable(metricSeriesMapper.selectById(aLong));
+    }
+
+    @Override
+    public Long insert(MetricSeriesDO metricSeriesDO) {
+        metricSeriesMapper.insert(metricSeriesDO);
+        return metricSeriesDO.getId();
+    }
+
+    @Override
+    public boolean updateByPrimaryKey(Long id, MetricSeriesDO metricSeriesDO) {
+        metricSeriesDO.setId(id);
+        return metricSeriesMapper.updateById(metricSeriesDO) == 1;
+    }
+
+    public List<MetricSeriesDO> selectByTaskId(Long taskId) {
+        QueryWrapper<MetricSeriesDO> queryWrapper = QueryWrapperBuilder.build();
+        queryWrapper.lambda().eq(MetricSeriesDO::getTaskId, taskId);
+        queryWrapper.lambda().orderByAsc(MetricSeriesDO::getId);
+        return metricSeriesMapper.selectList(queryWrapper);
+    }
+
+    public void insertBatch(Collection<MetricSeriesDO> collection) {
+        saveBatch(collection);
+    }
+}
@@ -22,9 +22,11 @@ import com.alibaba.chaosblade.box.dao.mapper.MetricTaskMapper;
 import com.alibaba.chaosblade.box.dao.model.MetricTaskDO;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.apache.ibatis.session.ResultHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -74,4 +76,21 @@ public class MetricTaskRepository extends ServiceImpl<MetricTaskMapper, MetricTa
         }
         return metricTaskMapper.selectList(queryWrapper);
     }
+
+    /**
+     * stream all samples of a task ordered by category code, device id and date
+     *
+     * @param taskId
+     * @param categoryCodes nullable, all categories
+     * @param startTime     nullable
+     * @param endTime       nullable
+     * @param resultHandler
+     */
+    public void selectByTaskId(Long taskId,
+                               Collection<String> categoryCodes,
+                               String startTime,
+                               String endTime,
+                               ResultHandler<MetricTaskDO> resultHandler) {
+        metricTaskMapper.selectByTaskId(taskId, categoryCodes, startTime, endTime, resultHandler);
+    }
 }
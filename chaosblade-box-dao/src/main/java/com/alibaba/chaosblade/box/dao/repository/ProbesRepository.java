@@ -110,6 +110,21 @@ public class ProbesRepository implements IRepository<Long, ProbesDO> {
         return probesMapper.updateById(probesDO) == 1;
     }
 
+    /**
+     * update ... where id in (...)
+     * @param ids
+     * @param probesDO
+     * @return
+     */
+    public int updateByIds(Collection<Long> ids, ProbesDO probesDO) {
+        if (CollUtil.isEmpty(ids)) {
+            return 0;
+        }
+        QueryWrapper<ProbesDO> queryWrapper = QueryWrapperBuilder.build();
+        queryWrapper.lambda().in(ProbesDO::getId, ids);
+        return probesMapper.update(probesDO, queryWrapper);
+    }
+
     public boolean updateByHost(String host, ProbesDO probesDO) {
         QueryWrapper<ProbesDO> queryWrapper = QueryWrapperBuilder.build();
         queryWrapper.lambda().eq(ProbesDO::getIp, host);
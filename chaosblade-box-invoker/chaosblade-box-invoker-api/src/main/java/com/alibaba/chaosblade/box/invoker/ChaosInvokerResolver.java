@@ -0,0 +1,135 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.invoker;
+
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
+import com.alibaba.chaosblade.box.common.enums.DeviceType;
+import com.alibaba.chaosblade.box.common.enums.ExperimentDimension;
+import com.alibaba.chaosblade.box.common.utils.SceneCodeParseUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * Immutable resolution table of the registered invoker strategies, rebuilt whenever a
+ * strategy is registered.
+ *
+ * <p>Strategies with a scene code are kept in a prefix trie and resolve by the longest
+ * scene code prefix of the request. The others are indexed by (tool, dimension, phase),
+ * a phase {@link ChaosConstant#PHASE_ALL} strategy serving any phase its dimension has
+ * no exact strategy for.
+ *
+ * @author yefei
+ */
+@Slf4j
+class ChaosInvokerResolver {
+
+    private static final Map<String, ExperimentDimension> DIMENSIONS = new HashMap<>();
+
+    static {
+        for (ExperimentDimension dimension : ExperimentDimension.values()) {
+            DIMENSIONS.put(dimension.name(), dimension);
+            DIMENSIONS.put(dimension.name().toLowerCase(), dimension);
+        }
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * tool name -> dimension -> phase -> invoker
+     */
+    private final Map<String, Map<ExperimentDimension, Map<String, ChaosInvoker<RequestCommand, ResponseCommand>>>> table = new HashMap<>();
+
+    ChaosInvokerResolver(Map<ChaosInvokerStrategy, ChaosInvoker<RequestCommand, ResponseCommand>> strategies) {
+        strategies.forEach((strategy, invoker) -> {
+            if (StrUtil.isNotBlank(strategy.sceneCode())) {
+                Node node = root;
+                for (int i = 0; i < strategy.sceneCode().length(); i++) {
+                    node = node.children.computeIfAbsent(strategy.sceneCode().charAt(i), c -> new Node());
+                }
+                node.invoker = invoker;
+                return;
+            }
+            Map<ExperimentDimension, Map<String, ChaosInvoker<RequestCommand, ResponseCommand>>> dimensions =
+                    table.computeIfAbsent(strategy.value().getName(), k -> new EnumMap<>(ExperimentDimension.class));
+            for (DeviceType deviceType : strategy.deviceType()) {
+                for (ExperimentDimension dimension : ExperimentDimension.values()) {
+                    if (dimension.getDeviceType() != deviceType) {
+                        continue;
+                    }
+                    Map<String, ChaosInvoker<RequestCommand, ResponseCommand>> phases =
+                            dimensions.computeIfAbsent(dimension, k -> new HashMap<>());
+                    for (String phase : strategy.phase()) {
+                        ChaosInvoker<RequestCommand, ResponseCommand> exists = phases.putIfAbsent(phase, invoker);
+                        if (exists != null && exists != invoker) {
+                            log.warn("invoker strategy conflict, tool: {}, dimension: {}, phase: {}, {} ignored for {}",
+                                    strategy.value().getName(), dimension, phase,
+                                    invoker.getClass().getSimpleName(), exists.getClass().getSimpleName());
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @param requestCommand
+     * @return null if no invoker
+     */
+    ChaosInvoker<RequestCommand, ResponseCommand> resolve(RequestCommand requestCommand) {
+        String sceneCode = requestCommand.getSceneCode();
+        ChaosInvoker<RequestCommand, ResponseCommand> invoker = null;
+        Node node = root;
+        for (int i = 0; i < sceneCode.length() && !node.children.isEmpty(); i++) {
+            node = node.children.get(sceneCode.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.invoker != null) {
+                invoker = node.invoker;
+            }
+        }
+        if (invoker != null) {
+            return invoker;
+        }
+
+        Map<ExperimentDimension, Map<String, ChaosInvoker<RequestCommand, ResponseCommand>>> dimensions =
+                table.get(SceneCodeParseUtil.getOriginal(sceneCode));
+        if (dimensions == null) {
+            return null;
+        }
+        String scope = requestCommand.getScope();
+        ExperimentDimension dimension = DIMENSIONS.get(scope);
+        if (dimension == null) {
+            dimension = DIMENSIONS.get(scope.toUpperCase());
+        }
+        Map<String, ChaosInvoker<RequestCommand, ResponseCommand>> phases = dimensions.get(dimension);
+        if (phases == null) {
+            return null;
+        }
+        invoker = phases.get(requestCommand.getPhase());
+        return invoker != null ? invoker : phases.get(ChaosConstant.PHASE_ALL);
+    }
+
+    private static class Node {
+
+        private final Map<Character, Node> children = new HashMap<>();
+
+        private ChaosInvoker<RequestCommand, ResponseCommand> invoker;
+    }
+}
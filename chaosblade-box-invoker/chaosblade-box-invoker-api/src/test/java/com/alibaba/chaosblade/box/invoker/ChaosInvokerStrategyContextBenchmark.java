@@ -0,0 +1,105 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.invoker;
+
+import cn.hutool.core.util.ArrayUtil;
+import cn.hutool.core.util.EnumUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
+import com.alibaba.chaosblade.box.common.enums.DeviceType;
+import com.alibaba.chaosblade.box.common.enums.ExperimentDimension;
+import com.alibaba.chaosblade.box.common.utils.SceneCodeParseUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolution table against the former scan over every strategy, run from main, not
+ * part of the test suite.
+ *
+ * @author yefei
+ */
+@Slf4j
+public class ChaosInvokerStrategyContextBenchmark {
+
+    public static void main(String[] args) {
+        ChaosInvokerStrategyContext context = ChaosInvokerStrategyContextTest.context();
+        Map<ChaosInvokerStrategy, ChaosInvoker<RequestCommand, ResponseCommand>> strategies = new LinkedHashMap<>();
+        for (ChaosInvoker<RequestCommand, ResponseCommand> invoker : ChaosInvokerStrategyContextTest.invokers()) {
+            strategies.put(invoker.getClass().getAnnotation(ChaosInvokerStrategy.class), invoker);
+        }
+        String[] scopes = {"host", "node", "pod", "container"};
+        String[] phases = {ChaosConstant.PHASE_ATTACK, ChaosConstant.PHASE_RECOVER};
+        List<RequestCommand> requests = new ArrayList<>();
+        for (String scope : scopes) {
+            for (String phase : phases) {
+                requests.add(ChaosInvokerStrategyContextTest.request("chaosblade.cpu.fullload", scope, phase));
+                requests.add(ChaosInvokerStrategyContextTest.request("litmuschaos.pod-delete", scope, phase));
+                requests.add(ChaosInvokerStrategyContextTest.request("chasobalde.revoke", scope, phase));
+            }
+        }
+        requests.removeIf(requestCommand -> scan(strategies, requestCommand) == null);
+
+        int rounds = 200000;
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                RequestCommand requestCommand = requests.get(i % requests.size());
+                context.invoke(requestCommand);
+            }
+            long resolved = System.nanoTime() - start;
+
+            // former scan over every strategy
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                RequestCommand requestCommand = requests.get(i % requests.size());
+                scan(strategies, requestCommand);
+            }
+            long scanned = System.nanoTime() - start;
+
+            log.info("resolve {} requests, table: {} ms, scan: {} ms", rounds, resolved / 1000000, scanned / 1000000);
+        }
+    }
+
+    private static ChaosInvoker<RequestCommand, ResponseCommand> scan(
+            Map<ChaosInvokerStrategy, ChaosInvoker<RequestCommand, ResponseCommand>> strategies,
+            RequestCommand requestCommand) {
+        String original = SceneCodeParseUtil.getOriginal(requestCommand.getSceneCode());
+        for (ChaosInvokerStrategy strategy : strategies.keySet()) {
+            if (StrUtil.isNotBlank(strategy.sceneCode()) && requestCommand.getSceneCode().startsWith(strategy.sceneCode())) {
+                return strategies.get(strategy);
+            }
+            if (strategy.value().getName().equals(original) && ArrayUtil.isNotEmpty(strategy.deviceType())) {
+                for (DeviceType deviceType : strategy.deviceType()) {
+                    ExperimentDimension dimension = EnumUtil.fromString(ExperimentDimension.class,
+                            requestCommand.getScope().toUpperCase());
+                    if (deviceType == dimension.getDeviceType()) {
+                        for (String s : strategy.phase()) {
+                            if (s.equals(ChaosConstant.PHASE_ALL) || s.equals(requestCommand.getPhase())) {
+                                return strategies.get(strategy);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
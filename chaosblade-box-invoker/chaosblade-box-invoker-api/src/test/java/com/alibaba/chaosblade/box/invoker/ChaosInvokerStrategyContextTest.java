@@ -0,0 +1,217 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.chaosblade.box.invoker;
+
+import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
+import com.alibaba.chaosblade.box.common.enums.ChaosTools;
+import com.alibaba.chaosblade.box.common.enums.DeviceType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author yefei
+ */
+public class ChaosInvokerStrategyContextTest {
+
+    @Test
+    public void testResolve() {
+        ChaosInvokerStrategyContext context = context();
+
+        Assert.assertEquals("host-attack", invoke(context, "chaosblade.cpu.fullload", "host", ChaosConstant.PHASE_ATTACK));
+        Assert.assertEquals("host-recover", invoke(context, "chaosblade.cpu.fullload", "HOST", ChaosConstant.PHASE_RECOVER));
+        Assert.assertEquals("k8s-attack", invoke(context, "chaosblade.cpu.fullload", "container", ChaosConstant.PHASE_ATTACK));
+        Assert.assertEquals("litmus", invoke(context, "litmuschaos.pod-delete", "pod", ChaosConstant.PHASE_PREPARE));
+        Assert.assertEquals("revoke", invoke(context, "chasobalde.revoke", "host", ChaosConstant.PHASE_ATTACK));
+        try {
+            invoke(context, "chaosblade.cpu.fullload", "node", ChaosConstant.PHASE_RECOVER);
+            Assert.fail();
+        } catch (Exception e) {
+            // no invoker
+        }
+    }
+
+    @Test
+    public void testLongestPrefix() {
+        ChaosInvokerStrategyContext context = context(new CpuInvoker(), new CpuFullloadInvoker(), new HostAttackInvoker());
+
+        Assert.assertEquals("cpu-fullload", invoke(context, "chaosblade.cpu.fullload", "host", ChaosConstant.PHASE_ATTACK));
+        Assert.assertEquals("cpu-fullload", invoke(context, "chaosblade.cpu.fullload.x", "host", ChaosConstant.PHASE_ATTACK));
+        Assert.assertEquals("cpu", invoke(context, "chaosblade.cpu.load", "host", ChaosConstant.PHASE_ATTACK));
+        Assert.assertEquals("cpu", invoke(context, "chaosblade.cpu", "host", ChaosConstant.PHASE_ATTACK));
+        // shorter than any scene code, resolved by tool, dimension and phase
+        Assert.assertEquals("host-attack", invoke(context, "chaosblade.cp", "host", ChaosConstant.PHASE_ATTACK));
+        Assert.assertEquals("host-attack", invoke(context, "chaosblade.mem.load", "host", ChaosConstant.PHASE_ATTACK));
+    }
+
+    @Test
+    public void testPrefixBeforeExactMatch() {
+        ChaosInvokerStrategyContext context = context(new HostAttackInvoker(), new HostRecoverInvoker(),
+                new CpuInvoker());
+
+        // a scene code strategy wins over an exact (tool, dimension, phase) one, whatever the phase
+        Assert.assertEquals("cpu", invoke(context, "chaosblade.cpu.fullload", "host", ChaosConstant.PHASE_ATTACK));
+        Assert.assertEquals("cpu", invoke(context, "chaosblade.cpu.fullload", "host", ChaosConstant.PHASE_RECOVER));
+        Assert.assertEquals("host-recover", invoke(context, "chaosblade.mem.load", "host", ChaosConstant.PHASE_RECOVER));
+    }
+
+    @Test
+    public void testExactPhaseBeforeAll() {
+        ChaosInvokerStrategyContext context = context(new LitmusInvoker(), new LitmusPodAttackInvoker());
+
+        Assert.assertEquals("litmus-pod-attack", invoke(context, "litmuschaos.pod-delete", "pod", ChaosConstant.PHASE_ATTACK));
+        Assert.assertEquals("litmus", invoke(context, "litmuschaos.pod-delete", "pod", ChaosConstant.PHASE_RECOVER));
+        Assert.assertEquals("litmus", invoke(context, "litmuschaos.pod-delete", "node", ChaosConstant.PHASE_ATTACK));
+        Assert.assertEquals("litmus", invoke(context, "litmuschaos.pod-delete", "POD", ChaosConstant.PHASE_PREPARE));
+    }
+
+    @Test
+    public void testNoInvoker() {
+        ChaosInvokerStrategyContext context = context(new HostAttackInvoker(), new CpuFullloadInvoker());
+
+        assertNoInvoker(context, "chaosblade.cpu.fullload", "host", ChaosConstant.PHASE_RECOVER, false);
+        assertNoInvoker(context, "chaosblade.mem.load", "host", ChaosConstant.PHASE_RECOVER, true);
+        assertNoInvoker(context, "chaosblade.mem.load", "pod", ChaosConstant.PHASE_ATTACK, true);
+        assertNoInvoker(context, "litmuschaos.pod-delete", "pod", ChaosConstant.PHASE_ATTACK, true);
+    }
+
+    private static void assertNoInvoker(ChaosInvokerStrategyContext context, String sceneCode, String scope,
+                                        String phase, boolean expected) {
+        boolean none;
+        try {
+            context.invoke(request(sceneCode, scope, phase));
+            none = false;
+        } catch (Exception e) {
+            none = true;
+        }
+        Assert.assertEquals(sceneCode + " " + scope + " " + phase, expected, none);
+    }
+
+    static ChaosInvokerStrategyContext context() {
+        return context(invokers());
+    }
+
+    @SafeVarargs
+    private static ChaosInvokerStrategyContext context(ChaosInvoker<RequestCommand, ResponseCommand>... invokers) {
+        return context(Arrays.asList(invokers));
+    }
+
+    private static ChaosInvokerStrategyContext context(List<ChaosInvoker<RequestCommand, ResponseCommand>> invokers) {
+        ChaosInvokerStrategyContext context = new ChaosInvokerStrategyContext();
+        for (ChaosInvoker<RequestCommand, ResponseCommand> invoker : invokers) {
+            context.postProcessBeforeInitialization(invoker, invoker.getClass().getSimpleName());
+        }
+        return context;
+    }
+
+    static List<ChaosInvoker<RequestCommand, ResponseCommand>> invokers() {
+        return Arrays.asList(new RevokeInvoker(), new HostAttackInvoker(), new HostRecoverInvoker(),
+                new KubernetesAttackInvoker(), new KubernetesRecoverInvoker(), new LitmusInvoker());
+    }
+
+    private static String invoke(ChaosInvokerStrategyContext context, String sceneCode, String scope, String phase) {
+        return context.invoke(request(sceneCode, scope, phase)).join().getResult().toString();
+    }
+
+    static RequestCommand request(String sceneCode, String scope, String phase) {
+        RequestCommand requestCommand = new RequestCommand();
+        requestCommand.setSceneCode(sceneCode);
+        requestCommand.setScope(scope);
+        requestCommand.setPhase(phase);
+        return requestCommand;
+    }
+
+    private static abstract class NamedInvoker implements ChaosInvoker<RequestCommand, ResponseCommand> {
+
+        private final CompletableFuture<ResponseCommand> response;
+
+        NamedInvoker(String name) {
+            response = CompletableFuture.completedFuture(ResponseCommand.builder().result(name).build());
+        }
+
+        @Override
+        public CompletableFuture<ResponseCommand> invoke(RequestCommand requestCommand) {
+            return response;
+        }
+    }
+
+    @ChaosInvokerStrategy(deviceType = DeviceType.HOST, sceneCode = "chasobalde.revoke")
+    private static class RevokeInvoker extends NamedInvoker {
+        RevokeInvoker() {
+            super("revoke");
+        }
+    }
+
+    @ChaosInvokerStrategy(deviceType = DeviceType.HOST, phase = ChaosConstant.PHASE_ATTACK)
+    private static class HostAttackInvoker extends NamedInvoker {
+        HostAttackInvoker() {
+            super("host-attack");
+        }
+    }
+
+    @ChaosInvokerStrategy(deviceType = DeviceType.HOST, phase = ChaosConstant.PHASE_RECOVER)
+    private static class HostRecoverInvoker extends NamedInvoker {
+        HostRecoverInvoker() {
+            super("host-recover");
+        }
+    }
+
+    @ChaosInvokerStrategy(deviceType = {DeviceType.NODE, DeviceType.POD}, phase = ChaosConstant.PHASE_ATTACK)
+    private static class KubernetesAttackInvoker extends NamedInvoker {
+        KubernetesAttackInvoker() {
+            super("k8s-attack");
+        }
+    }
+
+    @ChaosInvokerStrategy(deviceType = DeviceType.POD, phase = ChaosConstant.PHASE_RECOVER)
+    private static class KubernetesRecoverInvoker extends NamedInvoker {
+        KubernetesRecoverInvoker() {
+            super("k8s-recover");
+        }
+    }
+
+    @ChaosInvokerStrategy(value = ChaosTools.LITMUS_CHAOS, deviceType = {DeviceType.NODE, DeviceType.POD},
+            phase = ChaosConstant.PHASE_ALL)
+    private static class LitmusInvoker extends NamedInvoker {
+        LitmusInvoker() {
+            super("litmus");
+        }
+    }
+
+    @ChaosInvokerStrategy(deviceType = DeviceType.HOST, sceneCode = "chaosblade.cpu")
+    private static class CpuInvoker extends NamedInvoker {
+        CpuInvoker() {
+            super("cpu");
+        }
+    }
+
+    @ChaosInvokerStrategy(deviceType = DeviceType.HOST, sceneCode = "chaosblade.cpu.fullload")
+    private static class CpuFullloadInvoker extends NamedInvoker {
+        CpuFullloadInvoker() {
+            super("cpu-fullload");
+        }
+    }
+
+    @ChaosInvokerStrategy(value = ChaosTools.LITMUS_CHAOS, deviceType = DeviceType.POD,
+            phase = ChaosConstant.PHASE_ATTACK)
+    private static class LitmusPodAttackInvoker extends NamedInvoker {
+        LitmusPodAttackInvoker() {
+            super("litmus-pod-attack");
+        }
+    }
+}
@@ -18,10 +18,12 @@ package com.alibaba.chaosblade.box.invoker.blade.kubeapi;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.ArrayUtil;
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
 import com.alibaba.chaosblade.box.invoker.blade.kubeapi.crd.ExperimentStatus;
 import com.alibaba.chaosblade.box.invoker.blade.kubeapi.crd.ChaosBlade;
 import com.alibaba.chaosblade.box.invoker.blade.kubeapi.model.StatusResponseCommand;
 import com.alibaba.chaosblade.box.common.utils.timer.HashedWheelTimer;
+import com.alibaba.chaosblade.box.common.utils.timer.Timeout;
 import com.alibaba.chaosblade.box.common.utils.timer.Timer;
 import com.alibaba.chaosblade.box.invoker.ChaosInvoker;
 import com.alibaba.chaosblade.box.invoker.RequestCommand;
@@ -30,34 +32,123 @@ import io.kubernetes.client.openapi.ApiCallback;
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
-import io.kubernetes.client.util.Config;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author yefei
  */
 public abstract class AbstractChaosBladeChaosInvoker implements ChaosInvoker<RequestCommand, ResponseCommand>, InitializingBean {
 
+    @Autowired
+    protected KubeApiClient kubeApiClient;
+
     protected ApiClient client;
 
     protected Timer timer;
 
+    @Autowired
+    protected ChaosBladeWatcher chaosBladeWatcher;
+
+    @Value("${chaos.invoker.kubeapi.status.timeout:300000}")
+    protected long statusTimeout;
+
     @Override
     public void afterPropertiesSet() throws Exception {
-        client = Config.defaultClient();
+        client = kubeApiClient.client();
 
         timer = new HashedWheelTimer(r -> {
             Thread thread = new Thread(r);
             thread.setName("timer-check-chaoblade-status");
+            thread.setDaemon(true);
             return thread;
         });
     }
 
+    /**
+     * status of a ChaosBlade changed, complete the future once it is final
+     *
+     * @param future
+     * @param name                  ChaosBlade name
+     * @param statusResponseCommand
+     */
+    protected abstract void onStatus(CompletableFuture<ResponseCommand> future, String name,
+                                     StatusResponseCommand statusResponseCommand);
+
+    /**
+     * follow the status of a ChaosBlade until {@link #onStatus} completes the future or
+     * the deadline passes. It is checked once now, later changes come from the watcher.
+     *
+     * @param future
+     * @param name    ChaosBlade name
+     * @param timeout ms, default statusTimeout if null
+     */
+    protected void waitStatus(CompletableFuture<ResponseCommand> future, String name, Long timeout) {
+        ChaosBladeWatcher.Listener listener = chaosBlade -> {
+            StatusResponseCommand statusResponseCommand;
+            if (chaosBlade == null) {
+                statusResponseCommand = new StatusResponseCommand();
+                statusResponseCommand.setSuccess(false);
+                statusResponseCommand.setCode("404");
+                statusResponseCommand.setError("chaosblade " + name + " not found");
+            } else {
+                statusResponseCommand = toStatus(chaosBlade);
+                statusResponseCommand.setCode("200");
+            }
+            onStatus(future, name, statusResponseCommand);
+        };
+        chaosBladeWatcher.register(name, listener);
+
+        long deadline = timeout == null ? statusTimeout : timeout;
+        Timeout deadlineTimeout = timer.newTimeout(t -> {
+            StatusResponseCommand statusResponseCommand = new StatusResponseCommand();
+            statusResponseCommand.setName(name);
+            statusResponseCommand.setResult(name);
+            statusResponseCommand.setSuccess(false);
+            statusResponseCommand.setError("wait chaosblade " + name + " status timeout after " + deadline + " ms");
+            future.complete(statusResponseCommand);
+        }, deadline, TimeUnit.MILLISECONDS);
+
+        future.whenComplete((r, e) -> {
+            chaosBladeWatcher.unregister(name, listener);
+            deadlineTimeout.cancel();
+        });
+
+        RequestCommand requestCommand = new RequestCommand();
+        requestCommand.setName(name);
+        checkStatus(requestCommand).handle((statusResponseCommand, e) -> {
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else {
+                onStatus(future, name, statusResponseCommand);
+            }
+            return null;
+        });
+    }
+
+    private static StatusResponseCommand toStatus(ChaosBlade chaosBlade) {
+        StatusResponseCommand statusResponseCommand = new StatusResponseCommand();
+        if (chaosBlade.getStatus() == null) {
+            return statusResponseCommand;
+        }
+        if (ArrayUtil.isNotEmpty(chaosBlade.getStatus().getExpStatuses())) {
+            ExperimentStatus expStatus = chaosBlade.getStatus().getExpStatuses()[0];
+            statusResponseCommand.setState(expStatus.getState());
+            statusResponseCommand.setError(expStatus.getError());
+            statusResponseCommand.setSuccess(expStatus.isSuccess());
+            statusResponseCommand.setResStatuses(expStatus.getResStatuses());
+        }
+        statusResponseCommand.setPhase(chaosBlade.getStatus().getPhase());
+        return statusResponseCommand;
+    }
+
     protected CompletableFuture<StatusResponseCommand> checkStatus(RequestCommand requestCommand) {
-        CustomObjectsApi apiInstance = new CustomObjectsApi(client);
+        CustomObjectsApi apiInstance = kubeApiClient.customObjectsApi();
 
         CompletableFuture<StatusResponseCommand> completableFuture = new CompletableFuture<>();
         try {
@@ -81,16 +172,8 @@ public abstract class AbstractChaosBladeChaosInvoker implements ChaosInvoker<Req
                         public void onSuccess(Object result, int statusCode, Map responseHeaders) {
                             ChaosBlade chaosBlade = BeanUtil.toBean(result, ChaosBlade.class);
 
-                            StatusResponseCommand statusResponseCommand = new StatusResponseCommand();
+                            StatusResponseCommand statusResponseCommand = toStatus(chaosBlade);
                             statusResponseCommand.setCode(String.valueOf(statusCode));
-                            if (ArrayUtil.isNotEmpty(chaosBlade.getStatus().getExpStatuses())) {
-                                ExperimentStatus expStatus = chaosBlade.getStatus().getExpStatuses()[0];
-                                statusResponseCommand.setState(expStatus.getState());
-                                statusResponseCommand.setError(expStatus.getError());
-                                statusResponseCommand.setSuccess(expStatus.isSuccess());
-                            }
-
-                            statusResponseCommand.setPhase(chaosBlade.getStatus().getPhase());
                             completableFuture.complete(statusResponseCommand);
                         }
 
@@ -20,6 +20,7 @@ import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.chaosblade.box.invoker.blade.kubeapi.crd.ExperimentSpec;
 import com.alibaba.chaosblade.box.invoker.blade.kubeapi.crd.FlagSpec;
+import com.alibaba.chaosblade.box.invoker.blade.kubeapi.crd.ResourceStatus;
 import com.alibaba.chaosblade.box.common.exception.BizException;
 import com.alibaba.chaosblade.box.invoker.blade.kubeapi.crd.ChaosBlade;
 import com.alibaba.chaosblade.box.invoker.blade.kubeapi.crd.ChaosBladeSpec;
@@ -28,7 +29,6 @@ import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
 import com.alibaba.chaosblade.box.common.enums.DeviceType;
 import com.alibaba.chaosblade.box.common.utils.JsonUtils;
 import com.alibaba.chaosblade.box.common.utils.SceneCodeParseUtil;
-import com.alibaba.chaosblade.box.common.utils.timer.HashedWheelTimer;
 import com.alibaba.chaosblade.box.invoker.ChaosInvokerStrategy;
 import com.alibaba.chaosblade.box.invoker.RequestCommand;
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
@@ -36,13 +36,13 @@ import io.kubernetes.client.openapi.ApiCallback;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
 import io.kubernetes.client.openapi.models.V1ObjectMeta;
-import io.kubernetes.client.util.Config;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * @author yefei
@@ -52,9 +52,87 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class ChaosBladeAttackChaosInvoker extends AbstractChaosBladeChaosInvoker {
 
+    @Autowired
+    private ChaosBladeBatcher chaosBladeBatcher;
+
     @Override
     public CompletableFuture<ResponseCommand> invoke(RequestCommand requestCommand) {
-        CustomObjectsApi apiInstance = new CustomObjectsApi(client);
+        final CompletableFuture<ResponseCommand> completableFuture = new CompletableFuture<>();
+        if (chaosBladeBatcher.batchable(requestCommand)) {
+            chaosBladeBatcher.submit(requestCommand, completableFuture, this::invokeBatch);
+        } else {
+            create(requestCommand, requestCommand.getArguments(), completableFuture);
+        }
+        return completableFuture;
+    }
+
+    private void invokeBatch(ChaosBladeBatcher.Batch batch) {
+        List<ChaosBladeBatcher.Member> members = batch.getMembers();
+        RequestCommand requestCommand = members.get(0).getRequestCommand();
+        Map<String, String> arguments = new HashMap<>(requestCommand.getArguments());
+        arguments.put(ChaosBladeBatcher.NAMES, String.join(",", batch.getNames()));
+
+        CompletableFuture<ResponseCommand> completableFuture = new CompletableFuture<>();
+        create(requestCommand, arguments, completableFuture);
+        completableFuture.whenComplete((responseCommand, e) -> {
+            if (e != null) {
+                members.forEach(member -> member.getFuture().completeExceptionally(e));
+                return;
+            }
+            if (!(responseCommand instanceof StatusResponseCommand)) {
+                // not created
+                members.forEach(member -> member.getFuture().complete(responseCommand));
+                return;
+            }
+            StatusResponseCommand statusResponseCommand = (StatusResponseCommand) responseCommand;
+            chaosBladeBatcher.hold(statusResponseCommand.getName(), members.size());
+            for (ChaosBladeBatcher.Member member : members) {
+                member.getFuture().complete(demux(statusResponseCommand, member.getNames()));
+            }
+        });
+    }
+
+    /**
+     * status of the targets of one request in a batched ChaosBlade, resources are
+     * matched by the segments of their identifier, namespace/node/pod/container
+     */
+    static StatusResponseCommand demux(StatusResponseCommand statusResponseCommand, Set<String> names) {
+        StatusResponseCommand response = new StatusResponseCommand();
+        response.setName(statusResponseCommand.getName());
+        response.setResult(statusResponseCommand.getResult());
+        response.setCode(statusResponseCommand.getCode());
+        response.setPhase(statusResponseCommand.getPhase());
+        response.setState(statusResponseCommand.getState());
+        response.setSuccess(statusResponseCommand.isSuccess());
+        response.setError(statusResponseCommand.getError());
+
+        List<ResourceStatus> resStatuses = new ArrayList<>();
+        if (statusResponseCommand.getResStatuses() != null) {
+            for (ResourceStatus resStatus : statusResponseCommand.getResStatuses()) {
+                if (names.contains(resStatus.getId()) || (resStatus.getIdentifier() != null
+                        && Arrays.stream(StrUtil.split(resStatus.getIdentifier(), "/")).anyMatch(names::contains))) {
+                    resStatuses.add(resStatus);
+                }
+            }
+        }
+        if (resStatuses.isEmpty()) {
+            return response;
+        }
+
+        response.setResStatuses(resStatuses.toArray(new ResourceStatus[0]));
+        String error = resStatuses.stream()
+                .filter(resStatus -> !Boolean.parseBoolean(resStatus.getSuccess()))
+                .map(resStatus -> StrUtil.blankToDefault(resStatus.getError(), resStatus.getIdentifier()))
+                .distinct()
+                .collect(Collectors.joining("; "));
+        response.setSuccess(error.isEmpty());
+        response.setError(error.isEmpty() ? null : error);
+        return response;
+    }
+
+    private void create(RequestCommand requestCommand, Map<String, String> arguments,
+                        CompletableFuture<ResponseCommand> completableFuture) {
+        CustomObjectsApi apiInstance = kubeApiClient.customObjectsApi();
 
         V1ObjectMeta v1ObjectMeta = new V1ObjectMeta();
         v1ObjectMeta.setName(IdUtil.fastSimpleUUID());
@@ -69,16 +147,15 @@ public class ChaosBladeAttackChaosInvoker extends AbstractChaosBladeChaosInvoker
                                         .target(SceneCodeParseUtil.getTarget(requestCommand.getSceneCode()).split("-")[1])
                                         .action(SceneCodeParseUtil.getAction(requestCommand.getSceneCode()))
                                         .matchers(
-                                                requestCommand.getArguments().keySet().stream()
+                                                arguments.keySet().stream()
                                                         .map(key -> FlagSpec.builder()
                                                                 .name(key)
-                                                                .value(new String[]{requestCommand.getArguments().get(key)})
+                                                                .value(new String[]{arguments.get(key)})
                                                                 .build()
                                                         ).toArray(FlagSpec[]::new))
                                         .build()
                         }).build()).build();
 
-        final CompletableFuture<ResponseCommand> completableFuture = new CompletableFuture<>();
         try {
             apiInstance.createClusterCustomObjectAsync(
                     Constants.GROUP,
@@ -102,7 +179,7 @@ public class ChaosBladeAttackChaosInvoker extends AbstractChaosBladeChaosInvoker
 
                         @Override
                         public void onSuccess(Object result, int statusCode, Map responseHeaders) {
-                            checkStatus(completableFuture, v1ObjectMeta.getName());
+                            waitStatus(completableFuture, v1ObjectMeta.getName(), requestCommand.getTimeout());
                         }
 
                         @Override
@@ -125,56 +202,23 @@ public class ChaosBladeAttackChaosInvoker extends AbstractChaosBladeChaosInvoker
                     .build();
             completableFuture.complete(responseCommand);
         }
-        return completableFuture;
     }
 
     @Override
-    public void afterPropertiesSet() throws Exception {
-        client = Config.defaultClient();
-
-        timer = new HashedWheelTimer(r -> {
-            Thread thread = new Thread(r);
-            thread.setName("timer-check-chaoblade-status");
-            return thread;
-        });
-    }
-
-    private void checkStatus(CompletableFuture<ResponseCommand> future, String name) {
-
-        timer.newTimeout(timeout -> {
-                    RequestCommand requestCommand = new RequestCommand();
-                    requestCommand.setName(name);
-
-                    CompletableFuture<StatusResponseCommand> completableFuture = checkStatus(requestCommand);
-
-                    completableFuture.handle((statusResponseCommand, e) -> {
-                        if (e != null) {
-                            future.completeExceptionally(e);
-                        } else {
-                            statusResponseCommand.setName(name);
-                            statusResponseCommand.setResult(name);
-
-                            log.info("子任务运行中，检查 CRD 状态，NAME: {}, PHASE: {},  是否成功: {}, 失败原因: {}",
-                                    requestCommand.getName(),
-                                    statusResponseCommand.getPhase(),
-                                    statusResponseCommand.isSuccess(),
-                                    statusResponseCommand.getError());
-
-                            String error = statusResponseCommand.getError();
-
-                            if (StrUtil.isNotEmpty(error)) {
-                                future.complete(statusResponseCommand);
-                            } else {
-                                if ("Running".equals(statusResponseCommand.getPhase())) {
-                                    future.complete(statusResponseCommand);
-                                } else {
-                                    checkStatus(future, name);
-                                }
-                            }
-                        }
-                        return null;
-                    });
-                }, 3, TimeUnit.SECONDS);
+    protected void onStatus(CompletableFuture<ResponseCommand> future, String name,
+                            StatusResponseCommand statusResponseCommand) {
+        statusResponseCommand.setName(name);
+        statusResponseCommand.setResult(name);
+
+        log.info("子任务运行中，检查 CRD 状态，NAME: {}, PHASE: {},  是否成功: {}, 失败原因: {}",
+                name,
+                statusResponseCommand.getPhase(),
+                statusResponseCommand.isSuccess(),
+                statusResponseCommand.getError());
+
+        if (StrUtil.isNotEmpty(statusResponseCommand.getError())
+                || "Running".equals(statusResponseCommand.getPhase())) {
+            future.complete(statusResponseCommand);
+        }
     }
-
 }
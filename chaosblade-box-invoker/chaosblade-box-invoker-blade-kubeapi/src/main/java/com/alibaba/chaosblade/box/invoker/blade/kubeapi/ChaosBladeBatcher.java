@@ -0,0 +1,233 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.invoker.blade.kubeapi;
+
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.chaosblade.box.common.utils.timer.HashedWheelTimer;
+import com.alibaba.chaosblade.box.common.utils.timer.Timer;
+import com.alibaba.chaosblade.box.invoker.RequestCommand;
+import com.alibaba.chaosblade.box.invoker.ResponseCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Groups pod and node attack requests of the same experiment task, scope, scene and
+ * arguments but different target names, each group becomes a single ChaosBlade whose
+ * names matcher lists all of them. A group is flushed window ms after its first request or once it
+ * holds size names. Batching is off when window is 0.
+ *
+ * <p>Requests of a group share the ChaosBlade, it is deleted when the last of them is
+ * recovered. Targets of a request recovered earlier stay under the fault until then,
+ * a group never spans experiment tasks so that is at most until its own task recovers.
+ * References are kept in memory, after a restart the first recovery deletes it.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class ChaosBladeBatcher implements InitializingBean, DisposableBean {
+
+    static final String NAMES = "names";
+
+    @Value("${chaos.invoker.kubeapi.batch.window:0}")
+    private long window;
+
+    @Value("${chaos.invoker.kubeapi.batch.size:500}")
+    private int size;
+
+    private Timer timer;
+
+    private final Map<String, Batch> pending = new HashMap<>();
+
+    /**
+     * ChaosBlade name -> requests not recovered yet
+     */
+    private final Map<String, Integer> refs = new HashMap<>();
+
+    public boolean batchable(RequestCommand requestCommand) {
+        if (window <= 0 || requestCommand.getArguments() == null) {
+            return false;
+        }
+        String scope = requestCommand.getScope();
+        return ("pod".equalsIgnoreCase(scope) || "node".equalsIgnoreCase(scope))
+                && StrUtil.isNotBlank(requestCommand.getArguments().get(NAMES));
+    }
+
+    /**
+     * add a request to the group of its key
+     *
+     * @param requestCommand
+     * @param future         completed by flush
+     * @param flush          creates the ChaosBlade of a group
+     */
+    public void submit(RequestCommand requestCommand, CompletableFuture<ResponseCommand> future,
+                       Consumer<Batch> flush) {
+        String key = key(requestCommand);
+        Member member = new Member(requestCommand, future);
+        Batch full = null;
+        synchronized (pending) {
+            Batch batch = pending.get(key);
+            if (batch != null && batch.names.size() + member.names.size() > size) {
+                pending.remove(key);
+                full = batch;
+                batch = null;
+            }
+            if (batch == null) {
+                Batch created = new Batch(key);
+                pending.put(key, created);
+                timer.newTimeout(t -> flush(created, flush), window, TimeUnit.MILLISECONDS);
+                batch = created;
+            }
+            batch.members.add(member);
+            batch.names.addAll(member.names);
+        }
+        if (full != null) {
+            flush(full, flush);
+        }
+    }
+
+    private void flush(Batch batch, Consumer<Batch> flush) {
+        synchronized (pending) {
+            if (batch.flushed) {
+                return;
+            }
+            batch.flushed = true;
+            pending.remove(batch.key, batch);
+        }
+        log.info("create chaosblade for {} requests, {} names, key: {}",
+                batch.members.size(), batch.names.size(), batch.key);
+        try {
+            flush.accept(batch);
+        } catch (Exception e) {
+            batch.members.forEach(member -> member.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * requests sharing a created ChaosBlade
+     *
+     * @param name  ChaosBlade name
+     * @param count
+     */
+    public void hold(String name, int count) {
+        synchronized (refs) {
+            refs.merge(name, count, Integer::sum);
+        }
+    }
+
+    /**
+     * a request sharing a ChaosBlade is recovered
+     *
+     * @param name ChaosBlade name
+     * @return true if no request uses it any more, it can be deleted
+     */
+    public boolean release(String name) {
+        synchronized (refs) {
+            Integer count = refs.get(name);
+            if (count == null || count <= 1) {
+                refs.remove(name);
+                return true;
+            }
+            refs.put(name, count - 1);
+            return false;
+        }
+    }
+
+    static String key(RequestCommand requestCommand) {
+        Map<String, String> arguments = new TreeMap<>(requestCommand.getArguments());
+        arguments.remove(NAMES);
+        return requestCommand.getExperimentTaskId() + "|" + requestCommand.getScope() + "|"
+                + requestCommand.getSceneCode() + "|" + requestCommand.getTimeout() + "|" + arguments;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        timer = new HashedWheelTimer(r -> {
+            Thread thread = new Thread(r);
+            thread.setName("Chaosblade-batcher");
+            thread.setDaemon(true);
+            return thread;
+        }, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        timer.stop();
+    }
+
+    public static class Batch {
+
+        private final String key;
+
+        private final List<Member> members = new ArrayList<>();
+
+        private final Set<String> names = new LinkedHashSet<>();
+
+        private boolean flushed;
+
+        private Batch(String key) {
+            this.key = key;
+        }
+
+        public List<Member> getMembers() {
+            return members;
+        }
+
+        public Set<String> getNames() {
+            return names;
+        }
+    }
+
+    public static class Member {
+
+        private final RequestCommand requestCommand;
+
+        private final CompletableFuture<ResponseCommand> future;
+
+        private final Set<String> names = new LinkedHashSet<>();
+
+        private Member(RequestCommand requestCommand, CompletableFuture<ResponseCommand> future) {
+            this.requestCommand = requestCommand;
+            this.future = future;
+            for (String name : StrUtil.split(requestCommand.getArguments().get(NAMES), ",")) {
+                if (StrUtil.isNotBlank(name)) {
+                    names.add(name.trim());
+                }
+            }
+        }
+
+        public RequestCommand getRequestCommand() {
+            return requestCommand;
+        }
+
+        public CompletableFuture<ResponseCommand> getFuture() {
+            return future;
+        }
+
+        public Set<String> getNames() {
+            return names;
+        }
+    }
+}
@@ -28,11 +28,11 @@ import io.kubernetes.client.openapi.ApiCallback;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author yefei
@@ -42,11 +42,20 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class ChaosBladeRecoverChaosInvoker extends AbstractChaosBladeChaosInvoker {
 
+    @Autowired
+    private ChaosBladeBatcher chaosBladeBatcher;
+
     @Override
     public CompletableFuture<ResponseCommand> invoke(RequestCommand requestCommand) {
-        CustomObjectsApi apiInstance = new CustomObjectsApi(client);
+        CustomObjectsApi apiInstance = kubeApiClient.customObjectsApi();
 
         CompletableFuture<ResponseCommand> completableFuture = new CompletableFuture<>();
+        if (!chaosBladeBatcher.release(requestCommand.getName())) {
+            // shared by other requests of a batch still running
+            completableFuture.complete(ResponseCommand.builder().success(true)
+                    .result(requestCommand.getName()).build());
+            return completableFuture;
+        }
         try {
             apiInstance.deleteClusterCustomObjectAsync(
                     Constants.GROUP,
@@ -78,7 +87,7 @@ public class ChaosBladeRecoverChaosInvoker extends AbstractChaosBladeChaosInvoke
 
                         @Override
                         public void onSuccess(Object result, int statusCode, Map responseHeaders) {
-                            checkStatus(completableFuture, requestCommand.getName());
+                            waitStatus(completableFuture, requestCommand.getName(), requestCommand.getTimeout());
                         }
 
                         @Override
@@ -105,49 +114,26 @@ public class ChaosBladeRecoverChaosInvoker extends AbstractChaosBladeChaosInvoke
     }
 
 
-    private void checkStatus(CompletableFuture<ResponseCommand> future, String name) {
-
-        timer.newTimeout(timeout -> {
-                    RequestCommand requestCommand = new RequestCommand();
-                    requestCommand.setName(name);
-
-                    CompletableFuture<StatusResponseCommand> completableFuture = checkStatus(requestCommand);
-
-                    completableFuture.handle((statusResponseCommand, e) -> {
-                        if (e != null) {
-                            future.completeExceptionally(e);
-                        } else {
-                            log.info("子任务运行中，检查 CRD 状态，NAME: {}, PHASE: {},  是否成功: {}, 失败原因: {}",
-                                    requestCommand.getName(),
-                                    statusResponseCommand.getPhase(),
-                                    statusResponseCommand.isSuccess(),
-                                    statusResponseCommand.getError());
-
-                            String error = statusResponseCommand.getError();
-
-                            if ("404".equals(statusResponseCommand.getCode())) {
-                                statusResponseCommand.setSuccess(true);
-                                future.complete(statusResponseCommand);
-                                return null;
-                            }
-                            if (StrUtil.isNotEmpty(error)) {
-                                future.completeExceptionally(new BizException(error));
-                                return null;
-                            }
-                            if ("Destroyed".equals(statusResponseCommand.getPhase())) {
-                                future.complete(statusResponseCommand);
-                            } else {
-                                checkStatus(future, name);
-                            }
-
-                        }
-                        return null;
-                    });
-                },
-                3000,
-                TimeUnit.MILLISECONDS);
+    @Override
+    protected void onStatus(CompletableFuture<ResponseCommand> future, String name,
+                            StatusResponseCommand statusResponseCommand) {
+        log.info("子任务运行中，检查 CRD 状态，NAME: {}, PHASE: {},  是否成功: {}, 失败原因: {}",
+                name,
+                statusResponseCommand.getPhase(),
+                statusResponseCommand.isSuccess(),
+                statusResponseCommand.getError());
+
+        if ("404".equals(statusResponseCommand.getCode())) {
+            statusResponseCommand.setSuccess(true);
+            future.complete(statusResponseCommand);
+            return;
+        }
+        if (StrUtil.isNotEmpty(statusResponseCommand.getError())) {
+            future.completeExceptionally(new BizException(statusResponseCommand.getError()));
+            return;
+        }
+        if ("Destroyed".equals(statusResponseCommand.getPhase())) {
+            future.complete(statusResponseCommand);
+        }
     }
-
-
-
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.invoker.blade.kubeapi;
+
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
+import com.alibaba.chaosblade.box.invoker.blade.kubeapi.crd.ChaosBlade;
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.openapi.apis.CustomObjectsApi;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+import io.kubernetes.client.util.Watch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One shared watch on the chaosblades resources, dispatching every change of a
+ * ChaosBlade to every listener registered for its name.
+ *
+ * <p>The watch only runs while listeners are registered. Each (re)connect lists the
+ * resources first: current states are dispatched and listeners whose ChaosBlade is
+ * gone are told it was deleted, then the watch continues from the list version.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class ChaosBladeWatcher implements InitializingBean, DisposableBean {
+
+    private static final Type WATCH_TYPE = new TypeToken<Watch.Response<ChaosBlade>>() {
+    }.getType();
+
+    private static final Type LIST_TYPE = new TypeToken<ChaosBladeItems>() {
+    }.getType();
+
+    private static final long MAX_BACKOFF = TimeUnit.SECONDS.toMillis(30);
+
+    @Value("${chaos.invoker.kubeapi.watch.timeout:300}")
+    private int watchTimeout;
+
+    private final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+
+    @Autowired
+    private KubeApiClient kubeApiClient;
+
+    private CustomObjectsApi watchApi;
+
+    private Thread thread;
+
+    private volatile Watch<ChaosBlade> watch;
+
+    private volatile boolean running = true;
+
+    /**
+     * called with the ChaosBlade on every change, null once deleted
+     */
+    public interface Listener {
+
+        void onChange(ChaosBlade chaosBlade);
+    }
+
+    /**
+     * several listeners may wait on the same ChaosBlade, e.g. batched attacks sharing one
+     *
+     * @param name
+     * @param listener
+     */
+    public void register(String name, Listener listener) {
+        listeners.compute(name, (k, list) -> {
+            List<Listener> registered = list == null ? new CopyOnWriteArrayList<>() : list;
+            registered.add(listener);
+            return registered;
+        });
+        synchronized (listeners) {
+            listeners.notifyAll();
+        }
+    }
+
+    public void unregister(String name, Listener listener) {
+        listeners.computeIfPresent(name, (k, list) -> {
+            list.remove(listener);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private void run() {
+        long backoff = TimeUnit.SECONDS.toMillis(1);
+        while (running) {
+            try {
+                synchronized (listeners) {
+                    while (running && listeners.isEmpty()) {
+                        listeners.wait();
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                watch(list());
+                backoff = TimeUnit.SECONDS.toMillis(1);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("watch chaosblade fail, retry after {} ms", backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                backoff = Math.min(backoff << 1, MAX_BACKOFF);
+            }
+        }
+    }
+
+    /**
+     * @return resource version to watch from
+     */
+    private String list() throws Exception {
+        CustomObjectsApi apiInstance = kubeApiClient.customObjectsApi();
+        // snapshot before the list, a listener registered later may precede its ChaosBlade
+        Set<String> names = new HashSet<>(listeners.keySet());
+        ChaosBladeItems chaosBladeItems = kubeApiClient.client().<ChaosBladeItems>execute(apiInstance.listClusterCustomObjectCall(
+                Constants.GROUP,
+                Constants.VERSION,
+                Constants.PLURAL,
+                null, null, null, null, null, null, null, false, null),
+                LIST_TYPE).getData();
+        if (chaosBladeItems.items != null) {
+            for (ChaosBlade chaosBlade : chaosBladeItems.items) {
+                names.remove(chaosBlade.getMetadata().getName());
+                dispatch(chaosBlade.getMetadata().getName(), chaosBlade);
+            }
+        }
+        for (String name : names) {
+            dispatch(name, null);
+        }
+        return chaosBladeItems.metadata == null ? null : chaosBladeItems.metadata.getResourceVersion();
+    }
+
+    private void watch(String resourceVersion) throws Exception {
+        watch = Watch.createWatch(kubeApiClient.watchClient(), watchApi.listClusterCustomObjectCall(
+                Constants.GROUP,
+                Constants.VERSION,
+                Constants.PLURAL,
+                null, null, null, null, null, resourceVersion, watchTimeout, true, null),
+                WATCH_TYPE);
+        try {
+            for (Watch.Response<ChaosBlade> event : watch) {
+                if (event.object == null) {
+                    // ERROR, e.g. the resource version is too old, relist
+                    log.info("watch chaosblade closed, type: {}, status: {}", event.type,
+                            event.status == null ? null : event.status.getMessage());
+                    return;
+                }
+                String name = event.object.getMetadata().getName();
+                dispatch(name, "DELETED".equals(event.type) ? null : event.object);
+                if (listeners.isEmpty()) {
+                    return;
+                }
+            }
+        } finally {
+            watch.close();
+            watch = null;
+        }
+    }
+
+    private void dispatch(String name, ChaosBlade chaosBlade) {
+        List<Listener> registered = listeners.get(name);
+        if (registered == null) {
+            return;
+        }
+        for (Listener listener : registered) {
+            try {
+                listener.onChange(chaosBlade);
+            } catch (Exception e) {
+                log.error("dispatch chaosblade change fail, name: {}", name, e);
+            }
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        watchApi = new CustomObjectsApi(kubeApiClient.watchClient());
+
+        thread = new Thread(this::run);
+        thread.setName("Chaosblade-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        Watch<ChaosBlade> current = watch;
+        if (current != null) {
+            current.close();
+        }
+        thread.interrupt();
+    }
+
+    private static class ChaosBladeItems {
+
+        private V1ListMeta metadata;
+
+        private List<ChaosBlade> items;
+    }
+}
@@ -17,6 +17,7 @@
 package com.alibaba.chaosblade.box.invoker.blade.kubeapi.model;
 
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
+import com.alibaba.chaosblade.box.invoker.blade.kubeapi.crd.ResourceStatus;
 import lombok.Data;
 
 /**
@@ -30,4 +31,9 @@ public class StatusResponseCommand extends ResponseCommand {
     private String phase;
 
     private String state;
+
+    /**
+     * status of every target resource of the experiment
+     */
+    private ResourceStatus[] resStatuses;
 }
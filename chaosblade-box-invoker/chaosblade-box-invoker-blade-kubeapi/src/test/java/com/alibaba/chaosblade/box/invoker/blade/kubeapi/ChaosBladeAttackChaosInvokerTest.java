@@ -16,8 +16,11 @@
 
 package com.alibaba.chaosblade.box.invoker.blade.kubeapi;
 
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
 import com.alibaba.chaosblade.box.invoker.RequestCommand;
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
+import com.alibaba.chaosblade.box.invoker.blade.kubeapi.crd.ResourceStatus;
+import com.alibaba.chaosblade.box.invoker.blade.kubeapi.model.StatusResponseCommand;
 import com.alibaba.testable.core.annotation.MockDiagnose;
 import com.alibaba.testable.core.annotation.MockMethod;
 import com.alibaba.testable.core.model.LogLevel;
@@ -31,10 +34,13 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 
 /**
  * @author yefei
@@ -46,6 +52,7 @@ public class ChaosBladeAttackChaosInvokerTest {
 
     @Configuration
     @ComponentScan("com.alibaba.chaosblade.box.invoker.blade.kubeapi")
+    @Import(KubeApiClient.class)
     public static class Config {
     }
 
@@ -89,4 +96,49 @@ public class ChaosBladeAttackChaosInvokerTest {
         Assert.assertTrue(responseCommand.isSuccess());
     }
 
+    @Test
+    public void testDemux() {
+        StatusResponseCommand statusResponseCommand = new StatusResponseCommand();
+        statusResponseCommand.setName("blade");
+        statusResponseCommand.setPhase("Running");
+        statusResponseCommand.setSuccess(false);
+        statusResponseCommand.setError("pod-b: not found");
+        statusResponseCommand.setResStatuses(new ResourceStatus[]{
+                ResourceStatus.builder().identifier("default/node-1/pod-a/nginx").success("true").build(),
+                ResourceStatus.builder().identifier("default/node-1/pod-b/nginx").success("false")
+                        .error("pod-b: not found").build(),
+        });
+
+        StatusResponseCommand a = ChaosBladeAttackChaosInvoker.demux(statusResponseCommand,
+                new HashSet<>(Collections.singletonList("pod-a")));
+        Assert.assertTrue(a.isSuccess());
+        Assert.assertNull(a.getError());
+        Assert.assertEquals("blade", a.getName());
+
+        StatusResponseCommand b = ChaosBladeAttackChaosInvoker.demux(statusResponseCommand,
+                new HashSet<>(Collections.singletonList("pod-b")));
+        Assert.assertFalse(b.isSuccess());
+        Assert.assertEquals("pod-b: not found", b.getError());
+    }
+
+    @Test
+    public void testBatchKey() {
+        RequestCommand a = new RequestCommand();
+        a.setScope("pod");
+        a.setSceneCode("chaosblade.k8s-pod-cpu.fullload");
+        a.setExperimentTaskId(1L);
+        a.setArguments(new HashMap<>(Collections.singletonMap(ChaosBladeBatcher.NAMES, "pod-a")));
+
+        RequestCommand b = new RequestCommand();
+        b.setScope("pod");
+        b.setSceneCode("chaosblade.k8s-pod-cpu.fullload");
+        b.setExperimentTaskId(1L);
+        b.setArguments(new HashMap<>(Collections.singletonMap(ChaosBladeBatcher.NAMES, "pod-b")));
+        Assert.assertEquals(ChaosBladeBatcher.key(a), ChaosBladeBatcher.key(b));
+
+        // targets of another experiment task never share the ChaosBlade
+        b.setExperimentTaskId(2L);
+        Assert.assertNotEquals(ChaosBladeBatcher.key(a), ChaosBladeBatcher.key(b));
+    }
+
 }
@@ -16,6 +16,7 @@
 
 package com.alibaba.chaosblade.box.invoker.blade.kubeapi;
 
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
 import com.alibaba.chaosblade.box.invoker.RequestCommand;
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
 import com.alibaba.testable.core.annotation.MockDiagnose;
@@ -32,10 +33,12 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author yefei
@@ -47,12 +50,18 @@ public class ChaosBladeRecoverChaosInvokerTest {
 
     @Configuration
     @ComponentScan("com.alibaba.chaosblade.box.invoker.blade.kubeapi")
+    @Import(KubeApiClient.class)
     public static class Config {
     }
 
     @Autowired
     private ChaosBladeRecoverChaosInvoker chaosBladeAttackChaosInvoker;
 
+    @Autowired
+    private ChaosBladeBatcher chaosBladeBatcher;
+
+    private static final AtomicInteger DELETED = new AtomicInteger();
+
     @MockDiagnose(LogLevel.ENABLE)
     public static class Mock {
 
@@ -71,6 +80,7 @@ public class ChaosBladeRecoverChaosInvokerTest {
                 final ApiCallback<Object> _callback)
                 throws ApiException {
             log.info("mock delete blade");
+            DELETED.incrementAndGet();
             _callback.onSuccess(null, 200, new HashMap<>());
             return null;
 
@@ -88,4 +98,19 @@ public class ChaosBladeRecoverChaosInvokerTest {
         Assert.assertTrue(responseCommand.isSuccess());
     }
 
+    @Test
+    public void testRecoverSharedChaosBlade() throws Exception {
+        chaosBladeBatcher.hold("shared", 2);
+        RequestCommand requestCommand = new RequestCommand();
+        requestCommand.setSceneCode("chaosblade.k8s-pod-cpu.fullload.stop");
+        requestCommand.setName("shared");
+
+        int deleted = DELETED.get();
+        Assert.assertTrue(chaosBladeAttackChaosInvoker.invoke(requestCommand).get().isSuccess());
+        Assert.assertEquals(deleted, DELETED.get());
+
+        Assert.assertTrue(chaosBladeAttackChaosInvoker.invoke(requestCommand).get().isSuccess());
+        Assert.assertEquals(deleted + 1, DELETED.get());
+    }
+
 }
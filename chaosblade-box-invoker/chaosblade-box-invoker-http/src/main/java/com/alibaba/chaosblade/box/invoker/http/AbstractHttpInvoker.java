@@ -24,40 +24,25 @@ import com.alibaba.chaosblade.box.invoker.http.constant.Header;
 import com.alibaba.chaosblade.box.invoker.http.model.reuest.HttpChannelRequest;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.concurrent.FutureCallback;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
-import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.util.EntityUtils;
-import org.springframework.beans.factory.DisposableBean;
-import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.concurrent.CompletableFuture;
 
 /**
  * @author yefei
  */
-public abstract class AbstractHttpInvoker implements ChaosInvoker<HttpChannelRequest, ResponseCommand>, InitializingBean, DisposableBean {
+public abstract class AbstractHttpInvoker implements ChaosInvoker<HttpChannelRequest, ResponseCommand> {
 
     public static final String CHAOSBLADE_HANDLER = "/chaosblade";
 
-    private CloseableHttpAsyncClient httpclient;
-
-    @Override
-    public void destroy() throws Exception {
-        httpclient.close();
-    }
-
-    @Override
-    public void afterPropertiesSet() {
-        RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(3000).setConnectTimeout(3000).build();
-        httpclient = HttpAsyncClients.custom().setDefaultRequestConfig(requestConfig).build();
-        httpclient.start();
-    }
+    @Autowired
+    private HttpInvokerClient httpInvokerClient;
 
     @Override
     public CompletableFuture<ResponseCommand> invoke(HttpChannelRequest requestCommand) {
@@ -75,14 +60,14 @@ public abstract class AbstractHttpInvoker implements ChaosInvoker<HttpChannelReq
         httpPost.setHeader("Accept", "application/json;charset=UTF-8");
         httpPost.setHeader("Content-Type", "application/x-www-form-urlencoded");
 
-        StringEntity stringEntity = new StringEntity(JsonUtils.writeValueAsString(requestCommand), Charset.defaultCharset());
-        httpPost.setEntity(stringEntity);
+        httpPost.setEntity(new ByteArrayEntity(JsonUtils.writeValueAsBytes(requestCommand)));
 
         if (requestCommand.getTimeout() != null) {
-            httpPost.setConfig(RequestConfig.custom().setSocketTimeout(requestCommand.getTimeout().intValue()).build());
+            httpPost.setConfig(httpInvokerClient.requestConfig(requestCommand.getTimeout()));
         }
 
         CompletableFuture<ResponseCommand> completableFuture = new CompletableFuture<>();
+        CloseableHttpAsyncClient httpclient = httpInvokerClient.client();
         httpclient.execute(httpPost, new FutureCallback<HttpResponse>() {
             @Override
             public void completed(HttpResponse httpResponse) {
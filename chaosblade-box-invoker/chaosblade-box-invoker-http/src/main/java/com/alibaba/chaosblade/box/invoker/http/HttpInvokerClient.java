@@ -0,0 +1,170 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.chaosblade.box.invoker.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled async client shared by the http invokers. Every agent is a route, so the
+ * per route limit stays small while the total allows the whole fan-out. Connections
+ * are kept alive for keepAlive ms unless the agent says otherwise, expired and idle
+ * ones are evicted every evictInterval ms. The pool stats are logged every statsInterval ms.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class HttpInvokerClient implements InitializingBean, DisposableBean {
+
+    @Value("${chaos.invoker.http.maxTotal:2048}")
+    private int maxTotal;
+
+    @Value("${chaos.invoker.http.maxPerRoute:16}")
+    private int maxPerRoute;
+
+    @Value("${chaos.invoker.http.connectTimeout:3000}")
+    private int connectTimeout;
+
+    @Value("${chaos.invoker.http.socketTimeout:3000}")
+    private int socketTimeout;
+
+    @Value("${chaos.invoker.http.keepAlive:30000}")
+    private long keepAlive;
+
+    @Value("${chaos.invoker.http.maxIdle:60000}")
+    private long maxIdle;
+
+    @Value("${chaos.invoker.http.evictInterval:10000}")
+    private long evictInterval;
+
+    @Value("${chaos.invoker.http.statsInterval:60000}")
+    private long statsInterval;
+
+    @Value("${chaos.invoker.http.ioThreads:0}")
+    private int ioThreads;
+
+    private PoolingNHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpAsyncClient httpclient;
+
+    private RequestConfig defaultRequestConfig;
+
+    private final Map<Long, RequestConfig> requestConfigs = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads > 0 ? ioThreads : Runtime.getRuntime().availableProcessors())
+                .setConnectTimeout(connectTimeout)
+                .setSoTimeout(socketTimeout)
+                .setSoKeepAlive(true)
+                .setTcpNoDelay(true)
+                .build();
+        connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : keepAlive;
+        };
+
+        defaultRequestConfig = RequestConfig.custom()
+                .setSocketTimeout(socketTimeout)
+                .setConnectTimeout(connectTimeout)
+                .build();
+        httpclient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .setDefaultRequestConfig(defaultRequestConfig)
+                .build();
+        httpclient.start();
+
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("Http-invoker-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutorService.scheduleWithFixedDelay(this::evict, evictInterval, evictInterval,
+                TimeUnit.MILLISECONDS);
+        scheduledExecutorService.scheduleWithFixedDelay(this::logStats, statsInterval, statsInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        scheduledExecutorService.shutdown();
+        httpclient.close();
+    }
+
+    public CloseableHttpAsyncClient client() {
+        return httpclient;
+    }
+
+    /**
+     * request config with the given socket timeout, shared per timeout value
+     */
+    public RequestConfig requestConfig(Long timeout) {
+        if (timeout == null) {
+            return defaultRequestConfig;
+        }
+        return requestConfigs.computeIfAbsent(timeout, t -> RequestConfig.copy(defaultRequestConfig)
+                .setSocketTimeout(t.intValue())
+                .build());
+    }
+
+    private void evict() {
+        try {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(maxIdle, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.error("evict http invoker connections fail!", e);
+        }
+    }
+
+    private void logStats() {
+        PoolStats stats = connectionManager.getTotalStats();
+        if (stats.getPending() > 0) {
+            log.warn("http invoker pool saturated, leased: {}, pending: {}, available: {}, max: {}",
+                    stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+        } else {
+            log.info("http invoker pool, leased: {}, pending: {}, available: {}, max: {}",
+                    stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+        }
+    }
+}
@@ -22,20 +22,17 @@ import cn.hutool.http.HttpResponse;
 import cn.hutool.http.HttpUtil;
 import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
 import com.alibaba.chaosblade.box.common.enums.ChaosTools;
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
 import com.alibaba.chaosblade.box.invoker.ChaosInvoker;
 import com.alibaba.chaosblade.box.invoker.RequestCommand;
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
 import com.alibaba.chaosblade.box.scenario.litmus.model.ChaosExperiment;
-import io.kubernetes.client.openapi.ApiClient;
-import io.kubernetes.client.openapi.ApiException;
-import io.kubernetes.client.openapi.apis.CustomObjectsApi;
-import io.kubernetes.client.util.Config;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.representer.Representer;
 
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -43,9 +40,11 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public abstract class AbstractLitmusChaosInvoker implements ChaosInvoker<RequestCommand, ResponseCommand>, InitializingBean {
 
-    protected final static String SA_SUFFIX = "-sa";
+    @Autowired
+    protected KubeApiClient kubeApiClient;
 
-    protected ApiClient client;
+    @Autowired
+    protected LitmusProvisioner litmusProvisioner;
 
     protected final Map<String, ChaosExperiment> experimentMap = new ConcurrentHashMap<>();
 
@@ -89,39 +88,6 @@ public abstract class AbstractLitmusChaosInvoker implements ChaosInvoker<Request
 
             experimentMap.put(sceneCode, chaosExperiment);
         }
-        client = Config.defaultClient();
-    }
-
-    protected CompletableFuture<ResponseCommand> postExperiment(RequestCommand requestCommand) {
-        CompletableFuture<ResponseCommand> future = new CompletableFuture<>();
-        try {
-            CustomObjectsApi customObjectsApi = new CustomObjectsApi(client);
-            customObjectsApi.deleteNamespacedCustomObject(
-                    Constants.GROUP,
-                    Constants.VERSION,
-                    requestCommand.getNamespace(),
-                    Constants.EXPERIMENT_PLURAL,
-                    requestCommand.getSceneCode(),
-                    10,
-                    false,
-                    null,
-                    null,
-                    null
-            );
-
-        } catch (ApiException e) {
-            if (e.getCode() == 409) {
-                // ignore
-            } else {
-                future.complete(ResponseCommand.builder()
-                        .code(String.valueOf(e.getCode()))
-                        .error(e.getMessage())
-                        .result(e.getResponseBody())
-                        .success(false).build());
-            }
-        }
-        future.complete(ResponseCommand.builder().success(true).build());
-        return future;
     }
 
 }
@@ -16,33 +16,25 @@
 
 package com.alibaba.chaosblade.box.invoker.litmus.kubeapi;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
 import com.alibaba.chaosblade.box.common.enums.ChaosTools;
 import com.alibaba.chaosblade.box.common.enums.DeviceType;
-import com.alibaba.chaosblade.box.common.utils.JsonUtils;
-import com.alibaba.chaosblade.box.common.utils.SceneCodeParseUtil;
 import com.alibaba.chaosblade.box.invoker.ChaosInvokerStrategy;
 import com.alibaba.chaosblade.box.invoker.RequestCommand;
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
 import com.alibaba.chaosblade.box.invoker.litmus.kubeapi.crd.engine.*;
-import com.alibaba.chaosblade.box.scenario.litmus.model.ChaosExperiment;
 import com.alibaba.chaosblade.box.scenario.litmus.model.experiments.ChaosExperimentDefinitionEnv;
 import io.kubernetes.client.openapi.ApiCallback;
 import io.kubernetes.client.openapi.ApiException;
-import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
-import io.kubernetes.client.openapi.apis.RbacAuthorizationV1Api;
-import io.kubernetes.client.openapi.models.*;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
 
 /**
  * @author yefei
@@ -55,136 +47,42 @@ import java.util.stream.Collectors;
 @Component
 public class LitmusAttackChaosInvoker extends AbstractLitmusChaosInvoker {
 
-    private String preExperiment(RequestCommand requestCommand) {
-        CompletableFuture<ResponseCommand> future = new CompletableFuture<>();
-        String serviceAccount = requestCommand.getSceneCode() + SA_SUFFIX;
-        ChaosExperiment chaosExperiment = experimentMap.get(requestCommand.getSceneCode());
-
-        try {
-            CustomObjectsApi customObjectsApi = new CustomObjectsApi(client);
-            customObjectsApi.createNamespacedCustomObject(
-                    Constants.GROUP,
-                    Constants.VERSION,
-                    requestCommand.getNamespace(),
-                    Constants.EXPERIMENT_PLURAL,
-                    JsonUtils.writeValueAsBytes(chaosExperiment),
-                    "true",
-                    null,
-                    null
-            );
-        } catch (ApiException e) {
-            if (e.getCode() == 409) {
-                // ignore
-            } else {
-                future.complete(ResponseCommand.builder()
-                        .code(String.valueOf(e.getCode()))
-                        .error(e.getMessage())
-                        .result(e.getResponseBody())
-                        .success(false).build());
-            }
-        }
-        try {
-            CoreV1Api apiInstance = new CoreV1Api(client);
-            // todo
-            V1ServiceAccount v1ServiceAccount = new V1ServiceAccount();
-            v1ServiceAccount.metadata(new V1ObjectMeta().name(serviceAccount).namespace(requestCommand.getNamespace()));
-            apiInstance.createNamespacedServiceAccount(
-                    requestCommand.getNamespace(),
-                    v1ServiceAccount,
-                    "true",
-                    null,
-                    null
-            );
-
-        } catch (ApiException e) {
-            if (e.getCode() == 409) {
-                // ignore
-            } else {
-                future.complete(ResponseCommand.builder()
-                        .code(String.valueOf(e.getCode()))
-                        .error(e.getMessage())
-                        .result(e.getResponseBody())
-                        .success(false).build());
-            }
-        }
-        RbacAuthorizationV1Api rbacAuthorizationV1Api = new RbacAuthorizationV1Api(client);
-        try {
-            // role
-            V1ClusterRole v1ClusterRole = new V1ClusterRole();
-
-            v1ClusterRole.metadata(new V1ObjectMeta()
-                    .name(serviceAccount)
-                    .namespace(requestCommand.getNamespace())
-            );
-            List<V1PolicyRule> policyRules = Arrays.stream(chaosExperiment.getSpec().getDefinition().getPermissions())
-                    .map(permission ->
-                            new V1PolicyRule()
-                                    .apiGroups(Arrays.asList(permission.getApiGroups()))
-                                    .resources(Arrays.asList(permission.getResources()))
-                                    .verbs(Arrays.asList(permission.getVerbs()))
-                    ).collect(Collectors.toList());
-
-            v1ClusterRole.setRules(policyRules);
-            rbacAuthorizationV1Api.createClusterRole(v1ClusterRole, "true", null, null);
-        } catch (ApiException e) {
-            if (e.getCode() == 409) {
-                // ignore
-            } else {
-                future.complete(ResponseCommand.builder()
-                        .code(String.valueOf(e.getCode()))
-                        .error(e.getMessage())
-                        .result(e.getResponseBody())
-                        .success(false).build());
-            }
-        }
-        try {
-            // role binding
-            V1ClusterRoleBinding v1RoleBinding = new V1ClusterRoleBinding();
-            v1RoleBinding.metadata(new V1ObjectMeta()
-                    .namespace(requestCommand.getNamespace())
-                    .name(serviceAccount))
-                    .roleRef(new V1RoleRef().apiGroup("rbac.authorization.k8s.io").kind("ClusterRole").name(serviceAccount))
-                    .setSubjects(CollUtil.newArrayList(new V1Subject()
-                            .kind("ServiceAccount").name(serviceAccount).namespace(requestCommand.getNamespace())));
-
-            rbacAuthorizationV1Api.createClusterRoleBinding(v1RoleBinding, "true", null, null);
-        } catch (ApiException e) {
-            if (e.getCode() == 409) {
-                // ignore
-            } else {
-                future.complete(ResponseCommand.builder()
-                        .code(String.valueOf(e.getCode()))
-                        .error(e.getMessage())
-                        .result(e.getResponseBody())
-                        .success(false).build());
-            }
-        }
-        return serviceAccount;
-    }
-
     @Override
     public CompletableFuture<ResponseCommand> invoke(RequestCommand requestCommand) {
         if (StrUtil.isBlank(requestCommand.getNamespace())) {
             requestCommand.setNamespace("default");
         }
 
+        String engineName = IdUtil.fastSimpleUUID();
         CompletableFuture<ResponseCommand> completableFuture = new CompletableFuture<>();
+        litmusProvisioner.acquire(requestCommand.getNamespace(), requestCommand.getSceneCode(), engineName,
+                experimentMap.get(requestCommand.getSceneCode()))
+                .whenComplete((serviceAccount, e) -> {
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        ResponseCommand.ResponseCommandBuilder builder = ResponseCommand.builder()
+                                .success(false)
+                                .result(cause.getMessage());
+                        if (cause instanceof ApiException) {
+                            builder.code(String.valueOf(((ApiException) cause).getCode()))
+                                    .error(((ApiException) cause).getResponseBody());
+                        }
+                        completableFuture.complete(builder.build());
+                    } else {
+                        createEngine(requestCommand, engineName, serviceAccount, completableFuture);
+                    }
+                });
+        return completableFuture;
+    }
 
-        String serviceAccount = preExperiment(requestCommand);
-        CustomObjectsApi apiInstance = new CustomObjectsApi(client);
+    private void createEngine(RequestCommand requestCommand, String engineName, String serviceAccount,
+                              CompletableFuture<ResponseCommand> completableFuture) {
+        CustomObjectsApi apiInstance = kubeApiClient.customObjectsApi();
 
         V1ObjectMeta v1ObjectMeta = new V1ObjectMeta();
-        v1ObjectMeta.setName(IdUtil.fastSimpleUUID());
+        v1ObjectMeta.setName(engineName);
 
-        String experimentName;
-        String target = SceneCodeParseUtil.getTarget(requestCommand.getSceneCode());
-        String action = SceneCodeParseUtil.getAction(requestCommand.getSceneCode());
-        String[] split = StrUtil.split(target, "-");
-        if (split[0].equals(split[1])) {
-            experimentName = split[0] + "-" + action;
-        } else {
-            experimentName = target + "-" + action;
-        }
+        String experimentName = LitmusProvisioner.experimentName(requestCommand.getSceneCode());
 
         ChaosEngine chaosEngine = ChaosEngine.builder()
                 .apiVersion(Constants.API_VERSION)
@@ -229,6 +127,7 @@ public class LitmusAttackChaosInvoker extends AbstractLitmusChaosInvoker {
                     new ApiCallback() {
                         @Override
                         public void onFailure(ApiException e, int statusCode, Map responseHeaders) {
+                            litmusProvisioner.release(requestCommand.getNamespace(), requestCommand.getSceneCode(), engineName);
                             ResponseCommand responseCommand = ResponseCommand.builder()
                                     .success(false)
                                     .code(String.valueOf(statusCode))
@@ -260,6 +159,7 @@ public class LitmusAttackChaosInvoker extends AbstractLitmusChaosInvoker {
                     }
             );
         } catch (ApiException apiException) {
+            litmusProvisioner.release(requestCommand.getNamespace(), requestCommand.getSceneCode(), engineName);
             ResponseCommand responseCommand = ResponseCommand.builder()
                     .success(false)
                     .code(String.valueOf(apiException.getCode()))
@@ -268,8 +168,6 @@ public class LitmusAttackChaosInvoker extends AbstractLitmusChaosInvoker {
                     .build();
             completableFuture.complete(responseCommand);
         }
-
-        return completableFuture;
     }
 
 }
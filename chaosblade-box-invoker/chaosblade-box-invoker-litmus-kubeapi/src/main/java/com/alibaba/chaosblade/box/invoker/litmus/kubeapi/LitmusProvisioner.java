@@ -0,0 +1,455 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.invoker.litmus.kubeapi;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
+import com.alibaba.chaosblade.box.common.utils.JsonUtils;
+import com.alibaba.chaosblade.box.common.utils.SceneCodeParseUtil;
+import com.alibaba.chaosblade.box.invoker.litmus.kubeapi.crd.engine.ChaosEngineSpec;
+import com.alibaba.chaosblade.box.scenario.litmus.model.ChaosExperiment;
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.openapi.ApiCallback;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.models.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Provisions the resources a litmus experiment runs with: the ChaosExperiment and
+ * ServiceAccount per (namespace, scene), the ClusterRole and ClusterRoleBinding per
+ * scene. All of them are created asynchronously in parallel, an existing one is fine.
+ *
+ * <p>Provisioned resources are cached with the engines holding them, repeat attacks
+ * share them without calling the apiserver. Resources are deleted when the last holder
+ * is released, releasing a holder twice does nothing. Resources not cached, e.g. acquired
+ * before a restart, are deleted unless a live engine in the cluster still uses them.
+ * Creating resources being deleted waits for the deletion. Failed provisioning is not
+ * cached, the next attack retries it.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class LitmusProvisioner {
+
+    protected final static String SA_SUFFIX = "-sa";
+
+    private static final Type ENGINE_LIST_TYPE = new TypeToken<ChaosEngineItems>() {
+    }.getType();
+
+    @Autowired
+    private KubeApiClient kubeApiClient;
+
+    /**
+     * namespace/scene -> experiment and service account
+     */
+    private final Map<String, Provision> namespaced = new HashMap<>();
+
+    /**
+     * scene -> cluster role and binding
+     */
+    private final Map<String, Provision> clustered = new HashMap<>();
+
+    /**
+     * key -> deletion in progress
+     */
+    private final Map<String, CompletableFuture<Void>> deletions = new HashMap<>();
+
+    /**
+     * hold the resources of a scene in a namespace, provisioning them if needed
+     *
+     * @param namespace
+     * @param sceneCode
+     * @param holder          engine using the resources
+     * @param chaosExperiment experiment definition of the scene
+     * @return service account of the experiment
+     */
+    public CompletableFuture<String> acquire(String namespace, String sceneCode, String holder,
+                                             ChaosExperiment chaosExperiment) {
+        if (chaosExperiment == null) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalArgumentException("litmus experiment not found: " + sceneCode));
+            return future;
+        }
+        String serviceAccount = sceneCode + SA_SUFFIX;
+        String namespacedKey = namespace + "/" + sceneCode;
+        Provision namespacedProvision;
+        Provision clusteredProvision;
+        synchronized (this) {
+            namespacedProvision = acquire(namespaced, namespacedKey, holder,
+                    () -> CompletableFuture.allOf(
+                            createExperiment(namespace, chaosExperiment),
+                            createServiceAccount(namespace, serviceAccount)));
+            clusteredProvision = acquire(clustered, sceneCode, holder,
+                    () -> CompletableFuture.allOf(
+                            createClusterRole(serviceAccount, chaosExperiment),
+                            createClusterRoleBinding(namespace, serviceAccount)));
+        }
+
+        return CompletableFuture.allOf(namespacedProvision.future, clusteredProvision.future)
+                .handle((v, e) -> {
+                    if (e != null) {
+                        synchronized (this) {
+                            release(namespaced, namespacedKey, namespacedProvision, holder);
+                            release(clustered, sceneCode, clusteredProvision, holder);
+                        }
+                        throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+                    }
+                    return serviceAccount;
+                });
+    }
+
+    /**
+     * release the resources held by {@link #acquire}, resources no engine holds are deleted
+     *
+     * @param namespace
+     * @param sceneCode
+     * @param holder    engine using the resources
+     */
+    public void release(String namespace, String sceneCode, String holder) {
+        String namespacedKey = namespace + "/" + sceneCode;
+        boolean namespacedUnknown;
+        boolean clusteredUnknown;
+        synchronized (this) {
+            namespacedUnknown = unknown(namespaced, namespacedKey);
+            clusteredUnknown = unknown(clustered, sceneCode);
+            release(namespaced, namespacedKey, namespaced.get(namespacedKey), holder);
+            release(clustered, sceneCode, clustered.get(sceneCode), holder);
+        }
+        if (namespacedUnknown || clusteredUnknown) {
+            releaseUnknown(namespace, sceneCode, holder, namespacedUnknown, clusteredUnknown);
+        }
+    }
+
+    private boolean unknown(Map<String, Provision> provisions, String key) {
+        return !provisions.containsKey(key) && !deletions.containsKey(key);
+    }
+
+    /**
+     * resources not cached may be held by engines created before a restart, they are
+     * deleted only if no other live engine in the cluster uses them
+     */
+    private void releaseUnknown(String namespace, String sceneCode, String holder,
+                                boolean namespacedUnknown, boolean clusteredUnknown) {
+        String namespacedKey = namespace + "/" + sceneCode;
+        String serviceAccount = sceneCode + SA_SUFFIX;
+        listEngines().whenComplete((engines, e) -> {
+            if (e != null) {
+                log.warn("list litmus engines fail, resources of {} may leak, holder: {}", namespacedKey, holder, e);
+                return;
+            }
+            List<ChaosEngineItem> using = engines.stream()
+                    .filter(engine -> engine.metadata != null && engine.spec != null)
+                    .filter(engine -> engine.metadata.getDeletionTimestamp() == null)
+                    .filter(engine -> !holder.equals(engine.metadata.getName()))
+                    .filter(engine -> serviceAccount.equals(engine.spec.getChaosServiceAccount()))
+                    .collect(Collectors.toList());
+            boolean namespacedUsed = using.stream().anyMatch(engine -> namespace.equals(engine.metadata.getNamespace()));
+            synchronized (this) {
+                if (namespacedUnknown) {
+                    if (namespacedUsed) {
+                        log.info("litmus resources of {} kept, used by other engines", namespacedKey);
+                    } else if (unknown(namespaced, namespacedKey)) {
+                        delete(namespacedKey, deleteNamespaced(namespacedKey));
+                    }
+                }
+                if (clusteredUnknown) {
+                    if (!using.isEmpty()) {
+                        log.info("litmus resources of {} kept, used by other engines", sceneCode);
+                    } else if (unknown(clustered, sceneCode)) {
+                        delete(sceneCode, deleteClustered(sceneCode));
+                    }
+                }
+            }
+        });
+    }
+
+    private Provision acquire(Map<String, Provision> provisions, String key, String holder,
+                              Supplier<CompletableFuture<Void>> create) {
+        Provision provision = provisions.get(key);
+        if (provision == null) {
+            provision = new Provision();
+            provisions.put(key, provision);
+            CompletableFuture<Void> deletion = deletions.getOrDefault(key, CompletableFuture.completedFuture(null));
+            provision.future = deletion.handle((v, e) -> null).thenCompose(v -> create.get());
+
+            Provision created = provision;
+            provision.future.whenComplete((v, e) -> {
+                if (e != null) {
+                    log.warn("provision litmus resources fail, key: {}", key, e);
+                    synchronized (this) {
+                        // not cached, the next attack provisions again
+                        if (provisions.get(key) == created) {
+                            provisions.remove(key);
+                        }
+                    }
+                }
+            });
+        }
+        provision.holders.add(holder);
+        return provision;
+    }
+
+    private void release(Map<String, Provision> provisions, String key, Provision provision, String holder) {
+        // unknown or released already
+        if (provision == null || !provision.holders.remove(holder)) {
+            return;
+        }
+        if (!provision.holders.isEmpty() || provisions.get(key) != provision) {
+            return;
+        }
+        provisions.remove(key);
+        delete(key, provisions == namespaced ? deleteNamespaced(key) : deleteClustered(key));
+    }
+
+    private void delete(String key, CompletableFuture<Void> deletion) {
+        deletions.put(key, deletion);
+        deletion.whenComplete((v, e) -> {
+            synchronized (this) {
+                deletions.remove(key, deletion);
+            }
+        });
+    }
+
+    private CompletableFuture<List<ChaosEngineItem>> listEngines() {
+        CompletableFuture<List<ChaosEngineItem>> future = new CompletableFuture<>();
+        try {
+            kubeApiClient.client().executeAsync(kubeApiClient.customObjectsApi().listClusterCustomObjectCall(
+                    Constants.GROUP,
+                    Constants.VERSION,
+                    Constants.ENGINE_PLURAL,
+                    null, null, null, null, null, null, null, false, null),
+                    ENGINE_LIST_TYPE,
+                    new ApiCallback<ChaosEngineItems>() {
+                        @Override
+                        public void onFailure(ApiException e, int statusCode, Map<String, List<String>> responseHeaders) {
+                            future.completeExceptionally(e);
+                        }
+
+                        @Override
+                        public void onSuccess(ChaosEngineItems result, int statusCode,
+                                              Map<String, List<String>> responseHeaders) {
+                            future.complete(result == null || result.items == null
+                                    ? Collections.emptyList() : result.items);
+                        }
+
+                        @Override
+                        public void onUploadProgress(long bytesWritten, long contentLength, boolean done) {
+
+                        }
+
+                        @Override
+                        public void onDownloadProgress(long bytesRead, long contentLength, boolean done) {
+
+                        }
+                    });
+        } catch (ApiException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private CompletableFuture<Void> createExperiment(String namespace, ChaosExperiment chaosExperiment) {
+        return call(callback -> kubeApiClient.customObjectsApi().createNamespacedCustomObjectAsync(
+                Constants.GROUP,
+                Constants.VERSION,
+                namespace,
+                Constants.EXPERIMENT_PLURAL,
+                JsonUtils.writeValueAsBytes(chaosExperiment),
+                "true",
+                null,
+                null,
+                callback), 409);
+    }
+
+    private CompletableFuture<Void> createServiceAccount(String namespace, String serviceAccount) {
+        V1ServiceAccount v1ServiceAccount = new V1ServiceAccount();
+        v1ServiceAccount.metadata(new V1ObjectMeta().name(serviceAccount).namespace(namespace));
+        return call(callback -> kubeApiClient.coreV1Api().createNamespacedServiceAccountAsync(
+                namespace,
+                v1ServiceAccount,
+                "true",
+                null,
+                null,
+                callback), 409);
+    }
+
+    private CompletableFuture<Void> createClusterRole(String serviceAccount, ChaosExperiment chaosExperiment) {
+        V1ClusterRole v1ClusterRole = new V1ClusterRole();
+        v1ClusterRole.metadata(new V1ObjectMeta().name(serviceAccount));
+        List<V1PolicyRule> policyRules = Arrays.stream(chaosExperiment.getSpec().getDefinition().getPermissions())
+                .map(permission ->
+                        new V1PolicyRule()
+                                .apiGroups(Arrays.asList(permission.getApiGroups()))
+                                .resources(Arrays.asList(permission.getResources()))
+                                .verbs(Arrays.asList(permission.getVerbs()))
+                ).collect(Collectors.toList());
+        v1ClusterRole.setRules(policyRules);
+        return call(callback -> kubeApiClient.rbacAuthorizationV1Api().createClusterRoleAsync(
+                v1ClusterRole, "true", null, null, callback), 409);
+    }
+
+    private CompletableFuture<Void> createClusterRoleBinding(String namespace, String serviceAccount) {
+        V1ClusterRoleBinding v1RoleBinding = new V1ClusterRoleBinding();
+        v1RoleBinding.metadata(new V1ObjectMeta().name(serviceAccount))
+                .roleRef(new V1RoleRef().apiGroup("rbac.authorization.k8s.io").kind("ClusterRole").name(serviceAccount))
+                .setSubjects(CollUtil.newArrayList(new V1Subject()
+                        .kind("ServiceAccount").name(serviceAccount).namespace(namespace)));
+        return call(callback -> kubeApiClient.rbacAuthorizationV1Api().createClusterRoleBindingAsync(
+                v1RoleBinding, "true", null, null, callback), 409);
+    }
+
+    private CompletableFuture<Void> deleteNamespaced(String key) {
+        String namespace = StrUtil.subBefore(key, "/", false);
+        String sceneCode = StrUtil.subAfter(key, "/", false);
+        String serviceAccount = sceneCode + SA_SUFFIX;
+        return CompletableFuture.allOf(
+                logFailure(call(callback -> kubeApiClient.customObjectsApi().deleteNamespacedCustomObjectAsync(
+                        Constants.GROUP,
+                        Constants.VERSION,
+                        namespace,
+                        Constants.EXPERIMENT_PLURAL,
+                        experimentName(sceneCode),
+                        10,
+                        null,
+                        null,
+                        null,
+                        null,
+                        callback), 404), "experiments", sceneCode),
+                logFailure(call(callback -> kubeApiClient.coreV1Api().deleteNamespacedServiceAccountAsync(
+                        serviceAccount,
+                        namespace,
+                        "true",
+                        null,
+                        10,
+                        null,
+                        null,
+                        null,
+                        callback), 404), "service account", serviceAccount));
+    }
+
+    private CompletableFuture<Void> deleteClustered(String sceneCode) {
+        String serviceAccount = sceneCode + SA_SUFFIX;
+        return CompletableFuture.allOf(
+                logFailure(call(callback -> kubeApiClient.rbacAuthorizationV1Api().deleteClusterRoleAsync(
+                        serviceAccount, "true", null, 10, null, null, null, callback), 404),
+                        "role", serviceAccount),
+                logFailure(call(callback -> kubeApiClient.rbacAuthorizationV1Api().deleteClusterRoleBindingAsync(
+                        serviceAccount, "true", null, 10, null, null, null, callback), 404),
+                        "role binding", serviceAccount));
+    }
+
+    static String experimentName(String sceneCode) {
+        String target = SceneCodeParseUtil.getTarget(sceneCode);
+        String action = SceneCodeParseUtil.getAction(sceneCode);
+        String[] split = StrUtil.split(target, "-");
+        if (split[0].equals(split[1])) {
+            return split[0] + "-" + action;
+        }
+        return target + "-" + action;
+    }
+
+    private static CompletableFuture<Void> logFailure(CompletableFuture<Void> future, String kind, String name) {
+        return future.exceptionally(e -> {
+            log.warn("delete {}:[{}] fail", kind, name, e);
+            return null;
+        });
+    }
+
+    /**
+     * adapt an async api call, the given status code counts as success
+     */
+    private static CompletableFuture<Void> call(AsyncCall asyncCall, int ignoredCode) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            asyncCall.call(new ApiCallback() {
+                @Override
+                public void onFailure(ApiException e, int statusCode, Map responseHeaders) {
+                    if (statusCode == ignoredCode) {
+                        future.complete(null);
+                    } else {
+                        future.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void onSuccess(Object result, int statusCode, Map responseHeaders) {
+                    future.complete(null);
+                }
+
+                @Override
+                public void onUploadProgress(long bytesWritten, long contentLength, boolean done) {
+
+                }
+
+                @Override
+                public void onDownloadProgress(long bytesRead, long contentLength, boolean done) {
+
+                }
+            });
+        } catch (ApiException e) {
+            if (e.getCode() == ignoredCode) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(e);
+            }
+        }
+        return future;
+    }
+
+    private interface AsyncCall {
+
+        okhttp3.Call call(ApiCallback callback) throws ApiException;
+    }
+
+    private static class Provision {
+
+        private CompletableFuture<Void> future;
+
+        /**
+         * engines using the resources, guarded by the provisioner
+         */
+        private final Set<String> holders = new HashSet<>();
+    }
+
+    private static class ChaosEngineItems {
+
+        private List<ChaosEngineItem> items;
+    }
+
+    private static class ChaosEngineItem {
+
+        private V1ObjectMeta metadata;
+
+        private ChaosEngineSpec spec;
+    }
+}
@@ -20,15 +20,12 @@ import cn.hutool.core.util.StrUtil;
 import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
 import com.alibaba.chaosblade.box.common.enums.ChaosTools;
 import com.alibaba.chaosblade.box.common.enums.DeviceType;
-import com.alibaba.chaosblade.box.common.utils.SceneCodeParseUtil;
 import com.alibaba.chaosblade.box.invoker.ChaosInvokerStrategy;
 import com.alibaba.chaosblade.box.invoker.RequestCommand;
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
 import io.kubernetes.client.openapi.ApiCallback;
 import io.kubernetes.client.openapi.ApiException;
-import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
-import io.kubernetes.client.openapi.apis.RbacAuthorizationV1Api;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -53,7 +50,7 @@ public class LitmusRecoverChaosInvoker extends AbstractLitmusChaosInvoker {
             requestCommand.setNamespace("default");
         }
 
-        CustomObjectsApi apiInstance = new CustomObjectsApi(client);
+        CustomObjectsApi apiInstance = kubeApiClient.customObjectsApi();
 
         CompletableFuture<ResponseCommand> completableFuture = new CompletableFuture<>();
         try {
@@ -73,9 +70,10 @@ public class LitmusRecoverChaosInvoker extends AbstractLitmusChaosInvoker {
                         public void onFailure(ApiException e, int statusCode, Map responseHeaders) {
                             ResponseCommand responseCommand;
                             if (statusCode == 404) {
+                                // gone already, maybe deleted outside the platform, release is idempotent
                                 responseCommand = ResponseCommand.builder().success(true)
                                         .result(requestCommand.getName()).build();
-                                clean(requestCommand);
+                                release(requestCommand);
                             } else {
                                 responseCommand = ResponseCommand.builder()
                                         .success(false)
@@ -92,7 +90,7 @@ public class LitmusRecoverChaosInvoker extends AbstractLitmusChaosInvoker {
                             ResponseCommand responseCommand = ResponseCommand.builder().success(true)
                                     .code(String.valueOf(statusCode))
                                     .result(requestCommand.getName()).build();
-                            clean(requestCommand);
+                            release(requestCommand);
                             completableFuture.complete(responseCommand);
                         }
 
@@ -119,69 +117,10 @@ public class LitmusRecoverChaosInvoker extends AbstractLitmusChaosInvoker {
         return completableFuture;
     }
 
-    private void clean(RequestCommand requestCommand) {
-        String serviceAccount = requestCommand.getSceneCode().replace(ChaosConstant.CHAOS_DESTROY_SUFFIX, "") + SA_SUFFIX;
-
-        String experimentName;
-        String target = SceneCodeParseUtil.getTarget(requestCommand.getSceneCode());
-        String action = SceneCodeParseUtil.getAction(requestCommand.getSceneCode());
-        String[] split = StrUtil.split(target, "-");
-        if (split[0].equals(split[1])) {
-            experimentName = split[0] + "-" + action;
-        } else {
-            experimentName = target + "-" + action;
-        }
-
-        try {
-            // delete experiment
-            CustomObjectsApi customObjectsApi = new CustomObjectsApi(client);
-            customObjectsApi.deleteNamespacedCustomObject(
-                    Constants.GROUP,
-                    Constants.VERSION,
-                    requestCommand.getNamespace(),
-                    Constants.EXPERIMENT_PLURAL,
-                    experimentName,
-                    10,
-                    null,
-                    null,
-                    null,
-                    null);
-
-        } catch (ApiException e) {
-            log.warn("delete experiments:[{}] fail", requestCommand.getSceneCode(), e);
-        }
-        try {
-            // delete sa
-            CoreV1Api apiInstance = new CoreV1Api(client);
-            apiInstance.deleteNamespacedServiceAccount(
-                    serviceAccount,
-                    requestCommand.getNamespace(),
-                    "true",
-                    null,
-                    10,
-                    null,
-                    null,
-                    null
-            );
-        } catch (ApiException e) {
-            log.warn("delete service account:[{}] fail", serviceAccount, e);
-        }
-        RbacAuthorizationV1Api rbacAuthorizationV1Api = new RbacAuthorizationV1Api(client);
-        try {
-            // delete role
-            rbacAuthorizationV1Api.deleteClusterRole(serviceAccount, "true",
-                    null, 10,
-                    null, null, null);
-        } catch (ApiException e) {
-            log.warn("delete role:[{}] fail", serviceAccount, e);
-        }
-        try {
-            // delete role binding
-            rbacAuthorizationV1Api.deleteClusterRoleBinding(serviceAccount, "true",
-                    null, 10, null, null, null);
-        } catch (ApiException e) {
-            log.warn("delete role binding :[{}] fail", serviceAccount, e);
-        }
+    private void release(RequestCommand requestCommand) {
+        litmusProvisioner.release(requestCommand.getNamespace(),
+                requestCommand.getSceneCode().replace(ChaosConstant.CHAOS_DESTROY_SUFFIX, ""),
+                requestCommand.getName());
     }
 
 }
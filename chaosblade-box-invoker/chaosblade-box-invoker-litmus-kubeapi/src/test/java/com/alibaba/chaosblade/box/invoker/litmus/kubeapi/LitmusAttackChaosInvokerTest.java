@@ -16,6 +16,7 @@
 
 package com.alibaba.chaosblade.box.invoker.litmus.kubeapi;
 
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
 import com.alibaba.chaosblade.box.invoker.RequestCommand;
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
 import com.alibaba.testable.core.annotation.MockDiagnose;
@@ -23,12 +24,7 @@ import com.alibaba.testable.core.annotation.MockMethod;
 import com.alibaba.testable.core.model.LogLevel;
 import io.kubernetes.client.openapi.ApiCallback;
 import io.kubernetes.client.openapi.ApiException;
-import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
-import io.kubernetes.client.openapi.apis.RbacAuthorizationV1Api;
-import io.kubernetes.client.openapi.models.V1ClusterRole;
-import io.kubernetes.client.openapi.models.V1ClusterRoleBinding;
-import io.kubernetes.client.openapi.models.V1ServiceAccount;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Assert;
 import org.junit.Test;
@@ -36,6 +32,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -51,6 +48,7 @@ public class LitmusAttackChaosInvokerTest {
 
     @Configuration
     @ComponentScan("com.alibaba.chaosblade.box.invoker.litmus.kubeapi")
+    @Import(KubeApiClient.class)
     public static class Config {
     }
 
@@ -60,48 +58,6 @@ public class LitmusAttackChaosInvokerTest {
     @MockDiagnose(LogLevel.ENABLE)
     public static class Mock {
 
-        @MockMethod
-        public Object createNamespacedCustomObject(
-                CustomObjectsApi self,
-                String group,
-                String version,
-                String namespace,
-                String plural,
-                Object body,
-                String pretty,
-                String dryRun,
-                String fieldManager)
-                throws ApiException {
-
-            log.info("mock create experiments");
-            return null;
-        }
-
-        @MockMethod
-        public V1ServiceAccount createNamespacedServiceAccount(
-                CoreV1Api self,
-                String namespace, V1ServiceAccount body, String pretty, String dryRun, String fieldManager) throws ApiException {
-            log.info("mock create service account");
-            return null;
-        }
-
-        @MockMethod
-        public V1ClusterRole createClusterRole(
-                RbacAuthorizationV1Api self,
-                V1ClusterRole body, String pretty, String dryRun, String fieldManager) throws ApiException {
-            log.info("mock create cluster role");
-            return null;
-        }
-
-        @MockMethod
-        public V1ClusterRoleBinding createClusterRoleBinding(
-                RbacAuthorizationV1Api self,
-                V1ClusterRoleBinding body, String pretty, String dryRun, String fieldManager)
-                throws ApiException {
-            log.info("mock create cluster role binding");
-            return null;
-        }
-
         @MockMethod
         public okhttp3.Call createNamespacedCustomObjectAsync(
                 CustomObjectsApi self,
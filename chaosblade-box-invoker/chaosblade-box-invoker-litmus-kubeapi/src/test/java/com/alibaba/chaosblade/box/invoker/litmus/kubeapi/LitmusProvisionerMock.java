@@ -0,0 +1,214 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.invoker.litmus.kubeapi;
+
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
+import com.alibaba.testable.core.annotation.MockMethod;
+import io.kubernetes.client.openapi.ApiCallback;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.apis.CustomObjectsApi;
+import io.kubernetes.client.openapi.apis.RbacAuthorizationV1Api;
+import io.kubernetes.client.openapi.models.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author yefei
+ */
+@Slf4j
+public class LitmusProvisionerMock {
+
+    /**
+     * kind -> calls, e.g. create experiments, delete cluster role
+     */
+    static final Map<String, AtomicInteger> CALLS = new ConcurrentHashMap<>();
+
+    /**
+     * kind/name of the resources in the fake cluster, deleting a missing one is a 404
+     */
+    static final Set<String> RESOURCES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * chaosengines in the fake cluster
+     */
+    static final List<Map<String, Object>> ENGINES = new CopyOnWriteArrayList<>();
+
+    static void clear() {
+        CALLS.clear();
+        RESOURCES.clear();
+        ENGINES.clear();
+    }
+
+    static int calls(String kind) {
+        AtomicInteger count = CALLS.get(kind);
+        return count == null ? 0 : count.get();
+    }
+
+    private static void count(String kind) {
+        log.info("mock {}", kind);
+        CALLS.computeIfAbsent(kind, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static <T> void create(String kind, String name, ApiCallback<T> callback) {
+        count("create " + kind);
+        RESOURCES.add(kind + "/" + name);
+        callback.onSuccess(null, 200, new HashMap<>());
+    }
+
+    private static <T> void delete(String kind, String name, ApiCallback<T> callback) {
+        if (RESOURCES.remove(kind + "/" + name)) {
+            count("delete " + kind);
+            callback.onSuccess(null, 200, new HashMap<>());
+        } else {
+            callback.onFailure(new ApiException(404, "not found"), 404, new HashMap<>());
+        }
+    }
+
+    @MockMethod
+    private ApiClient client(KubeApiClient self) {
+        return new ApiClient();
+    }
+
+    @MockMethod
+    private CustomObjectsApi customObjectsApi(KubeApiClient self) {
+        return new CustomObjectsApi();
+    }
+
+    @MockMethod
+    private CoreV1Api coreV1Api(KubeApiClient self) {
+        return new CoreV1Api();
+    }
+
+    @MockMethod
+    private RbacAuthorizationV1Api rbacAuthorizationV1Api(KubeApiClient self) {
+        return new RbacAuthorizationV1Api();
+    }
+
+    @MockMethod
+    private okhttp3.Call createNamespacedCustomObjectAsync(
+            CustomObjectsApi self,
+            String group, String version, String namespace, String plural, Object body,
+            String pretty, String dryRun, String fieldManager, final ApiCallback<Object> _callback)
+            throws ApiException {
+        create("experiments", namespace, _callback);
+        return null;
+    }
+
+    @MockMethod
+    private okhttp3.Call createNamespacedServiceAccountAsync(
+            CoreV1Api self,
+            String namespace, V1ServiceAccount body, String pretty, String dryRun, String fieldManager,
+            final ApiCallback<V1ServiceAccount> _callback)
+            throws ApiException {
+        create("service account", namespace + "/" + body.getMetadata().getName(), _callback);
+        return null;
+    }
+
+    @MockMethod
+    private okhttp3.Call createClusterRoleAsync(
+            RbacAuthorizationV1Api self,
+            V1ClusterRole body, String pretty, String dryRun, String fieldManager,
+            final ApiCallback<V1ClusterRole> _callback)
+            throws ApiException {
+        create("cluster role", body.getMetadata().getName(), _callback);
+        return null;
+    }
+
+    @MockMethod
+    private okhttp3.Call createClusterRoleBindingAsync(
+            RbacAuthorizationV1Api self,
+            V1ClusterRoleBinding body, String pretty, String dryRun, String fieldManager,
+            final ApiCallback<V1ClusterRoleBinding> _callback)
+            throws ApiException {
+        create("cluster role binding", body.getMetadata().getName(), _callback);
+        return null;
+    }
+
+    @MockMethod
+    private okhttp3.Call deleteNamespacedCustomObjectAsync(
+            CustomObjectsApi self,
+            String group, String version, String namespace, String plural, String name,
+            Integer gracePeriodSeconds, Boolean orphanDependents, String propagationPolicy, String dryRun,
+            V1DeleteOptions body, final ApiCallback<Object> _callback)
+            throws ApiException {
+        delete("experiments", namespace, _callback);
+        return null;
+    }
+
+    @MockMethod
+    private okhttp3.Call deleteNamespacedServiceAccountAsync(
+            CoreV1Api self,
+            String name, String namespace, String pretty, String dryRun, Integer gracePeriodSeconds,
+            Boolean orphanDependents, String propagationPolicy, V1DeleteOptions body,
+            final ApiCallback<V1Status> _callback)
+            throws ApiException {
+        delete("service account", namespace + "/" + name, _callback);
+        return null;
+    }
+
+    @MockMethod
+    private okhttp3.Call deleteClusterRoleAsync(
+            RbacAuthorizationV1Api self,
+            String name, String pretty, String dryRun, Integer gracePeriodSeconds,
+            Boolean orphanDependents, String propagationPolicy, V1DeleteOptions body,
+            final ApiCallback<V1Status> _callback)
+            throws ApiException {
+        delete("cluster role", name, _callback);
+        return null;
+    }
+
+    @MockMethod
+    private okhttp3.Call deleteClusterRoleBindingAsync(
+            RbacAuthorizationV1Api self,
+            String name, String pretty, String dryRun, Integer gracePeriodSeconds,
+            Boolean orphanDependents, String propagationPolicy, V1DeleteOptions body,
+            final ApiCallback<V1Status> _callback)
+            throws ApiException {
+        delete("cluster role binding", name, _callback);
+        return null;
+    }
+
+    @MockMethod
+    private okhttp3.Call listClusterCustomObjectCall(
+            CustomObjectsApi self,
+            String group, String version, String plural, String pretty, String _continue, String fieldSelector,
+            String labelSelector, Integer limit, String resourceVersion, Integer timeoutSeconds, Boolean watch,
+            final ApiCallback _callback)
+            throws ApiException {
+        return null;
+    }
+
+    @MockMethod
+    private <T> void executeAsync(ApiClient self, okhttp3.Call call, Type returnType, ApiCallback<T> callback) {
+        count("list engines");
+        Map<String, Object> list = new HashMap<>();
+        list.put("items", ENGINES);
+        JSON json = new JSON();
+        callback.onSuccess(json.deserialize(json.serialize(list), returnType), 200, new HashMap<>());
+    }
+}
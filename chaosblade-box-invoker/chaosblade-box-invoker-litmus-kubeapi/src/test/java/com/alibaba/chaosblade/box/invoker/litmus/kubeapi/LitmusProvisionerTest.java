@@ -0,0 +1,193 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.invoker.litmus.kubeapi;
+
+import com.alibaba.chaosblade.box.invoker.litmus.kubeapi.crd.engine.ChaosEngineSpec;
+import com.alibaba.chaosblade.box.scenario.litmus.model.ChaosExperiment;
+import com.alibaba.chaosblade.box.scenario.litmus.model.experiments.ChaosExperimentSpec;
+import com.alibaba.chaosblade.box.scenario.litmus.model.experiments.ChaosExperimentSpecDefinition;
+import com.alibaba.chaosblade.box.scenario.litmus.model.experiments.ChaosExperimentSpecDefinitionPermissions;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yefei
+ */
+public class LitmusProvisionerTest {
+
+    private static final String NAMESPACE = "default";
+
+    private static final String SCENE_CODE = "litmuschaos.node-cpu.hog";
+
+    private LitmusProvisioner litmusProvisioner;
+
+    @Before
+    public void before() {
+        LitmusProvisionerMock.clear();
+        litmusProvisioner = new LitmusProvisioner();
+    }
+
+    @Test
+    public void testDoubleRelease() throws Exception {
+        litmusProvisioner.acquire(NAMESPACE, SCENE_CODE, "engine-a", experiment()).get();
+        litmusProvisioner.acquire(NAMESPACE, SCENE_CODE, "engine-b", experiment()).get();
+        Assert.assertEquals(1, LitmusProvisionerMock.calls("create experiments"));
+        Assert.assertEquals(1, LitmusProvisionerMock.calls("create cluster role"));
+
+        // a retried recover must not release the resources of engine-b
+        litmusProvisioner.release(NAMESPACE, SCENE_CODE, "engine-a");
+        litmusProvisioner.release(NAMESPACE, SCENE_CODE, "engine-a");
+        assertDeleted(0);
+
+        litmusProvisioner.release(NAMESPACE, SCENE_CODE, "engine-b");
+        assertDeleted(1);
+
+        litmusProvisioner.release(NAMESPACE, SCENE_CODE, "engine-b");
+        assertDeleted(1);
+    }
+
+    @Test
+    public void testUnknownRelease() throws Exception {
+        litmusProvisioner.acquire(NAMESPACE, SCENE_CODE, "engine-a", experiment()).get();
+        litmusProvisioner.release(NAMESPACE, SCENE_CODE, "engine-b");
+        assertDeleted(0);
+        Assert.assertEquals(0, LitmusProvisionerMock.calls("list engines"));
+    }
+
+    @Test
+    public void testReleaseAfterRestart() throws Exception {
+        litmusProvisioner.acquire(NAMESPACE, SCENE_CODE, "engine-a", experiment()).get();
+        LitmusProvisionerMock.ENGINES.add(engine(NAMESPACE, "engine-a", true));
+
+        // the holder acquired before the restart is unknown, no other engine uses the resources
+        litmusProvisioner = new LitmusProvisioner();
+        litmusProvisioner.release(NAMESPACE, SCENE_CODE, "engine-a");
+        Assert.assertEquals(1, LitmusProvisionerMock.calls("list engines"));
+        assertDeleted(1);
+    }
+
+    @Test
+    public void testReleaseAfterRestartInUse() throws Exception {
+        litmusProvisioner.acquire(NAMESPACE, SCENE_CODE, "engine-a", experiment()).get();
+        litmusProvisioner.acquire("other", SCENE_CODE, "engine-b", experiment()).get();
+        LitmusProvisionerMock.ENGINES.add(engine(NAMESPACE, "engine-a", false));
+        LitmusProvisionerMock.ENGINES.add(engine("other", "engine-b", false));
+
+        litmusProvisioner = new LitmusProvisioner();
+        litmusProvisioner.release(NAMESPACE, SCENE_CODE, "engine-a");
+        // engine-b in another namespace still uses the cluster role
+        Assert.assertEquals(1, LitmusProvisionerMock.calls("delete experiments"));
+        Assert.assertEquals(1, LitmusProvisionerMock.calls("delete service account"));
+        Assert.assertEquals(0, LitmusProvisionerMock.calls("delete cluster role"));
+        Assert.assertEquals(0, LitmusProvisionerMock.calls("delete cluster role binding"));
+
+        LitmusProvisionerMock.ENGINES.clear();
+        litmusProvisioner.release("other", SCENE_CODE, "engine-b");
+        Assert.assertEquals(2, LitmusProvisionerMock.calls("delete experiments"));
+        Assert.assertEquals(2, LitmusProvisionerMock.calls("delete service account"));
+        Assert.assertEquals(1, LitmusProvisionerMock.calls("delete cluster role"));
+        Assert.assertEquals(1, LitmusProvisionerMock.calls("delete cluster role binding"));
+    }
+
+    @Test
+    public void testConcurrentAcquireRelease() throws Exception {
+        int holders = 16;
+        ExecutorService executorService = Executors.newFixedThreadPool(holders);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> acquired = new ArrayList<>();
+            for (int i = 0; i < holders; i++) {
+                String holder = "engine-" + i;
+                acquired.add(executorService.submit(() -> {
+                    start.await();
+                    return litmusProvisioner.acquire(NAMESPACE, SCENE_CODE, holder, experiment()).get();
+                }));
+            }
+            start.countDown();
+            for (Future<String> future : acquired) {
+                Assert.assertEquals(SCENE_CODE + LitmusProvisioner.SA_SUFFIX, future.get(10, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, LitmusProvisionerMock.calls("create experiments"));
+            Assert.assertEquals(1, LitmusProvisionerMock.calls("create cluster role binding"));
+
+            // every holder released twice at once, the resources are deleted once
+            CountDownLatch release = new CountDownLatch(1);
+            List<Future<?>> released = new ArrayList<>();
+            for (int i = 0; i < holders * 2; i++) {
+                String holder = "engine-" + (i % holders);
+                released.add(executorService.submit(() -> {
+                    release.await();
+                    litmusProvisioner.release(NAMESPACE, SCENE_CODE, holder);
+                    return null;
+                }));
+            }
+            release.countDown();
+            for (Future<?> future : released) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertDeleted(1);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static void assertDeleted(int times) {
+        Assert.assertEquals(times, LitmusProvisionerMock.calls("delete experiments"));
+        Assert.assertEquals(times, LitmusProvisionerMock.calls("delete service account"));
+        Assert.assertEquals(times, LitmusProvisionerMock.calls("delete cluster role"));
+        Assert.assertEquals(times, LitmusProvisionerMock.calls("delete cluster role binding"));
+    }
+
+    private static Map<String, Object> engine(String namespace, String name, boolean deleting) {
+        V1ObjectMeta metadata = new V1ObjectMeta().namespace(namespace).name(name);
+        if (deleting) {
+            metadata.deletionTimestamp(DateTime.now());
+        }
+        Map<String, Object> engine = new HashMap<>();
+        engine.put("metadata", metadata);
+        engine.put("spec", ChaosEngineSpec.builder().chaosServiceAccount(SCENE_CODE + LitmusProvisioner.SA_SUFFIX).build());
+        return engine;
+    }
+
+    private static ChaosExperiment experiment() {
+        ChaosExperimentSpecDefinitionPermissions permissions = new ChaosExperimentSpecDefinitionPermissions();
+        permissions.setApiGroups(new String[]{""});
+        permissions.setResources(new String[]{"pods"});
+        permissions.setVerbs(new String[]{"get", "list"});
+        ChaosExperimentSpecDefinition definition = new ChaosExperimentSpecDefinition();
+        definition.setPermissions(new ChaosExperimentSpecDefinitionPermissions[]{permissions});
+        ChaosExperimentSpec spec = new ChaosExperimentSpec();
+        spec.setDefinition(definition);
+        return ChaosExperiment.builder()
+                .metadata(new V1ObjectMeta().name("node-cpu-hog"))
+                .spec(spec)
+                .build();
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.alibaba.chaosblade.box.invoker.litmus.kubeapi;
 
+import com.alibaba.chaosblade.box.common.kubernetes.KubeApiClient;
 import com.alibaba.chaosblade.box.invoker.RequestCommand;
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
 import com.alibaba.testable.core.annotation.MockDiagnose;
@@ -23,11 +24,8 @@ import com.alibaba.testable.core.annotation.MockMethod;
 import com.alibaba.testable.core.model.LogLevel;
 import io.kubernetes.client.openapi.ApiCallback;
 import io.kubernetes.client.openapi.ApiException;
-import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
-import io.kubernetes.client.openapi.apis.RbacAuthorizationV1Api;
 import io.kubernetes.client.openapi.models.V1DeleteOptions;
-import io.kubernetes.client.openapi.models.V1Status;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Assert;
 import org.junit.Test;
@@ -35,6 +33,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -50,6 +49,7 @@ public class LitmusRecoverChaosInvokerTest {
 
     @Configuration
     @ComponentScan("com.alibaba.chaosblade.box.invoker.litmus.kubeapi")
+    @Import(KubeApiClient.class)
     public static class Config {
     }
 
@@ -78,62 +78,6 @@ public class LitmusRecoverChaosInvokerTest {
             _callback.onSuccess(null, 200, new HashMap<>());
             return null;
         }
-
-        @MockMethod
-        public Object deleteNamespacedCustomObject(
-                CustomObjectsApi self,
-                String group,
-                String version,
-                String namespace,
-                String plural,
-                String name,
-                Integer gracePeriodSeconds,
-                Boolean orphanDependents,
-                String propagationPolicy,
-                String dryRun,
-                V1DeleteOptions body)
-                throws ApiException {
-            log.info("mock delete experiments");
-            return null;
-        }
-
-        @MockMethod
-        public V1Status deleteNamespacedServiceAccount(CoreV1Api self,
-                                                       String name, String namespace, String pretty, String dryRun, Integer gracePeriodSeconds, Boolean orphanDependents, String propagationPolicy, V1DeleteOptions body) throws ApiException {
-            log.info("mock create service account");
-            return null;
-        }
-
-        @MockMethod
-        public V1Status deleteClusterRole(
-                RbacAuthorizationV1Api self,
-                String name,
-                String pretty,
-                String dryRun,
-                Integer gracePeriodSeconds,
-                Boolean orphanDependents,
-                String propagationPolicy,
-                V1DeleteOptions body)
-                throws ApiException {
-            log.info("mock delete cluster role");
-            return null;
-        }
-
-        @MockMethod
-        public V1Status deleteClusterRoleBinding(
-                RbacAuthorizationV1Api self,
-                String name,
-                String pretty,
-                String dryRun,
-                Integer gracePeriodSeconds,
-                Boolean orphanDependents,
-                String propagationPolicy,
-                V1DeleteOptions body)
-                throws ApiException {
-            log.info("mock delete cluster role binding");
-            return null;
-        }
-
     }
 
     @Test
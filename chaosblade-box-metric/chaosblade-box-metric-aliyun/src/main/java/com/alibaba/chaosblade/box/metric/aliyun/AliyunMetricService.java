@@ -18,130 +18,231 @@ package com.alibaba.chaosblade.box.metric.aliyun;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
 import com.alibaba.chaosblade.box.common.DeviceMeta;
 import com.alibaba.chaosblade.box.common.exception.BizException;
 import com.alibaba.chaosblade.box.common.utils.JsonUtils;
 import com.alibaba.chaosblade.box.common.utils.Preconditions;
 import com.alibaba.chaosblade.box.metric.*;
-import com.alibaba.chaosblade.box.metric.*;
 import com.aliyuncs.DefaultAcsClient;
 import com.aliyuncs.IAcsClient;
 import com.aliyuncs.cms.model.v20190101.DescribeMetricListRequest;
 import com.aliyuncs.cms.model.v20190101.DescribeMetricListResponse;
 import com.aliyuncs.exceptions.ClientException;
 import com.aliyuncs.profile.DefaultProfile;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
+ * Queries of the cloud monitor run on a bounded pool, instances are batched into one
+ * multi dimension request per batchSize instances and clients are reused per region.
+ * Devices sharing an instance id, the hostname, share its datapoints. Devices without a
+ * hostname have no instance to query and get no series.
+ *
  * @author yefei
  */
 @Slf4j
 @Service
 @MetricStrategy(MetricSource.ALIYUN)
-public class AliyunMetricService implements MetricService, InitializingBean {
+public class AliyunMetricService implements MetricService, InitializingBean, DisposableBean {
 
     private final static String PARAM_REGION = "region";
 
+    private final static String[] DIMENSIONS = {"Average", "Minimum", "Maximum"};
+
+    @Value("${chaos.metric.aliyun.ak:}")
     private String ak;
 
+    @Value("${chaos.metric.aliyun.sk:}")
     private String sk;
 
-    private IAcsClient client;
+    @Value("${chaos.metric.aliyun.parallelism:8}")
+    private int parallelism;
+
+    @Value("${chaos.metric.aliyun.batchSize:20}")
+    private int batchSize;
+
+    private final Map<String, IAcsClient> clients = new ConcurrentHashMap<>();
+
+    private ExecutorService executorService;
 
     @Override
     public CompletableFuture<List<MetricChartLineResponse>> selectChartLine(MetricChartLineRequest metricChartLineRequest) {
-        CompletableFuture<List<MetricChartLineResponse>> completableFuture = new CompletableFuture<>();
-
         Map<String, String> map = metricChartLineRequest.getParams();
         Preconditions.checkNotNull(map, new BizException("Aliyun Metric need param"));
         Preconditions.checkNotNull(map.get(PARAM_REGION), new BizException("region param url"));
 
-        List<MetricChartLineResponse> metricChartLineResponses = CollUtil.newArrayList();
-        for (DeviceMeta device : metricChartLineRequest.getDevices()) {
-
-            DescribeMetricListRequest describeMetricListRequest = new DescribeMetricListRequest();
-            describeMetricListRequest.setDimensions("{\"instanceId\":\"" + device.getHostname() + "\"}");
-            describeMetricListRequest.setStartTime(DateUtil.date(metricChartLineRequest.getStartTime()).toStringDefaultTimeZone());
-            describeMetricListRequest.setEndTime(DateUtil.date(metricChartLineRequest.getEndTime()).toStringDefaultTimeZone());
-            describeMetricListRequest.setPeriod("15");
-            describeMetricListRequest.setNamespace("acs_ecs_dashboard");
-            String[] split = metricChartLineRequest.getCategoryCode().split("[.]");
-            describeMetricListRequest.setMetricName(split[2]);
-
-            DescribeMetricListResponse response = null;
-            try {
-                DefaultProfile profile = DefaultProfile.getProfile(map.get(PARAM_REGION), ak, sk);
-                response = client.getAcsResponse(describeMetricListRequest, profile);
-            } catch (ClientException e) {
-                completableFuture.completeExceptionally(e);
-            }
-            String datapoints = response.getDatapoints();
-            List<Map<String, String>> list = JsonUtils.readValue(new TypeReference<List<Map<String, String>>>() {
-            }, datapoints);
-
-            {
-                List<MetricChartLine> lines = list.stream().map(dot ->
-                        MetricChartLine.builder()
-                                .time(DateUtil.date(Long.parseLong(dot.get("timestamp"))))
-                                .value(dot.get("Average"))
-                                .build()
-                ).collect(Collectors.toList());
-
-                Metric metric = Metric.builder().instance(device.getHostname()).dimension("Average").build();
-                MetricChartLineResponse metricChartLineResponse = MetricChartLineResponse.builder().build();
-                metricChartLineResponse.setMetricChartLines(lines);
-                metricChartLineResponse.setMetric(JsonUtils.writeValueAsString(metric));
-                metricChartLineResponse.setDeviceMeta(device);
-                metricChartLineResponses.add(metricChartLineResponse);
-            }
+        IAcsClient client = clients.computeIfAbsent(map.get(PARAM_REGION),
+                region -> new DefaultAcsClient(DefaultProfile.getProfile(region, ak, sk)));
+
+        List<DeviceMeta> devices = metricChartLineRequest.getDevices().stream()
+                .filter(device -> StrUtil.isNotBlank(device.getHostname()))
+                .collect(Collectors.toList());
+        Set<String> instanceIds = devices.stream().map(DeviceMeta::getHostname)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        List<CompletableFuture<Map<String, Series>>> futures = CollUtil.split(instanceIds, batchSize)
+                .stream()
+                .map(batch -> CompletableFuture.supplyAsync(() -> query(client, metricChartLineRequest, batch),
+                        executorService))
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    Map<String, Series> series = new HashMap<>();
+                    futures.forEach(future -> series.putAll(future.join()));
+                    return responses(devices, series);
+                });
+    }
 
-            {
-                List<MetricChartLine> lines = list.stream().map(dot ->
-                        MetricChartLine.builder()
-                                .time(DateUtil.date(Long.parseLong(dot.get("timestamp"))))
-                                .value(dot.get("Minimum"))
-                                .build()
-                ).collect(Collectors.toList());
-
-                Metric metric = Metric.builder().instance(device.getHostname()).dimension("Minimum").build();
-                MetricChartLineResponse metricChartLineResponse = MetricChartLineResponse.builder().build();
-                metricChartLineResponse.setMetricChartLines(lines);
-                metricChartLineResponse.setMetric(JsonUtils.writeValueAsString(metric));
-                metricChartLineResponse.setDeviceMeta(device);
-                metricChartLineResponses.add(metricChartLineResponse);
+    /**
+     * @return instance id -> points of the batch
+     */
+    private Map<String, Series> query(IAcsClient client, MetricChartLineRequest metricChartLineRequest,
+                                      List<String> batch) {
+        DescribeMetricListRequest describeMetricListRequest = new DescribeMetricListRequest();
+        describeMetricListRequest.setDimensions(JsonUtils.writeValueAsString(batch.stream()
+                .map(instanceId -> Collections.singletonMap("instanceId", instanceId))
+                .collect(Collectors.toList())));
+        describeMetricListRequest.setStartTime(DateUtil.date(metricChartLineRequest.getStartTime()).toStringDefaultTimeZone());
+        describeMetricListRequest.setEndTime(DateUtil.date(metricChartLineRequest.getEndTime()).toStringDefaultTimeZone());
+        describeMetricListRequest.setPeriod("15");
+        describeMetricListRequest.setNamespace("acs_ecs_dashboard");
+        String[] split = metricChartLineRequest.getCategoryCode().split("[.]");
+        describeMetricListRequest.setMetricName(split[2]);
+
+        Map<String, Series> series = new LinkedHashMap<>();
+        String nextToken = null;
+        try {
+            do {
+                describeMetricListRequest.setNextToken(nextToken);
+                DescribeMetricListResponse response = client.getAcsResponse(describeMetricListRequest);
+                if (response.getSuccess() != null && !response.getSuccess()) {
+                    throw new BizException(response.getCode() + ": " + response.getMessage());
+                }
+                parse(response.getDatapoints(), series);
+                nextToken = response.getNextToken();
+            } while (StrUtil.isNotEmpty(nextToken));
+        } catch (ClientException | IOException e) {
+            throw new CompletionException(e);
+        }
+        return series;
+    }
+
+    /**
+     * the Average, Minimum and Maximum series of every device, empty if its instance has no datapoints
+     */
+    static List<MetricChartLineResponse> responses(List<DeviceMeta> devices, Map<String, Series> series) {
+        List<MetricChartLineResponse> metricChartLineResponses = new ArrayList<>(devices.size() * DIMENSIONS.length);
+        for (DeviceMeta device : devices) {
+            Series points = series.getOrDefault(device.getHostname(), new Series());
+            for (int d = 0; d < DIMENSIONS.length; d++) {
+                Metric metric = Metric.builder().instance(device.getHostname()).dimension(DIMENSIONS[d]).build();
+                metricChartLineResponses.add(MetricChartLineResponse.builder()
+                        .metric(JsonUtils.writeValueAsString(metric))
+                        .deviceMeta(device)
+                        .times(Arrays.copyOf(points.times, points.size))
+                        .values(Arrays.copyOf(points.values[d], points.size))
+                        .build());
             }
+        }
+        return metricChartLineResponses;
+    }
 
-            {
-                List<MetricChartLine> lines = list.stream().map(dot ->
-                        MetricChartLine.builder()
-                                .time(DateUtil.date(Long.parseLong(dot.get("timestamp"))))
-                                .value(dot.get("Maximum"))
-                                .build()
-                ).collect(Collectors.toList());
-
-                Metric metric = Metric.builder().instance(device.getHostname()).dimension("Maximum").build();
-                MetricChartLineResponse metricChartLineResponse = MetricChartLineResponse.builder().build();
-                metricChartLineResponse.setMetricChartLines(lines);
-                metricChartLineResponse.setMetric(JsonUtils.writeValueAsString(metric));
-                metricChartLineResponse.setDeviceMeta(device);
-                metricChartLineResponses.add(metricChartLineResponse);
+    /**
+     * single pass over the datapoints, each point fills the Average, Minimum and Maximum series of its instance
+     */
+    static void parse(String datapoints, Map<String, Series> series) throws IOException {
+        if (StrUtil.isBlank(datapoints)) {
+            return;
+        }
+        try (JsonParser parser = JsonUtils.reader().getFactory().createParser(datapoints)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String instanceId = null;
+                long timestamp = 0;
+                double[] values = {Double.NaN, Double.NaN, Double.NaN};
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "instanceId":
+                            instanceId = parser.getValueAsString();
+                            break;
+                        case "timestamp":
+                            timestamp = parser.getValueAsLong();
+                            break;
+                        case "Average":
+                            values[0] = parser.getValueAsDouble();
+                            break;
+                        case "Minimum":
+                            values[1] = parser.getValueAsDouble();
+                            break;
+                        case "Maximum":
+                            values[2] = parser.getValueAsDouble();
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+                if (instanceId != null) {
+                    series.computeIfAbsent(instanceId, k -> new Series()).add(timestamp, values);
+                }
             }
         }
+    }
+
+    /**
+     * points of one instance, one value array per dimension
+     */
+    static class Series {
+
+        long[] times = new long[16];
+
+        double[][] values = new double[DIMENSIONS.length][16];
 
-        completableFuture.complete(metricChartLineResponses);
-        return completableFuture;
+        int size;
+
+        void add(long time, double[] point) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size << 1);
+                for (int d = 0; d < values.length; d++) {
+                    values[d] = Arrays.copyOf(values[d], size << 1);
+                }
+            }
+            times[size] = time;
+            for (int d = 0; d < values.length; d++) {
+                values[d][size] = point[d];
+            }
+            size++;
+        }
     }
 
     @Override
     public void afterPropertiesSet() {
-        client = new DefaultAcsClient();
+        executorService = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r);
+            thread.setName("Aliyun-metric-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        executorService.shutdown();
     }
 }
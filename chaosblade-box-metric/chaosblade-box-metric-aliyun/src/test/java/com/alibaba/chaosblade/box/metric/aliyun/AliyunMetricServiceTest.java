@@ -0,0 +1,180 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.metric.aliyun;
+
+import com.alibaba.chaosblade.box.common.DeviceMeta;
+import com.alibaba.chaosblade.box.common.utils.JsonUtils;
+import com.alibaba.chaosblade.box.metric.MetricChartLineRequest;
+import com.alibaba.chaosblade.box.metric.MetricChartLineResponse;
+import com.aliyuncs.IAcsClient;
+import com.aliyuncs.cms.model.v20190101.DescribeMetricListRequest;
+import com.aliyuncs.cms.model.v20190101.DescribeMetricListResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * @author yefei
+ */
+public class AliyunMetricServiceTest {
+
+    private static final String REGION = "cn-hangzhou";
+
+    private AliyunMetricService aliyunMetricService;
+
+    /**
+     * instance ids of each request
+     */
+    private final List<List<String>> requests = new ArrayList<>();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() {
+        aliyunMetricService = new AliyunMetricService();
+        ReflectionTestUtils.setField(aliyunMetricService, "parallelism", 2);
+        ReflectionTestUtils.setField(aliyunMetricService, "batchSize", 2);
+        aliyunMetricService.afterPropertiesSet();
+
+        // two pages per batch, each instance has a point on each page
+        IAcsClient client = (IAcsClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{IAcsClient.class}, (proxy, method, args) -> {
+                    if (!"getAcsResponse".equals(method.getName()) || args.length != 1) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    DescribeMetricListRequest request = (DescribeMetricListRequest) args[0];
+                    List<String> instanceIds = JsonUtils.readValue(new TypeReference<List<Map<String, String>>>() {
+                    }, request.getDimensions()).stream()
+                            .map(dimension -> dimension.get("instanceId"))
+                            .collect(Collectors.toList());
+                    boolean first = request.getNextToken() == null;
+                    if (first) {
+                        synchronized (requests) {
+                            requests.add(instanceIds);
+                        }
+                    }
+                    long timestamp = first ? 1000 : 2000;
+                    DescribeMetricListResponse response = new DescribeMetricListResponse();
+                    response.setSuccess(true);
+                    response.setNextToken(first ? "page-2" : null);
+                    response.setDatapoints(instanceIds.stream()
+                            .map(instanceId -> "{\"instanceId\":\"" + instanceId + "\",\"timestamp\":" + timestamp
+                                    + ",\"Average\":1.5,\"Minimum\":1,\"Maximum\":2}")
+                            .collect(Collectors.joining(",", "[", "]")));
+                    return response;
+                });
+        Map<String, IAcsClient> clients = (Map<String, IAcsClient>) ReflectionTestUtils.getField(aliyunMetricService,
+                "clients");
+        clients.put(REGION, client);
+    }
+
+    @After
+    public void after() {
+        aliyunMetricService.destroy();
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        Map<String, AliyunMetricService.Series> series = new LinkedHashMap<>();
+        AliyunMetricService.parse("[" +
+                "{\"timestamp\":1000,\"instanceId\":\"i-1\",\"Average\":1.5,\"Minimum\":1,\"Maximum\":2," +
+                "\"userId\":\"1\",\"tags\":{\"a\":[1,2]}}," +
+                "{\"instanceId\":\"i-2\",\"timestamp\":1000,\"Average\":\"3.5\"}," +
+                "{\"instanceId\":\"i-1\",\"timestamp\":2000,\"Maximum\":4}," +
+                "{\"timestamp\":3000,\"Average\":9}" +
+                "]", series);
+
+        // a point without instance is dropped
+        Assert.assertEquals(Arrays.asList("i-1", "i-2"), new ArrayList<>(series.keySet()));
+
+        AliyunMetricService.Series first = series.get("i-1");
+        Assert.assertEquals(2, first.size);
+        Assert.assertArrayEquals(new long[]{1000, 2000}, Arrays.copyOf(first.times, first.size));
+        Assert.assertArrayEquals(new double[]{1.5, Double.NaN}, Arrays.copyOf(first.values[0], first.size), 0);
+        Assert.assertArrayEquals(new double[]{1, Double.NaN}, Arrays.copyOf(first.values[1], first.size), 0);
+        Assert.assertArrayEquals(new double[]{2, 4}, Arrays.copyOf(first.values[2], first.size), 0);
+
+        AliyunMetricService.Series second = series.get("i-2");
+        Assert.assertEquals(1, second.size);
+        Assert.assertEquals(3.5, second.values[0][0], 0);
+        Assert.assertTrue(Double.isNaN(second.values[1][0]));
+        Assert.assertTrue(Double.isNaN(second.values[2][0]));
+    }
+
+    @Test
+    public void testParseEmpty() throws Exception {
+        Map<String, AliyunMetricService.Series> series = new HashMap<>();
+        AliyunMetricService.parse(null, series);
+        AliyunMetricService.parse("[]", series);
+        Assert.assertTrue(series.isEmpty());
+    }
+
+    @Test
+    public void testSelectChartLine() throws Exception {
+        DeviceMeta a = DeviceMeta.builder().deviceId(1L).hostname("i-1").build();
+        DeviceMeta b = DeviceMeta.builder().deviceId(2L).hostname("i-2").build();
+        // the same instance as a, both devices get its points
+        DeviceMeta c = DeviceMeta.builder().deviceId(3L).hostname("i-1").build();
+        DeviceMeta d = DeviceMeta.builder().deviceId(4L).hostname("i-3").build();
+        // no instance id, not queried
+        DeviceMeta e = DeviceMeta.builder().deviceId(5L).build();
+
+        List<MetricChartLineResponse> responses = aliyunMetricService.selectChartLine(MetricChartLineRequest.builder()
+                .devices(Arrays.asList(a, b, c, d, e))
+                .startTime(new Date(0))
+                .endTime(new Date(3000))
+                .categoryCode("aliyun.ecs.CPUUtilization")
+                .params(Collections.singletonMap("region", REGION))
+                .build()).get();
+
+        // distinct instances split by batchSize
+        requests.sort(Comparator.comparing(Object::toString));
+        Assert.assertEquals(Arrays.asList(Arrays.asList("i-1", "i-2"), Collections.singletonList("i-3")), requests);
+
+        Assert.assertEquals(4 * 3, responses.size());
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L), responses.stream()
+                .map(response -> response.getDeviceMeta().getDeviceId())
+                .distinct()
+                .collect(Collectors.toList()));
+        for (MetricChartLineResponse response : responses) {
+            // both pages
+            Assert.assertArrayEquals(new long[]{1000, 2000}, response.getTimes());
+            Assert.assertTrue(response.getMetric().contains(response.getDeviceMeta().getHostname()));
+        }
+        Assert.assertArrayEquals(new double[]{1.5, 1.5}, responses.get(0).getValues(), 0);
+        Assert.assertArrayEquals(new double[]{1, 1}, responses.get(1).getValues(), 0);
+        Assert.assertArrayEquals(new double[]{2, 2}, responses.get(2).getValues(), 0);
+    }
+
+    @Test
+    public void testNoDatapoints() {
+        DeviceMeta a = DeviceMeta.builder().deviceId(1L).hostname("i-1").build();
+        List<MetricChartLineResponse> responses = AliyunMetricService.responses(Collections.singletonList(a),
+                Collections.emptyMap());
+        Assert.assertEquals(3, responses.size());
+        for (MetricChartLineResponse response : responses) {
+            Assert.assertEquals(0, response.getTimes().length);
+            Assert.assertEquals(0, response.getValues().length);
+        }
+    }
+}
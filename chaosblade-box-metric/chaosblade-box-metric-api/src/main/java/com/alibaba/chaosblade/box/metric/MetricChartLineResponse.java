@@ -35,4 +35,12 @@ public class MetricChartLineResponse {
 
     private List<MetricChartLine> metricChartLines;
 
+    /**
+     * sample times in ms, with values set instead of metricChartLines by sources
+     * decoding samples straight into arrays
+     */
+    private long[] times;
+
+    private double[] values;
+
 }
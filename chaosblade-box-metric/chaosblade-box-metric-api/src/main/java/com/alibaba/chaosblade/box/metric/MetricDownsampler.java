@@ -0,0 +1,150 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.metric;
+
+import java.util.Arrays;
+
+/**
+ * Downsampling of a time ordered series to at most maxPoints points, returns the
+ * indexes of the points to keep in ascending order.
+ *
+ * @author yefei
+ */
+public final class MetricDownsampler {
+
+    public enum Mode {
+
+        /**
+         * largest triangle three buckets, keeps the visual shape of the line
+         */
+        LTTB,
+
+        /**
+         * min and max of every bucket, keeps spikes
+         */
+        MIN_MAX,
+        ;
+
+        public static Mode parse(String mode) {
+            return Arrays.stream(Mode.values())
+                    .filter(o -> o.name().replace("_", "").equalsIgnoreCase(mode == null ? null : mode.replace("_", "")))
+                    .findFirst()
+                    .orElse(LTTB);
+        }
+    }
+
+    private MetricDownsampler() {
+    }
+
+    public static int[] downsample(long[] times, double[] values, int size, int maxPoints, Mode mode) {
+        if (maxPoints <= 0 || size <= maxPoints) {
+            return range(size);
+        }
+        if (maxPoints < 3) {
+            return maxPoints == 1 ? new int[]{size - 1} : new int[]{0, size - 1};
+        }
+        return mode == Mode.MIN_MAX ? minMax(values, size, maxPoints) : lttb(times, values, size, maxPoints);
+    }
+
+    private static int[] lttb(long[] times, double[] values, int size, int maxPoints) {
+        int[] sampled = new int[maxPoints];
+        int n = 0;
+        sampled[n++] = 0;
+
+        // first and last points are kept, the others fall into maxPoints - 2 buckets
+        double every = (double) (size - 2) / (maxPoints - 2);
+        int a = 0;
+        for (int i = 0; i < maxPoints - 2; i++) {
+            // average of the next bucket is the third point of the triangle
+            int nextStart = (int) ((i + 1) * every) + 1;
+            int nextEnd = Math.min((int) ((i + 2) * every) + 1, size);
+            double avgTime = 0;
+            double avgValue = 0;
+            int nextSize = nextEnd - nextStart;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgTime += times[j];
+                avgValue += values[j];
+            }
+            if (nextSize > 0) {
+                avgTime /= nextSize;
+                avgValue /= nextSize;
+            } else {
+                avgTime = times[size - 1];
+                avgValue = values[size - 1];
+            }
+
+            int start = (int) (i * every) + 1;
+            int end = (int) ((i + 1) * every) + 1;
+            double aTime = times[a];
+            double aValue = values[a];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs((aTime - avgTime) * (values[j] - aValue)
+                        - (aTime - times[j]) * (avgValue - aValue));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = j;
+                }
+            }
+            sampled[n++] = maxIndex;
+            a = maxIndex;
+        }
+        sampled[n++] = size - 1;
+        return n == sampled.length ? sampled : Arrays.copyOf(sampled, n);
+    }
+
+    private static int[] minMax(double[] values, int size, int maxPoints) {
+        // first and last points are kept, the others fall into (maxPoints - 2) / 2 buckets
+        int buckets = (maxPoints - 2) / 2;
+        int[] sampled = new int[buckets * 2 + 2];
+        int n = 0;
+        sampled[n++] = 0;
+        double every = (double) (size - 2) / Math.max(buckets, 1);
+        for (int i = 0; i < buckets; i++) {
+            int start = (int) (i * every) + 1;
+            int end = Math.min((int) ((i + 1) * every) + 1, size - 1);
+            if (start >= end) {
+                continue;
+            }
+            int min = start;
+            int max = start;
+            for (int j = start + 1; j < end; j++) {
+                if (values[j] < values[min]) {
+                    min = j;
+                }
+                if (values[j] > values[max]) {
+                    max = j;
+                }
+            }
+            sampled[n++] = Math.min(min, max);
+            if (min != max) {
+                sampled[n++] = Math.max(min, max);
+            }
+        }
+        sampled[n++] = size - 1;
+        return n == sampled.length ? sampled : Arrays.copyOf(sampled, n);
+    }
+
+    private static int[] range(int size) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.metric;
+
+import cn.hutool.cache.impl.LRUCache;
+import com.alibaba.chaosblade.box.common.DeviceMeta;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Chart line query results by (category, params, devices, aligned window). A request
+ * equal to one in flight shares its future, completed results are kept for ttl ms in
+ * a LRU of at most size entries, failed ones are dropped. Cached results are shared by
+ * all callers and must not be modified.
+ *
+ * @author yefei
+ */
+public class MetricQueryCache {
+
+    private final LRUCache<Key, CompletableFuture<List<MetricChartLineResponse>>> cache;
+
+    private final long ttl;
+
+    private final long align;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param size  max entries
+     * @param ttl   ms a result is kept after it completes
+     * @param align ms the query window is aligned down to, 0 not aligned. The end of
+     *              a window ending within the last align ms is kept as is
+     */
+    public MetricQueryCache(int size, long ttl, long align) {
+        this.cache = new LRUCache<>(size, ttl);
+        this.ttl = ttl;
+        this.align = align;
+    }
+
+    public CompletableFuture<List<MetricChartLineResponse>> get(MetricChartLineRequest request,
+                                                                Function<MetricChartLineRequest, CompletableFuture<List<MetricChartLineResponse>>> loader) {
+        MetricChartLineRequest aligned = align(request);
+        Key key = new Key(aligned.getCategoryCode(), aligned.getParams(), aligned.getDevices(),
+                aligned.getStartTime().getTime(), aligned.getEndTime().getTime());
+
+        CompletableFuture<List<MetricChartLineResponse>> future;
+        synchronized (cache) {
+            future = cache.get(key, false);
+            if (future != null) {
+                if (future.isDone()) {
+                    hits.increment();
+                } else {
+                    coalesced.increment();
+                }
+                return future;
+            }
+            misses.increment();
+            future = new CompletableFuture<>();
+            cache.put(key, future);
+        }
+
+        CompletableFuture<List<MetricChartLineResponse>> result = future;
+        CompletableFuture<List<MetricChartLineResponse>> load;
+        try {
+            load = loader.apply(aligned);
+        } catch (Exception e) {
+            load = new CompletableFuture<>();
+            load.completeExceptionally(e);
+        }
+        load.whenComplete((r, e) -> {
+            synchronized (cache) {
+                if (e != null) {
+                    cache.remove(key);
+                } else {
+                    // ttl counts from completion
+                    cache.put(key, result, ttl);
+                }
+            }
+            if (e != null) {
+                result.completeExceptionally(e);
+            } else {
+                result.complete(r);
+            }
+        });
+        return result;
+    }
+
+    private MetricChartLineRequest align(MetricChartLineRequest request) {
+        if (align <= 0) {
+            return request;
+        }
+        long start = request.getStartTime().getTime() / align * align;
+        long end = request.getEndTime().getTime();
+        // a window ending within the last align ms is still open, its tail is not cut off
+        if (System.currentTimeMillis() - end >= align) {
+            end = end / align * align;
+        }
+        if (end <= start) {
+            return request;
+        }
+        return MetricChartLineRequest.builder()
+                .devices(request.getDevices())
+                .categoryCode(request.getCategoryCode())
+                .params(request.getParams())
+                .startTime(new Date(start))
+                .endTime(new Date(end))
+                .build();
+    }
+
+    /**
+     * completed results served from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * requests sharing the future of an identical one in flight
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    @Data
+    private static class Key {
+
+        private final String categoryCode;
+
+        private final Map<String, String> params;
+
+        private final List<DeviceMeta> devices;
+
+        private final long startTime;
+
+        private final long endTime;
+    }
+}
@@ -18,7 +18,11 @@ package com.alibaba.chaosblade.box.metric;
 
 import com.alibaba.chaosblade.box.common.exception.ExceptionMessageEnum;
 import com.alibaba.chaosblade.box.common.utils.Preconditions;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.stereotype.Service;
 
@@ -26,17 +30,72 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author yefei
  */
+@Slf4j
 @Service("metricService")
-public class MetricStrategyContext implements MetricService, BeanPostProcessor {
+public class MetricStrategyContext implements MetricService, BeanPostProcessor, InitializingBean, DisposableBean {
 
     private final Map<MetricSource, MetricService> strategies = new ConcurrentHashMap<>();
 
+    @Value("${chaos.metric.cache.size:1024}")
+    private int cacheSize;
+
+    @Value("${chaos.metric.cache.ttl:5000}")
+    private long cacheTtl;
+
+    @Value("${chaos.metric.cache.align:5000}")
+    private long cacheAlign;
+
+    @Value("${chaos.metric.cache.statsInterval:60000}")
+    private long statsInterval;
+
+    private MetricQueryCache cache;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (cacheTtl > 0) {
+            cache = new MetricQueryCache(cacheSize, cacheTtl, cacheAlign);
+
+            scheduledExecutorService = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r);
+                thread.setName("Metric-cache-stats");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduledExecutorService.scheduleWithFixedDelay(this::logStats, statsInterval, statsInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdown();
+        }
+    }
+
+    private void logStats() {
+        log.info("metric query cache, hits: {}, coalesced: {}, misses: {}, size: {}",
+                cache.hitCount(), cache.coalescedCount(), cache.missCount(), cache.size());
+    }
+
     @Override
     public CompletableFuture<List<MetricChartLineResponse>> selectChartLine(MetricChartLineRequest metricChartLineRequest) {
+        if (cache == null) {
+            return doSelectChartLine(metricChartLineRequest);
+        }
+        return cache.get(metricChartLineRequest, this::doSelectChartLine);
+    }
+
+    private CompletableFuture<List<MetricChartLineResponse>> doSelectChartLine(MetricChartLineRequest metricChartLineRequest) {
         try {
             String category = metricChartLineRequest.getCategoryCode();
             String[] split = category.split("[.]");
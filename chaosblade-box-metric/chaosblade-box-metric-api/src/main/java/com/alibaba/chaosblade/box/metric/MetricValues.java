@@ -0,0 +1,75 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.metric;
+
+import java.math.BigDecimal;
+
+/**
+ * Text form of sample values, prometheus writes infinity as +Inf / -Inf.
+ *
+ * @author yefei
+ */
+public final class MetricValues {
+
+    private MetricValues() {
+    }
+
+    /**
+     * @param value
+     * @return null if not a number
+     */
+    public static Double parse(String value) {
+        double parsed = parse(value, Double.NaN);
+        return Double.isNaN(parsed) && !"NaN".equals(value) ? null : parsed;
+    }
+
+    /**
+     * @param value
+     * @param defaultValue returned if not a number
+     * @return
+     */
+    public static double parse(String value, double defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        switch (value) {
+            case "+Inf":
+                return Double.POSITIVE_INFINITY;
+            case "-Inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                try {
+                    return Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    return defaultValue;
+                }
+        }
+    }
+
+    public static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == 0) {
+            return "0";
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.metric;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author yefei
+ */
+public class MetricDownsamplerTest {
+
+    private static final int SIZE = 1000;
+
+    private final long[] times = new long[SIZE];
+
+    private final double[] values = new double[SIZE];
+
+    {
+        for (int i = 0; i < SIZE; i++) {
+            times[i] = 1_600_000_000_000L + i * 10_000L;
+            values[i] = Math.sin(i / 20.0) * 10;
+        }
+        // spikes inside the series
+        values[333] = 100;
+        values[666] = -100;
+    }
+
+    @Test
+    public void testNoDownsample() {
+        for (MetricDownsampler.Mode mode : MetricDownsampler.Mode.values()) {
+            assertRange(MetricDownsampler.downsample(times, values, 10, 10, mode), 10);
+            assertRange(MetricDownsampler.downsample(times, values, 10, 100, mode), 10);
+            assertRange(MetricDownsampler.downsample(times, values, 10, 0, mode), 10);
+            assertRange(MetricDownsampler.downsample(times, values, 0, 10, mode), 0);
+        }
+    }
+
+    @Test
+    public void testLessThanThreePoints() {
+        for (MetricDownsampler.Mode mode : MetricDownsampler.Mode.values()) {
+            Assert.assertArrayEquals(new int[]{SIZE - 1},
+                    MetricDownsampler.downsample(times, values, SIZE, 1, mode));
+            Assert.assertArrayEquals(new int[]{0, SIZE - 1},
+                    MetricDownsampler.downsample(times, values, SIZE, 2, mode));
+        }
+    }
+
+    @Test
+    public void testFirstAndLastKept() {
+        for (MetricDownsampler.Mode mode : MetricDownsampler.Mode.values()) {
+            for (int maxPoints : new int[]{3, 4, 5, 50, 999}) {
+                int[] sampled = MetricDownsampler.downsample(times, values, SIZE, maxPoints, mode);
+                Assert.assertTrue(mode + " " + maxPoints, sampled.length <= maxPoints);
+                Assert.assertEquals(mode + " " + maxPoints, 0, sampled[0]);
+                Assert.assertEquals(mode + " " + maxPoints, SIZE - 1, sampled[sampled.length - 1]);
+                for (int i = 1; i < sampled.length; i++) {
+                    Assert.assertTrue(mode + " " + maxPoints, sampled[i] > sampled[i - 1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLttbKeepsSpikes() {
+        int[] sampled = MetricDownsampler.downsample(times, values, SIZE, 100, MetricDownsampler.Mode.LTTB);
+        Assert.assertEquals(100, sampled.length);
+        Assert.assertTrue(contains(sampled, 333));
+        Assert.assertTrue(contains(sampled, 666));
+    }
+
+    @Test
+    public void testMinMaxPerBucket() {
+        int maxPoints = 52;
+        int[] sampled = MetricDownsampler.downsample(times, values, SIZE, maxPoints, MetricDownsampler.Mode.MIN_MAX);
+        Assert.assertEquals(maxPoints, sampled.length);
+
+        // every bucket of the inner points keeps both its minimum and its maximum
+        int buckets = (maxPoints - 2) / 2;
+        double every = (double) (SIZE - 2) / buckets;
+        for (int i = 0; i < buckets; i++) {
+            int start = (int) (i * every) + 1;
+            int end = Math.min((int) ((i + 1) * every) + 1, SIZE - 1);
+            int min = start;
+            int max = start;
+            for (int j = start; j < end; j++) {
+                min = values[j] < values[min] ? j : min;
+                max = values[j] > values[max] ? j : max;
+            }
+            Assert.assertTrue("bucket " + i, contains(sampled, min));
+            Assert.assertTrue("bucket " + i, contains(sampled, max));
+        }
+        Assert.assertTrue(contains(sampled, 333));
+        Assert.assertTrue(contains(sampled, 666));
+    }
+
+    @Test
+    public void testParseMode() {
+        Assert.assertEquals(MetricDownsampler.Mode.MIN_MAX, MetricDownsampler.Mode.parse("minmax"));
+        Assert.assertEquals(MetricDownsampler.Mode.MIN_MAX, MetricDownsampler.Mode.parse("MIN_MAX"));
+        Assert.assertEquals(MetricDownsampler.Mode.LTTB, MetricDownsampler.Mode.parse("lttb"));
+        Assert.assertEquals(MetricDownsampler.Mode.LTTB, MetricDownsampler.Mode.parse(null));
+        Assert.assertEquals(MetricDownsampler.Mode.LTTB, MetricDownsampler.Mode.parse("unknown"));
+    }
+
+    private static void assertRange(int[] sampled, int size) {
+        Assert.assertEquals(size, sampled.length);
+        for (int i = 0; i < size; i++) {
+            Assert.assertEquals(i, sampled[i]);
+        }
+    }
+
+    private static boolean contains(int[] sampled, int index) {
+        for (int i : sampled) {
+            if (i == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
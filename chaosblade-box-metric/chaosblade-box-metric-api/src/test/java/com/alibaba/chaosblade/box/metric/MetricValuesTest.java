@@ -0,0 +1,51 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.metric;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author yefei
+ */
+public class MetricValuesTest {
+
+    @Test
+    public void testParse() {
+        Assert.assertEquals(Double.POSITIVE_INFINITY, MetricValues.parse("+Inf"), 0);
+        Assert.assertEquals(Double.NEGATIVE_INFINITY, MetricValues.parse("-Inf"), 0);
+        Assert.assertTrue(Double.isNaN(MetricValues.parse("NaN")));
+        Assert.assertEquals(-0.25, MetricValues.parse("-0.25"), 0);
+        Assert.assertEquals(187949056, MetricValues.parse("187949056"), 0);
+        Assert.assertNull(MetricValues.parse("abc"));
+        Assert.assertNull(MetricValues.parse(null));
+
+        Assert.assertTrue(Double.isNaN(MetricValues.parse("abc", Double.NaN)));
+        Assert.assertEquals(-1, MetricValues.parse(null, -1), 0);
+        Assert.assertEquals(1.5, MetricValues.parse("1.5", Double.NaN), 0);
+    }
+
+    @Test
+    public void testFormat() {
+        Assert.assertEquals("+Inf", MetricValues.format(Double.POSITIVE_INFINITY));
+        Assert.assertEquals("-Inf", MetricValues.format(Double.NEGATIVE_INFINITY));
+        Assert.assertEquals("NaN", MetricValues.format(Double.NaN));
+        Assert.assertEquals("0", MetricValues.format(-0.0));
+        Assert.assertEquals("1.5", MetricValues.format(1.50));
+        Assert.assertEquals("-100", MetricValues.format(-100));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.metric.prometheus;
+
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.chaosblade.box.common.DeviceMeta;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Resolves the device of a series from its label values, built once per request.
+ *
+ * <p>Devices are indexed by rule instance, ip, hostname, pod, container, node and
+ * namespace, in that order of precedence. A label value matches its exact key or,
+ * for host:port values, the host. Series matching no device fall back to the first
+ * device without a rule instance, the same device the former linear scan ended with.
+ *
+ * @author yefei
+ */
+class PrometheusDeviceMatcher {
+
+    private final List<Map<String, DeviceMeta>> indexes = new ArrayList<>();
+
+    private final DeviceMeta fallback;
+
+    PrometheusDeviceMatcher(List<DeviceMeta> devices, Map<String, String> ipToInstance) {
+        Map<String, DeviceMeta> instances = new HashMap<>();
+        for (DeviceMeta deviceMeta : devices) {
+            String instance = ipToInstance.get(deviceMeta.getIp());
+            if (StrUtil.isNotEmpty(instance)) {
+                instances.putIfAbsent(instance, deviceMeta);
+            }
+        }
+        indexes.add(instances);
+        indexes.add(index(devices, DeviceMeta::getIp));
+        indexes.add(index(devices, DeviceMeta::getHostname));
+        indexes.add(index(devices, DeviceMeta::getPodName));
+        indexes.add(index(devices, DeviceMeta::getContainerName));
+        indexes.add(index(devices, DeviceMeta::getNodeName));
+        indexes.add(index(devices, DeviceMeta::getNamespace));
+
+        fallback = devices.stream()
+                .filter(deviceMeta -> ipToInstance.get(deviceMeta.getIp()) == null)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * @param labelValues values of the series labels
+     * @return null if no device
+     */
+    DeviceMeta match(Collection<String> labelValues) {
+        for (Map<String, DeviceMeta> index : indexes) {
+            if (index.isEmpty()) {
+                continue;
+            }
+            for (String value : labelValues) {
+                DeviceMeta deviceMeta = index.get(value);
+                if (deviceMeta == null) {
+                    int colon = value.lastIndexOf(':');
+                    if (colon > 0) {
+                        deviceMeta = index.get(value.substring(0, colon));
+                    }
+                }
+                if (deviceMeta != null) {
+                    return deviceMeta;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    private static Map<String, DeviceMeta> index(List<DeviceMeta> devices, Function<DeviceMeta, String> key) {
+        Map<String, DeviceMeta> index = new HashMap<>();
+        for (DeviceMeta deviceMeta : devices) {
+            String k = key.apply(deviceMeta);
+            if (StrUtil.isNotEmpty(k)) {
+                index.putIfAbsent(k, deviceMeta);
+            }
+        }
+        return index;
+    }
+}
@@ -16,17 +16,15 @@
 
 package com.alibaba.chaosblade.box.metric.prometheus;
 
-import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.chaosblade.box.common.exception.BizException;
 import com.alibaba.chaosblade.box.common.utils.JsonUtils;
 import com.alibaba.chaosblade.box.common.utils.Preconditions;
 import com.alibaba.chaosblade.box.metric.*;
-import com.alibaba.chaosblade.box.metric.*;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
@@ -36,15 +34,13 @@ import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
-import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -96,71 +92,29 @@ public class PrometheusService implements MetricService, InitializingBean, Dispo
             future.completeExceptionally(e);
         }
 
+        Map<String, String> ipToInstance = new HashMap<>();
+        String rule = map.get(PARAM_RULE);
+        if (StrUtil.isNotBlank(rule)) {
+            try {
+                ArrayNode arrayNode = (ArrayNode) JsonUtils.reader().readTree(rule);
+                for (JsonNode node : arrayNode) {
+                    String field = node.fieldNames().next();
+                    ipToInstance.put(field, node.get(field).asText());
+                }
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+                return future;
+            }
+        }
+
+        PrometheusDeviceMatcher matcher = new PrometheusDeviceMatcher(metricChartLineRequest.getDevices(), ipToInstance);
+
         client.execute(httpPost, new FutureCallback<HttpResponse>() {
             @Override
             public void completed(HttpResponse httpResponse) {
-                try {
-                    HttpEntity entity = httpResponse.getEntity();
-
-                    ByteArrayInputStream inputStream = new ByteArrayInputStream(EntityUtils.toByteArray(entity));
-                    JsonNode jsonNode = JsonUtils.reader().readTree(inputStream);
-
-                    ArrayNode result = (ArrayNode) jsonNode.get("data").get("result");
-
-                    String rule = map.get(PARAM_RULE);
-                    Map<String, String> ipToInstance = new HashMap<>();
-                    if (StrUtil.isNotBlank(rule)) {
-                        ArrayNode arrayNode = (ArrayNode) JsonUtils.reader().readTree(rule);
-                        for (JsonNode node : arrayNode) {
-                            String field = node.fieldNames().next();
-                            ipToInstance.put(field, node.get(field).asText());
-                        }
-                    }
-
-                    List<MetricChartLineResponse> metricChartLineResponses = CollUtil.newArrayList();
-                    if (CollUtil.isNotEmpty(result)) {
-                        for (JsonNode node : result) {
-
-                            String metric = node.get("metric").toString();
-                            MetricChartLineResponse metricChartLineResponse = MetricChartLineResponse.builder().metric(metric)
-                                    .build();
-                            // values
-                            ArrayNode values = (ArrayNode) node.get("values");
-                            List<MetricChartLine> metricChartLines = new ArrayList<>();
-                            for (JsonNode dot : values) {
-                                String date = dot.get(0).asText();
-                                String value = dot.get(1).asText();
-                                metricChartLines.add(MetricChartLine.builder()
-                                        .time(DateUtil.date(new BigDecimal(date).longValue() * 1000))
-                                        .value(value)
-                                        .build());
-                            }
-
-                            metricChartLineRequest.getDevices().stream().filter(deviceMeta -> {
-                                if (StrUtil.contains(metric, deviceMeta.getIp()) ||
-                                        StrUtil.contains(metric, deviceMeta.getHostname()) ||
-                                        StrUtil.contains(metric, deviceMeta.getNamespace()) ||
-                                        StrUtil.contains(metric, deviceMeta.getNodeName()) ||
-                                        StrUtil.contains(metric, deviceMeta.getPodName()) ||
-                                        StrUtil.contains(metric, deviceMeta.getContainerName())
-                                ) {
-                                    return true;
-                                }
-                                String value = ipToInstance.get(deviceMeta.getIp());
-                                if (value != null) {
-                                    return metric.contains(value);
-                                }
-                                return true;
-                            }).findFirst().ifPresent(deviceMeta -> {
-                                metricChartLineResponse.setMetricChartLines(metricChartLines);
-                                metricChartLineResponse.setDeviceMeta(deviceMeta);
-                                metricChartLineResponses.add(metricChartLineResponse);
-                            });
-                        }
-                        future.complete(metricChartLineResponses);
-                    } else {
-                        future.complete(Collections.emptyList());
-                    }
+                try (InputStream inputStream = httpResponse.getEntity().getContent();
+                     JsonParser parser = JsonUtils.reader().getFactory().createParser(inputStream)) {
+                    future.complete(parse(parser, matcher));
                 } catch (IOException e) {
                     future.completeExceptionally(e);
                 }
@@ -179,6 +133,94 @@ public class PrometheusService implements MetricService, InitializingBean, Dispo
         return future;
     }
 
+    /**
+     * stream data.result[] of a range query, values are decoded into primitive arrays
+     * and the device is matched once per series
+     */
+    static List<MetricChartLineResponse> parse(JsonParser parser, PrometheusDeviceMatcher matcher) throws IOException {
+        List<MetricChartLineResponse> metricChartLineResponses = new ArrayList<>();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return metricChartLineResponses;
+        }
+        String status = null;
+        String error = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("status".equals(field)) {
+                status = parser.getText();
+                continue;
+            }
+            if ("error".equals(field)) {
+                error = parser.getText();
+                continue;
+            }
+            if (!"data".equals(field) || parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String dataField = parser.getCurrentName();
+                parser.nextToken();
+                if (!"result".equals(dataField) || parser.currentToken() != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    MetricChartLineResponse response = parseSeries(parser, matcher);
+                    if (response.getDeviceMeta() != null && response.getTimes() != null) {
+                        metricChartLineResponses.add(response);
+                    }
+                }
+            }
+        }
+        if ("error".equals(status)) {
+            throw new IOException("Prometheus query error: " + error);
+        }
+        return metricChartLineResponses;
+    }
+
+    private static MetricChartLineResponse parseSeries(JsonParser parser, PrometheusDeviceMatcher matcher) throws IOException {
+        MetricChartLineResponse response = MetricChartLineResponse.builder().build();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("metric".equals(field)) {
+                JsonNode metric = parser.readValueAsTree();
+                response.setMetric(metric.toString());
+                List<String> labelValues = new ArrayList<>(metric.size());
+                metric.elements().forEachRemaining(label -> labelValues.add(label.asText()));
+                response.setDeviceMeta(matcher.match(labelValues));
+            } else if ("values".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                long[] times = new long[64];
+                double[] values = new double[64];
+                int size = 0;
+                // [[1614840609.379, "187949056"], ...]
+                while (parser.nextToken() == JsonToken.START_ARRAY) {
+                    parser.nextToken();
+                    double time = parser.getValueAsDouble();
+                    parser.nextToken();
+                    double value = MetricValues.parse(parser.getText(), Double.NaN);
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        parser.skipChildren();
+                    }
+                    if (size == times.length) {
+                        times = Arrays.copyOf(times, size << 1);
+                        values = Arrays.copyOf(values, size << 1);
+                    }
+                    times[size] = Math.round(time * 1000);
+                    values[size] = value;
+                    size++;
+                }
+                response.setTimes(Arrays.copyOf(times, size));
+                response.setValues(Arrays.copyOf(values, size));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return response;
+    }
+
     @Override
     public void destroy() throws Exception {
         client.close();
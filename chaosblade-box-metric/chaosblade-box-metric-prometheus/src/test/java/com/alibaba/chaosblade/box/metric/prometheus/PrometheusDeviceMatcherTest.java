@@ -0,0 +1,108 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.chaosblade.box.metric.prometheus;
+
+import com.alibaba.chaosblade.box.common.DeviceMeta;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * @author yefei
+ */
+public class PrometheusDeviceMatcherTest {
+
+    @Test
+    public void testMatch() {
+        DeviceMeta host = DeviceMeta.builder().ip("172.19.128.194").hostname("host-1").build();
+        DeviceMeta pod = DeviceMeta.builder().namespace("default").podName("nginx-1").nodeName("node-1").build();
+        DeviceMeta ruled = DeviceMeta.builder().ip("10.0.0.1").build();
+
+        Map<String, String> ipToInstance = new HashMap<>();
+        ipToInstance.put("10.0.0.1", "exporter-1");
+        PrometheusDeviceMatcher matcher = new PrometheusDeviceMatcher(Arrays.asList(host, pod, ruled), ipToInstance);
+
+        Assert.assertSame(host, matcher.match(Arrays.asList("node-exporter", "172.19.128.194:9100")));
+        Assert.assertSame(pod, matcher.match(Arrays.asList("kube-state-metrics", "default", "nginx-1")));
+        Assert.assertSame(ruled, matcher.match(Arrays.asList("exporter-1", "default")));
+        // no label of any device, first device without a rule instance
+        Assert.assertSame(host, matcher.match(Collections.singletonList("unknown")));
+    }
+
+    @Test
+    public void testHashLookup() {
+        int deviceCount = 1000;
+        List<DeviceMeta> devices = new ArrayList<>(deviceCount);
+        for (int i = 0; i < deviceCount; i++) {
+            devices.add(DeviceMeta.builder()
+                    .ip("10.0." + (i / 256) + "." + (i % 256))
+                    .hostname("host-" + i)
+                    .build());
+        }
+        PrometheusDeviceMatcher matcher = new PrometheusDeviceMatcher(devices, Collections.emptyMap());
+
+        for (int i = 0; i < deviceCount; i++) {
+            DeviceMeta deviceMeta = devices.get(i);
+            // host:port instance label
+            Assert.assertSame(deviceMeta, matcher.match(Arrays.asList("node_cpu_seconds_total", "cpu0", "idle",
+                    "node-exporter", deviceMeta.getIp() + ":9100")));
+            // bare hostname label
+            Assert.assertSame(deviceMeta, matcher.match(Arrays.asList("node-exporter", deviceMeta.getHostname())));
+        }
+        // a prefix of an ip is not a match
+        Assert.assertSame(devices.get(0), matcher.match(Collections.singletonList("10.0.0")));
+    }
+
+    @Test
+    public void testPrecedence() {
+        DeviceMeta byHostname = DeviceMeta.builder().ip("10.0.0.1").hostname("host-2").build();
+        DeviceMeta byIp = DeviceMeta.builder().ip("10.0.0.2").hostname("host-1").build();
+        PrometheusDeviceMatcher matcher = new PrometheusDeviceMatcher(Arrays.asList(byHostname, byIp),
+                Collections.emptyMap());
+
+        // ip index is searched before hostname, whatever the label order
+        Assert.assertSame(byIp, matcher.match(Arrays.asList("host-2", "10.0.0.2:9100")));
+
+        DeviceMeta ruled = DeviceMeta.builder().ip("10.0.0.3").hostname("host-3").build();
+        Map<String, String> ipToInstance = new HashMap<>();
+        ipToInstance.put("10.0.0.3", "exporter-3");
+        matcher = new PrometheusDeviceMatcher(Arrays.asList(byHostname, byIp, ruled), ipToInstance);
+        // rule instance before ip
+        Assert.assertSame(ruled, matcher.match(Arrays.asList("10.0.0.2", "exporter-3")));
+    }
+
+    @Test
+    public void testFallback() {
+        DeviceMeta ruled = DeviceMeta.builder().ip("10.0.0.1").hostname("host-1").build();
+        DeviceMeta first = DeviceMeta.builder().ip("10.0.0.2").hostname("host-2").build();
+        DeviceMeta second = DeviceMeta.builder().ip("10.0.0.3").hostname("host-3").build();
+        Map<String, String> ipToInstance = new HashMap<>();
+        ipToInstance.put("10.0.0.1", "exporter-1");
+
+        // first device without a rule instance, not the first device
+        PrometheusDeviceMatcher matcher = new PrometheusDeviceMatcher(Arrays.asList(ruled, first, second), ipToInstance);
+        Assert.assertSame(first, matcher.match(Collections.singletonList("unknown")));
+        Assert.assertSame(first, matcher.match(Collections.emptyList()));
+
+        // every device has a rule instance
+        matcher = new PrometheusDeviceMatcher(Collections.singletonList(ruled), ipToInstance);
+        Assert.assertNull(matcher.match(Collections.singletonList("unknown")));
+
+        matcher = new PrometheusDeviceMatcher(Collections.emptyList(), Collections.emptyMap());
+        Assert.assertNull(matcher.match(Collections.singletonList("unknown")));
+    }
+}
@@ -18,7 +18,9 @@ package com.alibaba.chaosblade.box.metric.prometheus;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
+import com.alibaba.chaosblade.box.common.DeviceMeta;
 import com.alibaba.chaosblade.box.metric.MetricChartLineRequest;
+import com.alibaba.chaosblade.box.metric.MetricChartLineResponse;
 import com.alibaba.testable.core.annotation.MockConstructor;
 import com.alibaba.testable.core.annotation.MockDiagnose;
 import com.alibaba.testable.core.annotation.MockMethod;
@@ -35,6 +37,7 @@ import org.apache.http.impl.DefaultHttpResponseFactory;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpCoreContext;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,6 +48,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.Future;
 
 /**
@@ -101,4 +105,24 @@ public class PrometheusServiceTest {
 
         prometheusService.selectChartLine(metricChartLineRequest);
     }
+
+    @Test
+    public void testParseValues() throws Exception {
+        MetricChartLineRequest metricChartLineRequest = MetricChartLineRequest.builder().build();
+        metricChartLineRequest.setStartTime(DateUtil.date());
+        metricChartLineRequest.setEndTime(DateUtil.date());
+        metricChartLineRequest.setDevices(CollUtil.newArrayList(DeviceMeta.builder().ip("172.19.128.194").build()));
+        HashMap<String, String> params = new HashMap<>();
+        params.put("url", "abc");
+        params.put("query", "node_memory_Buffers_bytes");
+        metricChartLineRequest.setParams(params);
+
+        List<MetricChartLineResponse> responses = prometheusService.selectChartLine(metricChartLineRequest).get();
+        Assert.assertEquals(1, responses.size());
+        MetricChartLineResponse response = responses.get(0);
+        Assert.assertEquals("172.19.128.194", response.getDeviceMeta().getIp());
+        Assert.assertTrue(response.getMetric().contains("node_memory_Buffers_bytes"));
+        Assert.assertArrayEquals(new long[]{1614840609379L, 1614840623379L}, response.getTimes());
+        Assert.assertArrayEquals(new double[]{187949056, 187949056}, response.getValues(), 0);
+    }
 }
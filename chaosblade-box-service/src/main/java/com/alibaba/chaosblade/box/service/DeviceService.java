@@ -32,6 +32,12 @@ public interface DeviceService {
      */
     void deviceRegister(DeviceRegisterRequest deviceRegisterRequest);
 
+    /**
+     *
+     * @param deviceHeartbeatRequest
+     */
+    void deviceHeartbeat(DeviceHeartbeatRequest deviceHeartbeatRequest);
+
     /**
      *
      * @param deviceRequest
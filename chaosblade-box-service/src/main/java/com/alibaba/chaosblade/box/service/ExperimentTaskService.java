@@ -62,6 +62,14 @@ public interface ExperimentTaskService {
      */
     List<String> queryTaskLog(ExperimentTaskRequest experimentRequest);
 
+    /**
+     * logs after experimentRequest.afterId, at most experimentRequest.limit rows
+     *
+     * @param experimentRequest
+     * @return
+     */
+    ExperimentTaskLogResponse queryTaskLogByCursor(ExperimentTaskRequest experimentRequest);
+
     /**
      *
      * @param experimentRequest
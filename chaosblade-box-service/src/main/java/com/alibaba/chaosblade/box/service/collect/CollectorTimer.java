@@ -16,6 +16,7 @@
 
 package com.alibaba.chaosblade.box.service.collect;
 
+import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateField;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.EnumUtil;
@@ -24,23 +25,13 @@ import com.alibaba.chaosblade.box.collector.model.Node;
 import com.alibaba.chaosblade.box.collector.*;
 import com.alibaba.chaosblade.box.common.enums.DeviceStatus;
 import com.alibaba.chaosblade.box.common.enums.DeviceType;
-import com.alibaba.chaosblade.box.common.utils.JsonUtils;
 import com.alibaba.chaosblade.box.common.utils.Preconditions;
 import com.alibaba.chaosblade.box.common.utils.timer.HashedWheelTimer;
 import com.alibaba.chaosblade.box.common.utils.timer.Timer;
-import com.alibaba.chaosblade.box.collector.model.Container;
 import com.alibaba.chaosblade.box.collector.model.Pod;
 import com.alibaba.chaosblade.box.collector.model.Query;
-import com.alibaba.chaosblade.box.dao.QueryWrapperBuilder;
-import com.alibaba.chaosblade.box.dao.mapper.DeviceMapper;
 import com.alibaba.chaosblade.box.dao.model.DeviceDO;
-import com.alibaba.chaosblade.box.dao.model.DeviceNodeDO;
-import com.alibaba.chaosblade.box.dao.model.DevicePodDO;
-import com.alibaba.chaosblade.box.dao.repository.DeviceNodeRepository;
-import com.alibaba.chaosblade.box.dao.repository.DevicePodRepository;
 import com.alibaba.chaosblade.box.dao.repository.DeviceRepository;
-import com.alibaba.chaosblade.box.service.model.device.ContainerBO;
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.InitializingBean;
@@ -62,17 +53,11 @@ public class CollectorTimer implements BeanPostProcessor, InitializingBean {
 
     private Timer timer;
 
-    @Autowired
-    private DeviceMapper deviceMapper;
-
     @Autowired
     private DeviceRepository deviceRepository;
 
     @Autowired
-    private DeviceNodeRepository deviceNodeRepository;
-
-    @Autowired
-    private DevicePodRepository devicePodRepository;
+    private KubernetesInventorySync inventorySync;
 
     @Value("${chaos.collector.type}")
     private String collectorType;
@@ -83,8 +68,13 @@ public class CollectorTimer implements BeanPostProcessor, InitializingBean {
     @Value("${chaos.collector.period}")
     private Integer period;
 
+    @Value("${chaos.collector.watch:false}")
+    private boolean watch;
+
     private NodeCollector nodeCollector;
 
+    private volatile boolean containersFromPods;
+
     public void dryRun() throws Exception {
         Preconditions.checkNotNull(nodeCollector, "collector is null");
         CompletableFuture<List<Node>> future = nodeCollector.collect(Query.builder().build());
@@ -112,45 +102,64 @@ public class CollectorTimer implements BeanPostProcessor, InitializingBean {
         return o;
     }
 
+    @Override
+    public Object postProcessAfterInitialization(Object o, String s) throws BeansException {
+        if (o instanceof WatchableCollector && enableCollect && watch) {
+            CollectorStrategy strategy = o.getClass().getAnnotation(CollectorStrategy.class);
+            CollectorType collectorType = EnumUtil.fromString(CollectorType.class, this.collectorType.toUpperCase());
+            if (strategy.value() == collectorType) {
+                if (o instanceof NodeCollector) {
+                    watchable((NodeCollector) o).watch(new CollectorListener<Node>() {
+                        @Override
+                        public void onUpdate(Node node) {
+                            inventorySync.upsertNode(node);
+                        }
+
+                        @Override
+                        public void onDelete(Node node) {
+                            inventorySync.removeNode(node);
+                        }
+                    });
+                }
+                if (o instanceof PodCollector) {
+                    watchable((PodCollector) o).watch(new CollectorListener<Pod>() {
+                        @Override
+                        public void onUpdate(Pod pod) {
+                            inventorySync.upsertPod(pod);
+                        }
+
+                        @Override
+                        public void onDelete(Pod pod) {
+                            inventorySync.removePod(pod);
+                        }
+                    });
+                }
+            }
+        }
+        return o;
+    }
+
+    /**
+     * narrow a collector already checked to be watchable, keeping its element type
+     */
+    private static <T> WatchableCollector<T> watchable(Collector<T> collector) {
+        return (WatchableCollector<T>) collector;
+    }
+
     private void nodeCollect(NodeCollector collector) {
         timer.newTimeout(timeout -> {
             try {
                 CompletableFuture<List<Node>> future = collector.collect(Query.builder().build());
-                QueryWrapper<DeviceDO> queryWrapper = QueryWrapperBuilder.build();
-                queryWrapper.lambda().eq(DeviceDO::getType, DeviceType.NODE.getCode());
-                deviceMapper.update(DeviceDO.builder().lastPingTime(DateUtil.date()).build(), queryWrapper);
-
                 future.handle((nodes, e) -> {
                     if (e != null) {
                         log.error("collect node fail!", e);
                         return null;
                     }
-                    nodes.forEach(node -> {
-                        DeviceDO deviceDO = deviceRepository.selectOneByUnique(DeviceType.NODE.getCode(), node.getName())
-                                .orElseGet(() -> {
-                                    DeviceDO aDo = DeviceDO.builder()
-                                            .hostname(node.getName())
-                                            .ip(node.getIp())
-                                            .status(DeviceStatus.ONLINE.getStatus())
-                                            .lastOnlineTime(DateUtil.date())
-                                            .type(DeviceType.NODE.getCode())
-                                            .build();
-                                    Long deviceId = deviceRepository.insert(aDo);
-                                    deviceNodeRepository.insert(DeviceNodeDO.builder()
-                                            .deviceId(deviceId)
-                                            .nodeIp(node.getIp())
-                                            .nodeName(node.getName())
-                                            .build());
-                                    return aDo;
-                                });
-
-                        deviceRepository.updateByPrimaryKey(deviceDO.getId(), DeviceDO.builder()
-                                .ip(node.getIp())
-                                .status(DeviceStatus.ONLINE.getStatus())
-                                .lastOnlineTime(DateUtil.date())
-                                .build());
-
-                    });
+                    try {
+                        inventorySync.syncNodes(nodes);
+                    } catch (Exception ex) {
+                        log.error("sync node fail!", ex);
+                    }
                     return null;
                 });
             } catch (Exception e) {
@@ -163,52 +172,19 @@ public class CollectorTimer implements BeanPostProcessor, InitializingBean {
     private void podCollect(PodCollector collector) {
         timer.newTimeout(timeout -> {
             try {
-                List<DeviceNodeDO> nodes = deviceNodeRepository.selectList(DeviceNodeDO.builder().build());
-                for (DeviceNodeDO node : nodes) {
-                    CompletableFuture<List<Pod>> future = collector.collect(Query.builder()
-                            .nodeName(node.getNodeName()).build());
-
-                    QueryWrapper<DeviceDO> queryWrapper = QueryWrapperBuilder.build();
-                    queryWrapper.lambda().eq(DeviceDO::getType, DeviceType.POD.getCode());
-                    deviceMapper.update(DeviceDO.builder().lastPingTime(DateUtil.date()).build(), queryWrapper);
-
-                    future.handle((pods, e) -> {
-                        if (e != null) {
-                            log.error("collect pod fail!", e);
-                            return null;
-                        }
-                        pods.forEach(pod -> {
-                            Long deviceId = devicePodRepository.selectByNameAndNamespace(pod.getNamespace(), pod.getName())
-                                    .map(DevicePodDO::getDeviceId)
-                                    .orElseGet(() -> {
-                                        // insert device pod
-                                        Long id = deviceRepository.insert(DeviceDO.builder()
-                                                .hostname(pod.getName())
-                                                .ip(pod.getIp())
-                                                .status(DeviceStatus.ONLINE.getStatus())
-                                                .lastOnlineTime(DateUtil.date())
-                                                .type(DeviceType.POD.getCode())
-                                                .build());
-
-                                        devicePodRepository.insert(DevicePodDO.builder()
-                                                .nodeId(node.getId())
-                                                .namespace(pod.getNamespace())
-                                                .podName(pod.getName())
-                                                .podIp(pod.getIp())
-                                                .deviceId(id)
-                                                .build());
-                                        return id;
-                                    });
-
-                            deviceRepository.updateByPrimaryKey(deviceId, DeviceDO.builder()
-                                    .status(DeviceStatus.ONLINE.getStatus())
-                                    .lastOnlineTime(DateUtil.date())
-                                    .build());
-                        });
+                collector.collectAll(Query.builder().build()).handle((pods, e) -> {
+                    if (e != null) {
+                        log.error("collect pod fail!", e);
                         return null;
-                    });
-                }
-
+                    }
+                    containersFromPods = pods.stream().anyMatch(pod -> pod.getContainers() != null);
+                    try {
+                        inventorySync.syncPods(pods, true);
+                    } catch (Exception ex) {
+                        log.error("sync pod fail!", ex);
+                    }
+                    return null;
+                });
             } catch (Exception e) {
                 log.error(e.getMessage(), e);
             }
@@ -218,30 +194,24 @@ public class CollectorTimer implements BeanPostProcessor, InitializingBean {
 
     private void containerCollect(ContainerCollector collector) {
         timer.newTimeout(timeout -> {
-            try {
-                List<DevicePodDO> devicePods = devicePodRepository.selectList(DevicePodDO.builder().build());
-                for (DevicePodDO devicePod : devicePods) {
-                    CompletableFuture<List<Container>> future = collector.collect(Query.builder()
-                            .podName(devicePod.getPodName()).build());
-                    future.handle((containers, e) -> {
+            // containers already came with the pod list
+            if (!containersFromPods) {
+                try {
+                    collector.collectAll(Query.builder().build()).handle((containers, e) -> {
                         if (e != null) {
                             log.error("collect container fail!", e);
                             return null;
                         }
-                        List<ContainerBO> list = containers.stream().map(container ->
-                                ContainerBO.builder()
-                                        .containerId(container.getContainerId())
-                                        .containerName(container.getName())
-                                        .build()
-                        ).collect(Collectors.toList());
-
-                        devicePodRepository.updateByPrimaryKey(devicePod.getId(),
-                                DevicePodDO.builder().containers(JsonUtils.writeValueAsString(list)).build());
+                        try {
+                            inventorySync.syncContainers(containers);
+                        } catch (Exception ex) {
+                            log.error("sync container fail!", ex);
+                        }
                         return null;
                     });
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
                 }
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
             }
             containerCollect(collector);
         }, period, TimeUnit.SECONDS);
@@ -252,25 +222,25 @@ public class CollectorTimer implements BeanPostProcessor, InitializingBean {
         ScheduledExecutorService scheduledExecutorService = new ScheduledThreadPoolExecutor(1);
 
         scheduledExecutorService.scheduleAtFixedRate(() -> {
-            deviceRepository.selectMachines(DeviceDO.builder()
-                    .type(DeviceType.NODE.getCode())
-                    .status(DeviceStatus.ONLINE.getStatus())
-                    .build())
-                    .stream()
-                    .filter(deviceDO -> DateUtil.date().offset(DateField.MINUTE, -1).after(deviceDO.getLastOnlineTime()))
-                    .forEach(deviceDO -> deviceRepository.updateByPrimaryKey(deviceDO.getId(), DeviceDO.builder()
-                            .status(DeviceStatus.OFFLINE.getStatus())
-                            .build()));
-
-            deviceRepository.selectMachines(DeviceDO.builder()
-                    .type(DeviceType.POD.getCode())
-                    .status(DeviceStatus.ONLINE.getStatus())
-                    .build())
-                    .stream()
-                    .filter(deviceDO -> DateUtil.date().offset(DateField.MINUTE, -1).after(deviceDO.getLastOnlineTime()))
-                    .forEach(deviceDO -> deviceRepository.updateByPrimaryKey(deviceDO.getId(), DeviceDO.builder()
-                            .status(DeviceStatus.OFFLINE.getStatus())
-                            .build()));
+            try {
+                for (DeviceType deviceType : new DeviceType[]{DeviceType.NODE, DeviceType.POD}) {
+                    List<Long> offline = deviceRepository.selectMachines(DeviceDO.builder()
+                            .type(deviceType.getCode())
+                            .status(DeviceStatus.ONLINE.getStatus())
+                            .build())
+                            .stream()
+                            .filter(deviceDO -> DateUtil.date().offset(DateField.MINUTE, -1).after(deviceDO.getLastOnlineTime()))
+                            .map(DeviceDO::getId)
+                            .collect(Collectors.toList());
+
+                    CollUtil.split(offline, 1000).forEach(batch ->
+                            deviceRepository.updateByIds(batch, DeviceDO.builder()
+                                    .status(DeviceStatus.OFFLINE.getStatus())
+                                    .build()));
+                }
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
 
         }, 30, 30, TimeUnit.SECONDS);
 
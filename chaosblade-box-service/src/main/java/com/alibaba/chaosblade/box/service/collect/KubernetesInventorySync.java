@@ -0,0 +1,570 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.collect;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import com.alibaba.chaosblade.box.collector.model.Container;
+import com.alibaba.chaosblade.box.collector.model.Node;
+import com.alibaba.chaosblade.box.collector.model.Pod;
+import com.alibaba.chaosblade.box.common.enums.DeviceStatus;
+import com.alibaba.chaosblade.box.common.enums.DeviceType;
+import com.alibaba.chaosblade.box.common.utils.JsonUtils;
+import com.alibaba.chaosblade.box.dao.model.DeviceDO;
+import com.alibaba.chaosblade.box.dao.model.DeviceNodeDO;
+import com.alibaba.chaosblade.box.dao.model.DevicePodDO;
+import com.alibaba.chaosblade.box.dao.repository.DeviceNodeRepository;
+import com.alibaba.chaosblade.box.dao.repository.DevicePodRepository;
+import com.alibaba.chaosblade.box.dao.repository.DeviceRepository;
+import com.alibaba.chaosblade.box.service.model.device.ContainerBO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Diffs the collector result against the stored inventory, loaded once per cycle,
+ * and applies inserted / updated / removed sets with batched statements.
+ * Watch events are buffered by object uid, the latest event of an object wins, and
+ * applied the same way every flushInterval ms or once flushSize events are pending.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class KubernetesInventorySync implements InitializingBean, DisposableBean {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Value("${chaos.collector.event.flushInterval:1000}")
+    private long flushInterval;
+
+    @Value("${chaos.collector.event.flushSize:500}")
+    private int flushSize;
+
+    private final Object flushLock = new Object();
+
+    private Map<String, Event<Node>> nodeEvents = new LinkedHashMap<>();
+
+    private Map<String, Event<Pod>> podEvents = new LinkedHashMap<>();
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private DeviceNodeRepository deviceNodeRepository;
+
+    @Autowired
+    private DevicePodRepository devicePodRepository;
+
+    public void syncNodes(List<Node> nodes) {
+        Map<String, DeviceDO> devices = deviceRepository.selectMachines(DeviceDO.builder()
+                .type(DeviceType.NODE.getCode()).build())
+                .stream()
+                .collect(Collectors.toMap(DeviceDO::getHostname, Function.identity(), (a, b) -> a));
+
+        Date now = DateUtil.date();
+        Map<String, Node> inserted = new LinkedHashMap<>();
+        List<DeviceDO> updated = new ArrayList<>();
+        Set<Long> present = new HashSet<>();
+        List<Long> online = new ArrayList<>();
+
+        for (Node node : nodes) {
+            DeviceDO deviceDO = devices.get(node.getName());
+            if (deviceDO == null) {
+                inserted.putIfAbsent(node.getName(), node);
+                continue;
+            }
+            if (!present.add(deviceDO.getId())) {
+                continue;
+            }
+            if (!Objects.equals(deviceDO.getIp(), node.getIp())) {
+                DeviceDO update = DeviceDO.builder().ip(node.getIp()).build();
+                update.setId(deviceDO.getId());
+                updated.add(update);
+            }
+            if (needOnline(deviceDO)) {
+                online.add(deviceDO.getId());
+            }
+        }
+
+        if (!inserted.isEmpty()) {
+            List<DeviceDO> deviceDOS = inserted.values().stream().map(node -> DeviceDO.builder()
+                    .hostname(node.getName())
+                    .ip(node.getIp())
+                    .status(DeviceStatus.ONLINE.getStatus())
+                    .lastOnlineTime(now)
+                    .lastPingTime(now)
+                    .type(DeviceType.NODE.getCode())
+                    .build()).collect(Collectors.toList());
+            deviceRepository.insertBatch(deviceDOS);
+            deviceNodeRepository.insertBatch(deviceDOS.stream().map(deviceDO -> DeviceNodeDO.builder()
+                    .deviceId(deviceDO.getId())
+                    .nodeIp(deviceDO.getIp())
+                    .nodeName(deviceDO.getHostname())
+                    .build()).collect(Collectors.toList()));
+        }
+
+        apply(devices.values(), present, updated, online, now);
+        log.debug("sync nodes, inserted: {}, updated: {}, present: {}", inserted.size(), updated.size(), present.size());
+    }
+
+    /**
+     * @param pods            collected pods
+     * @param complete        false if some nodes failed to collect, removed pods are not computed then
+     */
+    public void syncPods(List<Pod> pods, boolean complete) {
+        Map<Long, DeviceDO> devices = deviceRepository.selectMachines(DeviceDO.builder()
+                .type(DeviceType.POD.getCode()).build())
+                .stream()
+                .collect(Collectors.toMap(DeviceDO::getId, Function.identity()));
+        Map<String, DevicePodDO> devicePods = devicePodRepository.selectList(DevicePodDO.builder().build())
+                .stream()
+                .collect(Collectors.toMap(pod -> key(pod.getNamespace(), pod.getPodName()), Function.identity(), (a, b) -> a));
+        Map<String, Long> nodeIds = deviceNodeRepository.selectList(DeviceNodeDO.builder().build())
+                .stream()
+                .collect(Collectors.toMap(DeviceNodeDO::getNodeName, DeviceNodeDO::getId, (a, b) -> a));
+
+        Date now = DateUtil.date();
+        Map<String, Pod> inserted = new LinkedHashMap<>();
+        List<DeviceDO> updated = new ArrayList<>();
+        List<DevicePodDO> updatedPods = new ArrayList<>();
+        Set<Long> present = new HashSet<>();
+        List<Long> online = new ArrayList<>();
+
+        for (Pod pod : pods) {
+            String key = key(pod.getNamespace(), pod.getName());
+            DevicePodDO devicePodDO = devicePods.get(key);
+            if (devicePodDO == null) {
+                inserted.putIfAbsent(key, pod);
+                continue;
+            }
+            if (!present.add(devicePodDO.getDeviceId())) {
+                continue;
+            }
+
+            Long nodeId = nodeIds.get(pod.getNode());
+            DevicePodDO podUpdate = podUpdate(devicePodDO, pod, nodeId);
+            if (podUpdate != null) {
+                podUpdate.setId(devicePodDO.getId());
+                updatedPods.add(podUpdate);
+            }
+
+            DeviceDO deviceDO = devices.get(devicePodDO.getDeviceId());
+            if (deviceDO == null) {
+                continue;
+            }
+            if (!Objects.equals(deviceDO.getIp(), pod.getIp())) {
+                DeviceDO update = DeviceDO.builder().ip(pod.getIp()).build();
+                update.setId(deviceDO.getId());
+                updated.add(update);
+            }
+            if (needOnline(deviceDO)) {
+                online.add(deviceDO.getId());
+            }
+        }
+
+        if (!inserted.isEmpty()) {
+            List<Pod> insertedPods = new ArrayList<>(inserted.values());
+            List<DeviceDO> deviceDOS = insertedPods.stream().map(pod -> DeviceDO.builder()
+                    .hostname(pod.getName())
+                    .ip(pod.getIp())
+                    .status(DeviceStatus.ONLINE.getStatus())
+                    .lastOnlineTime(now)
+                    .lastPingTime(now)
+                    .type(DeviceType.POD.getCode())
+                    .build()).collect(Collectors.toList());
+            deviceRepository.insertBatch(deviceDOS);
+
+            List<DevicePodDO> devicePodDOS = new ArrayList<>(insertedPods.size());
+            for (int i = 0; i < insertedPods.size(); i++) {
+                Pod pod = insertedPods.get(i);
+                devicePodDOS.add(DevicePodDO.builder()
+                        .nodeId(nodeIds.get(pod.getNode()))
+                        .namespace(pod.getNamespace())
+                        .podName(pod.getName())
+                        .podIp(pod.getIp())
+                        .containers(containers(pod.getContainers()))
+                        .deviceId(deviceDOS.get(i).getId())
+                        .build());
+            }
+            devicePodRepository.insertBatch(devicePodDOS);
+        }
+
+        if (!updatedPods.isEmpty()) {
+            devicePodRepository.updateBatch(updatedPods);
+        }
+        apply(complete ? devices.values() : Collections.emptyList(), present, updated, online, now);
+        log.debug("sync pods, inserted: {}, updated: {}, present: {}", inserted.size(), updated.size(), present.size());
+    }
+
+    /**
+     * containers listed separately from pods, grouped by pod and written when changed
+     */
+    public void syncContainers(List<Container> containers) {
+        Map<String, List<Container>> podContainers = containers.stream()
+                .collect(Collectors.groupingBy(container -> key(container.getNamespace(), container.getPod())));
+
+        List<DevicePodDO> updatedPods = new ArrayList<>();
+        for (DevicePodDO devicePodDO : devicePodRepository.selectList(DevicePodDO.builder().build())) {
+            String json = containers(podContainers.getOrDefault(key(devicePodDO.getNamespace(), devicePodDO.getPodName()),
+                    Collections.emptyList()));
+            if (!Objects.equals(json, devicePodDO.getContainers())) {
+                DevicePodDO update = DevicePodDO.builder().containers(json).build();
+                update.setId(devicePodDO.getId());
+                updatedPods.add(update);
+            }
+        }
+        if (!updatedPods.isEmpty()) {
+            devicePodRepository.updateBatch(updatedPods);
+        }
+        log.debug("sync containers, updated pods: {}", updatedPods.size());
+    }
+
+    public void upsertNode(Node node) {
+        buffer(nodeEvents, nodeKey(node), new Event<>(node, false));
+    }
+
+    public void removeNode(Node node) {
+        buffer(nodeEvents, nodeKey(node), new Event<>(node, true));
+    }
+
+    public void upsertPod(Pod pod) {
+        buffer(podEvents, podKey(pod), new Event<>(pod, false));
+    }
+
+    public void removePod(Pod pod) {
+        buffer(podEvents, podKey(pod), new Event<>(pod, true));
+    }
+
+    private <T> void buffer(Map<String, Event<T>> events, String key, Event<T> event) {
+        boolean full;
+        synchronized (this) {
+            // the latest event of an object wins
+            events.remove(key);
+            events.put(key, event);
+            full = nodeEvents.size() + podEvents.size() >= flushSize;
+        }
+        if (full) {
+            scheduledExecutorService.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * apply all buffered watch events, removals before upserts
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<String, Event<Node>> nodes;
+            Map<String, Event<Pod>> pods;
+            synchronized (this) {
+                if (nodeEvents.isEmpty() && podEvents.isEmpty()) {
+                    return;
+                }
+                nodes = nodeEvents;
+                pods = podEvents;
+                nodeEvents = new LinkedHashMap<>();
+                podEvents = new LinkedHashMap<>();
+            }
+            if (!nodes.isEmpty()) {
+                applyNodeEvents(nodes.values());
+            }
+            if (!pods.isEmpty()) {
+                applyPodEvents(pods.values());
+            }
+            log.debug("flush watch events, nodes: {}, pods: {}", nodes.size(), pods.size());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("flush watch events fail!", e);
+        }
+    }
+
+    private void applyNodeEvents(Collection<Event<Node>> events) {
+        Map<String, DeviceDO> devices = deviceRepository.selectMachines(DeviceDO.builder()
+                .type(DeviceType.NODE.getCode()).build())
+                .stream()
+                .collect(Collectors.toMap(DeviceDO::getHostname, Function.identity(), (a, b) -> a));
+
+        Date now = DateUtil.date();
+        List<Long> offline = new ArrayList<>();
+        Map<String, Node> inserted = new LinkedHashMap<>();
+        Map<Long, DeviceDO> updated = new LinkedHashMap<>();
+        for (Event<Node> event : events) {
+            Node node = event.object;
+            DeviceDO deviceDO = devices.get(node.getName());
+            if (event.deleted) {
+                if (deviceDO != null && DeviceStatus.ONLINE.getStatus() == deviceDO.getStatus()) {
+                    offline.add(deviceDO.getId());
+                }
+            } else if (deviceDO == null) {
+                inserted.put(node.getName(), node);
+            } else {
+                updated.put(deviceDO.getId(), touch(deviceDO, node.getIp(), now));
+            }
+        }
+        offline.removeAll(updated.keySet());
+
+        CollUtil.split(offline, BATCH_SIZE).forEach(batch ->
+                deviceRepository.updateByIds(batch, DeviceDO.builder()
+                        .status(DeviceStatus.OFFLINE.getStatus())
+                        .build()));
+        if (!updated.isEmpty()) {
+            deviceRepository.updateBatch(updated.values());
+        }
+        if (!inserted.isEmpty()) {
+            List<DeviceDO> deviceDOS = inserted.values().stream().map(node -> DeviceDO.builder()
+                    .hostname(node.getName())
+                    .ip(node.getIp())
+                    .status(DeviceStatus.ONLINE.getStatus())
+                    .lastOnlineTime(now)
+                    .lastPingTime(now)
+                    .type(DeviceType.NODE.getCode())
+                    .build()).collect(Collectors.toList());
+            deviceRepository.insertBatch(deviceDOS);
+            deviceNodeRepository.insertBatch(deviceDOS.stream().map(deviceDO -> DeviceNodeDO.builder()
+                    .deviceId(deviceDO.getId())
+                    .nodeIp(deviceDO.getIp())
+                    .nodeName(deviceDO.getHostname())
+                    .build()).collect(Collectors.toList()));
+        }
+    }
+
+    private void applyPodEvents(Collection<Event<Pod>> events) {
+        Map<String, DevicePodDO> devicePods = devicePodRepository.selectList(DevicePodDO.builder().build())
+                .stream()
+                .collect(Collectors.toMap(pod -> key(pod.getNamespace(), pod.getPodName()), Function.identity(), (a, b) -> a));
+        Map<String, Long> nodeIds = deviceNodeRepository.selectList(DeviceNodeDO.builder().build())
+                .stream()
+                .collect(Collectors.toMap(DeviceNodeDO::getNodeName, DeviceNodeDO::getId, (a, b) -> a));
+
+        Set<Long> deviceIds = new HashSet<>();
+        for (Event<Pod> event : events) {
+            DevicePodDO devicePodDO = devicePods.get(key(event.object.getNamespace(), event.object.getName()));
+            if (devicePodDO != null) {
+                deviceIds.add(devicePodDO.getDeviceId());
+            }
+        }
+        Map<Long, DeviceDO> devices = new HashMap<>();
+        CollUtil.split(deviceIds, BATCH_SIZE).forEach(batch ->
+                deviceRepository.selectBatchIds(batch).forEach(deviceDO -> devices.put(deviceDO.getId(), deviceDO)));
+
+        Date now = DateUtil.date();
+        List<Long> offline = new ArrayList<>();
+        Map<String, Pod> inserted = new LinkedHashMap<>();
+        Map<Long, DeviceDO> updated = new LinkedHashMap<>();
+        Map<Long, DevicePodDO> updatedPods = new LinkedHashMap<>();
+        for (Event<Pod> event : events) {
+            Pod pod = event.object;
+            String key = key(pod.getNamespace(), pod.getName());
+            DevicePodDO devicePodDO = devicePods.get(key);
+            DeviceDO deviceDO = devicePodDO == null ? null : devices.get(devicePodDO.getDeviceId());
+            if (event.deleted) {
+                if (deviceDO != null && DeviceStatus.ONLINE.getStatus() == deviceDO.getStatus()) {
+                    offline.add(deviceDO.getId());
+                }
+                continue;
+            }
+            if (devicePodDO == null) {
+                inserted.put(key, pod);
+                continue;
+            }
+            DevicePodDO podUpdate = podUpdate(devicePodDO, pod, pod.getNode() == null ? null : nodeIds.get(pod.getNode()));
+            if (podUpdate != null) {
+                podUpdate.setId(devicePodDO.getId());
+                updatedPods.put(podUpdate.getId(), podUpdate);
+            }
+            if (deviceDO != null) {
+                updated.put(deviceDO.getId(), touch(deviceDO, pod.getIp(), now));
+            }
+        }
+        offline.removeAll(updated.keySet());
+
+        CollUtil.split(offline, BATCH_SIZE).forEach(batch ->
+                deviceRepository.updateByIds(batch, DeviceDO.builder()
+                        .status(DeviceStatus.OFFLINE.getStatus())
+                        .build()));
+        if (!updatedPods.isEmpty()) {
+            devicePodRepository.updateBatch(updatedPods.values());
+        }
+        if (!updated.isEmpty()) {
+            deviceRepository.updateBatch(updated.values());
+        }
+        if (!inserted.isEmpty()) {
+            List<Pod> insertedPods = new ArrayList<>(inserted.values());
+            List<DeviceDO> deviceDOS = insertedPods.stream().map(pod -> DeviceDO.builder()
+                    .hostname(pod.getName())
+                    .ip(pod.getIp())
+                    .status(DeviceStatus.ONLINE.getStatus())
+                    .lastOnlineTime(now)
+                    .lastPingTime(now)
+                    .type(DeviceType.POD.getCode())
+                    .build()).collect(Collectors.toList());
+            deviceRepository.insertBatch(deviceDOS);
+
+            List<DevicePodDO> devicePodDOS = new ArrayList<>(insertedPods.size());
+            for (int i = 0; i < insertedPods.size(); i++) {
+                Pod pod = insertedPods.get(i);
+                devicePodDOS.add(DevicePodDO.builder()
+                        .nodeId(pod.getNode() == null ? null : nodeIds.get(pod.getNode()))
+                        .namespace(pod.getNamespace())
+                        .podName(pod.getName())
+                        .podIp(pod.getIp())
+                        .containers(containers(pod.getContainers()))
+                        .deviceId(deviceDOS.get(i).getId())
+                        .build());
+            }
+            devicePodRepository.insertBatch(devicePodDOS);
+        }
+    }
+
+    private DeviceDO touch(DeviceDO deviceDO, String ip, Date now) {
+        DeviceDO update = DeviceDO.builder()
+                .lastPingTime(now)
+                .lastOnlineTime(now)
+                .build();
+        update.setId(deviceDO.getId());
+        if (!Objects.equals(deviceDO.getIp(), ip)) {
+            update.setIp(ip);
+        }
+        if (needOnline(deviceDO)) {
+            update.setStatus(DeviceStatus.ONLINE.getStatus());
+        }
+        return update;
+    }
+
+    private static String nodeKey(Node node) {
+        return node.getUid() != null ? node.getUid() : node.getName();
+    }
+
+    private static String podKey(Pod pod) {
+        return pod.getUid() != null ? pod.getUid() : key(pod.getNamespace(), pod.getName());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("Inventory-sync-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutorService.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduledExecutorService.shutdown();
+        flushQuietly();
+    }
+
+    private static class Event<T> {
+
+        private final T object;
+
+        private final boolean deleted;
+
+        private Event(T object, boolean deleted) {
+            this.object = object;
+            this.deleted = deleted;
+        }
+    }
+
+    private void apply(Collection<DeviceDO> devices, Set<Long> present, List<DeviceDO> updated, List<Long> online, Date now) {
+        if (!updated.isEmpty()) {
+            deviceRepository.updateBatch(updated);
+        }
+
+        CollUtil.split(present, BATCH_SIZE).forEach(batch ->
+                deviceRepository.updateByIds(batch, DeviceDO.builder()
+                        .lastPingTime(now)
+                        .lastOnlineTime(now)
+                        .build()));
+
+        CollUtil.split(online, BATCH_SIZE).forEach(batch ->
+                deviceRepository.updateByIds(batch, DeviceDO.builder()
+                        .status(DeviceStatus.ONLINE.getStatus())
+                        .build()));
+
+        // ONLINE -> OFFLINE, no longer reported by the collector
+        List<Long> removed = devices.stream()
+                .filter(deviceDO -> DeviceStatus.ONLINE.getStatus() == deviceDO.getStatus())
+                .map(DeviceDO::getId)
+                .filter(id -> !present.contains(id))
+                .collect(Collectors.toList());
+        CollUtil.split(removed, BATCH_SIZE).forEach(batch ->
+                deviceRepository.updateByIds(batch, DeviceDO.builder()
+                        .status(DeviceStatus.OFFLINE.getStatus())
+                        .build()));
+    }
+
+    /**
+     * @return changed columns, null if nothing changed
+     */
+    private DevicePodDO podUpdate(DevicePodDO devicePodDO, Pod pod, Long nodeId) {
+        String containers = containers(pod.getContainers());
+        boolean containersChanged = containers != null && !containers.equals(devicePodDO.getContainers());
+        if (!Objects.equals(devicePodDO.getPodIp(), pod.getIp())
+                || (nodeId != null && !nodeId.equals(devicePodDO.getNodeId()))
+                || containersChanged) {
+            return DevicePodDO.builder()
+                    .podIp(pod.getIp())
+                    .nodeId(nodeId)
+                    .containers(containersChanged ? containers : null)
+                    .build();
+        }
+        return null;
+    }
+
+    private static String containers(List<Container> containers) {
+        if (containers == null) {
+            return null;
+        }
+        return JsonUtils.writeValueAsString(containers.stream().map(container ->
+                ContainerBO.builder()
+                        .containerId(container.getContainerId())
+                        .containerName(container.getName())
+                        .build()
+        ).collect(Collectors.toList()));
+    }
+
+    private boolean needOnline(DeviceDO deviceDO) {
+        return deviceDO.getStatus() == null
+                || (DeviceStatus.ONLINE.getStatus() != deviceDO.getStatus()
+                && DeviceStatus.FORBIDDEN.getStatus() != deviceDO.getStatus());
+    }
+
+    private static String key(String namespace, String name) {
+        return namespace + "/" + name;
+    }
+}
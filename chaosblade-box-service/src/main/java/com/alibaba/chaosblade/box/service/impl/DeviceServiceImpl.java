@@ -38,6 +38,7 @@ import com.alibaba.chaosblade.box.service.model.device.*;
 import com.alibaba.chaosblade.box.dao.page.PageUtils;
 import com.alibaba.chaosblade.box.service.model.tools.ToolsResponse;
 import com.alibaba.chaosblade.box.service.probes.ProbesInstallSuccessEvent;
+import com.alibaba.chaosblade.box.service.probes.heartbeats.HeartbeatRegistry;
 import com.alibaba.chaosblade.box.service.probes.heartbeats.Heartbeats;
 import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.extern.slf4j.Slf4j;
@@ -90,6 +91,9 @@ public class DeviceServiceImpl implements DeviceService {
     @Autowired
     private Heartbeats heartbeats;
 
+    @Autowired
+    private HeartbeatRegistry heartbeatRegistry;
+
     @Autowired
     private ApplicationContext applicationContext;
 
@@ -162,13 +166,15 @@ public class DeviceServiceImpl implements DeviceService {
 
                 try {
                     long id = Long.parseLong(deviceRegisterRequest.getAgentId());
-                    probesRepository.updateByPrimaryKey(id,
-                            ProbesDO.builder()
-                                    .deviceId(deviceId)
-                                    .hostname(deviceRegisterRequest.getHostName())
-                                    .status(DeviceStatus.ONLINE.getStatus())
-                                    .version(deviceRegisterRequest.getAgentVersion())
-                                    .build());
+                    ProbesDO probes = ProbesDO.builder()
+                            .deviceId(deviceId)
+                            .hostname(deviceRegisterRequest.getHostName())
+                            .status(DeviceStatus.ONLINE.getStatus())
+                            .version(deviceRegisterRequest.getAgentVersion())
+                            .build();
+                    probesRepository.updateByPrimaryKey(id, probes);
+                    probes.setIp(deviceRegisterRequest.getIp());
+                    heartbeats.addHeartbeats(probes, DeviceStatus.ONLINE.getStatus());
                 } catch (NumberFormatException e) {
                     ProbesDO probes = ProbesDO.builder()
                             .ip(deviceRegisterRequest.getIp())
@@ -183,7 +189,7 @@ public class DeviceServiceImpl implements DeviceService {
                             .ip(deviceRegisterRequest.getIp())
                             .build();
                     probesRepository.insert(probes);
-                    heartbeats.addHeartbeats(probes);
+                    heartbeats.addHeartbeats(probes, DeviceStatus.ONLINE.getStatus());
                 }
                 applicationContext.publishEvent(new ProbesInstallSuccessEvent(deviceId));
                 break;
@@ -208,6 +214,14 @@ public class DeviceServiceImpl implements DeviceService {
         }
     }
 
+    @Override
+    public void deviceHeartbeat(DeviceHeartbeatRequest deviceHeartbeatRequest) {
+        if (!heartbeats.receiveHeartbeats(deviceHeartbeatRequest.getAgentId(), deviceHeartbeatRequest.getIp())) {
+            log.debug("heartbeat from unregistered agent, agentId: {}, ip: {}",
+                    deviceHeartbeatRequest.getAgentId(), deviceHeartbeatRequest.getIp());
+        }
+    }
+
     @Override
     public List<DeviceResponse> getMachinesForHost(DeviceRequest deviceRequest) {
         if (deviceRequest.getProbeId() != null) {
@@ -406,6 +420,7 @@ public class DeviceServiceImpl implements DeviceService {
         deviceRepository.updateByPrimaryKey(deviceRequest.getDeviceId(), DeviceDO.builder()
                 .status(DeviceStatus.FORBIDDEN.getStatus())
                 .build());
+        heartbeatRegistry.updateDeviceStatus(deviceRequest.getDeviceId(), DeviceStatus.FORBIDDEN.getStatus());
 
         return getMachinesById(deviceRequest);
     }
@@ -415,15 +430,12 @@ public class DeviceServiceImpl implements DeviceService {
         DeviceDO deviceDO = deviceRepository.selectById(deviceRequest.getDeviceId())
                 .orElseThrow(() -> new BizException(DEVICE_NOT_FOUNT));
 
-        if (DateUtil.date().offset(DateField.MINUTE, -1).after(deviceDO.getLastOnlineTime())) {
-            deviceRepository.updateByPrimaryKey(deviceRequest.getDeviceId(), DeviceDO.builder()
-                    .status(DeviceStatus.OFFLINE.getStatus())
-                    .build());
-        } else {
-            deviceRepository.updateByPrimaryKey(deviceRequest.getDeviceId(), DeviceDO.builder()
-                    .status(DeviceStatus.ONLINE.getStatus())
-                    .build());
-        }
+        byte status = DateUtil.date().offset(DateField.MINUTE, -1).after(deviceDO.getLastOnlineTime())
+                ? DeviceStatus.OFFLINE.getStatus() : DeviceStatus.ONLINE.getStatus();
+        deviceRepository.updateByPrimaryKey(deviceRequest.getDeviceId(), DeviceDO.builder()
+                .status(status)
+                .build());
+        heartbeatRegistry.updateDeviceStatus(deviceRequest.getDeviceId(), status);
 
         return getMachinesById(deviceRequest);
     }
@@ -16,7 +16,6 @@
 
 package com.alibaba.chaosblade.box.service.impl;
 
-import cn.hutool.core.date.DateField;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.EnumUtil;
 import cn.hutool.core.util.StrUtil;
@@ -32,12 +31,11 @@ import com.alibaba.chaosblade.box.common.enums.RunStatus;
 import com.alibaba.chaosblade.box.common.exception.BizException;
 import com.alibaba.chaosblade.box.common.exception.ExceptionMessageEnum;
 import com.alibaba.chaosblade.box.common.utils.JsonUtils;
-import com.alibaba.chaosblade.box.metric.MetricChartLineRequest;
-import com.alibaba.chaosblade.box.metric.MetricService;
 import com.alibaba.chaosblade.box.service.model.metric.MetricModel;
 import com.alibaba.chaosblade.box.service.task.ActivityTask;
 import com.alibaba.chaosblade.box.service.task.ActivityTaskExecuteContext;
 import com.alibaba.chaosblade.box.service.task.ActivityTaskExecutePipeline;
+import com.alibaba.chaosblade.box.service.task.MetricSamplingScheduler;
 import com.alibaba.chaosblade.box.service.task.log.i18n.TaskLogType;
 import com.alibaba.chaosblade.box.service.task.log.i18n.TaskLogUtil;
 import com.alibaba.chaosblade.box.dao.model.*;
@@ -49,8 +47,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import static com.alibaba.chaosblade.box.common.enums.RunStatus.FINISHED;
 import static com.alibaba.chaosblade.box.common.exception.ExceptionMessageEnum.EXPERIMENT_TASK_NOT_FOUNT;
@@ -69,10 +65,7 @@ public class ExperimentActivityTaskServiceImpl implements ExperimentActivityTask
     private ExperimentMiniFlowService experimentMiniFlowService;
 
     @Autowired
-    private MetricService metricService;
-
-    @Autowired
-    private MetricTaskRepository metricTaskRepository;
+    private MetricSamplingScheduler metricSamplingScheduler;
 
     @Autowired
     private DeviceRepository deviceRepository;
@@ -155,7 +148,8 @@ public class ExperimentActivityTaskServiceImpl implements ExperimentActivityTask
                     TaskLogUtil.info(logger, TaskLogType.START_METRIC, activityTask.getExperimentTaskId());
                     List<MetricModel> metricModels = JsonUtils.readValue(new TypeReference<List<MetricModel>>() {
                     }, metric);
-                    metricModels.forEach(metricModel -> metric(context, metricModel, activityTask));
+                    metricSamplingScheduler.start(activityTask.getExperimentTaskId(), activityTask.getDeviceMetas(),
+                            metricModels, logger);
                 } else {
                     TaskLogUtil.info(logger, TaskLogType.NO_METRIC, activityTask.getExperimentTaskId());
                 }
@@ -165,6 +159,10 @@ public class ExperimentActivityTaskServiceImpl implements ExperimentActivityTask
         // experiment after notify
         activityTaskExecuteContext.addExperimentTaskCompleteListener(pipeline, (context, activityTask, e) -> {
             Logger logger = context.getContextLogger();
+            // the task is over unless it pauses for a manual check, whatever the result
+            if (e != null || !Boolean.TRUE.equals(activityTask.getManualChecked())) {
+                metricSamplingScheduler.stop(activityTask.getExperimentTaskId());
+            }
             if (activityTask.isAttackPhase()) {
                 ExperimentTaskDO experimentTask = experimentTaskRepository.selectById(activityTask.getExperimentTaskId())
                         .orElseThrow(() -> new BizException(EXPERIMENT_TASK_NOT_FOUNT));
@@ -243,52 +241,4 @@ public class ExperimentActivityTaskServiceImpl implements ExperimentActivityTask
         activityTaskExecuteContext.fireExecute(pipeline);
     }
 
-    private void metric(ActivityTaskExecuteContext context, MetricModel metricModel, ActivityTask activityTask) {
-        Logger logger = context.getContextLogger();
-        context.timer().newTimeout(timeout -> {
-
-            metricService.selectChartLine(MetricChartLineRequest.builder()
-                    .devices(activityTask.getDeviceMetas())
-                    .startTime(DateUtil.date())
-                    .endTime(DateUtil.date().offset(DateField.SECOND, +10))
-                    .categoryCode(metricModel.getCode())
-                    .params(metricModel.getParams())
-                    .build())
-                    .handleAsync((r, e) -> {
-                        if (e != null) {
-                            TaskLogUtil.info(logger,
-                                    TaskLogType.GET_METRIC_ERROR,
-                                    activityTask.getExperimentTaskId(),
-                                    JsonUtils.writeValueAsString(activityTask.getDeviceMetas()),
-                                    e.getMessage());
-                        } else {
-                            metricTaskRepository.saveBatch(
-                                    r.stream().flatMap(v -> v.getMetricChartLines().stream().map(metricChartLine ->
-                                            MetricTaskDO.builder()
-                                                    .ip(v.getDeviceMeta().getIp())
-                                                    .deviceId(v.getDeviceMeta().getDeviceId())
-                                                    .hostname(v.getDeviceMeta().getHostname())
-                                                    .categoryId(metricModel.getCategoryId())
-                                                    .categoryCode(metricModel.getCode())
-                                                    .date(metricChartLine.getTime())
-                                                    .value(metricChartLine.getValue())
-                                                    .taskId(activityTask.getExperimentTaskId())
-                                                    .metric(v.getMetric())
-                                                    .build()
-                                    )).collect(Collectors.toList()));
-                        }
-                        return null;
-                    }, context.executor());
-
-
-            Byte status = experimentTaskRepository.selectById(activityTask.getExperimentTaskId())
-                    .map(ExperimentTaskDO::getRunStatus)
-                    .orElseThrow(() -> new BizException(EXPERIMENT_TASK_NOT_FOUNT));
-            RunStatus runStatus = RunStatus.parse(status);
-            if (runStatus != FINISHED) {
-                metric(context, metricModel, activityTask);
-            }
-        }, 10, TimeUnit.SECONDS);
-    }
-
 }
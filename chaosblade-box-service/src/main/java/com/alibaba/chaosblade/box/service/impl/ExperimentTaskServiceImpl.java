@@ -23,6 +23,8 @@ import com.alibaba.chaosblade.box.service.ExperimentActivityService;
 import com.alibaba.chaosblade.box.service.ExperimentActivityTaskService;
 import com.alibaba.chaosblade.box.service.ExperimentMiniFlowService;
 import com.alibaba.chaosblade.box.service.ExperimentTaskService;
+import com.alibaba.chaosblade.box.service.logback.TaskLogWriter;
+import com.alibaba.chaosblade.box.service.task.MetricSamplingScheduler;
 import com.alibaba.chaosblade.box.common.DeviceMeta;
 import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
 import com.alibaba.chaosblade.box.common.enums.ExperimentDeviceStatus;
@@ -32,6 +34,7 @@ import com.alibaba.chaosblade.box.common.exception.BizException;
 import com.alibaba.chaosblade.box.common.exception.ExceptionMessageEnum;
 import com.alibaba.chaosblade.box.service.model.experiment.ExperimentDevice;
 import com.alibaba.chaosblade.box.service.model.experiment.ExperimentRequest;
+import com.alibaba.chaosblade.box.service.model.experiment.ExperimentTaskLogResponse;
 import com.alibaba.chaosblade.box.service.model.experiment.ExperimentTaskRequest;
 import com.alibaba.chaosblade.box.service.model.experiment.ExperimentTaskResponse;
 import com.alibaba.chaosblade.box.service.model.experiment.activity.ExperimentActivity;
@@ -55,6 +58,10 @@ import static com.alibaba.chaosblade.box.common.exception.ExceptionMessageEnum.E
 @Service
 public class ExperimentTaskServiceImpl implements ExperimentTaskService {
 
+    private static final int DEFAULT_LOG_LIMIT = 200;
+
+    private static final int MAX_LOG_LIMIT = 1000;
+
     @Autowired
     private ExperimentRepository experimentRepository;
 
@@ -79,6 +86,12 @@ public class ExperimentTaskServiceImpl implements ExperimentTaskService {
     @Autowired
     private ExperimentActivityTaskRecordRepository experimentActivityTaskRecordRepository;
 
+    @Autowired
+    private TaskLogWriter taskLogWriter;
+
+    @Autowired
+    private MetricSamplingScheduler metricSamplingScheduler;
+
     @Override
     public ExperimentTaskResponse createExperimentTask(Long experimentId) {
         ExperimentDO experimentDO = experimentRepository.selectById(experimentId)
@@ -179,6 +192,10 @@ public class ExperimentTaskServiceImpl implements ExperimentTaskService {
         List<ExperimentActivityTaskDO> recovers = experimentActivityTasks.stream()
                 .filter(experimentActivityTaskDO -> experimentActivityTaskDO.getPhase().equals(ChaosConstant.PHASE_RECOVER))
                 .collect(Collectors.toList());
+        if (recovers.isEmpty()) {
+            // no recover phase whose completion would end sampling
+            metricSamplingScheduler.stop(taskId);
+        }
 
         experimentActivityTaskService.executeActivityTasks(recovers, experimentTaskDO);
     }
@@ -252,6 +269,36 @@ public class ExperimentTaskServiceImpl implements ExperimentTaskService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public ExperimentTaskLogResponse queryTaskLogByCursor(ExperimentTaskRequest experimentRequest) {
+        int limit = experimentRequest.getLimit() == null ? DEFAULT_LOG_LIMIT
+                : Math.min(Math.max(experimentRequest.getLimit(), 1), MAX_LOG_LIMIT);
+        List<ExperimentTaskLogDO> experimentTaskLogs = experimentTaskLogRepository.selectByTaskId(
+                experimentRequest.getTaskId(), experimentRequest.getAfterId(), limit);
+
+        boolean finished = false;
+        if (experimentTaskLogs.isEmpty()) {
+            finished = experimentTaskRepository.selectById(experimentRequest.getTaskId())
+                    .map(experimentTaskDO -> experimentTaskDO.getRunStatus() == RunStatus.FINISHED.getValue())
+                    .orElseThrow(() -> new BizException(EXPERIMENT_TASK_NOT_FOUNT))
+                    && taskLogWriter.drained(experimentRequest.getTaskId());
+            if (finished) {
+                // the last rows may have been inserted after the first select
+                experimentTaskLogs = experimentTaskLogRepository.selectByTaskId(
+                        experimentRequest.getTaskId(), experimentRequest.getAfterId(), limit);
+                finished = experimentTaskLogs.isEmpty();
+            }
+        }
+
+        Long lastId = experimentTaskLogs.isEmpty() ? experimentRequest.getAfterId()
+                : experimentTaskLogs.get(experimentTaskLogs.size() - 1).getId();
+        return ExperimentTaskLogResponse.builder()
+                .logs(experimentTaskLogs.stream().map(ExperimentTaskLogDO::getContent).collect(Collectors.toList()))
+                .lastId(lastId)
+                .finished(finished)
+                .build();
+    }
+
     @Override
     public ExperimentTaskResponse failRetryExperiment(ExperimentTaskRequest experimentRequest) {
         Long taskId = experimentRequest.getTask().getTaskId();
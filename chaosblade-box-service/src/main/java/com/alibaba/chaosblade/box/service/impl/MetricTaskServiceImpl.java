@@ -17,7 +17,13 @@
 package com.alibaba.chaosblade.box.service.impl;
 
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.chaosblade.box.dao.model.MetricBlockDO;
+import com.alibaba.chaosblade.box.dao.model.MetricSeriesDO;
+import com.alibaba.chaosblade.box.dao.repository.MetricBlockRepository;
 import com.alibaba.chaosblade.box.dao.repository.MetricCategoryRepository;
+import com.alibaba.chaosblade.box.dao.repository.MetricSeriesRepository;
 import com.alibaba.chaosblade.box.service.ExperimentMiniFlowService;
 import com.alibaba.chaosblade.box.common.DeviceMeta;
 import com.alibaba.chaosblade.box.common.exception.BizException;
@@ -25,6 +31,8 @@ import com.alibaba.chaosblade.box.common.exception.ExceptionMessageEnum;
 import com.alibaba.chaosblade.box.service.model.metric.MetricModel;
 import com.alibaba.chaosblade.box.service.model.metric.MetricParam;
 import com.alibaba.chaosblade.box.common.utils.JsonUtils;
+import com.alibaba.chaosblade.box.metric.MetricDownsampler;
+import com.alibaba.chaosblade.box.metric.MetricValues;
 import com.alibaba.chaosblade.box.dao.model.ExperimentTaskDO;
 import com.alibaba.chaosblade.box.dao.model.MetricCategoryDO;
 import com.alibaba.chaosblade.box.dao.model.MetricTaskDO;
@@ -35,14 +43,13 @@ import com.alibaba.chaosblade.box.service.model.metric.MetricCategoryResponse;
 import com.alibaba.chaosblade.box.service.model.metric.MetricTask;
 import com.alibaba.chaosblade.box.service.model.metric.MetricTaskRequest;
 import com.alibaba.chaosblade.box.service.model.metric.MetricTaskResponse;
+import com.alibaba.chaosblade.box.service.task.MetricBlockCodec;
 import com.fasterxml.jackson.core.type.TypeReference;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -63,6 +70,12 @@ public class MetricTaskServiceImpl implements MetricTaskService {
     @Autowired
     private MetricCategoryRepository metricCategoryRepository;
 
+    @Autowired
+    private MetricSeriesRepository metricSeriesRepository;
+
+    @Autowired
+    private MetricBlockRepository metricBlockRepository;
+
     @Override
     public List<MetricCategoryResponse> selectByTaskId(MetricTaskRequest metricTaskRequest) {
 
@@ -73,7 +86,32 @@ public class MetricTaskServiceImpl implements MetricTaskService {
         List<MetricModel> metricModels = JsonUtils.readValue(new TypeReference<List<MetricModel>>() {
         }, metric);
 
-        List<DeviceMeta> deviceMetas = experimentMiniFlowService.selectExperimentDevice(experimentTaskDO.getExperimentId());
+        int maxPoints = Optional.ofNullable(metricTaskRequest.getMaxPoints()).orElse(0);
+        MetricDownsampler.Mode mode = MetricDownsampler.Mode.parse(metricTaskRequest.getDownsample());
+
+        List<MetricSeriesDO> series = metricSeriesRepository.selectByTaskId(metricTaskRequest.getTaskId());
+        Function<MetricModel, List<MetricTaskResponse>> metricTasks;
+        if (series.isEmpty()) {
+            // sampled before series storage
+            List<DeviceMeta> deviceMetas = experimentMiniFlowService.selectExperimentDevice(experimentTaskDO.getExperimentId());
+            Map<String, List<MetricTaskResponse>> responses = selectMetricTasks(metricTaskRequest,
+                    metricModels.stream().map(MetricModel::getCode).collect(Collectors.toList()), deviceMetas,
+                    maxPoints, mode);
+            metricTasks = metricModel -> responses.getOrDefault(metricModel.getCode(), Collections.emptyList());
+        } else {
+            Map<Long, Samples> samples = selectSamples(metricTaskRequest);
+            metricTasks = metricModel -> series.stream()
+                    .filter(metricSeriesDO -> metricSeriesDO.getCategoryCode().equals(metricModel.getCode()))
+                    .filter(metricSeriesDO -> samples.containsKey(metricSeriesDO.getId()))
+                    .map(metricSeriesDO -> MetricTaskResponse.builder()
+                            .hostname(metricSeriesDO.getHostname())
+                            .ip(metricSeriesDO.getIp())
+                            .taskId(metricTaskRequest.getTaskId())
+                            .metric(metricSeriesDO.getMetric())
+                            .metrics(samples.get(metricSeriesDO.getId()).toMetricTasks(maxPoints, mode))
+                            .build())
+                    .collect(Collectors.toList());
+        }
 
         return metricModels.stream().map(metricModel ->
                 MetricCategoryResponse.builder()
@@ -86,34 +124,87 @@ public class MetricTaskServiceImpl implements MetricTaskService {
                                         .value(metricModel.getParams().get(k))
                                         .build()
                         ).collect(Collectors.toList()))
-                        .metricTask(deviceMetas.stream().flatMap(deviceMeta -> {
-                                    List<MetricTaskDO> metricTaskDOS = metricTaskRepository
-                                            .selectByTaskIdAndCategory(metricTaskRequest.getTaskId(),
-                                                    deviceMeta.getDeviceId(),
-                                                    metricModel.getCode(),
-                                                    metricTaskRequest.getStartTime(),
-                                                    metricTaskRequest.getEndTime());
-
-                                    return metricTaskDOS.stream().collect(Collectors.groupingBy(MetricTaskDO::getMetric))
-                                            .entrySet()
-                                            .stream()
-                                            .map(e -> MetricTaskResponse.builder()
-                                                    .hostname(deviceMeta.getHostname())
-                                                    .ip(deviceMeta.getIp())
-                                                    .taskId(metricTaskRequest.getTaskId())
-                                                    .metric(e.getKey())
-                                                    .metrics(e.getValue().stream().map(metricTaskDO -> MetricTask.builder()
-                                                            .date(metricTaskDO.getDate())
-                                                            .value(metricTaskDO.getValue())
-                                                            .build()).collect(Collectors.toList()))
-                                                    .build());
-
-                                }
-                        ).collect(Collectors.toList()))
+                        .metricTask(metricTasks.apply(metricModel))
                         .build()
         ).collect(Collectors.toList());
     }
 
+    /**
+     * decode the sample blocks of a task in the requested range, by series id
+     */
+    private Map<Long, Samples> selectSamples(MetricTaskRequest metricTaskRequest) {
+        Date startTime = StrUtil.isNotBlank(metricTaskRequest.getStartTime()) ? DateUtil.parse(metricTaskRequest.getStartTime()) : null;
+        Date endTime = StrUtil.isNotBlank(metricTaskRequest.getEndTime()) ? DateUtil.parse(metricTaskRequest.getEndTime()) : null;
+        long start = startTime == null ? Long.MIN_VALUE : startTime.getTime();
+        long end = endTime == null ? Long.MAX_VALUE : endTime.getTime();
+
+        Map<Long, Samples> samples = new HashMap<>();
+        for (MetricBlockDO metricBlockDO : metricBlockRepository.selectByTaskId(metricTaskRequest.getTaskId(), startTime, endTime)) {
+            MetricBlockCodec.Decoder decoder = new MetricBlockCodec.Decoder(metricBlockDO.getStartTime().getTime(),
+                    metricBlockDO.getCount(), metricBlockDO.getData());
+            Samples series = samples.computeIfAbsent(metricBlockDO.getSeriesId(), k -> new Samples(false));
+            while (decoder.next()) {
+                long time = decoder.time();
+                if (time >= start && time <= end) {
+                    series.add(time, decoder.value(), null);
+                }
+            }
+        }
+        samples.values().removeIf(series -> series.size == 0);
+        return samples;
+    }
+
+    /**
+     * samples of all devices and categories in one query, rows arrive ordered by category
+     * and device so each (category, device) run is grouped by metric as it streams
+     */
+    private Map<String, List<MetricTaskResponse>> selectMetricTasks(MetricTaskRequest metricTaskRequest,
+                                                                    List<String> categoryCodes,
+                                                                    List<DeviceMeta> deviceMetas,
+                                                                    int maxPoints,
+                                                                    MetricDownsampler.Mode mode) {
+        Map<Long, DeviceMeta> devices = new HashMap<>();
+        deviceMetas.forEach(deviceMeta -> devices.putIfAbsent(deviceMeta.getDeviceId(), deviceMeta));
+
+        Map<String, List<MetricTaskResponse>> responses = new HashMap<>();
+        Map<String, Samples> run = new LinkedHashMap<>();
+        MetricTaskDO[] previous = new MetricTaskDO[1];
+        Runnable flush = () -> {
+            MetricTaskDO last = previous[0];
+            DeviceMeta deviceMeta = devices.get(last.getDeviceId());
+            List<MetricTaskResponse> list = responses.computeIfAbsent(last.getCategoryCode(), k -> new ArrayList<>());
+            run.forEach((metric, samples) -> list.add(MetricTaskResponse.builder()
+                    .hostname(deviceMeta.getHostname())
+                    .ip(deviceMeta.getIp())
+                    .taskId(metricTaskRequest.getTaskId())
+                    .metric(metric)
+                    .metrics(samples.toMetricTasks(maxPoints, mode))
+                    .build()));
+            run.clear();
+        };
+        metricTaskRepository.selectByTaskId(metricTaskRequest.getTaskId(), categoryCodes,
+                metricTaskRequest.getStartTime(), metricTaskRequest.getEndTime(), resultContext -> {
+                    MetricTaskDO metricTaskDO = resultContext.getResultObject();
+                    if (!devices.containsKey(metricTaskDO.getDeviceId())) {
+                        return;
+                    }
+                    MetricTaskDO last = previous[0];
+                    if (last != null && !(last.getCategoryCode().equals(metricTaskDO.getCategoryCode())
+                            && last.getDeviceId().equals(metricTaskDO.getDeviceId()))) {
+                        flush.run();
+                    }
+                    previous[0] = metricTaskDO;
+                    Double value = MetricValues.parse(metricTaskDO.getValue());
+                    run.computeIfAbsent(metricTaskDO.getMetric(), metric -> new Samples(true))
+                            .add(metricTaskDO.getDate().getTime(), value == null ? Double.NaN : value,
+                                    metricTaskDO.getValue());
+                });
+        if (previous[0] != null) {
+            flush.run();
+        }
+        return responses;
+    }
+
     @Override
     public List<MetricCategoryResponse> queryMetricCategory() {
 
@@ -160,4 +251,55 @@ public class MetricTaskServiceImpl implements MetricTaskService {
             fill(list, newParents);
         }
     }
+
+    /**
+     * points of one series in primitive arrays, boxed only for the points kept after downsampling
+     */
+    private static class Samples {
+
+        private long[] times = new long[64];
+
+        private double[] values = new double[64];
+
+        /**
+         * stored values as they were written, null for decoded blocks
+         */
+        private String[] raw;
+
+        private int size;
+
+        private Samples(boolean keepRaw) {
+            if (keepRaw) {
+                raw = new String[64];
+            }
+        }
+
+        private void add(long time, double value, String rawValue) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size << 1);
+                values = Arrays.copyOf(values, size << 1);
+                if (raw != null) {
+                    raw = Arrays.copyOf(raw, size << 1);
+                }
+            }
+            times[size] = time;
+            values[size] = value;
+            if (raw != null) {
+                raw[size] = rawValue;
+            }
+            size++;
+        }
+
+        private List<MetricTask> toMetricTasks(int maxPoints, MetricDownsampler.Mode mode) {
+            int[] indexes = MetricDownsampler.downsample(times, values, size, maxPoints, mode);
+            List<MetricTask> metricTasks = new ArrayList<>(indexes.length);
+            for (int i : indexes) {
+                metricTasks.add(MetricTask.builder()
+                        .date(new Date(times[i]))
+                        .value(raw != null ? raw[i] : MetricValues.format(values[i]))
+                        .build());
+            }
+            return metricTasks;
+        }
+    }
 }
@@ -22,14 +22,14 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import ch.qos.logback.core.status.InfoStatus;
 import ch.qos.logback.core.status.StatusManager;
-import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.ArrayUtil;
 import com.alibaba.chaosblade.box.dao.model.ExperimentTaskLogDO;
-import com.alibaba.chaosblade.box.dao.repository.ExperimentTaskLogRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.util.Date;
+
 /**
  * @author yefei
  */
@@ -50,17 +50,18 @@ public class DBLoggerAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
         encoder.start();
     }
 
-    private static ApplicationContext applicationContext;
+    private static volatile TaskLogWriter writer;
 
     @Override
     public void append(ILoggingEvent iLoggingEvent) {
-        String message = new String(encoder.encode(iLoggingEvent));
-
-        ExperimentTaskLogRepository logRepository = applicationContext.getBean(ExperimentTaskLogRepository.class);
-        if (logRepository == null) {
-            log.warn("record experiment task id fail");
+        TaskLogWriter taskLogWriter = writer;
+        if (taskLogWriter == null) {
+            log.warn("record experiment task log fail, writer not ready");
+            return;
         }
 
+        String message = new String(encoder.encode(iLoggingEvent));
+
         Long taskId = null;
         Object[] argumentArray = iLoggingEvent.getArgumentArray();
         if (ArrayUtil.isNotEmpty(argumentArray)) {
@@ -68,16 +69,18 @@ public class DBLoggerAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
                 taskId = (Long) argumentArray[0];
             }
         }
-        // insert db
-        logRepository.insert(ExperimentTaskLogDO.builder()
+        // buffered, inserted in batches
+        taskLogWriter.write(ExperimentTaskLogDO.builder()
                 .taskId(taskId)
-                .logDate(DateUtil.date())
+                .logDate(new Date(iLoggingEvent.getTimeStamp()))
                 .content(message)
                 .build());
     }
 
     public static void configure(LoggerContext lc, Class<?> clazz, ApplicationContext applicationContext) {
-        DBLoggerAppender.applicationContext = applicationContext;
+        if (writer == null) {
+            writer = applicationContext.getBean(TaskLogWriter.class);
+        }
 
         StatusManager sm = lc.getStatusManager();
         if (sm != null) {
@@ -0,0 +1,166 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.logback;
+
+import com.alibaba.chaosblade.box.dao.model.ExperimentTaskLogDO;
+import com.alibaba.chaosblade.box.dao.repository.ExperimentTaskLogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded buffer between {@link DBLoggerAppender} and t_chaos_experiment_task_log,
+ * a single writer thread drains it and inserts rows in batches. When the buffer is
+ * full the logging thread waits at most offerTimeout ms, then the row is dropped.
+ * Rows not yet inserted are counted per task, see {@link #drained(Long)}.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class TaskLogWriter implements InitializingBean, DisposableBean {
+
+    @Autowired
+    private ExperimentTaskLogRepository experimentTaskLogRepository;
+
+    @Value("${chaos.task.log.capacity:8192}")
+    private int capacity;
+
+    @Value("${chaos.task.log.batchSize:200}")
+    private int batchSize;
+
+    @Value("${chaos.task.log.flushInterval:500}")
+    private long flushInterval;
+
+    @Value("${chaos.task.log.offerTimeout:100}")
+    private long offerTimeout;
+
+    private BlockingQueue<ExperimentTaskLogDO> queue;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Map<Long, Integer> pending = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    public void write(ExperimentTaskLogDO experimentTaskLogDO) {
+        // counted before it is visible to the writer thread, so drained() never misses it
+        pending(experimentTaskLogDO.getTaskId(), 1);
+        boolean queued = false;
+        try {
+            queued = queue.offer(experimentTaskLogDO, offerTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queued) {
+            dropped.incrementAndGet();
+            pending(experimentTaskLogDO.getTaskId(), -1);
+        }
+    }
+
+    /**
+     * @param taskId
+     * @return true if every row written for the task so far is inserted or dropped
+     */
+    public boolean drained(Long taskId) {
+        return taskId == null || !pending.containsKey(taskId);
+    }
+
+    private void pending(Long taskId, int delta) {
+        if (taskId == null) {
+            return;
+        }
+        pending.compute(taskId, (k, count) -> {
+            int value = (count == null ? 0 : count) + delta;
+            return value <= 0 ? null : value;
+        });
+    }
+
+    private void run() {
+        List<ExperimentTaskLogDO> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ExperimentTaskLogDO first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                insert(batch);
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                log.error("write task log fail!", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void insert(List<ExperimentTaskLogDO> batch) {
+        try {
+            experimentTaskLogRepository.insertBatch(batch);
+        } finally {
+            batch.forEach(experimentTaskLogDO -> pending(experimentTaskLogDO.getTaskId(), -1));
+        }
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            log.warn("task log buffer full, dropped {} rows", count);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        thread = new Thread(this::run);
+        thread.setName("Task-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        thread.join(flushInterval + TimeUnit.SECONDS.toMillis(5));
+
+        // flush what is left
+        List<ExperimentTaskLogDO> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                insert(batch);
+            } catch (Exception e) {
+                log.error("write task log fail!", e);
+            }
+            batch.clear();
+        }
+    }
+}
@@ -26,6 +26,13 @@ public class ExperimentTaskRequest {
 
     private Long taskId;
 
+    /**
+     * log cursor, exclusive
+     */
+    private Long afterId;
+
+    private Integer limit;
+
     private ExperimentTaskRequest task;
 
 }
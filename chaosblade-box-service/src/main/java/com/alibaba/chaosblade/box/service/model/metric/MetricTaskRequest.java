@@ -29,4 +29,14 @@ public class MetricTaskRequest {
     private String startTime;
 
     private String endTime;
+
+    /**
+     * max points per series, not downsampled if null
+     */
+    private Integer maxPoints;
+
+    /**
+     * downsample mode, lttb (default) or min_max
+     */
+    private String downsample;
 }
@@ -35,6 +35,7 @@ import com.alibaba.chaosblade.box.dao.repository.ProbesRepository;
 import com.alibaba.chaosblade.box.scenario.api.model.ToolsOverview;
 import com.alibaba.chaosblade.box.service.model.tools.ToolsRequest;
 import com.alibaba.chaosblade.box.scenario.api.model.ToolsVersion;
+import com.alibaba.chaosblade.box.service.probes.heartbeats.HeartbeatRegistry;
 import com.alibaba.chaosblade.box.service.probes.heartbeats.Heartbeats;
 import com.alibaba.chaosblade.box.service.probes.model.InstallProbesRequest;
 import com.alibaba.chaosblade.box.service.probes.model.ProbesRequest;
@@ -76,6 +77,9 @@ public class ProbesServiceImpl implements ProbesService, InitializingBean {
     @Autowired
     private Heartbeats heartbeats;
 
+    @Autowired
+    private HeartbeatRegistry heartbeatRegistry;
+
     @Value("${server.port}")
     private String serverPort;
 
@@ -181,6 +185,9 @@ public class ProbesServiceImpl implements ProbesService, InitializingBean {
         deviceRepository.updateByPrimaryKey(probesDO.getDeviceId(), DeviceDO.builder()
                 .status(DeviceStatus.FORBIDDEN.getStatus()).build());
 
+        heartbeatRegistry.updateProbeStatus(probesDO.getId(), DeviceStatus.FORBIDDEN.getStatus());
+        heartbeatRegistry.updateDeviceStatus(probesDO.getDeviceId(), DeviceStatus.FORBIDDEN.getStatus());
+
         return ProbesResponse.builder()
                 .probeId(probesDO.getId())
                 .deviceId(probesDO.getDeviceId())
@@ -201,21 +208,18 @@ public class ProbesServiceImpl implements ProbesService, InitializingBean {
         ProbesDO probesDO = probesRepository.selectById(probesRequest.getProbeId())
                 .orElseThrow(() -> new BizException(ExceptionMessageEnum.PROBES_NO_FOUND));
 
-        if (DateUtil.date().offset(DateField.MINUTE, -1).after(probesDO.getLastOnlineTime())) {
-            probesRepository.updateByPrimaryKey(probesDO.getId(), ProbesDO.builder()
-                    .status(DeviceStatus.OFFLINE.getStatus())
-                    .build());
+        byte status = DateUtil.date().offset(DateField.MINUTE, -1).after(probesDO.getLastOnlineTime())
+                ? DeviceStatus.OFFLINE.getStatus() : DeviceStatus.ONLINE.getStatus();
 
-            deviceRepository.updateByPrimaryKey(probesDO.getDeviceId(), DeviceDO.builder()
-                    .status(DeviceStatus.OFFLINE.getStatus()).build());
-        } else {
-            probesRepository.updateByPrimaryKey(probesDO.getId(), ProbesDO.builder()
-                    .status(DeviceStatus.ONLINE.getStatus())
-                    .build());
+        probesRepository.updateByPrimaryKey(probesDO.getId(), ProbesDO.builder()
+                .status(status)
+                .build());
 
-            deviceRepository.updateByPrimaryKey(probesDO.getDeviceId(), DeviceDO.builder()
-                    .status(DeviceStatus.ONLINE.getStatus()).build());
-        }
+        deviceRepository.updateByPrimaryKey(probesDO.getDeviceId(), DeviceDO.builder()
+                .status(status).build());
+
+        heartbeatRegistry.updateProbeStatus(probesDO.getId(), status);
+        heartbeatRegistry.updateDeviceStatus(probesDO.getDeviceId(), status);
 
         probesDO = probesRepository.selectById(probesRequest.getProbeId())
                 .orElseThrow(() -> new BizException(ExceptionMessageEnum.PROBES_NO_FOUND));
@@ -365,6 +369,7 @@ public class ProbesServiceImpl implements ProbesService, InitializingBean {
         probesRepository.updateByPrimaryKey(probesDO.getId(), ProbesDO.builder()
                 .status(UNINSTALLING.getStatus())
                 .build());
+        heartbeats.removeHeartbeats(probesDO.getId());
 
         Response<String> deployAgent = chaosToolsMgrStrategyContext.unDeployAgent(Request.builder()
                 .host(probesDO.getIp())
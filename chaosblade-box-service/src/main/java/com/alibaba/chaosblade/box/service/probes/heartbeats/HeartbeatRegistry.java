@@ -0,0 +1,415 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.probes.heartbeats;
+
+import cn.hutool.core.collection.CollUtil;
+import com.alibaba.chaosblade.box.common.enums.DeviceStatus;
+import com.alibaba.chaosblade.box.dao.model.DeviceDO;
+import com.alibaba.chaosblade.box.dao.model.ProbesDO;
+import com.alibaba.chaosblade.box.dao.repository.DeviceRepository;
+import com.alibaba.chaosblade.box.dao.repository.ProbesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Heartbeat state of all probes, keyed by probe id. Pings only touch memory,
+ * status changes and timestamps are flushed periodically as
+ * update ... where id in (...) statements, timestamps as recorded by the
+ * ping or heartbeat, grouped by second.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class HeartbeatRegistry implements InitializingBean, DisposableBean {
+
+    private static final long OFFLINE_THRESHOLD = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private ProbesRepository probesRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Value("${chaos.agent.heartbeat.flushInterval:10}")
+    private int flushInterval;
+
+    @Value("${chaos.agent.heartbeat.interval:30}")
+    private int interval;
+
+    private final Map<Long, ProbeHeartbeat> heartbeats = new ConcurrentHashMap<>();
+
+    /**
+     * probe ids by shard, one shard per second of the heartbeat interval
+     */
+    private Set<Long>[] shards;
+
+    private final Map<String, Long> ipIndex = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * register or refresh a probe, null fields of probesDO are ignored
+     *
+     * @param probesDO
+     * @param deviceStatus
+     * @return true if the probe was not registered before
+     */
+    public boolean register(ProbesDO probesDO, Byte deviceStatus) {
+        boolean[] created = new boolean[1];
+        ProbeHeartbeat heartbeat = heartbeats.computeIfAbsent(probesDO.getId(), id -> {
+            created[0] = true;
+            shards[shard(id)].add(id);
+            return new ProbeHeartbeat(id);
+        });
+
+        synchronized (heartbeat) {
+            if (probesDO.getDeviceId() != null) {
+                heartbeat.deviceId = probesDO.getDeviceId();
+            }
+            if (probesDO.getIp() != null) {
+                if (heartbeat.ip != null && !heartbeat.ip.equals(probesDO.getIp())) {
+                    ipIndex.remove(heartbeat.ip, heartbeat.getProbeId());
+                }
+                heartbeat.ip = probesDO.getIp();
+                ipIndex.put(probesDO.getIp(), heartbeat.getProbeId());
+            }
+            if (probesDO.getStatus() != null) {
+                heartbeat.probeStatus = probesDO.getStatus();
+                heartbeat.persistedProbeStatus = probesDO.getStatus();
+            }
+            if (deviceStatus != null) {
+                heartbeat.deviceStatus = deviceStatus;
+                heartbeat.persistedDeviceStatus = deviceStatus;
+            }
+            if (probesDO.getLastOnlineTime() != null) {
+                long lastOnlineTime = probesDO.getLastOnlineTime().getTime();
+                if (lastOnlineTime > heartbeat.lastOnlineTime) {
+                    heartbeat.lastOnlineTime = lastOnlineTime;
+                    heartbeat.flushedOnlineTime = lastOnlineTime;
+                }
+            }
+            if (probesDO.getLastPingTime() != null) {
+                long lastPingTime = probesDO.getLastPingTime().getTime();
+                if (lastPingTime > heartbeat.lastPingTime) {
+                    heartbeat.lastPingTime = lastPingTime;
+                    heartbeat.flushedPingTime = lastPingTime;
+                }
+            }
+        }
+        return created[0];
+    }
+
+    public Optional<ProbeHeartbeat> get(Long probeId) {
+        return Optional.ofNullable(heartbeats.get(probeId));
+    }
+
+    public Optional<Long> findByIp(String ip) {
+        return Optional.ofNullable(ipIndex.get(ip));
+    }
+
+    public boolean contains(Long probeId) {
+        return heartbeats.containsKey(probeId);
+    }
+
+    public Set<Long> probeIds() {
+        return Collections.unmodifiableSet(heartbeats.keySet());
+    }
+
+    public int shards() {
+        return shards.length;
+    }
+
+    /**
+     * probe ids of one shard
+     *
+     * @param shard 0 until {@link #shards()}
+     */
+    public Set<Long> probeIds(int shard) {
+        return Collections.unmodifiableSet(shards[shard]);
+    }
+
+    private int shard(Long probeId) {
+        return Math.floorMod(Long.hashCode(probeId), shards.length);
+    }
+
+    public void remove(Long probeId) {
+        ProbeHeartbeat heartbeat = heartbeats.remove(probeId);
+        if (heartbeat != null) {
+            shards[shard(probeId)].remove(probeId);
+            if (heartbeat.ip != null) {
+                ipIndex.remove(heartbeat.ip, probeId);
+            }
+        }
+    }
+
+    /**
+     * status already written by caller, e.g. ban / unban
+     */
+    public void updateProbeStatus(Long probeId, byte status) {
+        ProbeHeartbeat heartbeat = heartbeats.get(probeId);
+        if (heartbeat == null) {
+            return;
+        }
+        synchronized (heartbeat) {
+            heartbeat.probeStatus = status;
+            heartbeat.persistedProbeStatus = status;
+        }
+    }
+
+    /**
+     * status already written by caller, e.g. ban / unban
+     */
+    public void updateDeviceStatus(Long deviceId, byte status) {
+        if (deviceId == null) {
+            return;
+        }
+        for (ProbeHeartbeat heartbeat : heartbeats.values()) {
+            if (deviceId.equals(heartbeat.deviceId)) {
+                synchronized (heartbeat) {
+                    heartbeat.deviceStatus = status;
+                    heartbeat.persistedDeviceStatus = status;
+                }
+            }
+        }
+    }
+
+    public void ping(Long probeId) {
+        ProbeHeartbeat heartbeat = heartbeats.get(probeId);
+        if (heartbeat != null) {
+            heartbeat.lastPingTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * heartbeat pushed by agent, only touches volatile timestamps
+     * unless the probe has to go OFFLINE -> ONLINE
+     */
+    public boolean push(Long probeId) {
+        ProbeHeartbeat heartbeat = heartbeats.get(probeId);
+        if (heartbeat == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        heartbeat.lastPushTime = now;
+        heartbeat.lastPingTime = now;
+        heartbeat.lastOnlineTime = now;
+        if (heartbeat.probeStatus == DeviceStatus.OFFLINE.getStatus()
+                || heartbeat.deviceStatus == DeviceStatus.OFFLINE.getStatus()) {
+            online(probeId);
+        }
+        return true;
+    }
+
+    /**
+     * OFFLINE -> ONLINE
+     */
+    public void online(Long probeId) {
+        ProbeHeartbeat heartbeat = heartbeats.get(probeId);
+        if (heartbeat == null) {
+            return;
+        }
+        synchronized (heartbeat) {
+            heartbeat.lastOnlineTime = System.currentTimeMillis();
+            if (heartbeat.probeStatus == DeviceStatus.OFFLINE.getStatus()) {
+                heartbeat.probeStatus = DeviceStatus.ONLINE.getStatus();
+            }
+            if (heartbeat.deviceStatus == DeviceStatus.OFFLINE.getStatus()) {
+                heartbeat.deviceStatus = DeviceStatus.ONLINE.getStatus();
+            }
+        }
+    }
+
+    /**
+     * ONLINE -> OFFLINE, if no successful heartbeat within one minute
+     */
+    public void offline(Long probeId) {
+        ProbeHeartbeat heartbeat = heartbeats.get(probeId);
+        if (heartbeat == null) {
+            return;
+        }
+        synchronized (heartbeat) {
+            if (System.currentTimeMillis() - heartbeat.lastOnlineTime <= OFFLINE_THRESHOLD) {
+                return;
+            }
+            if (heartbeat.probeStatus == DeviceStatus.ONLINE.getStatus()) {
+                heartbeat.probeStatus = DeviceStatus.OFFLINE.getStatus();
+            }
+            if (heartbeat.deviceStatus == DeviceStatus.ONLINE.getStatus()) {
+                heartbeat.deviceStatus = DeviceStatus.OFFLINE.getStatus();
+            }
+        }
+    }
+
+    /**
+     * write changed rows only, one statement per (table, column value). Markers
+     * advance only after the batches of a probe succeed, a failed batch is written
+     * again by the next flush.
+     */
+    public synchronized void flush() {
+        Map<Byte, List<ProbeHeartbeat>> probeStatus = new HashMap<>();
+        Map<Byte, List<ProbeHeartbeat>> deviceStatus = new HashMap<>();
+        // grouped by the recorded time in seconds, the precision of the columns
+        Map<Long, List<ProbeHeartbeat>> pingProbes = new HashMap<>();
+        Map<Long, List<ProbeHeartbeat>> pingDevices = new HashMap<>();
+        Map<Long, List<ProbeHeartbeat>> onlineProbes = new HashMap<>();
+        Map<Long, List<ProbeHeartbeat>> onlineDevices = new HashMap<>();
+
+        for (ProbeHeartbeat heartbeat : heartbeats.values()) {
+            boolean device = heartbeat.deviceId != null;
+            synchronized (heartbeat) {
+                if (heartbeat.probeStatus != heartbeat.persistedProbeStatus) {
+                    probeStatus.computeIfAbsent(heartbeat.probeStatus, k -> new ArrayList<>()).add(heartbeat);
+                }
+                if (device && heartbeat.deviceStatus != heartbeat.persistedDeviceStatus) {
+                    deviceStatus.computeIfAbsent(heartbeat.deviceStatus, k -> new ArrayList<>()).add(heartbeat);
+                }
+                long lastPingTime = heartbeat.lastPingTime;
+                if (lastPingTime > heartbeat.flushedPingTime) {
+                    long second = TimeUnit.MILLISECONDS.toSeconds(lastPingTime);
+                    pingProbes.computeIfAbsent(second, k -> new ArrayList<>()).add(heartbeat);
+                    if (device) {
+                        pingDevices.computeIfAbsent(second, k -> new ArrayList<>()).add(heartbeat);
+                    }
+                }
+                long lastOnlineTime = heartbeat.lastOnlineTime;
+                if (lastOnlineTime > heartbeat.flushedOnlineTime) {
+                    long second = TimeUnit.MILLISECONDS.toSeconds(lastOnlineTime);
+                    onlineProbes.computeIfAbsent(second, k -> new ArrayList<>()).add(heartbeat);
+                    if (device) {
+                        onlineDevices.computeIfAbsent(second, k -> new ArrayList<>()).add(heartbeat);
+                    }
+                }
+            }
+        }
+
+        Set<ProbeHeartbeat> failed = new HashSet<>();
+        write(probeStatus, ProbeHeartbeat::getProbeId,
+                (status, ids) -> probesRepository.updateByIds(ids, ProbesDO.builder().status(status).build()), failed);
+        commit(probeStatus, failed, (heartbeat, status) -> heartbeat.persistedProbeStatus = status);
+
+        failed.clear();
+        write(deviceStatus, heartbeat -> heartbeat.deviceId,
+                (status, ids) -> deviceRepository.updateByIds(ids, DeviceDO.builder().status(status).build()), failed);
+        commit(deviceStatus, failed, (heartbeat, status) -> heartbeat.persistedDeviceStatus = status);
+
+        // the probe and device rows share a marker
+        failed.clear();
+        write(pingProbes, ProbeHeartbeat::getProbeId, (second, ids) ->
+                probesRepository.updateByIds(ids, ProbesDO.builder().lastPingTime(toDate(second)).build()), failed);
+        write(pingDevices, heartbeat -> heartbeat.deviceId, (second, ids) ->
+                deviceRepository.updateByIds(ids, DeviceDO.builder().lastPingTime(toDate(second)).build()), failed);
+        commit(pingProbes, failed, (heartbeat, second) ->
+                heartbeat.flushedPingTime = Math.max(heartbeat.flushedPingTime, endOf(second)));
+
+        failed.clear();
+        write(onlineProbes, ProbeHeartbeat::getProbeId, (second, ids) ->
+                probesRepository.updateByIds(ids, ProbesDO.builder().lastOnlineTime(toDate(second)).build()), failed);
+        write(onlineDevices, heartbeat -> heartbeat.deviceId, (second, ids) ->
+                deviceRepository.updateByIds(ids, DeviceDO.builder().lastOnlineTime(toDate(second)).build()), failed);
+        commit(onlineProbes, failed, (heartbeat, second) ->
+                heartbeat.flushedOnlineTime = Math.max(heartbeat.flushedOnlineTime, endOf(second)));
+    }
+
+    /**
+     * update the groups batch by batch, heartbeats of a failed batch are added to failed
+     */
+    private <K> void write(Map<K, List<ProbeHeartbeat>> groups, Function<ProbeHeartbeat, Long> id,
+                           BiConsumer<K, List<Long>> update, Set<ProbeHeartbeat> failed) {
+        groups.forEach((key, group) -> CollUtil.split(group, BATCH_SIZE).forEach(batch -> {
+            try {
+                update.accept(key, batch.stream().map(id).filter(Objects::nonNull).collect(Collectors.toList()));
+            } catch (Exception e) {
+                log.error("flush heartbeats fail, {} rows of {} are kept for the next flush", batch.size(), key, e);
+                failed.addAll(batch);
+            }
+        }));
+    }
+
+    private <K> void commit(Map<K, List<ProbeHeartbeat>> groups, Set<ProbeHeartbeat> failed,
+                            BiConsumer<ProbeHeartbeat, K> marker) {
+        groups.forEach((key, group) -> {
+            for (ProbeHeartbeat heartbeat : group) {
+                if (!failed.contains(heartbeat)) {
+                    synchronized (heartbeat) {
+                        marker.accept(heartbeat, key);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * last millisecond of a second, later times of the same second write the same column value
+     */
+    private static long endOf(long second) {
+        return TimeUnit.SECONDS.toMillis(second + 1) - 1;
+    }
+
+    private static Date toDate(long second) {
+        return new Date(TimeUnit.SECONDS.toMillis(second));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterPropertiesSet() {
+        shards = new Set[Math.max(1, interval)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = ConcurrentHashMap.newKeySet();
+        }
+
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("Heartbeats-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduledExecutorService.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                log.error("flush heartbeats fail!", e);
+            }
+        }, flushInterval, flushInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduledExecutorService.shutdown();
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("flush heartbeats fail!", e);
+        }
+    }
+}
@@ -16,31 +16,38 @@
 
 package com.alibaba.chaosblade.box.service.probes.heartbeats;
 
-import cn.hutool.core.date.DateField;
-import cn.hutool.core.date.DateUtil;
 import com.alibaba.chaosblade.box.common.enums.DeviceStatus;
-import com.alibaba.chaosblade.box.common.utils.timer.HashedWheelTimer;
-import com.alibaba.chaosblade.box.common.utils.timer.Timer;
-import com.alibaba.chaosblade.box.dao.model.DeviceDO;
 import com.alibaba.chaosblade.box.dao.model.ProbesDO;
 import com.alibaba.chaosblade.box.dao.repository.DeviceRepository;
 import com.alibaba.chaosblade.box.dao.repository.ProbesRepository;
 import com.alibaba.chaosblade.box.invoker.http.ChaosBladePingHttpInvoker;
 import com.alibaba.chaosblade.box.invoker.http.model.reuest.HttpChannelRequest;
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
+ * Sweep based heartbeats: one tick per second walks the probe ids of one shard
+ * of the {@link HeartbeatRegistry}, so every probe is pinged once per interval,
+ * with jitter inside the tick and at most maxInFlight pings outstanding. Probes whose agent pushed a heartbeat
+ * within the last interval are not polled.
+ *
  * @author yefei
  */
+@Slf4j
 @Component
-public class Heartbeats implements InitializingBean {
+public class Heartbeats implements InitializingBean, DisposableBean {
+
+    private static final long TICK_MILLIS = 1000;
 
     @Autowired
     private DeviceRepository deviceRepository;
@@ -51,91 +58,119 @@ public class Heartbeats implements InitializingBean {
     @Autowired
     private ProbesRepository probesRepository;
 
+    @Autowired
+    private HeartbeatRegistry heartbeatRegistry;
+
     @Value("${chaos.agent.port}")
     private int chaosAgentPort;
 
     @Value("${chaos.agent.heartbeatsEnable}")
     private boolean heartbeatsEnable;
 
-    private Timer timer;
+    @Value("${chaos.agent.heartbeat.interval:30}")
+    private int interval;
+
+    @Value("${chaos.agent.heartbeat.maxInFlight:256}")
+    private int maxInFlight;
 
-    private ExecutorService executorService;
+    private long tick;
+
+    /**
+     * pings skipped since the last tick, in flight exceed maxInFlight
+     */
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    private Semaphore inFlight;
+
+    private ScheduledExecutorService scheduledExecutorService;
 
     public void addHeartbeats(ProbesDO probesDO) {
+        addHeartbeats(probesDO, null);
+    }
+
+    public void addHeartbeats(ProbesDO probesDO, Byte deviceStatus) {
         if (!heartbeatsEnable) {
             return;
         }
+        heartbeatRegistry.register(probesDO, deviceStatus);
+    }
+
+    /**
+     * heartbeat pushed by agent, resolved by agent id (probe id) or ip
+     *
+     * @return false if the agent is unknown
+     */
+    public boolean receiveHeartbeats(String agentId, String ip) {
+        Long probeId = null;
+        if (agentId != null) {
+            try {
+                probeId = Long.parseLong(agentId);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        if (probeId == null || !heartbeatRegistry.contains(probeId)) {
+            probeId = ip == null ? null : heartbeatRegistry.findByIp(ip).orElse(null);
+        }
+        return probeId != null && heartbeatRegistry.push(probeId);
+    }
+
+    public void removeHeartbeats(Long probeId) {
+        heartbeatRegistry.remove(probeId);
+    }
+
+    private void sweep() {
+        int skip = skipped.getAndSet(0);
+        if (skip > 0) {
+            log.warn("heartbeats in flight exceed {}, skip {} probes", maxInFlight, skip);
+        }
 
-        timer.newTimeout(timeout -> {
-            executorService.execute(() -> {
-
-                HttpChannelRequest request = new HttpChannelRequest();
-                request.setRequestURL("/ping");
-                request.setHost(probesDO.getIp());
-                request.setPort(chaosAgentPort);
-
-                probesRepository.updateByPrimaryKey(probesDO.getId(), ProbesDO.builder()
-                        .lastPingTime(DateUtil.date())
-                        .build());
-
-                deviceRepository.updateByPrimaryKey(probesDO.getDeviceId(), DeviceDO.builder()
-                        .lastPingTime(DateUtil.date())
-                        .build());
-
-                CompletableFuture<ResponseCommand> future = chaosBladeHttpInvoker.invoke(request);
-                future.thenAccept(r -> {
-
-                    probesRepository.updateByPrimaryKey(probesDO.getId(), ProbesDO.builder()
-                            .lastOnlineTime(DateUtil.date())
-                            .build());
-
-                    // OFFLINE -> ONLINE
-                    probesRepository.selectById(probesDO.getId()).filter(
-                            probe -> DeviceStatus.OFFLINE.getStatus() == probe.getStatus())
-                            .ifPresent(probe ->
-                                    probesRepository.updateByPrimaryKey(probesDO.getId(), ProbesDO.builder()
-                                            .status(DeviceStatus.ONLINE.getStatus())
-                                            .build()));
-
-                    deviceRepository.updateByPrimaryKey(probesDO.getDeviceId(), DeviceDO.builder()
-                            .lastOnlineTime(DateUtil.date())
-                            .build());
-
-                    deviceRepository.selectById(probesDO.getDeviceId()).filter(
-                            deviceDO -> DeviceStatus.OFFLINE.getStatus() == deviceDO.getStatus())
-                            .ifPresent(deviceDO ->
-                                    deviceRepository.updateByPrimaryKey(probesDO.getDeviceId(), DeviceDO.builder()
-                                            .status(DeviceStatus.ONLINE.getStatus())
-                                            .build()));
-
-                }).exceptionally((e) -> {
-                    // ONLINE -> OFFLINE
-                    probesRepository.selectById(probesDO.getId()).filter(
-                            probe -> DeviceStatus.ONLINE.getStatus() == probe.getStatus()
-                                    && DateUtil.date().offset(DateField.MINUTE, -1).after(probe.getLastOnlineTime()))
-                            .ifPresent(probe -> probesRepository.updateByPrimaryKey(probesDO.getId(), ProbesDO.builder()
-                                    .status(DeviceStatus.OFFLINE.getStatus())
-                                    .build()));
-
-                    deviceRepository.selectById(probesDO.getDeviceId()).filter(
-                            deviceDO -> DeviceStatus.ONLINE.getStatus() == deviceDO.getStatus()
-                                    && DateUtil.date().offset(DateField.MINUTE, -1).after(deviceDO.getLastOnlineTime()))
-                            .ifPresent(deviceDO ->
-                                    deviceRepository.updateByPrimaryKey(probesDO.getDeviceId(), DeviceDO.builder()
-                                            .status(DeviceStatus.OFFLINE.getStatus())
-                                            .build()));
-                    return null;
-                });
+        int shard = (int) (tick++ % heartbeatRegistry.shards());
+        for (Long probeId : heartbeatRegistry.probeIds(shard)) {
+            heartbeatRegistry.get(probeId).ifPresent(heartbeat -> {
+                // if status in (ONLINE, OFFLINE, FORBIDDEN) , send Heartbeats
+                byte status = heartbeat.getProbeStatus();
+                if (DeviceStatus.ONLINE.getStatus() != status
+                        && DeviceStatus.OFFLINE.getStatus() != status
+                        && DeviceStatus.FORBIDDEN.getStatus() != status) {
+                    heartbeatRegistry.remove(probeId);
+                    return;
+                }
+                // agent is pushing heartbeats, polling is only a fallback
+                if (System.currentTimeMillis() - heartbeat.getLastPushTime() < TimeUnit.SECONDS.toMillis(interval)) {
+                    return;
+                }
+                scheduledExecutorService.schedule(() -> ping(heartbeat),
+                        ThreadLocalRandom.current().nextLong(TICK_MILLIS), TimeUnit.MILLISECONDS);
             });
+        }
+    }
 
-            // if status in (ONLINE, OFFLINE, FORBIDDEN) , send Heartbeats
-            probesRepository.selectById(probesDO.getId()).filter(probe ->
-                    DeviceStatus.ONLINE.getStatus() == probe.getStatus()
-                            || DeviceStatus.OFFLINE.getStatus() == probe.getStatus()
-                            || DeviceStatus.FORBIDDEN.getStatus() == probe.getStatus())
-                    .ifPresent(this::addHeartbeats);
+    private void ping(ProbeHeartbeat heartbeat) {
+        if (!inFlight.tryAcquire()) {
+            skipped.incrementAndGet();
+            return;
+        }
 
-        }, 30, TimeUnit.SECONDS);
+        HttpChannelRequest request = new HttpChannelRequest();
+        request.setRequestURL("/ping");
+        request.setHost(heartbeat.getIp());
+        request.setPort(chaosAgentPort);
+
+        try {
+            heartbeatRegistry.ping(heartbeat.getProbeId());
+            CompletableFuture<ResponseCommand> future = chaosBladeHttpInvoker.invoke(request);
+            future.whenComplete((r, e) -> {
+                inFlight.release();
+                if (e == null) {
+                    heartbeatRegistry.online(heartbeat.getProbeId());
+                } else {
+                    heartbeatRegistry.offline(heartbeat.getProbeId());
+                }
+            });
+        } catch (Exception e) {
+            inFlight.release();
+            log.error("send heartbeats fail, probe: {}", heartbeat.getProbeId(), e);
+        }
     }
 
     @Override
@@ -144,25 +179,46 @@ public class Heartbeats implements InitializingBean {
             return;
         }
 
-        timer = new HashedWheelTimer(r -> {
+        inFlight = new Semaphore(maxInFlight);
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(1, r -> {
             Thread thread = new Thread(r);
             thread.setName("Heartbeats");
+            thread.setDaemon(true);
             return thread;
         });
 
-        executorService = Executors.newCachedThreadPool(r -> {
-            Thread thread = new Thread(r);
-            thread.setName("Heartbeats");
-            return thread;
-        });
+        List<ProbesDO> probes = probesRepository.selectList(ProbesDO.builder().build()).stream()
+                .filter(probe -> DeviceStatus.ONLINE.getStatus() == probe.getStatus()
+                        || DeviceStatus.OFFLINE.getStatus() == probe.getStatus()
+                        || DeviceStatus.FORBIDDEN.getStatus() == probe.getStatus())
+                .collect(Collectors.toList());
+
+        Map<Long, Byte> deviceStatus = new HashMap<>();
+        List<Long> deviceIds = probes.stream().map(ProbesDO::getDeviceId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (!deviceIds.isEmpty()) {
+            deviceRepository.selectBatchIds(deviceIds).forEach(deviceDO ->
+                    deviceStatus.put(deviceDO.getId(), deviceDO.getStatus()));
+        }
 
-        List<ProbesDO> probes = probesRepository.selectList(ProbesDO.builder().build());
         for (ProbesDO probe : probes) {
-            if (DeviceStatus.ONLINE.getStatus() == probe.getStatus()
-                    || DeviceStatus.OFFLINE.getStatus() == probe.getStatus()
-                    || DeviceStatus.FORBIDDEN.getStatus() == probe.getStatus()) {
-                addHeartbeats(probe);
+            addHeartbeats(probe, deviceStatus.get(probe.getDeviceId()));
+        }
+
+        scheduledExecutorService.scheduleAtFixedRate(() -> {
+            try {
+                sweep();
+            } catch (Exception e) {
+                log.error("heartbeats sweep fail!", e);
             }
+        }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
         }
     }
 }
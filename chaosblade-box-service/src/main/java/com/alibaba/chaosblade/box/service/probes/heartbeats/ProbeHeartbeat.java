@@ -0,0 +1,86 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.probes.heartbeats;
+
+/**
+ * In-memory liveness of one probe and its device, the persisted* fields
+ * hold what was last written to t_chaos_probes / t_chaos_device.
+ *
+ * @author yefei
+ */
+public class ProbeHeartbeat {
+
+    private final Long probeId;
+
+    volatile Long deviceId;
+
+    volatile String ip;
+
+    volatile byte probeStatus;
+
+    volatile byte deviceStatus;
+
+    volatile long lastPingTime;
+
+    volatile long lastOnlineTime;
+
+    volatile long lastPushTime;
+
+    byte persistedProbeStatus;
+
+    byte persistedDeviceStatus;
+
+    long flushedPingTime;
+
+    long flushedOnlineTime;
+
+    ProbeHeartbeat(Long probeId) {
+        this.probeId = probeId;
+    }
+
+    public Long getProbeId() {
+        return probeId;
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public byte getProbeStatus() {
+        return probeStatus;
+    }
+
+    public byte getDeviceStatus() {
+        return deviceStatus;
+    }
+
+    public long getLastPingTime() {
+        return lastPingTime;
+    }
+
+    public long getLastOnlineTime() {
+        return lastOnlineTime;
+    }
+
+    public long getLastPushTime() {
+        return lastPushTime;
+    }
+}
@@ -18,10 +18,19 @@ package com.alibaba.chaosblade.box.service.task;
 
 import com.alibaba.chaosblade.box.common.exception.BizException;
 
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
+ * Activity tasks of an experiment task as a DAG. A task runs once all its dependencies
+ * completed, tracked by a counter of pending dependencies per node, tasks without
+ * dependencies between them run concurrently.
+ *
+ * <p>{@link #addLast(ActivityTask)} keeps the phase order: a task depends on every task
+ * of the previous phase, tasks of the same phase are independent.
+ *
  * @author yefei
  */
 public class ActivityTaskExecutePipeline {
@@ -29,74 +38,181 @@ public class ActivityTaskExecutePipeline {
     private Long experimentTaskId;
 
     /**
-     * first task
+     * tasks in the order added
      */
-    private InternalActivityTaskNode head;
+    private final List<InternalActivityTaskNode> nodes = new ArrayList<>();
+
+    private final Map<Long, InternalActivityTaskNode> nodeMap = new HashMap<>();
 
     /**
-     * last task
+     * tasks of the previous phase, dependencies of the last phase
      */
-    private InternalActivityTaskNode tail;
+    private List<TaskNode<ActivityTask>> previousPhase = Collections.emptyList();
 
     /**
-     * current task
+     * tasks of the last phase added
      */
-    private volatile TaskNode<ActivityTask> currentTask;
+    private List<TaskNode<ActivityTask>> lastPhase = new ArrayList<>();
 
-    private volatile boolean isEnd;
+    private final AtomicBoolean started = new AtomicBoolean();
 
-    private final static AtomicReferenceFieldUpdater<ActivityTaskExecutePipeline, TaskNode> atomicReferenceFieldUpdater
-            = AtomicReferenceFieldUpdater.newUpdater(ActivityTaskExecutePipeline.class, TaskNode.class, "currentTask");
+    /**
+     * tasks not completed
+     */
+    private final AtomicInteger pending = new AtomicInteger();
 
-    public TaskNode<ActivityTask> getCurrentTask() {
-        if (isEnd) {
-            return null;
+    /**
+     * first error of a task
+     */
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    /**
+     * add a task depending on all tasks of the previous phase
+     *
+     * @param activityTask
+     */
+    public void addLast(ActivityTask activityTask) {
+        if (!lastPhase.isEmpty() && !lastPhase.get(0).getTask().getPhase().equals(activityTask.getPhase())) {
+            previousPhase = lastPhase;
+            lastPhase = new ArrayList<>();
         }
-        if (currentTask == null) {
-            if (head == null) {
-                isEnd = true;
-                return null;
-            }
-            if (!atomicReferenceFieldUpdater.compareAndSet(this, null, head)) {
-                getCurrentTask();
+        lastPhase.add(addNode(activityTask, previousPhase));
+    }
+
+    /**
+     * add a task with explicit dependencies
+     *
+     * @param activityTask
+     * @param dependencies activity task ids, added before
+     */
+    public void add(ActivityTask activityTask, Collection<Long> dependencies) {
+        List<TaskNode<ActivityTask>> dependencyNodes = new ArrayList<>(dependencies.size());
+        for (Long dependency : dependencies) {
+            InternalActivityTaskNode node = nodeMap.get(dependency);
+            if (node == null) {
+                throw new BizException("add activity task, dependency not found: " + dependency);
             }
-        } else {
-            if (!atomicReferenceFieldUpdater.compareAndSet(this, currentTask, currentTask.next())) {
-                getCurrentTask();
+            dependencyNodes.add(node);
+        }
+        addNode(activityTask, dependencyNodes);
+    }
+
+    private InternalActivityTaskNode addNode(ActivityTask activityTask, List<TaskNode<ActivityTask>> dependencies) {
+        if (started.get()) {
+            throw new BizException("add activity task, pipeline started");
+        }
+        if (experimentTaskId == null) {
+            experimentTaskId = activityTask.getExperimentTaskId();
+        }
+        Long activityTaskId = activityTask.getActivityTaskId();
+        if (activityTaskId == null) {
+            throw new BizException("add activity task, task id is null");
+        }
+        activityTask.setActivityTaskExecutePipeline(this);
+        InternalActivityTaskNode taskNode = new InternalActivityTaskNode(activityTask, activityTaskId, dependencies);
+        for (TaskNode<ActivityTask> dependency : dependencies) {
+            ((InternalActivityTaskNode) dependency).dependents.add(taskNode);
+        }
+        nodes.add(taskNode);
+        nodeMap.put(activityTaskId, taskNode);
+        pending.incrementAndGet();
+        return taskNode;
+    }
+
+    /**
+     * @return false if already started
+     */
+    public boolean start() {
+        return started.compareAndSet(false, true);
+    }
+
+    /**
+     * tasks without dependencies
+     */
+    public List<TaskNode<ActivityTask>> roots() {
+        List<TaskNode<ActivityTask>> roots = new ArrayList<>();
+        for (InternalActivityTaskNode node : nodes) {
+            if (node.dependencies.isEmpty()) {
+                roots.add(node);
             }
-            if (currentTask == null) {
-                isEnd = true;
-                return null;
+        }
+        return roots;
+    }
+
+    public List<TaskNode<ActivityTask>> nodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * a task completed
+     *
+     * @param taskNode
+     * @param throwable error of the task, null if succeed
+     * @return dependents whose dependencies are all completed now, ended only for the last task
+     */
+    public Completion complete(TaskNode<ActivityTask> taskNode, Throwable throwable) {
+        InternalActivityTaskNode node = (InternalActivityTaskNode) taskNode;
+        if (!node.completed.compareAndSet(false, true)) {
+            return new Completion(Collections.emptyList(), false);
+        }
+        if (throwable != null) {
+            error.compareAndSet(null, throwable);
+        }
+        List<TaskNode<ActivityTask>> ready = new ArrayList<>();
+        for (InternalActivityTaskNode dependent : node.dependents) {
+            if (dependent.pending.decrementAndGet() == 0) {
+                ready.add(dependent);
             }
         }
-        return currentTask;
+        return new Completion(ready, pending.decrementAndGet() == 0);
+    }
+
+    /**
+     * @return true if all tasks completed
+     */
+    public boolean isEnd() {
+        return pending.get() == 0;
+    }
+
+    /**
+     * @return first error of the tasks, null if none
+     */
+    public Throwable error() {
+        return error.get();
     }
 
     public TaskNode<ActivityTask> head() {
-        return head;
+        return nodes.isEmpty() ? null : nodes.get(0);
     }
 
     public TaskNode<ActivityTask> tail() {
-        return tail;
+        return nodes.isEmpty() ? null : nodes.get(nodes.size() - 1);
     }
 
-    public void addLast(ActivityTask activityTask) {
-        if (experimentTaskId == null) {
-            experimentTaskId = activityTask.getExperimentTaskId();
+    public static class Completion {
+
+        private final List<TaskNode<ActivityTask>> ready;
+
+        private final boolean end;
+
+        private Completion(List<TaskNode<ActivityTask>> ready, boolean end) {
+            this.ready = ready;
+            this.end = end;
         }
-        Long activityTaskId = activityTask.getActivityTaskId();
-        if (activityTaskId == null) {
-            throw new BizException("add activity task, task id is null");
+
+        /**
+         * @return dependents whose dependencies are all completed now
+         */
+        public List<TaskNode<ActivityTask>> getReady() {
+            return ready;
+        }
+
+        /**
+         * @return true if the task was the last one to complete, exactly one completion ends a pipeline
+         */
+        public boolean isEnd() {
+            return end;
         }
-        activityTask.setActivityTaskExecutePipeline(this);
-        InternalActivityTaskNode TaskNode = new InternalActivityTaskNode(activityTask, activityTaskId);
-        if (head == null) {
-            head = TaskNode;
-        } else {
-            tail.next = TaskNode;
-            TaskNode.prev = tail;
-        }
-        tail = TaskNode;
     }
 
     private static class InternalActivityTaskNode implements TaskNode<ActivityTask> {
@@ -105,23 +221,33 @@ public class ActivityTaskExecutePipeline {
 
         private final ActivityTask activityTask;
 
-        private InternalActivityTaskNode prev;
+        private final List<TaskNode<ActivityTask>> dependencies;
+
+        private final List<InternalActivityTaskNode> dependents = new ArrayList<>();
+
+        /**
+         * dependencies not completed
+         */
+        private final AtomicInteger pending;
 
-        private InternalActivityTaskNode next;
+        private final AtomicBoolean completed = new AtomicBoolean();
 
-        public InternalActivityTaskNode(ActivityTask activityTask, Long activityTaskId) {
+        public InternalActivityTaskNode(ActivityTask activityTask, Long activityTaskId,
+                                        List<TaskNode<ActivityTask>> dependencies) {
             this.activityTask = activityTask;
             this.activityTaskId = activityTaskId;
+            this.dependencies = dependencies;
+            this.pending = new AtomicInteger(dependencies.size());
         }
 
         @Override
-        public TaskNode<ActivityTask> next() {
-            return next;
+        public List<TaskNode<ActivityTask>> dependencies() {
+            return Collections.unmodifiableList(dependencies);
         }
 
         @Override
-        public TaskNode<ActivityTask> prev() {
-            return prev;
+        public List<TaskNode<ActivityTask>> dependents() {
+            return Collections.unmodifiableList(dependents);
         }
 
         @Override
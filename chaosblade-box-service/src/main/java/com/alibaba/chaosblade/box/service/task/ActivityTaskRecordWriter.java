@@ -0,0 +1,183 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.task;
+
+import cn.hutool.core.collection.CollUtil;
+import com.alibaba.chaosblade.box.dao.model.ExperimentActivityTaskRecordDO;
+import com.alibaba.chaosblade.box.dao.repository.ExperimentActivityTaskRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer of activity task record results. Updates are coalesced by
+ * record id and written with batched statements every flushInterval ms or once
+ * flushSize records are pending. Records of a failed batch are put back and
+ * retried by the next flush.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class ActivityTaskRecordWriter implements InitializingBean, DisposableBean {
+
+    private static final int DESTROY_RETRIES = 3;
+
+    @Autowired
+    private ExperimentActivityTaskRecordRepository experimentActivityTaskRecordRepository;
+
+    @Value("${chaos.experiment.record.flushInterval:200}")
+    private long flushInterval;
+
+    @Value("${chaos.experiment.record.flushSize:500}")
+    private int flushSize;
+
+    private final Object flushLock = new Object();
+
+    private Map<Long, ExperimentActivityTaskRecordDO> pending = new LinkedHashMap<>();
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * buffer a record update, non-null fields of a later update win
+     *
+     * @param id
+     * @param update
+     */
+    public void update(Long id, ExperimentActivityTaskRecordDO update) {
+        update.setId(id);
+        boolean full;
+        synchronized (this) {
+            pending.merge(id, update, ActivityTaskRecordWriter::merge);
+            full = pending.size() >= flushSize;
+        }
+        if (full) {
+            try {
+                scheduledExecutorService.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flushQuietly();
+            }
+        }
+    }
+
+    /**
+     * write all buffered updates, returns after they are persisted
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, ExperimentActivityTaskRecordDO> records;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                records = pending;
+                pending = new LinkedHashMap<>();
+            }
+            List<List<ExperimentActivityTaskRecordDO>> batches = CollUtil.split(records.values(), flushSize);
+            for (int i = 0; i < batches.size(); i++) {
+                try {
+                    experimentActivityTaskRecordRepository.updateBatch(batches.get(i));
+                } catch (RuntimeException e) {
+                    requeue(batches.subList(i, batches.size()));
+                    throw e;
+                }
+            }
+            log.debug("flush activity task records, size: {}", records.size());
+        }
+    }
+
+    /**
+     * put unwritten records back for the next flush, updates buffered meanwhile win
+     */
+    private void requeue(List<List<ExperimentActivityTaskRecordDO>> batches) {
+        synchronized (this) {
+            batches.forEach(batch -> batch.forEach(record ->
+                    pending.merge(record.getId(), record, (newer, failed) -> merge(failed, newer))));
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("flush activity task records fail!", e);
+        }
+    }
+
+    private static ExperimentActivityTaskRecordDO merge(ExperimentActivityTaskRecordDO old, ExperimentActivityTaskRecordDO update) {
+        if (update.getGmtStart() == null) {
+            update.setGmtStart(old.getGmtStart());
+        }
+        if (update.getGmtEnd() == null) {
+            update.setGmtEnd(old.getGmtEnd());
+        }
+        if (update.getSuccess() == null) {
+            update.setSuccess(old.getSuccess());
+        }
+        if (update.getCode() == null) {
+            update.setCode(old.getCode());
+        }
+        if (update.getResult() == null) {
+            update.setResult(old.getResult());
+        }
+        if (update.getErrorMessage() == null) {
+            update.setErrorMessage(old.getErrorMessage());
+        }
+        return update;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("Activity-task-record-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutorService.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        scheduledExecutorService.shutdown();
+        scheduledExecutorService.awaitTermination(flushInterval, TimeUnit.MILLISECONDS);
+        for (int i = 1; ; i++) {
+            try {
+                flush();
+                return;
+            } catch (RuntimeException e) {
+                if (i >= DESTROY_RETRIES) {
+                    log.error("flush activity task records on destroy fail, lost: {}", pending.size(), e);
+                    return;
+                }
+                log.warn("flush activity task records on destroy fail, retry: {}", i, e);
+            }
+        }
+    }
+}
@@ -16,7 +16,6 @@
 
 package com.alibaba.chaosblade.box.service.task;
 
-import cn.hutool.core.collection.CollUtil;
 import com.alibaba.chaosblade.box.common.executor.ExecutorFactory;
 import com.alibaba.chaosblade.box.common.executor.ThreadPoolExecutorFactory;
 import com.alibaba.chaosblade.box.common.TaskLogRecord;
@@ -33,8 +32,9 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -82,62 +82,65 @@ public class DefaultActivityTaskExecuteContext implements ActivityTaskExecuteCon
 
     @Override
     public void fireExecute(ActivityTaskExecutePipeline activityTaskExecutePipeline) {
-        TaskNode<ActivityTask> internalTask = activityTaskExecutePipeline.getCurrentTask();
-        if (internalTask == null) {
+        // tasks after the first run from the completion of their dependencies
+        if (!activityTaskExecutePipeline.start()) {
             return;
         }
+        TaskNode<ActivityTask> head = activityTaskExecutePipeline.head();
+        if (head == null) {
+            return;
+        }
+        for (TaskNode<ActivityTask> node : activityTaskExecutePipeline.nodes()) {
+            node.getTask().future().handle((r, e) -> {
+                complete(activityTaskExecutePipeline, node, e);
+                return null;
+            });
+        }
+        boolean started = true;
         try {
-            if (internalTask == activityTaskExecutePipeline.head() &&
-                    taskStartListenerMap.get(activityTaskExecutePipeline) != null) {
-                ExperimentTaskStartListener experimentTaskStartListener = taskStartListenerMap.get(activityTaskExecutePipeline);
-                experimentTaskStartListener.notify(this, internalTask.getTask());
-            }
-            List<CompletableFuture<Void>> futures = CollUtil.newArrayList();
-            for (TaskNode<ActivityTask> node = internalTask; node != null; node = node.prev()) {
-                CompletableFuture<Void> future = node.getTask().future();
-                futures.add(future);
+            ExperimentTaskStartListener experimentTaskStartListener = taskStartListenerMap.get(activityTaskExecutePipeline);
+            if (experimentTaskStartListener != null) {
+                experimentTaskStartListener.notify(this, head.getTask());
             }
-
-            TaskNode<ActivityTask> next = internalTask.next();
-            if (next != null) {
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).handle((r, e) -> {
-                    executeActivityTask0(next.getTask());
-                    return null;
-                });
+        } catch (Throwable throwable) {
+            log.error("fireExecute error!", throwable);
+            activityTaskHandlerStrategyContext.postHandle(head.getTask(), throwable);
+            started = false;
+        }
+        for (TaskNode<ActivityTask> root : activityTaskExecutePipeline.roots()) {
+            // a failed start fails the first task, its dependents still follow
+            if (started || root != head) {
+                executeActivityTask(activityTaskExecutePipeline, root);
             }
+        }
+    }
 
-            ActivityTask activityTask = internalTask.getTask();
-
-            if (internalTask == activityTaskExecutePipeline.tail()
-                    && taskCompleteListenerMap.get(activityTaskExecutePipeline) != null) {
-                ExperimentTaskCompleteListener experimentTaskCompleteListener = taskCompleteListenerMap.get(activityTaskExecutePipeline);
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).handleAsync((r, e) -> {
-                    experimentTaskCompleteListener.notify(this, activityTask, e);
-                    return null;
-                }, executor).handleAsync((r, e) -> {
-                    if (e != null) {
-                        log.error("complete listener notify error!", e);
-                    }
-                    return null;
-                });
+    private void complete(ActivityTaskExecutePipeline activityTaskExecutePipeline, TaskNode<ActivityTask> node,
+                          Throwable throwable) {
+        ActivityTask completed = node.getTask();
+        Set<String> transferred = new HashSet<>();
+        ActivityTaskExecutePipeline.Completion completion = activityTaskExecutePipeline.complete(node, throwable);
+        for (TaskNode<ActivityTask> ready : completion.getReady()) {
+            ActivityTask activityTask = ready.getTask();
+            String prePhase = completed.getPhase();
+            String nextPhase = activityTask.getPhase();
+            if (!prePhase.equals(nextPhase) && transferred.add(nextPhase)) {
+                TaskLogUtil.info(log, TaskLogType.EXPERIMENT_PHASE_TRANSFER, activityTask.getExperimentTaskId(),
+                        prePhase, nextPhase, String.valueOf(activityTask.getExperimentTaskId()));
             }
+            executeActivityTask(activityTaskExecutePipeline, ready);
+        }
 
-            if (internalTask.prev() != null) {
-                String prePhase = internalTask.prev().getTask().getPhase();
-                String nextPhase = internalTask.getTask().getPhase();
-                if (!prePhase.equals(nextPhase)) {
-                    TaskLogUtil.info(log, TaskLogType.EXPERIMENT_PHASE_TRANSFER, activityTask.getExperimentTaskId(),
-                            prePhase, nextPhase, String.valueOf(activityTask.getExperimentTaskId()));
-                    return;
+        ExperimentTaskCompleteListener experimentTaskCompleteListener = taskCompleteListenerMap.get(activityTaskExecutePipeline);
+        if (completion.isEnd() && experimentTaskCompleteListener != null) {
+            ActivityTask tail = activityTaskExecutePipeline.tail().getTask();
+            CompletableFuture.runAsync(() -> experimentTaskCompleteListener.notify(this, tail,
+                    activityTaskExecutePipeline.error()), executor).handleAsync((r, e) -> {
+                if (e != null) {
+                    log.error("complete listener notify error!", e);
                 }
-            }
-            executeActivityTask(activityTaskExecutePipeline, internalTask);
-        } catch (Throwable throwable) {
-            log.error("fireExecute error!", throwable);
-            activityTaskHandlerStrategyContext.postHandle(
-                    internalTask.getTask(),
-                    throwable);
-
+                return null;
+            });
         }
     }
 
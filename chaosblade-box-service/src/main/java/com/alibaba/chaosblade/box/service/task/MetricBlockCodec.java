@@ -0,0 +1,203 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.task;
+
+import java.util.Arrays;
+
+/**
+ * Encoding of the samples of one metric block.
+ *
+ * <p>Timestamps are written as zigzag varints of the delta of delta to the previous
+ * sample (the first one relative to the block start), so a regular scrape interval
+ * costs a single byte. Values are written as the xor of their double bits with the
+ * previous value: a control byte holding the count of leading and trailing zero bytes
+ * followed by the remaining bytes, an unchanged value costs a single byte.
+ *
+ * @author yefei
+ */
+public final class MetricBlockCodec {
+
+    private MetricBlockCodec() {
+    }
+
+    /**
+     * appends samples in time order to a growing block
+     */
+    public static class Encoder {
+
+        private final long startTime;
+
+        private byte[] buf = new byte[64];
+
+        private int size;
+
+        private int count;
+
+        private long prevTime;
+
+        private long prevDelta;
+
+        private long prevBits;
+
+        public Encoder(long startTime) {
+            this.startTime = startTime;
+            this.prevTime = startTime;
+        }
+
+        public void append(long time, double value) {
+            long delta = time - prevTime;
+            writeVarLong(zigzag(delta - prevDelta));
+            prevDelta = delta;
+            prevTime = time;
+
+            long bits = Double.doubleToRawLongBits(value);
+            long xor = bits ^ prevBits;
+            prevBits = bits;
+            if (xor == 0) {
+                writeByte(0x80);
+            } else {
+                int leading = Long.numberOfLeadingZeros(xor) >>> 3;
+                int trailing = Long.numberOfTrailingZeros(xor) >>> 3;
+                writeByte(leading << 4 | trailing);
+                for (int i = 7 - leading; i >= trailing; i--) {
+                    writeByte((int) (xor >>> (i << 3)));
+                }
+            }
+            count++;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public long getLastTime() {
+            return prevTime;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        /**
+         * @return an encoder continuing independently from the samples appended so far
+         */
+        public Encoder copy() {
+            Encoder copy = new Encoder(startTime);
+            copy.buf = Arrays.copyOf(buf, buf.length);
+            copy.size = size;
+            copy.count = count;
+            copy.prevTime = prevTime;
+            copy.prevDelta = prevDelta;
+            copy.prevBits = prevBits;
+            return copy;
+        }
+
+        private void writeVarLong(long v) {
+            while ((v & ~0x7FL) != 0) {
+                writeByte((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            writeByte((int) v);
+        }
+
+        private void writeByte(int b) {
+            if (size == buf.length) {
+                buf = Arrays.copyOf(buf, size << 1);
+            }
+            buf[size++] = (byte) b;
+        }
+    }
+
+    /**
+     * reads the samples of a block back in time order
+     */
+    public static class Decoder {
+
+        private final byte[] data;
+
+        private final int count;
+
+        private int pos;
+
+        private int read;
+
+        private long time;
+
+        private long delta;
+
+        private long bits;
+
+        public Decoder(long startTime, int count, byte[] data) {
+            this.time = startTime;
+            this.count = count;
+            this.data = data;
+        }
+
+        public boolean next() {
+            if (read == count || pos >= data.length) {
+                return false;
+            }
+            delta += unzigzag(readVarLong());
+            time += delta;
+
+            int control = data[pos++] & 0xFF;
+            if (control != 0x80) {
+                int leading = control >>> 4;
+                int trailing = control & 0x0F;
+                long xor = 0;
+                for (int i = 7 - leading; i >= trailing; i--) {
+                    xor |= (data[pos++] & 0xFFL) << (i << 3);
+                }
+                bits ^= xor;
+            }
+            read++;
+            return true;
+        }
+
+        public long time() {
+            return time;
+        }
+
+        public double value() {
+            return Double.longBitsToDouble(bits);
+        }
+
+        private long readVarLong() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return v;
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.task;
+
+import cn.hutool.core.collection.CollUtil;
+import com.alibaba.chaosblade.box.common.DeviceMeta;
+import com.alibaba.chaosblade.box.common.utils.JsonUtils;
+import com.alibaba.chaosblade.box.dao.model.MetricBlockDO;
+import com.alibaba.chaosblade.box.dao.model.MetricSeriesDO;
+import com.alibaba.chaosblade.box.dao.repository.MetricBlockRepository;
+import com.alibaba.chaosblade.box.dao.repository.MetricSeriesRepository;
+import com.alibaba.chaosblade.box.metric.MetricChartLine;
+import com.alibaba.chaosblade.box.metric.MetricChartLineRequest;
+import com.alibaba.chaosblade.box.metric.MetricChartLineResponse;
+import com.alibaba.chaosblade.box.metric.MetricService;
+import com.alibaba.chaosblade.box.metric.MetricValues;
+import com.alibaba.chaosblade.box.service.model.metric.MetricModel;
+import com.alibaba.chaosblade.box.service.task.log.i18n.TaskLogType;
+import com.alibaba.chaosblade.box.service.task.log.i18n.TaskLogUtil;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Samples the metrics of all running experiment tasks on one shared tick. Each tick
+ * issues a single query per metric model covering every device of the task, from the
+ * end of the previous window to now, and only points newer than the last sampled one
+ * of their series are saved. Samples are stored per series in delta encoded blocks of
+ * blockDuration seconds, see {@link MetricBlockCodec}. Sampling stops when the task ends,
+ * after one last window up to the stop time, also when that window was still in flight.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class MetricSamplingScheduler implements InitializingBean, DisposableBean {
+
+    @Autowired
+    private MetricService metricService;
+
+    @Autowired
+    private MetricSeriesRepository metricSeriesRepository;
+
+    @Autowired
+    private MetricBlockRepository metricBlockRepository;
+
+    @Value("${chaos.metric.sample.interval:10}")
+    private long interval;
+
+    @Value("${chaos.metric.sample.threads:2}")
+    private int threads;
+
+    @Value("${chaos.metric.sample.blockDuration:600}")
+    private long blockDuration;
+
+    private final Map<Long, TaskSampler> samplers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * start sampling the metrics of an experiment task, sampling window begins now
+     *
+     * @param taskId
+     * @param devices
+     * @param metricModels
+     * @param logger       task logger
+     */
+    public void start(Long taskId, List<DeviceMeta> devices, List<MetricModel> metricModels, Logger logger) {
+        if (CollUtil.isEmpty(metricModels)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<ModelSampler> models = new ArrayList<>(metricModels.size());
+        for (MetricModel metricModel : metricModels) {
+            models.add(new ModelSampler(metricModel, now));
+        }
+        samplers.put(taskId, new TaskSampler(taskId, devices, models, logger));
+    }
+
+    /**
+     * stop sampling an experiment task, the last window up to now is still sampled
+     *
+     * @param taskId
+     */
+    public void stop(Long taskId) {
+        TaskSampler sampler = samplers.remove(taskId);
+        if (sampler != null) {
+            // set before sampling, a window in flight sees it and samples the last one when done
+            sampler.stopTime = System.currentTimeMillis();
+            scheduledExecutorService.execute(() -> sample(sampler, sampler.stopTime));
+        }
+    }
+
+    private void tick() {
+        // windows of all tasks end on the same interval boundary, identical queries can be shared
+        long now = System.currentTimeMillis();
+        long end = now - now % TimeUnit.SECONDS.toMillis(interval);
+        for (TaskSampler sampler : samplers.values()) {
+            try {
+                sample(sampler, end);
+            } catch (Exception e) {
+                log.error("sample metric fail, taskId: {}", sampler.taskId, e);
+            }
+        }
+    }
+
+    private void sample(TaskSampler sampler, long now) {
+        for (ModelSampler model : sampler.models) {
+            sample(sampler, model, now);
+        }
+    }
+
+    private void sample(TaskSampler sampler, ModelSampler model, long now) {
+        // a window still being queried, next tick or its completion continues from its end
+        if (!model.inFlight.compareAndSet(false, true)) {
+            return;
+        }
+        long start = model.windowEnd;
+        if (start >= now) {
+            model.inFlight.set(false);
+            return;
+        }
+        MetricModel metricModel = model.metricModel;
+        CompletableFuture<List<MetricChartLineResponse>> future;
+        try {
+            future = metricService.selectChartLine(MetricChartLineRequest.builder()
+                    .devices(sampler.devices)
+                    .startTime(new Date(start))
+                    .endTime(new Date(now))
+                    .categoryCode(metricModel.getCode())
+                    .params(metricModel.getParams())
+                    .build());
+        } catch (Exception e) {
+            model.inFlight.set(false);
+            throw e;
+        }
+        future.handleAsync((r, e) -> {
+            try {
+                if (e != null) {
+                    TaskLogUtil.info(sampler.logger,
+                            TaskLogType.GET_METRIC_ERROR,
+                            sampler.taskId,
+                            JsonUtils.writeValueAsString(sampler.devices),
+                            e.getMessage());
+                } else {
+                    save(sampler, model, r);
+                    model.windowEnd = now;
+                }
+            } catch (Exception ex) {
+                log.error("save metric fail, taskId: {}", sampler.taskId, ex);
+            } finally {
+                model.inFlight.set(false);
+            }
+            // stopped while this window was in flight, the last window up to the stop time is left
+            long stopTime = sampler.stopTime;
+            if (stopTime > 0 && now < stopTime) {
+                try {
+                    sample(sampler, model, stopTime);
+                } catch (Exception ex) {
+                    log.error("sample metric fail, taskId: {}", sampler.taskId, ex);
+                }
+            }
+            return null;
+        }, scheduledExecutorService);
+    }
+
+    /**
+     * samples are appended to copies of the series state, the copies replace the cached
+     * state only once written, a failed write leaves the state of the window as before
+     * and the retried window appends the same samples again
+     */
+    private void save(TaskSampler sampler, ModelSampler model, List<MetricChartLineResponse> responses) {
+        if (CollUtil.isEmpty(responses)) {
+            return;
+        }
+        MetricModel metricModel = model.metricModel;
+        List<MetricSeriesDO> newSeries = new ArrayList<>();
+        // key -> state of a series not inserted yet, nothing sampled
+        Map<String, SeriesState> created = new HashMap<>();
+        // key -> copy of the series state samples are appended to
+        Map<String, SeriesState> drafts = new LinkedHashMap<>();
+        Set<SeriesState> touched = new LinkedHashSet<>();
+        List<MetricBlockDO> inserts = new ArrayList<>();
+        List<MetricBlockDO> updates = new ArrayList<>();
+        for (MetricChartLineResponse response : responses) {
+            DeviceMeta deviceMeta = response.getDeviceMeta();
+            if (deviceMeta == null) {
+                continue;
+            }
+            long[] times = response.getTimes();
+            double[] values = response.getValues();
+            int size;
+            if (times != null) {
+                size = times.length;
+            } else {
+                List<MetricChartLine> metricChartLines = Optional.ofNullable(response.getMetricChartLines())
+                        .orElse(Collections.emptyList());
+                times = new long[metricChartLines.size()];
+                values = new double[metricChartLines.size()];
+                size = 0;
+                for (MetricChartLine metricChartLine : metricChartLines) {
+                    Double value = MetricValues.parse(metricChartLine.getValue());
+                    if (value != null) {
+                        times[size] = metricChartLine.getTime().getTime();
+                        values[size++] = value;
+                    }
+                }
+            }
+            if (size == 0) {
+                continue;
+            }
+            String key = deviceMeta.getDeviceId() + "/" + response.getMetric();
+            SeriesState series = drafts.get(key);
+            if (series == null && model.series.containsKey(key)) {
+                series = model.series.get(key).copy();
+                drafts.put(key, series);
+            }
+            if (series == null) {
+                MetricSeriesDO metricSeriesDO = MetricSeriesDO.builder()
+                        .taskId(sampler.taskId)
+                        .deviceId(deviceMeta.getDeviceId())
+                        .ip(deviceMeta.getIp())
+                        .hostname(deviceMeta.getHostname())
+                        .categoryId(metricModel.getCategoryId())
+                        .categoryCode(metricModel.getCode())
+                        .metric(response.getMetric())
+                        .build();
+                // id assigned up front, blocks reference it before the series is inserted
+                metricSeriesDO.setId(IdWorker.getId());
+                newSeries.add(metricSeriesDO);
+                created.put(key, new SeriesState(metricSeriesDO));
+                series = new SeriesState(metricSeriesDO);
+                drafts.put(key, series);
+            }
+            for (int i = 0; i < size; i++) {
+                long time = times[i];
+                if (time <= series.lastSampled) {
+                    continue;
+                }
+                long bucket = time - Math.floorMod(time, blockDuration * 1000);
+                if (series.encoder == null || series.encoder.getStartTime() != bucket) {
+                    if (touched.contains(series)) {
+                        flushBlock(sampler, series, inserts, updates);
+                    }
+                    series.encoder = new MetricBlockCodec.Encoder(bucket);
+                    series.block = null;
+                }
+                series.encoder.append(time, values[i]);
+                series.lastSampled = time;
+                touched.add(series);
+            }
+        }
+        if (!newSeries.isEmpty()) {
+            metricSeriesRepository.insertBatch(newSeries);
+            // inserted, blocks of a retried window reference them instead of new rows
+            model.series.putAll(created);
+        }
+
+        for (SeriesState series : touched) {
+            flushBlock(sampler, series, inserts, updates);
+        }
+        // updates first, rewriting a block is idempotent, a failed insert is retried without duplicates
+        if (!updates.isEmpty()) {
+            metricBlockRepository.updateBatch(updates);
+        }
+        if (!inserts.isEmpty()) {
+            metricBlockRepository.insertBatch(inserts);
+        }
+        model.series.putAll(drafts);
+    }
+
+    /**
+     * the open block of a series is rewritten in place until its bucket ends
+     */
+    private void flushBlock(TaskSampler sampler, SeriesState series, List<MetricBlockDO> inserts,
+                            List<MetricBlockDO> updates) {
+        MetricBlockCodec.Encoder encoder = series.encoder;
+        // a new row each time, the block of the cached state is never changed
+        MetricBlockDO block = MetricBlockDO.builder()
+                .taskId(sampler.taskId)
+                .seriesId(series.metricSeriesDO.getId())
+                .startTime(new Date(encoder.getStartTime()))
+                .endTime(new Date(encoder.getLastTime()))
+                .count(encoder.getCount())
+                .data(encoder.toByteArray())
+                .build();
+        if (series.block == null) {
+            inserts.add(block);
+        } else {
+            block.setId(series.block.getId());
+            updates.add(block);
+        }
+        series.block = block;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("Metric-sampling");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutorService.scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        samplers.clear();
+        scheduledExecutorService.shutdown();
+        scheduledExecutorService.awaitTermination(interval, TimeUnit.SECONDS);
+    }
+
+    private static class TaskSampler {
+
+        private final Long taskId;
+
+        private final List<DeviceMeta> devices;
+
+        private final List<ModelSampler> models;
+
+        private final Logger logger;
+
+        /**
+         * 0 while sampling
+         */
+        private volatile long stopTime;
+
+        private TaskSampler(Long taskId, List<DeviceMeta> devices, List<ModelSampler> models, Logger logger) {
+            this.taskId = taskId;
+            this.devices = devices;
+            this.models = models;
+            this.logger = logger;
+        }
+    }
+
+    private static class ModelSampler {
+
+        private final MetricModel metricModel;
+
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+
+        /**
+         * device id / metric -> series
+         */
+        private final Map<String, SeriesState> series = new HashMap<>();
+
+        private volatile long windowEnd;
+
+        private ModelSampler(MetricModel metricModel, long windowStart) {
+            this.metricModel = metricModel;
+            this.windowEnd = windowStart;
+        }
+    }
+
+    private static class SeriesState {
+
+        private final MetricSeriesDO metricSeriesDO;
+
+        private long lastSampled = Long.MIN_VALUE;
+
+        private MetricBlockCodec.Encoder encoder;
+
+        private MetricBlockDO block;
+
+        private SeriesState(MetricSeriesDO metricSeriesDO) {
+            this.metricSeriesDO = metricSeriesDO;
+        }
+
+        private SeriesState copy() {
+            SeriesState copy = new SeriesState(metricSeriesDO);
+            copy.lastSampled = lastSampled;
+            copy.encoder = encoder == null ? null : encoder.copy();
+            copy.block = block;
+            return copy;
+        }
+    }
+}
@@ -16,22 +16,26 @@
 
 package com.alibaba.chaosblade.box.service.task;
 
+import java.util.List;
+
 /**
  * @author yefei
  */
 public interface TaskNode<T> {
 
     /**
+     * nodes to complete before this one runs
      *
      * @return
      */
-    TaskNode<T> next();
+    List<TaskNode<T>> dependencies();
 
     /**
+     * nodes depending on this one
      *
      * @return
      */
-    TaskNode<T> prev();
+    List<TaskNode<T>> dependents();
 
     /**
      *
@@ -45,6 +45,8 @@ public enum TaskLogType {
 
     SUB_EXECUTE_EXECUTING("sub.execute.executing"),
 
+    SUB_EXECUTE_DISPATCHED("sub.execute.dispatched"),
+
     EXPERIMENT_WAIT_OF_BEFORE("experiment.wait.of.before"),
 
     EXPERIMENT_WAIT_OF_AFTER("experiment.wait.of.after"),
@@ -16,18 +16,16 @@
 
 package com.alibaba.chaosblade.box.service.task.stateless;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.chaosblade.box.service.task.ActivityTask;
 import com.alibaba.chaosblade.box.service.task.ActivityTaskExecuteContext;
-import com.alibaba.chaosblade.box.common.DeviceMeta;
+import com.alibaba.chaosblade.box.service.task.ActivityTaskRecordWriter;
 import com.alibaba.chaosblade.box.common.TaskLogRecord;
 import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
 import com.alibaba.chaosblade.box.common.enums.ExperimentDimension;
 import com.alibaba.chaosblade.box.common.enums.RunStatus;
 import com.alibaba.chaosblade.box.common.exception.BizException;
-import com.alibaba.chaosblade.box.common.utils.AnyThrow;
 import com.alibaba.chaosblade.box.dao.model.ExperimentActivityTaskDO;
 import com.alibaba.chaosblade.box.dao.model.ExperimentActivityTaskRecordDO;
 import com.alibaba.chaosblade.box.dao.model.ExperimentTaskDO;
@@ -36,6 +34,7 @@ import com.alibaba.chaosblade.box.dao.repository.ExperimentActivityTaskRepositor
 import com.alibaba.chaosblade.box.dao.repository.ExperimentTaskRepository;
 import com.alibaba.chaosblade.box.invoker.http.model.reuest.HttpChannelRequest;
 import com.alibaba.chaosblade.box.invoker.ChaosInvokerStrategyContext;
+import com.alibaba.chaosblade.box.invoker.RequestCommand;
 import com.alibaba.chaosblade.box.invoker.ResponseCommand;
 import com.alibaba.chaosblade.box.service.task.log.i18n.TaskLogType;
 import com.alibaba.chaosblade.box.service.task.log.i18n.TaskLogUtil;
@@ -45,9 +44,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.alibaba.chaosblade.box.common.exception.ExceptionMessageEnum.EXPERIMENT_SUB_TASK_NOT_FOUNT;
 import static com.alibaba.chaosblade.box.common.exception.ExceptionMessageEnum.EXPERIMENT_TASK_NOT_FOUNT;
@@ -73,12 +76,18 @@ public class DefaultActivityTaskPhaseHandler implements ActivityTaskHandler {
     @Value("${chaos.agent.port}")
     protected int chaosAgentPort;
 
+    @Value("${chaos.experiment.dispatch.maxInFlight:256}")
+    protected int dispatchMaxInFlight;
+
     @Autowired
     protected ChaosInvokerStrategyContext chaosInvokerStrategyContext;
 
     @Autowired
     protected ActivityTaskExecuteContext activityTaskExecuteContext;
 
+    @Autowired
+    protected ActivityTaskRecordWriter activityTaskRecordWriter;
+
     @Autowired
     protected MessageSource messageSource;
 
@@ -133,70 +142,32 @@ public class DefaultActivityTaskPhaseHandler implements ActivityTaskHandler {
             return;
         }
 
-        List<CompletableFuture<ResponseCommand>> futures = CollUtil.newArrayList();
-
-        for (DeviceMeta deviceMeta : activityTask.getDeviceMetas()) {
-
-            final ExperimentActivityTaskRecordDO experimentActivityTaskRecordDO = ExperimentActivityTaskRecordDO.builder()
-                    .ip(deviceMeta.getIp())
-                    .deviceId(deviceMeta.getDeviceId())
-                    .hostname(deviceMeta.getHostname())
-                    .experimentTaskId(activityTask.getExperimentTaskId())
-                    .flowId(activityTask.getFlowId())
-                    .activityTaskId(activityTask.getActivityTaskId())
-                    .sceneCode(activityTask.getSceneCode())
-                    .gmtStart(DateUtil.date())
-                    .phase(activityTask.getPhase())
-                    .build();
-            experimentActivityTaskRecordRepository.insert(experimentActivityTaskRecordDO);
+        List<ExperimentActivityTaskRecordDO> records = activityTask.getDeviceMetas().stream().map(deviceMeta ->
+                ExperimentActivityTaskRecordDO.builder()
+                        .ip(deviceMeta.getIp())
+                        .deviceId(deviceMeta.getDeviceId())
+                        .hostname(deviceMeta.getHostname())
+                        .experimentTaskId(activityTask.getExperimentTaskId())
+                        .flowId(activityTask.getFlowId())
+                        .activityTaskId(activityTask.getActivityTaskId())
+                        .sceneCode(activityTask.getSceneCode())
+                        .gmtStart(DateUtil.date())
+                        .phase(activityTask.getPhase())
+                        .build()
+        ).collect(Collectors.toList());
 
+        CompletableFuture<Void> future = dispatch(activityTask, records, record -> {
             ExperimentDimension experimentDimension = activityTask.getExperimentDimension();
             HttpChannelRequest requestCommand = new HttpChannelRequest();
             requestCommand.setScope(experimentDimension.name().toLowerCase());
             requestCommand.setSceneCode(activityTask.getSceneCode());
             requestCommand.setArguments(activityTask.getArguments());
-            requestCommand.setHost(deviceMeta.getIp());
+            requestCommand.setHost(record.getIp());
             requestCommand.setPort(chaosAgentPort);
             requestCommand.setPhase(activityTask.getPhase());
             requestCommand.setSceneCode(activityTask.getSceneCode());
-
-            CompletableFuture<ResponseCommand> invoke = chaosInvokerStrategyContext.invoke(requestCommand);
-            futures.add(invoke.handleAsync((result, e) -> {
-                ExperimentActivityTaskRecordDO record = ExperimentActivityTaskRecordDO.builder().gmtEnd(DateUtil.date()).build();
-                if (e != null) {
-                    record.setSuccess(false);
-                    record.setErrorMessage(e.getMessage());
-                } else {
-                    record.setSuccess(result.isSuccess());
-                    record.setCode(result.getCode());
-                    record.setResult(result.getResult());
-                    record.setErrorMessage(result.getError());
-
-                    if (!result.isSuccess()) {
-                        if (StrUtil.isNotBlank(result.getError())) {
-                            e = new BizException(result.getError());
-                        } else {
-                            e = new BizException(result.getResult());
-                        }
-                    }
-                }
-                experimentActivityTaskRecordRepository.updateByPrimaryKey(experimentActivityTaskRecordDO.getId(), record);
-                TaskLogUtil.info(log, TaskLogType.SUB_EXECUTE_EXECUTING, activityTask.getExperimentTaskId(),
-                        activityTask.getPhase(),
-                        String.valueOf(activityTask.getActivityTaskId()),
-                        deviceMeta.getHostname() + "-" + deviceMeta.getIp(),
-                        String.valueOf(record.getSuccess()),
-                        record.getErrorMessage()
-                );
-
-                if (e != null) {
-                    AnyThrow.throwUnchecked(e);
-                }
-                return null;
-            }, activityTaskExecuteContext.executor()));
-        }
-
-        CompletableFuture<Void> future = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+            return requestCommand;
+        });
 
         future.handleAsync((r, e) -> {
             postHandle(activityTask, e);
@@ -223,6 +194,148 @@ public class DefaultActivityTaskPhaseHandler implements ActivityTaskHandler {
         }
     }
 
+    /**
+     * insert all records with one batch, then invoke the devices keeping at most
+     * maxInFlight requests outstanding, completes exceptionally with the first failure
+     * after every device answered
+     */
+    protected CompletableFuture<Void> dispatch(ActivityTask activityTask, List<ExperimentActivityTaskRecordDO> records,
+                                               Function<ExperimentActivityTaskRecordDO, RequestCommand> requestFunction) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (records.isEmpty()) {
+            future.complete(null);
+            return future;
+        }
+        experimentActivityTaskRecordRepository.insertBatch(records);
+
+        Dispatch dispatch = new Dispatch(activityTask, records, requestFunction, future);
+        int lanes = Math.min(Math.max(dispatchMaxInFlight, 1), records.size());
+        for (int i = 0; i < lanes; i++) {
+            dispatchNext(dispatch);
+        }
+        return future;
+    }
+
+    private void dispatchNext(Dispatch dispatch) {
+        int index = dispatch.next.getAndIncrement();
+        if (index >= dispatch.records.size()) {
+            return;
+        }
+        ExperimentActivityTaskRecordDO record = dispatch.records.get(index);
+        ActivityTask activityTask = dispatch.activityTask;
+        Date gmtStart = DateUtil.date();
+        long start = System.nanoTime();
+
+        CompletableFuture<ResponseCommand> invoke;
+        try {
+            invoke = chaosInvokerStrategyContext.invoke(dispatch.requestFunction.apply(record));
+        } catch (Exception e) {
+            invoke = new CompletableFuture<>();
+            invoke.completeExceptionally(e);
+        }
+
+        invoke.handleAsync((result, e) -> {
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            dispatch.latencies[index] = latency;
+
+            ExperimentActivityTaskRecordDO update = ExperimentActivityTaskRecordDO.builder()
+                    .gmtStart(gmtStart)
+                    .gmtEnd(DateUtil.date())
+                    .build();
+            if (e != null) {
+                update.setSuccess(false);
+                update.setErrorMessage(e.getMessage());
+            } else {
+                update.setSuccess(result.isSuccess());
+                update.setCode(result.getCode());
+                update.setResult(result.getResult());
+                update.setErrorMessage(result.getError());
+
+                if (!result.isSuccess()) {
+                    if (StrUtil.isNotBlank(result.getError())) {
+                        e = new BizException(result.getError());
+                    } else {
+                        e = new BizException(result.getResult());
+                    }
+                }
+            }
+            activityTaskRecordWriter.update(record.getId(), update);
+            TaskLogUtil.info(log, TaskLogType.SUB_EXECUTE_EXECUTING, activityTask.getExperimentTaskId(),
+                    activityTask.getPhase(),
+                    String.valueOf(activityTask.getActivityTaskId()),
+                    record.getHostname() + "-" + record.getIp(),
+                    String.valueOf(update.getSuccess()),
+                    update.getErrorMessage()
+            );
+            log.debug("dispatch device {}-{}, latency: {} ms", record.getHostname(), record.getIp(), latency);
+            return e;
+        }, activityTaskExecuteContext.executor()).whenComplete((e, t) -> {
+            Throwable throwable = t != null ? t : e;
+            if (throwable != null) {
+                dispatch.error.compareAndSet(null, throwable);
+            }
+            if (dispatch.remaining.decrementAndGet() == 0) {
+                dispatch.complete();
+            } else {
+                dispatchNext(dispatch);
+            }
+        });
+    }
+
+    private class Dispatch {
+
+        final ActivityTask activityTask;
+
+        final List<ExperimentActivityTaskRecordDO> records;
+
+        final Function<ExperimentActivityTaskRecordDO, RequestCommand> requestFunction;
+
+        final CompletableFuture<Void> future;
+
+        final AtomicInteger next = new AtomicInteger();
+
+        final AtomicInteger remaining;
+
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        final long[] latencies;
+
+        Dispatch(ActivityTask activityTask, List<ExperimentActivityTaskRecordDO> records,
+                 Function<ExperimentActivityTaskRecordDO, RequestCommand> requestFunction,
+                 CompletableFuture<Void> future) {
+            this.activityTask = activityTask;
+            this.records = records;
+            this.requestFunction = requestFunction;
+            this.future = future;
+            this.remaining = new AtomicInteger(records.size());
+            this.latencies = new long[records.size()];
+        }
+
+        void complete() {
+            LongSummaryStatistics statistics = Arrays.stream(latencies).summaryStatistics();
+            TaskLogUtil.info(log, TaskLogType.SUB_EXECUTE_DISPATCHED, activityTask.getExperimentTaskId(),
+                    activityTask.getPhase(),
+                    String.valueOf(activityTask.getActivityTaskId()),
+                    String.valueOf(statistics.getCount()),
+                    String.valueOf((long) statistics.getAverage()),
+                    String.valueOf(statistics.getMax())
+            );
+            // results must be visible to postHandle
+            try {
+                activityTaskRecordWriter.flush();
+            } catch (Exception e) {
+                log.error("flush activity task records fail!", e);
+            }
+
+            Throwable throwable = error.get();
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(null);
+            }
+        }
+    }
+
     @Override
     public void postHandle(ActivityTask activityTask, Throwable e) {
 
@@ -16,27 +16,26 @@
 
 package com.alibaba.chaosblade.box.service.task.stateless;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.util.StrUtil;
 import com.alibaba.chaosblade.box.service.task.ActivityTask;
 import com.alibaba.chaosblade.box.common.TaskLogRecord;
 import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
 import com.alibaba.chaosblade.box.common.enums.ExperimentDimension;
 import com.alibaba.chaosblade.box.common.enums.RunStatus;
 import com.alibaba.chaosblade.box.common.exception.BizException;
-import com.alibaba.chaosblade.box.common.utils.AnyThrow;
 import com.alibaba.chaosblade.box.dao.model.ExperimentActivityTaskRecordDO;
 import com.alibaba.chaosblade.box.dao.model.ExperimentTaskDO;
 import com.alibaba.chaosblade.box.invoker.http.model.reuest.HttpChannelRequest;
-import com.alibaba.chaosblade.box.invoker.ResponseCommand;
 import com.alibaba.chaosblade.box.service.task.log.i18n.TaskLogType;
 import com.alibaba.chaosblade.box.service.task.log.i18n.TaskLogUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import static com.alibaba.chaosblade.box.common.exception.ExceptionMessageEnum.EXPERIMENT_TASK_NOT_FOUNT;
 
@@ -77,9 +76,9 @@ public class DestroyActivityTaskHandler extends DefaultActivityTaskPhaseHandler
                 sceneCode.replace(".stop", "")
         );
 
-        List<CompletableFuture<ResponseCommand>> futures = CollUtil.newArrayList();
-        for (ExperimentActivityTaskRecordDO record : records) {
-            final ExperimentActivityTaskRecordDO experimentActivityTaskRecordDO = ExperimentActivityTaskRecordDO.builder()
+        Map<ExperimentActivityTaskRecordDO, ExperimentActivityTaskRecordDO> attacks = new IdentityHashMap<>();
+        List<ExperimentActivityTaskRecordDO> recordDOS = records.stream().map(record -> {
+            ExperimentActivityTaskRecordDO experimentActivityTaskRecordDO = ExperimentActivityTaskRecordDO.builder()
                     .ip(record.getIp())
                     .deviceId(record.getDeviceId())
                     .hostname(record.getHostname())
@@ -90,8 +89,12 @@ public class DestroyActivityTaskHandler extends DefaultActivityTaskPhaseHandler
                     .gmtStart(DateUtil.date())
                     .phase(activityTask.getPhase())
                     .build();
-            experimentActivityTaskRecordRepository.insert(experimentActivityTaskRecordDO);
+            attacks.put(experimentActivityTaskRecordDO, record);
+            return experimentActivityTaskRecordDO;
+        }).collect(Collectors.toList());
 
+        CompletableFuture<Void> future = dispatch(activityTask, recordDOS, recordDO -> {
+            ExperimentActivityTaskRecordDO record = attacks.get(recordDO);
             ExperimentDimension experimentDimension = activityTask.getExperimentDimension();
             HttpChannelRequest requestCommand = new HttpChannelRequest();
             requestCommand.setScope(experimentDimension.name().toLowerCase());
@@ -104,45 +107,8 @@ public class DestroyActivityTaskHandler extends DefaultActivityTaskPhaseHandler
             if (record.getSuccess()) {
                 requestCommand.setName(record.getResult());
             }
-
-            CompletableFuture<ResponseCommand> invoke = chaosInvokerStrategyContext.invoke(requestCommand);
-            futures.add(invoke.handleAsync((result, e) -> {
-                ExperimentActivityTaskRecordDO recordDO = ExperimentActivityTaskRecordDO.builder().gmtEnd(DateUtil.date()).build();
-                if (e != null) {
-                    recordDO.setSuccess(false);
-                    recordDO.setErrorMessage(e.getMessage());
-                } else {
-                    recordDO.setSuccess(result.isSuccess());
-                    recordDO.setCode(result.getCode());
-                    recordDO.setResult(result.getResult());
-                    recordDO.setErrorMessage(result.getError());
-
-                    if (!result.isSuccess()) {
-                        if (StrUtil.isNotBlank(result.getError())) {
-                            e = new BizException(result.getError());
-                        } else {
-                            e = new BizException(result.getResult());
-                        }
-                    }
-                }
-                experimentActivityTaskRecordRepository.updateByPrimaryKey(experimentActivityTaskRecordDO.getId(), recordDO);
-
-                TaskLogUtil.info(log, TaskLogType.SUB_EXECUTE_EXECUTING, activityTask.getExperimentTaskId(),
-                        activityTask.getPhase(),
-                        String.valueOf(activityTask.getActivityTaskId()),
-                        record.getHostname() + "-" + record.getIp(),
-                        String.valueOf(record.getSuccess()),
-                        record.getErrorMessage()
-                );
-
-                if (e != null) {
-                    AnyThrow.throwUnchecked(e);
-                }
-                return null;
-            }, activityTaskExecuteContext.executor()));
-        }
-
-        CompletableFuture<Void> future = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+            return requestCommand;
+        });
 
         future.handleAsync((r, e) -> {
             postHandle(activityTask, e);
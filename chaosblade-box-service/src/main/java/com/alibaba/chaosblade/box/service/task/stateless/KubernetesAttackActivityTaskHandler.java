@@ -89,6 +89,7 @@ public class KubernetesAttackActivityTaskHandler extends AttackActivityTaskHandl
         requestCommand.setPhase(activityTask.getPhase());
         requestCommand.setSceneCode(activityTask.getSceneCode());
         requestCommand.setArguments(activityTask.getArguments());
+        requestCommand.setExperimentTaskId(activityTask.getExperimentTaskId());
 
         chaosInvokerStrategyContext.invoke(requestCommand).handleAsync((result, e) -> {
             try {
@@ -0,0 +1,316 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.collect;
+
+import com.alibaba.chaosblade.box.collector.model.Node;
+import com.alibaba.chaosblade.box.collector.model.Pod;
+import com.alibaba.chaosblade.box.common.enums.DeviceStatus;
+import com.alibaba.chaosblade.box.common.enums.DeviceType;
+import com.alibaba.chaosblade.box.dao.model.DeviceDO;
+import com.alibaba.chaosblade.box.dao.model.DeviceNodeDO;
+import com.alibaba.chaosblade.box.dao.model.DevicePodDO;
+import com.alibaba.chaosblade.box.dao.repository.DeviceNodeRepository;
+import com.alibaba.chaosblade.box.dao.repository.DevicePodRepository;
+import com.alibaba.chaosblade.box.dao.repository.DeviceRepository;
+import com.alibaba.testable.core.annotation.MockMethod;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Diffs against in-memory tables standing in for the repositories.
+ *
+ * @author yefei
+ */
+public class KubernetesInventorySyncTest {
+
+    private static final Map<Long, DeviceDO> DEVICES = new LinkedHashMap<>();
+
+    private static final Map<Long, DeviceNodeDO> DEVICE_NODES = new LinkedHashMap<>();
+
+    private static final Map<Long, DevicePodDO> DEVICE_PODS = new LinkedHashMap<>();
+
+    private static long sequence;
+
+    private static int deviceInserts;
+
+    private KubernetesInventorySync kubernetesInventorySync;
+
+    public static class Mock {
+
+        @MockMethod
+        private List<DeviceDO> selectMachines(DeviceRepository self, DeviceDO deviceDO) {
+            return DEVICES.values().stream()
+                    .filter(device -> device.getType().equals(deviceDO.getType()))
+                    .map(KubernetesInventorySyncTest::copy)
+                    .collect(Collectors.toList());
+        }
+
+        @MockMethod
+        private List<DeviceDO> selectBatchIds(DeviceRepository self, Collection<? extends Serializable> idList) {
+            return idList.stream().map(DEVICES::get).filter(Objects::nonNull)
+                    .map(KubernetesInventorySyncTest::copy)
+                    .collect(Collectors.toList());
+        }
+
+        @MockMethod
+        private void insertBatch(DeviceRepository self, Collection<DeviceDO> collection) {
+            deviceInserts += collection.size();
+            collection.forEach(deviceDO -> {
+                deviceDO.setId(++sequence);
+                DEVICES.put(deviceDO.getId(), copy(deviceDO));
+            });
+        }
+
+        @MockMethod
+        private void updateBatch(DeviceRepository self, Collection<DeviceDO> collection) {
+            collection.forEach(update -> merge(DEVICES.get(update.getId()), update));
+        }
+
+        @MockMethod
+        private int updateByIds(DeviceRepository self, Collection<Long> ids, DeviceDO deviceDO) {
+            ids.forEach(id -> merge(DEVICES.get(id), deviceDO));
+            return ids.size();
+        }
+
+        @MockMethod
+        private List<DeviceNodeDO> selectList(DeviceNodeRepository self, DeviceNodeDO deviceNodeDO) {
+            return new ArrayList<>(DEVICE_NODES.values());
+        }
+
+        @MockMethod
+        private void insertBatch(DeviceNodeRepository self, Collection<DeviceNodeDO> collection) {
+            collection.forEach(deviceNodeDO -> {
+                deviceNodeDO.setId(++sequence);
+                DEVICE_NODES.put(deviceNodeDO.getId(), deviceNodeDO);
+            });
+        }
+
+        @MockMethod
+        private List<DevicePodDO> selectList(DevicePodRepository self, DevicePodDO devicePodDO) {
+            return DEVICE_PODS.values().stream().map(pod -> {
+                DevicePodDO copy = DevicePodDO.builder()
+                        .nodeId(pod.getNodeId())
+                        .deviceId(pod.getDeviceId())
+                        .namespace(pod.getNamespace())
+                        .podName(pod.getPodName())
+                        .podIp(pod.getPodIp())
+                        .containers(pod.getContainers())
+                        .build();
+                copy.setId(pod.getId());
+                return copy;
+            }).collect(Collectors.toList());
+        }
+
+        @MockMethod
+        private void insertBatch(DevicePodRepository self, Collection<DevicePodDO> collection) {
+            collection.forEach(devicePodDO -> {
+                devicePodDO.setId(++sequence);
+                DEVICE_PODS.put(devicePodDO.getId(), devicePodDO);
+            });
+        }
+
+        @MockMethod
+        private void updateBatch(DevicePodRepository self, Collection<DevicePodDO> collection) {
+            collection.forEach(update -> {
+                DevicePodDO devicePodDO = DEVICE_PODS.get(update.getId());
+                if (update.getPodIp() != null) {
+                    devicePodDO.setPodIp(update.getPodIp());
+                }
+                if (update.getNodeId() != null) {
+                    devicePodDO.setNodeId(update.getNodeId());
+                }
+                if (update.getContainers() != null) {
+                    devicePodDO.setContainers(update.getContainers());
+                }
+            });
+        }
+    }
+
+    @Before
+    public void before() {
+        DEVICES.clear();
+        DEVICE_NODES.clear();
+        DEVICE_PODS.clear();
+        sequence = 0;
+        deviceInserts = 0;
+        kubernetesInventorySync = new KubernetesInventorySync();
+        ReflectionTestUtils.setField(kubernetesInventorySync, "flushSize", Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testSyncNodes() {
+        Long changed = device(DeviceType.NODE, "node-1", "10.0.0.1", DeviceStatus.ONLINE);
+        Long offline = device(DeviceType.NODE, "node-2", "10.0.0.2", DeviceStatus.OFFLINE);
+        Long removed = device(DeviceType.NODE, "node-3", "10.0.0.3", DeviceStatus.ONLINE);
+
+        kubernetesInventorySync.syncNodes(Arrays.asList(node(null, "node-1", "10.0.0.11"),
+                node(null, "node-2", "10.0.0.2"), node(null, "node-4", "10.0.0.4")));
+
+        Assert.assertEquals("10.0.0.11", DEVICES.get(changed).getIp());
+        Assert.assertEquals(DeviceStatus.ONLINE.getStatus(), (byte) DEVICES.get(offline).getStatus());
+        Assert.assertEquals(DeviceStatus.OFFLINE.getStatus(), (byte) DEVICES.get(removed).getStatus());
+        Assert.assertEquals(1, deviceInserts);
+        DeviceNodeDO deviceNodeDO = DEVICE_NODES.values().iterator().next();
+        Assert.assertEquals("node-4", deviceNodeDO.getNodeName());
+        Assert.assertEquals("node-4", DEVICES.get(deviceNodeDO.getDeviceId()).getHostname());
+    }
+
+    @Test
+    public void testForbiddenKept() {
+        Long present = device(DeviceType.NODE, "node-1", "10.0.0.1", DeviceStatus.FORBIDDEN);
+        Long absent = device(DeviceType.NODE, "node-2", "10.0.0.2", DeviceStatus.FORBIDDEN);
+
+        kubernetesInventorySync.syncNodes(Collections.singletonList(node(null, "node-1", "10.0.0.1")));
+        Assert.assertEquals(DeviceStatus.FORBIDDEN.getStatus(), (byte) DEVICES.get(present).getStatus());
+        Assert.assertEquals(DeviceStatus.FORBIDDEN.getStatus(), (byte) DEVICES.get(absent).getStatus());
+        Assert.assertNotNull(DEVICES.get(present).getLastPingTime());
+
+        // a watch event neither brings a forbidden node online
+        kubernetesInventorySync.upsertNode(node("uid-1", "node-1", "10.0.0.1"));
+        kubernetesInventorySync.flush();
+        Assert.assertEquals(DeviceStatus.FORBIDDEN.getStatus(), (byte) DEVICES.get(present).getStatus());
+    }
+
+    @Test
+    public void testSyncPods() {
+        Long kept = pod("default", "pod-1", "10.1.0.1", DeviceStatus.ONLINE);
+        Long removed = pod("default", "pod-2", "10.1.0.2", DeviceStatus.ONLINE);
+
+        // some nodes failed to collect, absent pods are not taken offline
+        kubernetesInventorySync.syncPods(Collections.singletonList(pod(null, "default", "pod-1", "10.1.0.11")), false);
+        Assert.assertEquals(DeviceStatus.ONLINE.getStatus(), (byte) DEVICES.get(removed).getStatus());
+        Assert.assertEquals("10.1.0.11", DEVICES.get(kept).getIp());
+        Assert.assertEquals("10.1.0.11", podOf(kept).getPodIp());
+
+        kubernetesInventorySync.syncPods(Arrays.asList(pod(null, "default", "pod-1", "10.1.0.11"),
+                pod(null, "other", "pod-2", "10.1.0.3")), true);
+        Assert.assertEquals(DeviceStatus.OFFLINE.getStatus(), (byte) DEVICES.get(removed).getStatus());
+        // matched by namespace and name, pod-2 of another namespace is new
+        Assert.assertEquals(1, deviceInserts);
+    }
+
+    @Test
+    public void testCoalesceByUid() {
+        Long deviceId = pod("default", "pod-1", "10.1.0.1", DeviceStatus.ONLINE);
+
+        kubernetesInventorySync.upsertPod(pod("uid-1", "default", "pod-1", "10.1.0.2"));
+        kubernetesInventorySync.removePod(pod("uid-1", "default", "pod-1", "10.1.0.2"));
+        kubernetesInventorySync.upsertPod(pod("uid-1", "default", "pod-1", "10.1.0.3"));
+        kubernetesInventorySync.flush();
+
+        Assert.assertEquals(DeviceStatus.ONLINE.getStatus(), (byte) DEVICES.get(deviceId).getStatus());
+        Assert.assertEquals("10.1.0.3", DEVICES.get(deviceId).getIp());
+        Assert.assertEquals("10.1.0.3", podOf(deviceId).getPodIp());
+
+        kubernetesInventorySync.upsertPod(pod("uid-1", "default", "pod-1", "10.1.0.3"));
+        kubernetesInventorySync.removePod(pod("uid-1", "default", "pod-1", "10.1.0.3"));
+        kubernetesInventorySync.flush();
+        Assert.assertEquals(DeviceStatus.OFFLINE.getStatus(), (byte) DEVICES.get(deviceId).getStatus());
+        Assert.assertEquals(0, deviceInserts);
+    }
+
+    @Test
+    public void testDeleteThenReAdd() {
+        Long deviceId = pod("default", "pod-1", "10.1.0.1", DeviceStatus.ONLINE);
+
+        // recreated under the same name, the new uid is a different object
+        kubernetesInventorySync.removePod(pod("uid-1", "default", "pod-1", "10.1.0.1"));
+        kubernetesInventorySync.upsertPod(pod("uid-2", "default", "pod-1", "10.1.0.2"));
+        kubernetesInventorySync.flush();
+
+        Assert.assertEquals(DeviceStatus.ONLINE.getStatus(), (byte) DEVICES.get(deviceId).getStatus());
+        Assert.assertEquals("10.1.0.2", DEVICES.get(deviceId).getIp());
+        Assert.assertEquals(0, deviceInserts);
+    }
+
+    private static Long device(DeviceType type, String hostname, String ip, DeviceStatus status) {
+        DeviceDO deviceDO = DeviceDO.builder()
+                .type(type.getCode())
+                .hostname(hostname)
+                .ip(ip)
+                .status(status.getStatus())
+                .build();
+        deviceDO.setId(++sequence);
+        DEVICES.put(deviceDO.getId(), deviceDO);
+        return deviceDO.getId();
+    }
+
+    private static Long pod(String namespace, String name, String ip, DeviceStatus status) {
+        Long deviceId = device(DeviceType.POD, name, ip, status);
+        DevicePodDO devicePodDO = DevicePodDO.builder()
+                .deviceId(deviceId)
+                .namespace(namespace)
+                .podName(name)
+                .podIp(ip)
+                .build();
+        devicePodDO.setId(++sequence);
+        DEVICE_PODS.put(devicePodDO.getId(), devicePodDO);
+        return deviceId;
+    }
+
+    private static DevicePodDO podOf(Long deviceId) {
+        return DEVICE_PODS.values().stream()
+                .filter(pod -> pod.getDeviceId().equals(deviceId))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private static Node node(String uid, String name, String ip) {
+        return Node.builder().uid(uid).name(name).ip(ip).build();
+    }
+
+    private static Pod pod(String uid, String namespace, String name, String ip) {
+        return Pod.builder().uid(uid).namespace(namespace).name(name).ip(ip).build();
+    }
+
+    private static DeviceDO copy(DeviceDO deviceDO) {
+        DeviceDO copy = DeviceDO.builder().build();
+        merge(copy, deviceDO);
+        copy.setId(deviceDO.getId());
+        return copy;
+    }
+
+    /**
+     * non null columns of the update, as the mapper writes them
+     */
+    private static void merge(DeviceDO deviceDO, DeviceDO update) {
+        if (update.getType() != null) {
+            deviceDO.setType(update.getType());
+        }
+        if (update.getHostname() != null) {
+            deviceDO.setHostname(update.getHostname());
+        }
+        if (update.getIp() != null) {
+            deviceDO.setIp(update.getIp());
+        }
+        if (update.getStatus() != null) {
+            deviceDO.setStatus(update.getStatus());
+        }
+        if (update.getLastPingTime() != null) {
+            deviceDO.setLastPingTime(update.getLastPingTime());
+        }
+        if (update.getLastOnlineTime() != null) {
+            deviceDO.setLastOnlineTime(update.getLastOnlineTime());
+        }
+    }
+}
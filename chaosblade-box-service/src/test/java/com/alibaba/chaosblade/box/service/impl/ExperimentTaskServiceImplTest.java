@@ -0,0 +1,173 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.impl;
+
+import com.alibaba.chaosblade.box.common.enums.RunStatus;
+import com.alibaba.chaosblade.box.dao.model.ExperimentTaskDO;
+import com.alibaba.chaosblade.box.dao.model.ExperimentTaskLogDO;
+import com.alibaba.chaosblade.box.dao.repository.ExperimentTaskLogRepository;
+import com.alibaba.chaosblade.box.dao.repository.ExperimentTaskRepository;
+import com.alibaba.chaosblade.box.service.logback.TaskLogWriter;
+import com.alibaba.chaosblade.box.service.model.experiment.ExperimentTaskLogResponse;
+import com.alibaba.chaosblade.box.service.model.experiment.ExperimentTaskRequest;
+import com.alibaba.testable.core.annotation.MockMethod;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * @author yefei
+ */
+public class ExperimentTaskServiceImplTest {
+
+    private static final Long TASK_ID = 1L;
+
+    private static final List<ExperimentTaskLogDO> LOGS = new ArrayList<>();
+
+    private static byte runStatus;
+
+    private static boolean drained;
+
+    /**
+     * rows inserted by the log writer while the service checks the finish condition
+     */
+    private static List<ExperimentTaskLogDO> lateLogs;
+
+    private final ExperimentTaskServiceImpl experimentTaskService = new ExperimentTaskServiceImpl();
+
+    public static class Mock {
+
+        @MockMethod
+        private List<ExperimentTaskLogDO> selectByTaskId(ExperimentTaskLogRepository self,
+                                                         Long taskId, Long afterId, int limit) {
+            return LOGS.stream()
+                    .filter(log -> log.getTaskId().equals(taskId))
+                    .filter(log -> afterId == null || log.getId() > afterId)
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @MockMethod
+        private Optional<ExperimentTaskDO> selectById(ExperimentTaskRepository self, Long id) {
+            return Optional.of(ExperimentTaskDO.builder().runStatus(runStatus).build());
+        }
+
+        @MockMethod
+        private boolean drained(TaskLogWriter self, Long taskId) {
+            if (lateLogs != null) {
+                LOGS.addAll(lateLogs);
+                lateLogs = null;
+            }
+            return drained;
+        }
+    }
+
+    @Before
+    public void init() {
+        LOGS.clear();
+        runStatus = RunStatus.RUNNING.getValue();
+        drained = true;
+        lateLogs = null;
+    }
+
+    @Test
+    public void testCursorPaging() {
+        LOGS.addAll(logs(1, 5));
+
+        ExperimentTaskLogResponse response = query(null, 2);
+        Assert.assertEquals(Arrays.asList("1", "2"), response.getLogs());
+        Assert.assertEquals(Long.valueOf(2), response.getLastId());
+        Assert.assertFalse(response.getFinished());
+
+        response = query(response.getLastId(), 2);
+        Assert.assertEquals(Arrays.asList("3", "4"), response.getLogs());
+
+        response = query(response.getLastId(), 2);
+        Assert.assertEquals(Arrays.asList("5"), response.getLogs());
+        Assert.assertEquals(Long.valueOf(5), response.getLastId());
+
+        // no new rows, the cursor stays
+        response = query(response.getLastId(), 2);
+        Assert.assertTrue(response.getLogs().isEmpty());
+        Assert.assertEquals(Long.valueOf(5), response.getLastId());
+        Assert.assertFalse(response.getFinished());
+    }
+
+    @Test
+    public void testNotFinishedUntilDrained() {
+        LOGS.addAll(logs(1, 2));
+        runStatus = RunStatus.FINISHED.getValue();
+        drained = false;
+
+        ExperimentTaskLogResponse response = query(2L, 10);
+        Assert.assertTrue(response.getLogs().isEmpty());
+        Assert.assertFalse(response.getFinished());
+
+        drained = true;
+        response = query(2L, 10);
+        Assert.assertTrue(response.getFinished());
+    }
+
+    @Test
+    public void testTailInsertedBeforeDrained() {
+        LOGS.addAll(logs(1, 2));
+        runStatus = RunStatus.FINISHED.getValue();
+        lateLogs = logs(3, 4);
+
+        ExperimentTaskLogResponse response = query(2L, 10);
+        Assert.assertEquals(Arrays.asList("3", "4"), response.getLogs());
+        Assert.assertEquals(Long.valueOf(4), response.getLastId());
+        Assert.assertFalse(response.getFinished());
+
+        response = query(response.getLastId(), 10);
+        Assert.assertTrue(response.getFinished());
+    }
+
+    @Test
+    public void testNotFinishedWhileRunning() {
+        drained = true;
+        ExperimentTaskLogResponse response = query(null, 10);
+        Assert.assertFalse(response.getFinished());
+    }
+
+    private ExperimentTaskLogResponse query(Long afterId, int limit) {
+        ExperimentTaskRequest request = new ExperimentTaskRequest();
+        request.setTaskId(TASK_ID);
+        request.setAfterId(afterId);
+        request.setLimit(limit);
+        return experimentTaskService.queryTaskLogByCursor(request);
+    }
+
+    private static List<ExperimentTaskLogDO> logs(long from, long to) {
+        List<ExperimentTaskLogDO> logs = new ArrayList<>();
+        for (long id = from; id <= to; id++) {
+            ExperimentTaskLogDO log = ExperimentTaskLogDO.builder()
+                    .taskId(TASK_ID)
+                    .content(String.valueOf(id))
+                    .build();
+            log.setId(id);
+            logs.add(log);
+        }
+        return logs;
+    }
+}
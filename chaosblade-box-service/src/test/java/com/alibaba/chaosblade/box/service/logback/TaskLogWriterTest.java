@@ -0,0 +1,87 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.logback;
+
+import com.alibaba.chaosblade.box.dao.model.ExperimentTaskLogDO;
+import com.alibaba.chaosblade.box.dao.repository.ExperimentTaskLogRepository;
+import com.alibaba.testable.core.annotation.MockMethod;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yefei
+ */
+public class TaskLogWriterTest {
+
+    private static volatile CountDownLatch insertStarted;
+
+    private static volatile CountDownLatch insertAllowed;
+
+    private final TaskLogWriter taskLogWriter = new TaskLogWriter();
+
+    public static class Mock {
+
+        @MockMethod
+        private void insertBatch(ExperimentTaskLogRepository self, Collection<ExperimentTaskLogDO> collection)
+                throws InterruptedException {
+            insertStarted.countDown();
+            insertAllowed.await();
+        }
+    }
+
+    @Before
+    public void init() {
+        insertStarted = new CountDownLatch(1);
+        insertAllowed = new CountDownLatch(1);
+        ReflectionTestUtils.setField(taskLogWriter, "capacity", 16);
+        ReflectionTestUtils.setField(taskLogWriter, "batchSize", 16);
+        ReflectionTestUtils.setField(taskLogWriter, "flushInterval", 10L);
+        ReflectionTestUtils.setField(taskLogWriter, "offerTimeout", 10L);
+        taskLogWriter.afterPropertiesSet();
+    }
+
+    @After
+    public void destroy() throws Exception {
+        insertAllowed.countDown();
+        taskLogWriter.destroy();
+    }
+
+    @Test(timeout = 10000)
+    public void testDrained() throws Exception {
+        Assert.assertTrue(taskLogWriter.drained(1L));
+
+        taskLogWriter.write(ExperimentTaskLogDO.builder().taskId(1L).content("a").build());
+        Assert.assertFalse(taskLogWriter.drained(1L));
+        Assert.assertTrue(taskLogWriter.drained(2L));
+
+        // picked up by the writer thread but not inserted yet
+        Assert.assertTrue(insertStarted.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(taskLogWriter.drained(1L));
+
+        insertAllowed.countDown();
+        while (!taskLogWriter.drained(1L)) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.probes.heartbeats;
+
+import com.alibaba.chaosblade.box.common.enums.DeviceStatus;
+import com.alibaba.chaosblade.box.dao.model.DeviceDO;
+import com.alibaba.chaosblade.box.dao.model.ProbesDO;
+import com.alibaba.chaosblade.box.dao.repository.DeviceRepository;
+import com.alibaba.chaosblade.box.dao.repository.ProbesRepository;
+import com.alibaba.testable.core.annotation.MockMethod;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yefei
+ */
+public class HeartbeatRegistryTest {
+
+    private static final List<String> WRITES = new ArrayList<>();
+
+    private static boolean probesFail;
+
+    private HeartbeatRegistry heartbeatRegistry;
+
+    public static class Mock {
+
+        @MockMethod
+        private int updateByIds(ProbesRepository self, Collection<Long> ids, ProbesDO probesDO) {
+            if (probesFail) {
+                probesFail = false;
+                throw new IllegalStateException("mock update probes fail");
+            }
+            WRITES.add("probes " + ids + " status " + probesDO.getStatus());
+            return ids.size();
+        }
+
+        @MockMethod
+        private int updateByIds(DeviceRepository self, Collection<Long> ids, DeviceDO deviceDO) {
+            WRITES.add("device " + ids + " status " + deviceDO.getStatus());
+            return ids.size();
+        }
+    }
+
+    @Before
+    public void before() {
+        WRITES.clear();
+        probesFail = false;
+        heartbeatRegistry = new HeartbeatRegistry();
+        ReflectionTestUtils.setField(heartbeatRegistry, "interval", 1);
+        ReflectionTestUtils.setField(heartbeatRegistry, "flushInterval", 3600);
+        heartbeatRegistry.afterPropertiesSet();
+    }
+
+    @After
+    public void after() {
+        heartbeatRegistry.destroy();
+    }
+
+    @Test
+    public void testFlushChanged() {
+        register();
+        heartbeatRegistry.flush();
+        Assert.assertEquals(Collections.emptyList(), WRITES);
+
+        heartbeatRegistry.offline(1L);
+        heartbeatRegistry.flush();
+        Assert.assertEquals(Arrays.asList("probes [1] status 3", "device [10] status 3"), WRITES);
+
+        WRITES.clear();
+        heartbeatRegistry.flush();
+        Assert.assertEquals(Collections.emptyList(), WRITES);
+    }
+
+    @Test
+    public void testRetryFailedBatch() {
+        register();
+        heartbeatRegistry.offline(1L);
+
+        probesFail = true;
+        heartbeatRegistry.flush();
+        // the device batch is independent of the failed probes batch
+        Assert.assertEquals(Collections.singletonList("device [10] status 3"), WRITES);
+
+        WRITES.clear();
+        heartbeatRegistry.flush();
+        Assert.assertEquals(Collections.singletonList("probes [1] status 3"), WRITES);
+    }
+
+    private void register() {
+        Date lastOnlineTime = new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(2));
+        ProbesDO probesDO = ProbesDO.builder()
+                .deviceId(10L)
+                .ip("127.0.0.1")
+                .status(DeviceStatus.ONLINE.getStatus())
+                .lastOnlineTime(lastOnlineTime)
+                .lastPingTime(lastOnlineTime)
+                .build();
+        probesDO.setId(1L);
+        heartbeatRegistry.register(probesDO, DeviceStatus.ONLINE.getStatus());
+    }
+}
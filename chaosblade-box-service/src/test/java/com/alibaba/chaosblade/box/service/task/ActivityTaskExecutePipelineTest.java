@@ -0,0 +1,145 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.task;
+
+import com.alibaba.chaosblade.box.common.constants.ChaosConstant;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * @author yefei
+ */
+public class ActivityTaskExecutePipelineTest {
+
+    @Test
+    public void testPhaseOrder() {
+        ActivityTaskExecutePipeline pipeline = new ActivityTaskExecutePipeline();
+        pipeline.addLast(task(1L, ChaosConstant.PHASE_PREPARE));
+        pipeline.addLast(task(2L, ChaosConstant.PHASE_ATTACK));
+        pipeline.addLast(task(3L, ChaosConstant.PHASE_ATTACK));
+        pipeline.addLast(task(4L, ChaosConstant.PHASE_RECOVER));
+        Assert.assertTrue(pipeline.start());
+        Assert.assertEquals(Collections.singleton(1L), ids(pipeline.roots()));
+
+        ActivityTaskExecutePipeline.Completion completion = pipeline.complete(node(pipeline, 1L), null);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(2L, 3L)), ids(completion.getReady()));
+        Assert.assertFalse(completion.isEnd());
+
+        // recover waits for every attack
+        completion = pipeline.complete(node(pipeline, 3L), null);
+        Assert.assertTrue(completion.getReady().isEmpty());
+        completion = pipeline.complete(node(pipeline, 2L), null);
+        Assert.assertEquals(Collections.singleton(4L), ids(completion.getReady()));
+        Assert.assertFalse(completion.isEnd());
+
+        completion = pipeline.complete(node(pipeline, 4L), null);
+        Assert.assertTrue(completion.getReady().isEmpty());
+        Assert.assertTrue(completion.isEnd());
+        Assert.assertTrue(pipeline.isEnd());
+        Assert.assertNull(pipeline.error());
+    }
+
+    @Test
+    public void testFanIn() {
+        ActivityTaskExecutePipeline pipeline = new ActivityTaskExecutePipeline();
+        pipeline.add(task(1L, ChaosConstant.PHASE_ATTACK), Collections.emptyList());
+        pipeline.add(task(2L, ChaosConstant.PHASE_ATTACK), Collections.emptyList());
+        pipeline.add(task(3L, ChaosConstant.PHASE_RECOVER), Arrays.asList(1L, 2L));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), ids(pipeline.roots()));
+
+        RuntimeException error = new RuntimeException("attack fail");
+        Assert.assertTrue(pipeline.complete(node(pipeline, 2L), error).getReady().isEmpty());
+        // completing a task twice releases its dependents once
+        Assert.assertTrue(pipeline.complete(node(pipeline, 2L), null).getReady().isEmpty());
+        Assert.assertEquals(Collections.singleton(3L), ids(pipeline.complete(node(pipeline, 1L), null).getReady()));
+
+        Assert.assertTrue(pipeline.complete(node(pipeline, 3L), null).isEnd());
+        Assert.assertSame(error, pipeline.error());
+    }
+
+    @Test
+    public void testCompleteOnce() throws Exception {
+        int tasks = 64;
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                ActivityTaskExecutePipeline pipeline = new ActivityTaskExecutePipeline();
+                for (long i = 1; i <= tasks; i++) {
+                    pipeline.add(task(i, ChaosConstant.PHASE_ATTACK), Collections.emptyList());
+                }
+                pipeline.start();
+
+                // every task completed twice at once, a single completion ends the pipeline
+                CountDownLatch start = new CountDownLatch(1);
+                AtomicInteger ends = new AtomicInteger();
+                List<Future<?>> futures = new ArrayList<>();
+                for (TaskNode<ActivityTask> node : pipeline.nodes()) {
+                    for (int i = 0; i < 2; i++) {
+                        futures.add(executorService.submit(() -> {
+                            start.await();
+                            if (pipeline.complete(node, null).isEnd()) {
+                                ends.incrementAndGet();
+                            }
+                            return null;
+                        }));
+                    }
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+                Assert.assertEquals(1, ends.get());
+                Assert.assertTrue(pipeline.isEnd());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static ActivityTask task(Long activityTaskId, String phase) {
+        ActivityTask activityTask = new ActivityTask();
+        activityTask.setExperimentTaskId(1L);
+        activityTask.setActivityTaskId(activityTaskId);
+        activityTask.setPhase(phase);
+        return activityTask;
+    }
+
+    private static TaskNode<ActivityTask> node(ActivityTaskExecutePipeline pipeline, Long activityTaskId) {
+        return pipeline.nodes().stream()
+                .filter(node -> node.getTask().getActivityTaskId().equals(activityTaskId))
+                .findFirst()
+                .orElseThrow(IllegalArgumentException::new);
+    }
+
+    private static Set<Long> ids(List<TaskNode<ActivityTask>> nodes) {
+        return nodes.stream().map(node -> node.getTask().getActivityTaskId()).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.task;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author yefei
+ */
+public class MetricBlockCodecTest {
+
+    private static final long START = 1_600_000_000_000L;
+
+    @Test
+    public void testEmptyBlock() {
+        MetricBlockCodec.Encoder encoder = new MetricBlockCodec.Encoder(START);
+        Assert.assertEquals(0, encoder.getCount());
+        Assert.assertEquals(0, encoder.toByteArray().length);
+        Assert.assertEquals(START, encoder.getLastTime());
+
+        MetricBlockCodec.Decoder decoder = new MetricBlockCodec.Decoder(START, 0, encoder.toByteArray());
+        Assert.assertFalse(decoder.next());
+    }
+
+    @Test
+    public void testSinglePoint() {
+        assertRoundTrip(new long[]{START + 15_000}, new double[]{42.5});
+    }
+
+    @Test
+    public void testRegularTimestamps() {
+        long[] times = new long[100];
+        double[] values = new double[100];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = START + i * 10_000L;
+            values[i] = i % 7;
+        }
+        byte[] data = assertRoundTrip(times, values);
+        // delta of delta is 0 after the second sample, a single byte per timestamp
+        Assert.assertTrue(data.length < times.length * 4);
+    }
+
+    @Test
+    public void testIrregularTimestamps() {
+        assertRoundTrip(
+                new long[]{START, START + 1, START + 10_000, START + 10_001, START + 600_000, START + 600_000 + 123_456_789L},
+                new double[]{1, 2, 3, 4, 5, 6});
+    }
+
+    @Test
+    public void testSpecialValues() {
+        assertRoundTrip(
+                new long[]{START + 1000, START + 2000, START + 3000, START + 4000, START + 5000,
+                        START + 6000, START + 7000, START + 8000, START + 9000},
+                new double[]{Double.NaN, -1.5, -1.5, -1.5, 0.0, -0.0,
+                        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE});
+    }
+
+    @Test
+    public void testRepeatedValues() {
+        long[] times = new long[10];
+        double[] values = new double[10];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = START + i * 1000L;
+            values[i] = 3.14;
+        }
+        byte[] data = assertRoundTrip(times, values);
+        // an unchanged value costs the control byte only
+        Assert.assertTrue(data.length <= 1 + 8 + 2 * times.length + 1);
+    }
+
+    @Test
+    public void testDecodeStopsAtCount() {
+        MetricBlockCodec.Encoder encoder = new MetricBlockCodec.Encoder(START);
+        encoder.append(START + 1000, 1);
+        encoder.append(START + 2000, 2);
+
+        MetricBlockCodec.Decoder decoder = new MetricBlockCodec.Decoder(START, 1, encoder.toByteArray());
+        Assert.assertTrue(decoder.next());
+        Assert.assertEquals(START + 1000, decoder.time());
+        Assert.assertFalse(decoder.next());
+    }
+
+    private static byte[] assertRoundTrip(long[] times, double[] values) {
+        MetricBlockCodec.Encoder encoder = new MetricBlockCodec.Encoder(START);
+        for (int i = 0; i < times.length; i++) {
+            encoder.append(times[i], values[i]);
+        }
+        Assert.assertEquals(times.length, encoder.getCount());
+        Assert.assertEquals(times[times.length - 1], encoder.getLastTime());
+
+        byte[] data = encoder.toByteArray();
+        MetricBlockCodec.Decoder decoder = new MetricBlockCodec.Decoder(START, encoder.getCount(), data);
+        for (int i = 0; i < times.length; i++) {
+            Assert.assertTrue(decoder.next());
+            Assert.assertEquals(times[i], decoder.time());
+            Assert.assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoder.value()));
+        }
+        Assert.assertFalse(decoder.next());
+        return data;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.service.task;
+
+import com.alibaba.chaosblade.box.common.DeviceMeta;
+import com.alibaba.chaosblade.box.dao.model.MetricBlockDO;
+import com.alibaba.chaosblade.box.dao.model.MetricSeriesDO;
+import com.alibaba.chaosblade.box.dao.repository.MetricBlockRepository;
+import com.alibaba.chaosblade.box.dao.repository.MetricSeriesRepository;
+import com.alibaba.chaosblade.box.metric.MetricChartLineResponse;
+import com.alibaba.chaosblade.box.service.model.metric.MetricModel;
+import com.alibaba.testable.core.annotation.MockMethod;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+/**
+ * @author yefei
+ */
+public class MetricSamplingSchedulerTest {
+
+    private static final Long TASK_ID = 1L;
+
+    private static final List<MetricSeriesDO> SERIES = new ArrayList<>();
+
+    /**
+     * block id -> row
+     */
+    private static final Map<Long, MetricBlockDO> BLOCKS = new HashMap<>();
+
+    private static long sequence;
+
+    private static boolean failInsert;
+
+    private static boolean failUpdate;
+
+    private MetricSamplingScheduler metricSamplingScheduler;
+
+    private Object sampler;
+
+    private Object model;
+
+    public static class Mock {
+
+        @MockMethod
+        private void insertBatch(MetricSeriesRepository self, Collection<MetricSeriesDO> collection) {
+            SERIES.addAll(collection);
+        }
+
+        @MockMethod
+        private void insertBatch(MetricBlockRepository self, Collection<MetricBlockDO> collection) {
+            if (failInsert) {
+                throw new IllegalStateException("mock insert blocks fail");
+            }
+            collection.forEach(block -> {
+                block.setId(++sequence);
+                BLOCKS.put(block.getId(), copy(block));
+            });
+        }
+
+        @MockMethod
+        private void updateBatch(MetricBlockRepository self, Collection<MetricBlockDO> collection) {
+            if (failUpdate) {
+                throw new IllegalStateException("mock update blocks fail");
+            }
+            collection.forEach(block -> {
+                Assert.assertTrue("update of a block never inserted", BLOCKS.containsKey(block.getId()));
+                BLOCKS.put(block.getId(), copy(block));
+            });
+        }
+    }
+
+    @Before
+    public void before() {
+        SERIES.clear();
+        BLOCKS.clear();
+        sequence = 0;
+        failInsert = false;
+        failUpdate = false;
+
+        metricSamplingScheduler = new MetricSamplingScheduler();
+        ReflectionTestUtils.setField(metricSamplingScheduler, "blockDuration", 600L);
+        MetricModel metricModel = new MetricModel();
+        metricModel.setCode("cpu");
+        metricSamplingScheduler.start(TASK_ID, Collections.emptyList(), Collections.singletonList(metricModel),
+                LoggerFactory.getLogger(MetricSamplingSchedulerTest.class));
+        Map<?, ?> samplers = (Map<?, ?>) ReflectionTestUtils.getField(metricSamplingScheduler, "samplers");
+        sampler = samplers.get(TASK_ID);
+        model = ((List<?>) ReflectionTestUtils.getField(sampler, "models")).get(0);
+    }
+
+    @Test
+    public void testFailedUpdateRetried() {
+        save(1000, 2000);
+        Assert.assertEquals(1, SERIES.size());
+        Assert.assertEquals(2, (int) block().getCount());
+
+        failUpdate = true;
+        try {
+            save(1000, 2000, 3000);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // the window is retried
+        }
+
+        failUpdate = false;
+        save(1000, 2000, 3000);
+        Assert.assertEquals(1, BLOCKS.size());
+        Assert.assertEquals(3, (int) block().getCount());
+        Assert.assertEquals(Arrays.asList(1000L, 2000L, 3000L), times(block()));
+    }
+
+    @Test
+    public void testFailedInsertRetried() {
+        failInsert = true;
+        try {
+            save(1000, 2000);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // the window is retried
+        }
+        Assert.assertTrue(BLOCKS.isEmpty());
+
+        failInsert = false;
+        save(1000, 2000);
+        // the series inserted before the failure is reused
+        Assert.assertEquals(1, SERIES.size());
+        Assert.assertEquals(SERIES.get(0).getId(), block().getSeriesId());
+        Assert.assertEquals(Arrays.asList(1000L, 2000L), times(block()));
+
+        save(1000, 2000, 3000);
+        Assert.assertEquals(1, BLOCKS.size());
+        Assert.assertEquals(Arrays.asList(1000L, 2000L, 3000L), times(block()));
+    }
+
+    private void save(long... times) {
+        double[] values = new double[times.length];
+        Arrays.fill(values, 1.5);
+        MetricChartLineResponse response = MetricChartLineResponse.builder()
+                .metric("cpu")
+                .deviceMeta(DeviceMeta.builder().deviceId(10L).ip("127.0.0.1").build())
+                .times(times)
+                .values(values)
+                .build();
+        ReflectionTestUtils.invokeMethod(metricSamplingScheduler, "save", sampler, model,
+                Collections.singletonList(response));
+    }
+
+    private static MetricBlockDO block() {
+        Assert.assertEquals(1, BLOCKS.size());
+        return BLOCKS.values().iterator().next();
+    }
+
+    /**
+     * the row as written, later changes of the object are not written
+     */
+    private static MetricBlockDO copy(MetricBlockDO block) {
+        MetricBlockDO copy = MetricBlockDO.builder()
+                .taskId(block.getTaskId())
+                .seriesId(block.getSeriesId())
+                .startTime(block.getStartTime())
+                .endTime(block.getEndTime())
+                .count(block.getCount())
+                .data(block.getData())
+                .build();
+        copy.setId(block.getId());
+        return copy;
+    }
+
+    private static List<Long> times(MetricBlockDO block) {
+        MetricBlockCodec.Decoder decoder = new MetricBlockCodec.Decoder(block.getStartTime().getTime(),
+                block.getCount(), block.getData());
+        List<Long> times = new ArrayList<>();
+        while (decoder.next()) {
+            times.add(decoder.time());
+        }
+        return times;
+    }
+}
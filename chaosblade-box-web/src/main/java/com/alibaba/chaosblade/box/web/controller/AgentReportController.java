@@ -18,6 +18,7 @@ package com.alibaba.chaosblade.box.web.controller;
 
 import com.alibaba.chaosblade.box.common.utils.JsonUtils;
 import com.alibaba.chaosblade.box.service.DeviceService;
+import com.alibaba.chaosblade.box.service.model.device.DeviceHeartbeatRequest;
 import com.alibaba.chaosblade.box.service.model.device.DeviceRegisterRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,8 +27,6 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Map;
-
 /**
  * @author yefei
  */
@@ -46,8 +45,8 @@ public class AgentReportController {
 
     @RequestMapping("/chaos/AgentHeartBeat")
     @ResponseBody
-    public void agentHeartBeat(@RequestBody Map<String, String> param) {
-        log.debug(JsonUtils.writeValueAsString(param));
+    public void agentHeartBeat(@RequestBody DeviceHeartbeatRequest heartbeatRequest) {
+        deviceService.deviceHeartbeat(heartbeatRequest);
     }
 
     @RequestMapping("/chaos/AgentClosed")
@@ -19,12 +19,13 @@ package com.alibaba.chaosblade.box.web.controller;
 import com.alibaba.chaosblade.box.common.utils.Preconditions;
 import com.alibaba.chaosblade.box.service.ExperimentTaskService;
 import com.alibaba.chaosblade.box.service.model.experiment.ExperimentRequest;
+import com.alibaba.chaosblade.box.service.model.experiment.ExperimentTaskLogResponse;
 import com.alibaba.chaosblade.box.service.model.experiment.ExperimentTaskRequest;
 import com.alibaba.chaosblade.box.service.model.experiment.ExperimentTaskResponse;
+import com.alibaba.chaosblade.box.web.stream.TaskLogTailer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -40,6 +41,9 @@ public class ExperimentTaskController {
     @Autowired
     private ExperimentTaskService experimentTaskService;
 
+    @Autowired
+    private TaskLogTailer taskLogTailer;
+
     @RequestMapping("/GetTasksByExperimentId")
     public List<ExperimentTaskResponse> getExperimentById(@RequestBody ExperimentRequest experimentRequest) {
         Preconditions.checkNotNull(experimentRequest.getExperimentId(), ID_IS_NULL);
@@ -58,6 +62,19 @@ public class ExperimentTaskController {
         return experimentTaskService.queryTaskLog(experimentRequest);
     }
 
+    @RequestMapping("/QueryTaskLogByCursor")
+    public ExperimentTaskLogResponse queryTaskLogByCursor(@RequestBody ExperimentTaskRequest experimentRequest) {
+        Preconditions.checkNotNull(experimentRequest.getTaskId(), ID_IS_NULL);
+        return experimentTaskService.queryTaskLogByCursor(experimentRequest);
+    }
+
+    @GetMapping("/TailTaskLog")
+    public SseEmitter tailTaskLog(@RequestParam Long taskId,
+                                  @RequestParam(required = false) Long afterId,
+                                  @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return taskLogTailer.tail(taskId, lastEventId != null ? lastEventId : afterId);
+    }
+
     @RequestMapping("/FailRetryExperiment")
     public ExperimentTaskResponse failRetryExperiment(@RequestBody ExperimentTaskRequest experimentRequest) {
         Preconditions.checkNotNull(experimentRequest.getTask().getTaskId(), ID_IS_NULL);
@@ -0,0 +1,150 @@
+/*
+ * Copyright 1999-2021 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.chaosblade.box.web.stream;
+
+import cn.hutool.core.collection.CollUtil;
+import com.alibaba.chaosblade.box.service.ExperimentTaskService;
+import com.alibaba.chaosblade.box.service.model.experiment.ExperimentTaskLogResponse;
+import com.alibaba.chaosblade.box.service.model.experiment.ExperimentTaskRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live tailing of experiment task logs as server-sent events. Each subscriber
+ * polls the log cursor, events carry the cursor as id so a reconnecting client
+ * resumes from Last-Event-ID.
+ *
+ * @author yefei
+ */
+@Slf4j
+@Component
+public class TaskLogTailer implements InitializingBean, DisposableBean {
+
+    private static final int PAGE_LIMIT = 1000;
+
+    @Autowired
+    private ExperimentTaskService experimentTaskService;
+
+    @Value("${chaos.task.log.tailInterval:1000}")
+    private long tailInterval;
+
+    @Value("${chaos.task.log.tailTimeout:1800000}")
+    private long tailTimeout;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    public SseEmitter tail(Long taskId, Long afterId) {
+        SseEmitter emitter = new SseEmitter(tailTimeout);
+        Subscription subscription = new Subscription(taskId, afterId, emitter);
+
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+
+        subscription.future = scheduledExecutorService.scheduleWithFixedDelay(subscription::poll,
+                0, tailInterval, TimeUnit.MILLISECONDS);
+        if (subscription.cancelled) {
+            subscription.future.cancel(false);
+        }
+        return emitter;
+    }
+
+    private class Subscription {
+
+        final Long taskId;
+
+        final SseEmitter emitter;
+
+        Long cursor;
+
+        volatile boolean cancelled;
+
+        volatile ScheduledFuture<?> future;
+
+        Subscription(Long taskId, Long afterId, SseEmitter emitter) {
+            this.taskId = taskId;
+            this.cursor = afterId;
+            this.emitter = emitter;
+        }
+
+        void poll() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                ExperimentTaskLogResponse response;
+                do {
+                    ExperimentTaskRequest request = new ExperimentTaskRequest();
+                    request.setTaskId(taskId);
+                    request.setAfterId(cursor);
+                    request.setLimit(PAGE_LIMIT);
+                    response = experimentTaskService.queryTaskLogByCursor(request);
+                    if (CollUtil.isNotEmpty(response.getLogs())) {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(response.getLastId()))
+                                .name("log")
+                                .data(response.getLogs()));
+                        cursor = response.getLastId();
+                    }
+                } while (response.getLogs().size() == PAGE_LIMIT && !cancelled);
+
+                if (Boolean.TRUE.equals(response.getFinished())) {
+                    emitter.send(SseEmitter.event().name("finished").data(taskId));
+                    cancel();
+                    emitter.complete();
+                }
+            } catch (Exception e) {
+                log.debug("tail task log fail, task id: {}", taskId, e);
+                cancel();
+                emitter.completeWithError(e);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> scheduledFuture = future;
+            if (scheduledFuture != null) {
+                scheduledFuture.cancel(false);
+            }
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(2, r -> {
+            Thread thread = new Thread(r);
+            thread.setName("Task-log-tailer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        scheduledExecutorService.shutdownNow();
+    }
+}
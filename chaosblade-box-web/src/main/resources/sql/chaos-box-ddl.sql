@@ -415,11 +415,65 @@ create table if not exists `t_chaos_metric_task`
     `category_code` varchar(50)          NOT NULL COMMENT 'category code',
     `metric`        longtext            DEFAULT NULL COMMENT 'metric',
     PRIMARY KEY (`id`),
-    key `INX_METRIC_TASK_TASK_ID` (task_id),
+    key `INX_METRIC_TASK_TASK_CATEGORY_DEVICE_DATE` (task_id, category_code, device_id, date),
     key `INX_METRIC_TASK_DATE` (date)
 ) ENGINE = InnoDB COMMENT 'metric task'
   DEFAULT CHARSET = utf8;
 
+create table if not exists `t_chaos_metric_series`
+(
+    `id`            bigint(20) unsigned NOT NULL AUTO_INCREMENT,
+    `gmt_create`    datetime            NOT NULL COMMENT 'create time',
+    `gmt_modified`  datetime            NOT NULL COMMENT 'modified time',
+    `task_id`       bigint(20) unsigned NOT NULL,
+    `device_id`     bigint(20) unsigned DEFAULT NULL,
+    `ip`            varchar(64)         DEFAULT NULL COMMENT 'ip',
+    `hostname`      varchar(100)        DEFAULT NULL COMMENT 'hostname',
+    `category_id`   bigint(20)          NOT NULL COMMENT 'category id',
+    `category_code` varchar(50)         NOT NULL COMMENT 'category code',
+    `metric`        longtext            DEFAULT NULL COMMENT 'metric labels',
+    PRIMARY KEY (`id`),
+    key `INX_METRIC_SERIES_TASK_ID` (task_id)
+) ENGINE = InnoDB COMMENT 'metric series'
+  DEFAULT CHARSET = utf8;
+
+create table if not exists `t_chaos_metric_block`
+(
+    `id`           bigint(20) unsigned NOT NULL AUTO_INCREMENT,
+    `gmt_create`   datetime            NOT NULL COMMENT 'create time',
+    `gmt_modified` datetime            NOT NULL COMMENT 'modified time',
+    `task_id`      bigint(20) unsigned NOT NULL,
+    `series_id`    bigint(20) unsigned NOT NULL,
+    `start_time`   datetime            NOT NULL COMMENT 'bucket start',
+    `end_time`     datetime            NOT NULL COMMENT 'last sample time',
+    `count`        int unsigned        NOT NULL COMMENT 'sample count',
+    `data`         blob                NOT NULL COMMENT 'delta encoded samples',
+    PRIMARY KEY (`id`),
+    key `INX_METRIC_BLOCK_TASK_ID` (task_id, start_time)
+) ENGINE = InnoDB COMMENT 'metric samples of a series in a time bucket'
+  DEFAULT CHARSET = utf8;
 
+-- upgrade: t_chaos_metric_task index on task_id became (task_id, category_code, device_id, date),
+-- the script runs on every start so each step checks information_schema first
 
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+    'ALTER TABLE `t_chaos_metric_task` ADD INDEX `INX_METRIC_TASK_TASK_CATEGORY_DEVICE_DATE` (task_id, category_code, device_id, date)',
+    'SELECT 1')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE()
+      AND table_name = 't_chaos_metric_task'
+      AND index_name = 'INX_METRIC_TASK_TASK_CATEGORY_DEVICE_DATE');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
 
+SET @ddl = (SELECT IF(COUNT(*) > 0,
+    'ALTER TABLE `t_chaos_metric_task` DROP INDEX `INX_METRIC_TASK_TASK_ID`',
+    'SELECT 1')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE()
+      AND table_name = 't_chaos_metric_task'
+      AND index_name = 'INX_METRIC_TASK_TASK_ID');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;